@@ -7,6 +7,10 @@ import com.barden.bravo.player.PlayerProvider;
 import com.barden.bravo.product.ProductProvider;
 import com.barden.bravo.settings.Settings;
 import com.barden.bravo.metrics.MetricsProvider;
+import com.barden.bravo.metrics.TransactionMetrics;
+import com.barden.bravo.metrics.ingest.MetricIngestPipeline;
+import com.barden.bravo.metrics.journal.MetricJournal;
+import com.barden.bravo.transaction.log.TransactionLog;
 import com.barden.bravo.transaction.provider.TransactionProvider;
 import com.barden.library.BardenJavaLibrary;
 import org.springframework.boot.SpringApplication;
@@ -94,6 +98,15 @@ public class ProjectBravo {
     public void onExit() {
         PlayerProvider.getMongoProvider().save(PlayerProvider.getContent());
 
+        //Applies logged transactions.
+        TransactionLog.terminate();
+
+        //Flushes queued metrics.
+        MetricIngestPipeline.terminate();
+        TransactionMetrics.flush();
+        MetricJournal.terminate();
+        MetricsProvider.terminate();
+
         //Terminates barden java library.
         BardenJavaLibrary.terminate();
     }
@@ -1,8 +1,9 @@
 package com.barden.bravo.database;
 
+import com.barden.bravo.execution.Execution;
+import com.barden.bravo.instrumentation.Dependency;
 import com.barden.library.BardenJavaLibrary;
 import com.barden.library.database.DatabaseProvider;
-import com.barden.library.scheduler.SchedulerProvider;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.model.BulkWriteOptions;
 import com.mongodb.client.model.IndexOptions;
@@ -101,7 +102,9 @@ public abstract class DatabaseMongoProvider {
             objects.forEach(structure -> writes.add(new UpdateOneModel<>(structure.getDatabase().toQueryBson(), structure.getDatabase().toSaveBson())));
 
             //Pass write modules to collection. (UPDATES MONGO BSON DOCUMENTS AND COLLECTION) -> NOT ASYNC!
-            collection.bulkWrite(writes, new BulkWriteOptions().bypassDocumentValidation(true));
+            try (var timing = Dependency.MONGO.time(this.collectionId + ".bulk_save")) {
+                collection.bulkWrite(writes, new BulkWriteOptions().bypassDocumentValidation(true));
+            }
         } catch (Exception exception) {
             BardenJavaLibrary.getLogger().error("Couldn't save database(" + this.databaseId + ") objects to the database!", exception);
         }
@@ -113,6 +116,6 @@ public abstract class DatabaseMongoProvider {
      * @param objects Database objects.
      */
     public final void saveAsync(@Nonnull Set<? extends DatabaseObject<?, ?>> objects) {
-        SchedulerProvider.schedule(_task -> this.save(objects));
+        Execution.fork(() -> this.save(objects));
     }
 }
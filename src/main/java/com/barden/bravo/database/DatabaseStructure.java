@@ -1,6 +1,7 @@
 package com.barden.bravo.database;
 
-import com.barden.library.scheduler.SchedulerProvider;
+import com.barden.bravo.execution.Execution;
+import com.barden.bravo.instrumentation.Dependency;
 import com.mongodb.client.model.UpdateOptions;
 import com.mongodb.client.model.Updates;
 import org.bson.BsonDocument;
@@ -81,7 +82,9 @@ public abstract class DatabaseStructure<P, F extends DatabaseField<P>> {
     public final void save(@Nonnull F... fields) {
         //Object null checks.
         Objects.requireNonNull(fields, "Tried to save database(" + this.provider.getDatabaseId() + ") structure(" + this.parent + ") without fields.");
-        this.provider.getCollection().updateOne(this.toQueryBson(), this.toSaveBson(fields), new UpdateOptions().upsert(true));
+        try (var timing = Dependency.MONGO.time(this.provider.getCollectionId() + ".save")) {
+            this.provider.getCollection().updateOne(this.toQueryBson(), this.toSaveBson(fields), new UpdateOptions().upsert(true));
+        }
     }
 
     /**
@@ -108,7 +111,7 @@ public abstract class DatabaseStructure<P, F extends DatabaseField<P>> {
      * @param fields Fields to save.
      */
     public final void saveAsync(@Nonnull F... fields) {
-        SchedulerProvider.schedule(_task -> this.save(fields));
+        Execution.fork(() -> this.save(fields));
     }
 
     /**
@@ -133,14 +136,16 @@ public abstract class DatabaseStructure<P, F extends DatabaseField<P>> {
      * Deletes database structure from the database.
      */
     public final void delete() {
-        this.provider.getCollection().deleteOne(this.toQueryBson());
+        try (var timing = Dependency.MONGO.time(this.provider.getCollectionId() + ".delete")) {
+            this.provider.getCollection().deleteOne(this.toQueryBson());
+        }
     }
 
     /**
      * Deletes database structure from the database. (ASYNC)
      */
     public final void deleteAsync() {
-        SchedulerProvider.schedule(_task -> this.delete());
+        Execution.fork(() -> this.delete());
     }
 
 
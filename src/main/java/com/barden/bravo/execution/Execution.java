@@ -0,0 +1,227 @@
+package com.barden.bravo.execution;
+
+import com.barden.library.BardenJavaLibrary;
+import com.barden.library.scheduler.SchedulerProvider;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Execution class.
+ * <p>
+ * Decides where request work and blocking dependency calls run. In scheduler mode
+ * they run on the shared scheduler pool, as before. In virtual mode requests are
+ * handled on virtual threads and their work runs inline, without a thread hop, and
+ * background work gets a virtual thread of its own. Concurrency of dependencies is
+ * bounded by {@link com.barden.bravo.instrumentation.Dependency} permits instead of
+ * the pool size.
+ * <p>
+ * Project is compiled for Java 17, so virtual threads are looked up at runtime. If
+ * the runtime doesn't have them, virtual mode falls back to scheduler mode.
+ */
+public final class Execution {
+
+    /**
+     * Execution modes.
+     */
+    public enum Mode {
+        SCHEDULER,
+        VIRTUAL
+    }
+
+    private static final MethodHandle IS_VIRTUAL = find(Thread.class, "isVirtual", MethodType.methodType(boolean.class));
+    private static final MethodHandle NEW_VIRTUAL_EXECUTOR = findStatic(Executors.class, "newVirtualThreadPerTaskExecutor", MethodType.methodType(ExecutorService.class));
+
+    private static volatile Mode mode = Mode.SCHEDULER;
+    private static volatile ExecutorService executor;
+
+    /**
+     * Initializes execution.
+     *
+     * @param name Execution mode name. ("scheduler" OR "virtual")
+     */
+    public static synchronized void initialize(@Nonnull String name) {
+        Mode _mode = Mode.valueOf(Objects.requireNonNull(name, "name cannot be null!").trim().toUpperCase());
+
+        //If runtime doesn't have virtual threads, no need to continue.
+        if (_mode == Mode.VIRTUAL && NEW_VIRTUAL_EXECUTOR == null) {
+            BardenJavaLibrary.getLogger().error("Virtual threads are not available in Java " + Runtime.version().feature() + ", scheduler execution is used!");
+            return;
+        }
+
+        if (_mode == Mode.VIRTUAL && executor == null) {
+            try {
+                executor = (ExecutorService) NEW_VIRTUAL_EXECUTOR.invoke();
+            } catch (Throwable throwable) {
+                BardenJavaLibrary.getLogger().error("Couldn't create virtual thread executor, scheduler execution is used!", throwable);
+                return;
+            }
+        }
+        mode = _mode;
+    }
+
+    /**
+     * Gets execution mode.
+     *
+     * @return Execution mode.
+     */
+    @Nonnull
+    public static Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Gets virtual thread executor.
+     *
+     * @return Virtual thread executor. (NULL IF MODE IS NOT VIRTUAL)
+     */
+    @Nullable
+    public static ExecutorService getExecutor() {
+        return mode == Mode.VIRTUAL ? executor : null;
+    }
+
+    /**
+     * Runs request work.
+     * In virtual mode it runs inline if current thread is virtual already.
+     *
+     * @param task Task.
+     */
+    public static void run(@Nonnull Runnable task) {
+        Objects.requireNonNull(task, "task cannot be null!");
+        if (mode == Mode.VIRTUAL && isVirtual(Thread.currentThread()))
+            execute(task);
+        else
+            fork(task);
+    }
+
+    /**
+     * Runs background work on another thread.
+     *
+     * @param task Task.
+     */
+    public static void fork(@Nonnull Runnable task) {
+        Objects.requireNonNull(task, "task cannot be null!");
+        ExecutorService _executor = getExecutor();
+        if (_executor != null)
+            _executor.execute(() -> execute(task));
+        else
+            SchedulerProvider.schedule(_task -> task.run());
+    }
+
+    /**
+     * Runs tasks then waits for all of them.
+     * In virtual mode every task gets its own virtual thread, otherwise they run one by one.
+     *
+     * @param tasks Tasks.
+     */
+    public static void all(@Nonnull Collection<? extends Runnable> tasks) {
+        Objects.requireNonNull(tasks, "tasks cannot be null!");
+        ExecutorService _executor = getExecutor();
+        if (_executor == null) {
+            tasks.forEach(Execution::execute);
+            return;
+        }
+
+        List<Future<?>> futures = new ArrayList<>(tasks.size());
+        tasks.forEach(task -> futures.add(_executor.submit(() -> execute(task))));
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException exception) {
+                BardenJavaLibrary.getLogger().error("Couldn't run task!", exception.getCause());
+            }
+        }
+    }
+
+    /**
+     * Creates a long running thread. (NOT STARTED)
+     * It is virtual in virtual mode, otherwise it is a daemon platform thread.
+     *
+     * @param name Thread name.
+     * @param task Task.
+     * @return Thread.
+     */
+    @Nonnull
+    public static Thread thread(@Nonnull String name, @Nonnull Runnable task) {
+        Objects.requireNonNull(name, "name cannot be null!");
+        Objects.requireNonNull(task, "task cannot be null!");
+
+        ExecutorService _executor = getExecutor();
+        if (_executor != null) {
+            try {
+                //Builder implementations are not public, so methods are taken from the builder interface.
+                Class<?> type = Class.forName("java.lang.Thread$Builder");
+                Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+                builder = type.getMethod("name", String.class).invoke(builder, name);
+                return (Thread) type.getMethod("unstarted", Runnable.class).invoke(builder, task);
+            } catch (ReflectiveOperationException | RuntimeException exception) {
+                BardenJavaLibrary.getLogger().error("Couldn't create virtual thread(" + name + "), platform thread is used!", exception);
+            }
+        }
+
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * Gets if a thread is virtual or not.
+     *
+     * @param thread Thread.
+     * @return If thread is virtual or not.
+     */
+    public static boolean isVirtual(@Nonnull Thread thread) {
+        if (IS_VIRTUAL == null)
+            return false;
+        try {
+            return (boolean) IS_VIRTUAL.invoke(thread);
+        } catch (Throwable throwable) {
+            return false;
+        }
+    }
+
+    /**
+     * Runs a task and logs its exception, like scheduler tasks.
+     *
+     * @param task Task.
+     */
+    private static void execute(@Nonnull Runnable task) {
+        try {
+            task.run();
+        } catch (Exception exception) {
+            BardenJavaLibrary.getLogger().error("Couldn't run task!", exception);
+        }
+    }
+
+    @Nullable
+    private static MethodHandle find(@Nonnull Class<?> owner, @Nonnull String name, @Nonnull MethodType type) {
+        try {
+            return MethodHandles.publicLookup().findVirtual(owner, name, type);
+        } catch (ReflectiveOperationException exception) {
+            return null;
+        }
+    }
+
+    @Nullable
+    private static MethodHandle findStatic(@Nonnull Class<?> owner, @Nonnull String name, @Nonnull MethodType type) {
+        try {
+            return MethodHandles.publicLookup().findStatic(owner, name, type);
+        } catch (ReflectiveOperationException exception) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.barden.bravo.execution;
+
+import com.barden.bravo.instrumentation.Dependency;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nonnull;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Execution configuration class.
+ * <p>
+ * Execution is configured from application properties, since request threads are
+ * created before settings are loaded. In virtual mode, Tomcat handles requests on
+ * virtual threads.
+ */
+@Component
+public final class ExecutionConfiguration implements WebServerFactoryCustomizer<TomcatServletWebServerFactory> {
+
+    @Value("${bravo.execution.mode:scheduler}")
+    private String mode;
+    @Value("${bravo.execution.permits.mongo:0}")
+    private int mongoPermits;
+    @Value("${bravo.execution.permits.redis:0}")
+    private int redisPermits;
+    @Value("${bravo.execution.permits.timescale:0}")
+    private int timescalePermits;
+
+    /**
+     * Customizes web server factory.
+     *
+     * @param factory Tomcat web server factory.
+     */
+    @Override
+    public void customize(@Nonnull TomcatServletWebServerFactory factory) {
+        //Initializes execution and dependency permits.
+        Execution.initialize(this.mode);
+        Dependency.MONGO.limit(this.mongoPermits);
+        Dependency.REDIS.limit(this.redisPermits);
+        Dependency.TIMESCALE.limit(this.timescalePermits);
+
+        //If execution is not virtual, no need to continue.
+        ExecutorService executor = Execution.getExecutor();
+        if (executor == null)
+            return;
+
+        factory.addProtocolHandlerCustomizers((TomcatProtocolHandlerCustomizer<?>) handler -> handler.setExecutor(executor));
+    }
+}
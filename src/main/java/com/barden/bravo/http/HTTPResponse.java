@@ -1,5 +1,6 @@
 package com.barden.bravo.http;
 
+import com.barden.bravo.instrumentation.Instrumentation;
 import com.google.gson.JsonObject;
 
 import javax.annotation.Nonnull;
@@ -34,8 +35,15 @@ public final class HTTPResponse {
     public static JsonObject of(boolean success, @Nonnull Enum<?> enumObject) {
         JsonObject json_object = new JsonObject();
         json_object.addProperty("success", success);
-        if (!success)
+        if (!success) {
             json_object.addProperty("error", Objects.requireNonNull(enumObject, "enum object cannot be null!").name());
+
+            //Counts failed results by controller. (RESULT ENUMS ARE DECLARED IN CONTROLLERS)
+            Class<?> controller = enumObject.getDeclaringClass().getEnclosingClass();
+            Instrumentation.counter("bravo.http.errors",
+                    "controller", controller == null ? "unknown" : controller.getSimpleName(),
+                    "error", enumObject.name()).increment();
+        }
         return json_object;
     }
 }
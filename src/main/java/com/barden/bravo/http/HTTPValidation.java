@@ -2,6 +2,7 @@ package com.barden.bravo.http;
 
 import com.barden.bravo.ProjectBravo;
 import com.barden.bravo.settings.Settings;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.Nonnull;
@@ -16,6 +17,9 @@ import java.io.IOException;
 @Component
 public final class HTTPValidation implements Filter {
 
+    @Value("${management.server.port:-1}")
+    private int managementPort;
+
     /**
      * Do HTTP filtering.
      *
@@ -34,6 +38,12 @@ public final class HTTPValidation implements Filter {
         HttpServletResponse http_response = (HttpServletResponse) response;
         String http_api_key = ((HttpServletRequest) request).getHeader("BARDEN-API-KEY");
 
+        //Management port is not exposed publicly, so it doesn't need an API key. (PROMETHEUS SCRAPES)
+        if (this.managementPort > 0 && http_request.getLocalPort() == this.managementPort) {
+            chain.doFilter(request, response);
+            return;
+        }
+
         //If project hasn't initialized yet, no need to continue.
         if (!ProjectBravo.isInitialize()) {
             //Configures response.
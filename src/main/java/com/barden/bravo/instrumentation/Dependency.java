@@ -0,0 +1,123 @@
+package com.barden.bravo.instrumentation;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Objects;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * External dependencies.
+ * Every call to a dependency is timed as {@code bravo.dependency.duration}.
+ * <p>
+ * A dependency can be limited to a number of in-flight calls. When its permits are
+ * taken, calls wait for a permit up to {@link #PERMIT_TIMEOUT} then fail, so a slow
+ * dependency can't pile up unbounded callers. (VIRTUAL EXECUTION)
+ * <p>
+ * A thread which holds a permit of a dependency doesn't take another one for nested
+ * calls of the same dependency, so it can't wait for a permit it holds itself.
+ */
+public enum Dependency {
+    MONGO,
+    REDIS,
+    TIMESCALE;
+
+    /**
+     * Maximum duration to wait for a permit. (MILLISECONDS)
+     */
+    public static final long PERMIT_TIMEOUT = TimeUnit.SECONDS.toMillis(10);
+
+    private final String tag = this.name().toLowerCase();
+    private volatile Semaphore permits;
+    private volatile Counter rejections;
+    private final ThreadLocal<int[]> held = ThreadLocal.withInitial(() -> new int[1]);
+
+    /**
+     * Limits in-flight calls of dependency.
+     *
+     * @param permits Maximum in-flight call count. (0 OR LOWER FOR NO LIMIT)
+     */
+    public synchronized void limit(int permits) {
+        //If there is no limit, no need to continue.
+        if (permits <= 0) {
+            this.permits = null;
+            return;
+        }
+
+        Semaphore semaphore = new Semaphore(permits, true);
+        this.permits = semaphore;
+        this.rejections = Instrumentation.counter("bravo.dependency.rejected", "dependency", this.tag);
+
+        //Instrumentation.
+        Instrumentation.gauge("bravo.dependency.in_flight", semaphore, _semaphore -> permits - _semaphore.availablePermits(), "dependency", this.tag);
+    }
+
+    /**
+     * Starts timing a dependency call.
+     * Designed to be the first resource of a try-with-resources block.
+     * If dependency is limited, a permit is taken until timing is closed, unless
+     * current thread holds one already.
+     *
+     * @param operation Operation name.
+     * @return Timing. (RECORDS WHEN CLOSED)
+     * @throws IllegalStateException If a permit couldn't be taken in time.
+     */
+    @Nonnull
+    public Timing time(@Nonnull String operation) {
+        Timer timer = Instrumentation.timer("bravo.dependency.duration",
+                "dependency", this.tag,
+                "operation", Objects.requireNonNull(operation, "operation cannot be null!"));
+
+        //Takes a permit if current thread doesn't hold one.
+        int[] depth = this.held.get();
+        Semaphore semaphore = depth[0] == 0 ? this.permits : null;
+        if (semaphore != null) {
+            boolean acquired;
+            try {
+                acquired = semaphore.tryAcquire(PERMIT_TIMEOUT, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                acquired = false;
+            }
+
+            if (!acquired) {
+                this.rejections.increment();
+                throw new IllegalStateException("dependency(" + this.tag + ") operation(" + operation + ") couldn't get a permit!");
+            }
+        }
+
+        depth[0]++;
+        return new Timing(timer, semaphore, depth);
+    }
+
+    /**
+     * Dependency call timing.
+     */
+    public static final class Timing implements AutoCloseable {
+
+        private final Timer timer;
+        private final Semaphore permits;
+        private final int[] depth;
+        private final long start = System.nanoTime();
+
+        private Timing(@Nonnull Timer timer, @Nullable Semaphore permits, @Nonnull int[] depth) {
+            this.timer = timer;
+            this.permits = permits;
+            this.depth = depth;
+        }
+
+        /**
+         * Records call duration and releases its permit.
+         */
+        @Override
+        public void close() {
+            this.timer.record(System.nanoTime() - this.start, TimeUnit.NANOSECONDS);
+            this.depth[0]--;
+            if (this.permits != null)
+                this.permits.release();
+        }
+    }
+}
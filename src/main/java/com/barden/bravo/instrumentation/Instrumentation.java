@@ -0,0 +1,114 @@
+package com.barden.bravo.instrumentation;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+import javax.annotation.Nonnull;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Instrumentation class.
+ * <p>
+ * Backend's own meters. Meters are registered to the micrometer global registry,
+ * which spring adds its prometheus registry to, so static providers can record
+ * without being spring beans. Scraped from the management port. (/actuator/prometheus)
+ */
+public final class Instrumentation {
+
+    /**
+     * Timer buckets.
+     * Backend timers are dependency, operation and job timers, so they have a few
+     * fixed buckets instead of a full percentile histogram per tag combination.
+     * Request timers have percentile histograms. (application.properties)
+     */
+    private static final Duration[] BUCKETS = {
+            Duration.ofMillis(1),
+            Duration.ofMillis(5),
+            Duration.ofMillis(25),
+            Duration.ofMillis(100),
+            Duration.ofMillis(250),
+            Duration.ofSeconds(1),
+            Duration.ofSeconds(5),
+            Duration.ofSeconds(30)
+    };
+
+    /**
+     * Gets meter registry.
+     *
+     * @return Meter registry.
+     */
+    @Nonnull
+    public static MeterRegistry getRegistry() {
+        return Metrics.globalRegistry;
+    }
+
+    /**
+     * Gets a timer.
+     *
+     * @param name Timer name.
+     * @param tags Tags. (KEY VALUE PAIRS)
+     * @return Timer.
+     */
+    @Nonnull
+    public static Timer timer(@Nonnull String name, @Nonnull String... tags) {
+        return Timer.builder(Objects.requireNonNull(name, "name cannot be null!"))
+                .tags(tags)
+                .serviceLevelObjectives(BUCKETS)
+                .register(getRegistry());
+    }
+
+    /**
+     * Gets a counter.
+     *
+     * @param name Counter name.
+     * @param tags Tags. (KEY VALUE PAIRS)
+     * @return Counter.
+     */
+    @Nonnull
+    public static Counter counter(@Nonnull String name, @Nonnull String... tags) {
+        return getRegistry().counter(Objects.requireNonNull(name, "name cannot be null!"), tags);
+    }
+
+    /**
+     * Registers a gauge.
+     * Gauge object should be strongly referenced somewhere else, gauges only hold weak references.
+     *
+     * @param name     Gauge name.
+     * @param object   Gauge object.
+     * @param function Value function.
+     * @param tags     Tags. (KEY VALUE PAIRS)
+     * @param <T>      Gauge object type.
+     */
+    public static <T> void gauge(@Nonnull String name, @Nonnull T object, @Nonnull ToDoubleFunction<T> function, @Nonnull String... tags) {
+        Gauge.builder(Objects.requireNonNull(name, "name cannot be null!"), object, function)
+                .tags(tags)
+                .register(getRegistry());
+    }
+
+    /**
+     * Registers a queue depth gauge.
+     *
+     * @param queue    Queue name.
+     * @param object   Queue object.
+     * @param function Depth function.
+     * @param <T>      Queue object type.
+     */
+    public static <T> void queue(@Nonnull String queue, @Nonnull T object, @Nonnull ToDoubleFunction<T> function) {
+        gauge("bravo.queue.depth", object, function, "queue", queue);
+    }
+
+    /**
+     * Runs a periodic job and records its duration.
+     *
+     * @param job      Job name.
+     * @param runnable Job.
+     */
+    public static void job(@Nonnull String job, @Nonnull Runnable runnable) {
+        timer("bravo.job.duration", "job", job).record(Objects.requireNonNull(runnable, "runnable cannot be null!"));
+    }
+}
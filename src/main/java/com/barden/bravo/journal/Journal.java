@@ -0,0 +1,389 @@
+package com.barden.bravo.journal;
+
+import javax.annotation.Nonnull;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Journal class.
+ * <p>
+ * Append-only journal of memory mapped segment files. Records are read back in
+ * append order from a cursor; committed records are skipped after a restart and
+ * fully consumed segments are deleted.
+ * <p>
+ * Journal is bounded by segment count. When a new segment would exceed the limit,
+ * the oldest segment is dropped with its unread records, and their rows are
+ * counted as dropped.
+ * <p>
+ * Methods are guarded by a lock instead of monitors, since they block on disk and
+ * a monitor would pin the carrier of a virtual thread. (VIRTUAL EXECUTION)
+ */
+public final class Journal implements Closeable {
+
+    private static final String EXTENSION = ".seg";
+    private static final String CURSOR = "cursor";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int maximumSegments;
+    private final Deque<JournalSegment> segments = new ArrayDeque<>();
+    private final FileChannel cursor;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private long cursorSegment;
+    private int cursorPosition;
+    private long pendingRows;
+    private long droppedRows;
+
+    /**
+     * Creates or opens a journal.
+     *
+     * @param directory       Journal directory.
+     * @param segmentSize     Segment size. (BYTES)
+     * @param maximumSegments Maximum segment count.
+     * @throws IOException If journal files can't be opened.
+     */
+    public Journal(@Nonnull Path directory, int segmentSize, int maximumSegments) throws IOException {
+        if (segmentSize <= JournalSegment.HEADER)
+            throw new IllegalArgumentException("journal segment size is too small!");
+        if (maximumSegments < 2)
+            throw new IllegalArgumentException("journal needs at least 2 segments!");
+
+        this.directory = Objects.requireNonNull(directory, "directory cannot be null!");
+        this.segmentSize = segmentSize;
+        this.maximumSegments = maximumSegments;
+        Files.createDirectories(directory);
+
+        //Loads cursor.
+        this.cursor = FileChannel.open(directory.resolve(CURSOR), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer _cursor = ByteBuffer.allocate(Long.BYTES + Integer.BYTES);
+        if (this.cursor.read(_cursor, 0) == _cursor.capacity()) {
+            this.cursorSegment = _cursor.getLong(0);
+            this.cursorPosition = _cursor.getInt(Long.BYTES);
+        }
+
+        //Opens segments in order. Segments which are older than cursor are already consumed.
+        List<Long> ids = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(EXTENSION))
+                    .forEach(name -> ids.add(Long.parseLong(name.substring(0, name.length() - EXTENSION.length()))));
+        }
+        ids.sort(Long::compare);
+        for (long id : ids) {
+            if (id < this.cursorSegment) {
+                Files.deleteIfExists(this.toPath(id));
+                continue;
+            }
+            this.segments.addLast(new JournalSegment(id, this.toPath(id), segmentSize));
+        }
+
+        //Creates first segment.
+        if (this.segments.isEmpty())
+            this.segments.addLast(new JournalSegment(this.cursorSegment, this.toPath(this.cursorSegment), segmentSize));
+
+        //If cursor points to a deleted segment, moves it to the oldest segment.
+        if (this.segments.peekFirst().getId() != this.cursorSegment) {
+            this.cursorSegment = this.segments.peekFirst().getId();
+            this.cursorPosition = 0;
+        }
+
+        //Counts unread rows.
+        for (JournalSegment segment : this.segments)
+            this.pendingRows += segment.getId() == this.cursorSegment ? segment.getRows(this.cursorPosition) : segment.getRows();
+    }
+
+    /**
+     * Gets maximum payload length.
+     *
+     * @return Maximum payload length. (BYTES)
+     */
+    public int getMaximumPayload() {
+        return this.segmentSize - JournalSegment.HEADER;
+    }
+
+    /**
+     * Gets unread row count.
+     *
+     * @return Unread row count.
+     */
+    public long getPendingRows() {
+        this.lock.lock();
+        try {
+            return this.pendingRows;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Gets dropped row count since journal is opened.
+     *
+     * @return Dropped row count.
+     */
+    public long getDroppedRows() {
+        this.lock.lock();
+        try {
+            return this.droppedRows;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Gets segment count.
+     *
+     * @return Segment count.
+     */
+    public int getSegmentCount() {
+        this.lock.lock();
+        try {
+            return this.segments.size();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Gets if journal has unread records or not.
+     *
+     * @return If journal has unread records or not.
+     */
+    public boolean isEmpty() {
+        this.lock.lock();
+        try {
+            JournalSegment last = this.segments.peekLast();
+            return this.segments.size() == 1 && last.getPosition() == this.cursorPosition;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Appends a record and forces it to the disk.
+     * If journal is full, oldest segment is dropped.
+     *
+     * @param payload Payload.
+     * @param rows    Row count of payload.
+     * @throws IOException If a new segment can't be created.
+     */
+    public void append(@Nonnull byte[] payload, int rows) throws IOException {
+        this.lock.lock();
+        try {
+            this.append(payload, rows, true);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Appends a record without forcing it to the disk. (GROUP COMMIT)
+     * Records are durable only after {@link #sync()}, so several records share a single
+     * force. Unlike {@link #append(byte[], int)}, a full journal rejects the record
+     * instead of dropping the oldest segment.
+     *
+     * @param payload Payload.
+     * @param rows    Row count of payload.
+     * @return If record is appended or not. (FALSE IF JOURNAL IS FULL)
+     * @throws IOException If a new segment can't be created.
+     */
+    public boolean offer(@Nonnull byte[] payload, int rows) throws IOException {
+        this.lock.lock();
+        try {
+            //If a new segment would exceed the limit, rejects the record.
+            if (!this.segments.peekLast().hasSpace(Objects.requireNonNull(payload, "payload cannot be null!").length) && this.segments.size() >= this.maximumSegments)
+                return false;
+
+            this.append(payload, rows, false);
+            return true;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Forces appended records to the disk.
+     * Rolled segments are already forced when they are closed, so only active segment is forced.
+     */
+    public void sync() {
+        this.lock.lock();
+        try {
+            this.segments.peekLast().force();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Appends a record.
+     *
+     * @param payload Payload.
+     * @param rows    Row count of payload.
+     * @param force   If record should be forced to the disk or not.
+     * @throws IOException If a new segment can't be created.
+     */
+    private void append(@Nonnull byte[] payload, int rows, boolean force) throws IOException {
+        //Objects null check.
+        Objects.requireNonNull(payload, "payload cannot be null!");
+        if (payload.length == 0 || payload.length > this.getMaximumPayload())
+            throw new IllegalArgumentException("journal payload length must be between 1 and " + this.getMaximumPayload() + "!");
+
+        //Rolls to a new segment if active one is full.
+        JournalSegment active = this.segments.peekLast();
+        if (!active.hasSpace(payload.length)) {
+            long id = active.getId() + 1;
+            active.close();
+            this.segments.addLast(active = new JournalSegment(id, this.toPath(id), this.segmentSize));
+
+            //Drops oldest segment if journal is full.
+            if (this.segments.size() > this.maximumSegments)
+                this.dropOldest();
+        }
+
+        active.append(payload, rows, force);
+        this.pendingRows += rows;
+    }
+
+    /**
+     * Reads unread records from the cursor. Cursor doesn't move until records are committed.
+     *
+     * @param maximum Maximum record count.
+     * @return Records. (IN APPEND ORDER)
+     */
+    @Nonnull
+    public List<JournalRecord> read(int maximum) {
+        this.lock.lock();
+        try {
+            List<JournalRecord> records = new ArrayList<>();
+            long segmentId = this.cursorSegment;
+            int position = this.cursorPosition;
+
+            for (JournalSegment segment : this.segments) {
+                if (segment.getId() < segmentId)
+                    continue;
+                if (segment.getId() > segmentId)
+                    position = 0;
+
+                JournalRecord record;
+                while (records.size() < maximum && (record = segment.read(position)) != null) {
+                    records.add(record);
+                    position = record.getNext();
+                }
+                if (records.size() >= maximum)
+                    break;
+            }
+
+            return records;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Commits records up to declared record. (INCLUSIVE)
+     * Consumed segments are deleted and cursor is persisted.
+     *
+     * @param records Committed records. (IN READ ORDER)
+     * @throws IOException If cursor can't be persisted.
+     */
+    public void commit(@Nonnull List<JournalRecord> records) throws IOException {
+        this.lock.lock();
+        try {
+            //If there is no record, no need to continue.
+            if (Objects.requireNonNull(records, "records cannot be null!").isEmpty())
+                return;
+
+            //If records are already dropped, no need to continue.
+            JournalRecord last = records.get(records.size() - 1);
+            if (last.getSegment() < this.cursorSegment)
+                return;
+
+            for (JournalRecord record : records) {
+                if (record.getSegment() >= this.cursorSegment)
+                    this.pendingRows -= record.getRows();
+            }
+            this.cursorSegment = last.getSegment();
+            this.cursorPosition = last.getNext();
+
+            //Deletes consumed segments. Active segment is never deleted.
+            while (this.segments.size() > 1 && this.segments.peekFirst().getId() < this.cursorSegment)
+                this.segments.pollFirst().delete();
+            JournalSegment first = this.segments.peekFirst();
+            if (this.segments.size() > 1 && first.getId() == this.cursorSegment && first.read(this.cursorPosition) == null) {
+                this.segments.pollFirst().delete();
+                this.cursorSegment = this.segments.peekFirst().getId();
+                this.cursorPosition = 0;
+            }
+
+            this.saveCursor();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Drops oldest segment with its unread records.
+     */
+    private void dropOldest() throws IOException {
+        JournalSegment oldest = this.segments.pollFirst();
+        long rows = oldest.getId() == this.cursorSegment ? oldest.getRows(this.cursorPosition) : oldest.getRows();
+        this.droppedRows += rows;
+        this.pendingRows -= rows;
+        oldest.delete();
+
+        //Moves cursor to the next segment.
+        if (this.cursorSegment <= oldest.getId()) {
+            this.cursorSegment = this.segments.peekFirst().getId();
+            this.cursorPosition = 0;
+            this.saveCursor();
+        }
+    }
+
+    /**
+     * Persists cursor.
+     */
+    private void saveCursor() throws IOException {
+        ByteBuffer _cursor = ByteBuffer.allocate(Long.BYTES + Integer.BYTES);
+        _cursor.putLong(this.cursorSegment).putInt(this.cursorPosition).flip();
+        this.cursor.write(_cursor, 0);
+        this.cursor.force(false);
+    }
+
+    /**
+     * Gets segment file path.
+     *
+     * @param id Segment id.
+     * @return Segment file path.
+     */
+    @Nonnull
+    private Path toPath(long id) {
+        return this.directory.resolve(String.format("%020d", id) + EXTENSION);
+    }
+
+    /**
+     * Closes journal.
+     */
+    @Override
+    public void close() throws IOException {
+        this.lock.lock();
+        try {
+            for (JournalSegment segment : this.segments)
+                segment.close();
+            this.cursor.close();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.barden.bravo.journal;
+
+import javax.annotation.Nonnull;
+import java.util.Objects;
+
+/**
+ * Journal record class.
+ */
+public final class JournalRecord {
+
+    private final long segment;
+    private final int next;
+    private final int rows;
+    private final byte[] payload;
+
+    /**
+     * Creates a journal record.
+     *
+     * @param segment Segment id.
+     * @param next    Position of the next record in segment.
+     * @param rows    Row count of payload.
+     * @param payload Payload.
+     */
+    JournalRecord(long segment, int next, int rows, @Nonnull byte[] payload) {
+        this.segment = segment;
+        this.next = next;
+        this.rows = rows;
+        this.payload = Objects.requireNonNull(payload, "payload cannot be null!");
+    }
+
+    /**
+     * Gets segment id.
+     *
+     * @return Segment id.
+     */
+    public long getSegment() {
+        return this.segment;
+    }
+
+    /**
+     * Gets position of the next record in segment.
+     *
+     * @return Next record position.
+     */
+    public int getNext() {
+        return this.next;
+    }
+
+    /**
+     * Gets row count of payload.
+     *
+     * @return Row count.
+     */
+    public int getRows() {
+        return this.rows;
+    }
+
+    /**
+     * Gets payload.
+     *
+     * @return Payload.
+     */
+    @Nonnull
+    public byte[] getPayload() {
+        return this.payload;
+    }
+}
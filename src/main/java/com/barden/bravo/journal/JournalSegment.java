@@ -0,0 +1,170 @@
+package com.barden.bravo.journal;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Journal segment class.
+ * <p>
+ * A fixed size memory mapped file. Records are appended one after another as
+ * (length, rows, crc32, payload). Files are zero filled, so a zero length marks
+ * the end of written records; a torn record fails its checksum and is treated
+ * as the end as well.
+ */
+final class JournalSegment {
+
+    static final int HEADER = Integer.BYTES * 3;
+
+    private final long id;
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private int position;
+    private long rows;
+
+    /**
+     * Creates or opens a journal segment.
+     *
+     * @param id   Segment id.
+     * @param path Segment file path.
+     * @param size Segment size. (BYTES)
+     * @throws IOException If file can't be mapped.
+     */
+    JournalSegment(long id, @Nonnull Path path, int size) throws IOException {
+        this.id = id;
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.buffer = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+
+        //Finds end of written records.
+        int _position = 0;
+        JournalRecord record;
+        while ((record = this.read(_position)) != null) {
+            _position = record.getNext();
+            this.rows += record.getRows();
+        }
+        this.position = _position;
+    }
+
+    long getId() {
+        return this.id;
+    }
+
+    int getPosition() {
+        return this.position;
+    }
+
+    long getRows() {
+        return this.rows;
+    }
+
+    /**
+     * Gets if segment has space for a payload.
+     *
+     * @param length Payload length.
+     * @return If segment has space or not.
+     */
+    boolean hasSpace(int length) {
+        return this.buffer.capacity() - this.position >= HEADER + length;
+    }
+
+    /**
+     * Appends a record.
+     *
+     * @param payload Payload.
+     * @param rows    Row count of payload.
+     * @param force   If record should be forced to the disk or not.
+     */
+    void append(@Nonnull byte[] payload, int rows, boolean force) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        //Payload is written before length, so a crash in between leaves a zero length.
+        this.buffer.position(this.position + HEADER);
+        this.buffer.put(payload);
+        this.buffer.putInt(this.position + Integer.BYTES, rows);
+        this.buffer.putInt(this.position + Integer.BYTES * 2, (int) crc.getValue());
+        this.buffer.putInt(this.position, payload.length);
+        if (force)
+            this.buffer.force();
+
+        this.position += HEADER + payload.length;
+        this.rows += rows;
+    }
+
+    /**
+     * Forces appended records to the disk.
+     */
+    void force() {
+        this.buffer.force();
+    }
+
+    /**
+     * Reads a record.
+     *
+     * @param position Record position.
+     * @return Record. (NULL IF THERE IS NO VALID RECORD AT POSITION)
+     */
+    @Nullable
+    JournalRecord read(int position) {
+        //If there is no space for a header, no need to continue.
+        if (this.buffer.capacity() - position < HEADER)
+            return null;
+
+        int length = this.buffer.getInt(position);
+        if (length <= 0 || length > this.buffer.capacity() - position - HEADER)
+            return null;
+
+        int rows = this.buffer.getInt(position + Integer.BYTES);
+        int checksum = this.buffer.getInt(position + Integer.BYTES * 2);
+        byte[] payload = new byte[length];
+        this.buffer.get(position + HEADER, payload);
+
+        //Validates checksum.
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        if ((int) crc.getValue() != checksum)
+            return null;
+
+        return new JournalRecord(this.id, position + HEADER + length, rows, payload);
+    }
+
+    /**
+     * Counts rows of records from declared position.
+     *
+     * @param position Start position.
+     * @return Row count.
+     */
+    long getRows(int position) {
+        long count = 0;
+        JournalRecord record;
+        while ((record = this.read(position)) != null) {
+            position = record.getNext();
+            count += record.getRows();
+        }
+        return count;
+    }
+
+    /**
+     * Closes segment.
+     */
+    void close() throws IOException {
+        this.buffer.force();
+        this.channel.close();
+    }
+
+    /**
+     * Closes then deletes segment file.
+     */
+    void delete() throws IOException {
+        this.channel.close();
+        Files.deleteIfExists(this.path);
+    }
+}
@@ -1,6 +1,11 @@
 package com.barden.bravo.leaderboard;
 
+import com.barden.bravo.instrumentation.Dependency;
 import com.barden.bravo.leaderboard.entry.LeaderboardEntry;
+import com.barden.bravo.leaderboard.rank.LeaderboardHistogram;
+import com.barden.bravo.leaderboard.shard.LeaderboardShards;
+import com.barden.bravo.leaderboard.window.LeaderboardWindow;
+import com.barden.bravo.player.directory.PlayerNameDirectory;
 import com.barden.bravo.player.statistics.type.PlayerStatisticType;
 import com.barden.library.BardenJavaLibrary;
 import com.barden.library.database.DatabaseProvider;
@@ -21,21 +26,37 @@ import java.util.*;
 public final class Leaderboard {
 
     private final PlayerStatisticType type;
+    private final LeaderboardWindow window;
     private final BiMap<Long, LeaderboardEntry> users;
+    private final LeaderboardHistogram histogram = new LeaderboardHistogram();
     private final int size;
 
     /**
      * Creates leaderboard
      *
-     * @param type Statistic type.
-     * @param size Leaderboard user size.
+     * @param type   Statistic type.
+     * @param window Leaderboard window.
+     * @param size   Leaderboard user size.
      */
-    public Leaderboard(@Nonnull PlayerStatisticType type, int size) {
+    public Leaderboard(@Nonnull PlayerStatisticType type, @Nonnull LeaderboardWindow window, int size) {
         this.type = Objects.requireNonNull(type, "type cannot be null!");
+        this.window = Objects.requireNonNull(window, "window cannot be null!");
         this.users = HashBiMap.create(size);
         this.size = size;
         //Updates leaderboard.
         this.update();
+        //Builds leaderboard histogram.
+        this.rebuildHistogram();
+    }
+
+    /**
+     * Creates all-time leaderboard
+     *
+     * @param type Statistic type.
+     * @param size Leaderboard user size.
+     */
+    public Leaderboard(@Nonnull PlayerStatisticType type, int size) {
+        this(type, LeaderboardWindow.ALL_TIME, size);
     }
 
     /**
@@ -48,6 +69,50 @@ public final class Leaderboard {
         return this.type;
     }
 
+    /**
+     * Gets leaderboard window.
+     *
+     * @return Leaderboard window.
+     */
+    @Nonnull
+    public LeaderboardWindow getWindow() {
+        return this.window;
+    }
+
+    /**
+     * Gets current redis key of leaderboard.
+     * Windowed leaderboards switch to a new key when
+     * their period rolls over.
+     *
+     * @return Redis key.
+     */
+    @Nonnull
+    public String getKey() {
+        return this.window.toKey(this.type);
+    }
+
+    /**
+     * Gets current redis shard keys of leaderboard.
+     * If leaderboards are not sharded, it only contains {@link #getKey()}.
+     *
+     * @return Redis shard keys.
+     */
+    @Nonnull
+    public List<String> getKeys() {
+        return LeaderboardShards.toKeys(this.getKey());
+    }
+
+    /**
+     * Gets current redis shard key of declared player.
+     *
+     * @param id Roblox user id.
+     * @return Redis shard key.
+     */
+    @Nonnull
+    public String getKey(long id) {
+        return LeaderboardShards.toKey(this.getKey(), LeaderboardShards.getShard(id));
+    }
+
     /**
      * Gets leaderboard users.
      *
@@ -67,6 +132,39 @@ public final class Leaderboard {
         return this.size;
     }
 
+    /**
+     * Gets leaderboard histogram.
+     *
+     * @return Leaderboard histogram.
+     */
+    @Nonnull
+    public LeaderboardHistogram getHistogram() {
+        return this.histogram;
+    }
+
+    /**
+     * Finds leaderboard user. (SAFE)
+     *
+     * @param id Roblox user id.
+     * @return Optional leaderboard user.
+     */
+    @Nonnull
+    public Optional<LeaderboardEntry> findUser(long id) {
+        return Optional.ofNullable(this.users.get(id));
+    }
+
+    /**
+     * Gets estimated player rank from leaderboard histogram.
+     * If player is in the leaderboard, it returns exact position.
+     *
+     * @param id    Roblox user id.
+     * @param score Player score.
+     * @return Estimated player rank.
+     */
+    public long getEstimatedPlayerRank(long id, double score) {
+        return this.findUser(id).map(LeaderboardEntry::getPosition).orElseGet(() -> this.histogram.getRank(score));
+    }
+
     /**
      * Gets player rank. (SYNC)
      *
@@ -74,15 +172,114 @@ public final class Leaderboard {
      * @return Player rank.
      */
     public long getPlayerRank(long id) {
-        try (Jedis resource = DatabaseProvider.redis().getClient().getResource()) {
-            Long rank = resource.zrevrank("leaderboard:" + this.type, String.valueOf(id));
-            if (rank == null)
-                return -1;
-            return resource.zrevrank("leaderboard:" + this.type, String.valueOf(id)) + 1;
+        return this.getPlayerRanks(List.of(id)).getOrDefault(id, -1L);
+    }
+
+    /**
+     * Gets player ranks. (SYNC)
+     * <p>
+     * With a single sorted set, ranks come from ZREVRANK. With shards, rank
+     * is the sum of per-shard counts of scores above player score. (ZCOUNT)
+     *
+     * @param ids Roblox user ids.
+     * @return Player ranks. (PLAYERS WHO ARE NOT IN THE LEADERBOARD ARE NOT INCLUDED)
+     */
+    @Nonnull
+    public Map<Long, Long> getPlayerRanks(@Nonnull Collection<Long> ids) {
+        //Objects null check.
+        Objects.requireNonNull(ids, "ids cannot be null!");
+
+        //Declares required fields.
+        HashMap<Long, Long> ranks = new HashMap<>();
+
+        //Handles redis exception.
+        try (var timing = Dependency.REDIS.time("leaderboard.ranks"); Jedis resource = DatabaseProvider.redis().getClient().getResource()) {
+            //Handles single sorted set.
+            if (!LeaderboardShards.isSharded()) {
+                //Fetches player ranks from the leaderboard.
+                Pipeline pipeline = resource.pipelined();
+                HashMap<Long, Response<Long>> responses = new HashMap<>();
+                ids.forEach(id -> responses.put(id, pipeline.zrevrank(this.getKey(), String.valueOf(id))));
+                pipeline.sync();
+
+                //Writes found ranks.
+                responses.forEach((id, response) -> {
+                    if (response.get() != null)
+                        ranks.put(id, response.get() + 1);
+                });
+                return ranks;
+            }
+
+            //Fetches player scores from their shards.
+            Map<Long, Double> scores = this.getPlayerScores(resource, ids);
+
+            //Counts higher scores on every shard.
+            Pipeline pipeline = resource.pipelined();
+            List<String> keys = this.getKeys();
+            HashMap<Long, List<Response<Long>>> responses = new HashMap<>();
+            scores.forEach((id, score) -> {
+                List<Response<Long>> _responses = new ArrayList<>(keys.size());
+                keys.forEach(key -> _responses.add(pipeline.zcount(key, "(" + score, "+inf")));
+                responses.put(id, _responses);
+            });
+            pipeline.sync();
+
+            //Sums shard counts.
+            responses.forEach((id, _responses) -> {
+                long above = 0;
+                for (Response<Long> response : _responses)
+                    above += response.get();
+                ranks.put(id, above + 1);
+            });
+        } catch (Exception exception) {
+            BardenJavaLibrary.getLogger().error("Couldn't get player ranks for leaderboard(" + this.type.name() + ", " + this.window.name() + ")!", exception);
+        }
+
+        return ranks;
+    }
+
+    /**
+     * Gets player scores. (SYNC)
+     *
+     * @param ids Roblox user ids.
+     * @return Player scores. (PLAYERS WHO ARE NOT IN THE LEADERBOARD ARE NOT INCLUDED)
+     */
+    @Nonnull
+    public Map<Long, Double> getPlayerScores(@Nonnull Collection<Long> ids) {
+        //Handles redis exception.
+        try (var timing = Dependency.REDIS.time("leaderboard.scores"); Jedis resource = DatabaseProvider.redis().getClient().getResource()) {
+            return this.getPlayerScores(resource, ids);
         } catch (Exception exception) {
-            BardenJavaLibrary.getLogger().error("Couldn't get player(" + id + ") rank for leaderboard(" + this.type.name() + ")!");
+            BardenJavaLibrary.getLogger().error("Couldn't get player scores for leaderboard(" + this.type.name() + ", " + this.window.name() + ")!", exception);
         }
-        return -1;
+        return new HashMap<>();
+    }
+
+    /**
+     * Gets player scores from their shards. (SYNC)
+     *
+     * @param resource Jedis resource.
+     * @param ids      Roblox user ids.
+     * @return Player scores. (PLAYERS WHO ARE NOT IN THE LEADERBOARD ARE NOT INCLUDED)
+     */
+    @Nonnull
+    private Map<Long, Double> getPlayerScores(@Nonnull Jedis resource, @Nonnull Collection<Long> ids) {
+        //Objects null check.
+        Objects.requireNonNull(ids, "ids cannot be null!");
+
+        //Fetches player scores.
+        Pipeline pipeline = resource.pipelined();
+        HashMap<Long, Response<Double>> responses = new HashMap<>();
+        ids.forEach(id -> responses.put(id, pipeline.zscore(this.getKey(id), String.valueOf(id))));
+        pipeline.sync();
+
+        //Writes found scores.
+        HashMap<Long, Double> scores = new HashMap<>();
+        responses.forEach((id, response) -> {
+            if (response.get() != null)
+                scores.put(id, response.get());
+        });
+        return scores;
     }
 
 
@@ -112,6 +309,69 @@ public final class Leaderboard {
     DATABASE
      */
 
+    /**
+     * Rebuilds leaderboard histogram from redis. (SYNC)
+     */
+    public void rebuildHistogram() {
+        //Handles redis exception.
+        try (var timing = Dependency.REDIS.time("leaderboard.histogram"); Jedis resource = DatabaseProvider.redis().getClient().getResource()) {
+            //Creates pipeline.
+            Pipeline pipeline = resource.pipelined();
+            //Counts leaderboard buckets.
+            Runnable rebuild = this.histogram.rebuild(pipeline, this.getKeys());
+            //Executes pipeline.
+            pipeline.sync();
+            //Applies counts.
+            rebuild.run();
+        } catch (Exception exception) {
+            BardenJavaLibrary.getLogger().error("Couldn't rebuild leaderboard(" + this.type.name() + ", " + this.window.name() + ") histogram!", exception);
+        }
+    }
+
+    /**
+     * Fetches top entries of leaderboard. (SYNC)
+     * With shards, top entries of every shard are fetched in a single
+     * pipeline then merged. (K-WAY MERGE)
+     *
+     * @param resource Jedis resource.
+     * @return Top entries. (SORTED BY SCORE, DESCENDING)
+     */
+    @Nonnull
+    private List<Tuple> fetchTop(@Nonnull Jedis resource) {
+        //If leaderboard is not sharded, no need to merge.
+        if (!LeaderboardShards.isSharded())
+            return resource.zrevrangeWithScores(this.getKey(), 0, this.size - 1);
+
+        //Fetches top entries of every shard.
+        Pipeline pipeline = resource.pipelined();
+        List<Response<List<Tuple>>> responses = new ArrayList<>();
+        this.getKeys().forEach(key -> responses.add(pipeline.zrevrangeWithScores(key, 0, this.size - 1)));
+        pipeline.sync();
+
+        //Declares shard iterators and a heap which holds head entry of every shard.
+        List<Iterator<Tuple>> iterators = new ArrayList<>(responses.size());
+        PriorityQueue<Map.Entry<Tuple, Integer>> heap = new PriorityQueue<>((first, second) -> second.getKey().compareTo(first.getKey()));
+        for (Response<List<Tuple>> response : responses) {
+            Iterator<Tuple> iterator = response.get().iterator();
+            iterators.add(iterator);
+            if (iterator.hasNext())
+                heap.add(Map.entry(iterator.next(), iterators.size() - 1));
+        }
+
+        //Merges shard entries until leaderboard is full.
+        List<Tuple> tuples = new ArrayList<>(this.size);
+        while (!heap.isEmpty() && tuples.size() < this.size) {
+            Map.Entry<Tuple, Integer> head = heap.poll();
+            tuples.add(head.getKey());
+
+            Iterator<Tuple> iterator = iterators.get(head.getValue());
+            if (iterator.hasNext())
+                heap.add(Map.entry(iterator.next(), head.getValue()));
+        }
+
+        return tuples;
+    }
+
     /**
      * Updates leaderboard.
      */
@@ -120,19 +380,14 @@ public final class Leaderboard {
         this.users.clear();
 
         //Handles redis exception.
-        try (Jedis resource = DatabaseProvider.redis().getClient().getResource()) {
+        try (var timing = Dependency.REDIS.time("leaderboard.top"); Jedis resource = DatabaseProvider.redis().getClient().getResource()) {
             //Gets leaderboard.
-            List<Tuple> tuples = resource.zrevrangeWithScores("leaderboard:" + this.type.name(), 0, this.size - 1);
+            List<Tuple> tuples = this.fetchTop(resource);
 
-            //Creates pipeline.
-            Pipeline pipeline = resource.pipelined();
-
-            //Saves player to list to fetch their data.
-            HashMap<String, Response<Map<String, String>>> players = new HashMap<>();
-            tuples.forEach(tuple -> players.put(tuple.getElement(), pipeline.hgetAll("player:" + tuple.getElement())));
-
-            //Gets and closes pipeline.
-            pipeline.sync();
+            //Resolves player names. Only unknown names are fetched from redis.
+            List<Long> ids = new ArrayList<>(tuples.size());
+            tuples.forEach(tuple -> ids.add(Long.parseLong(tuple.getElement())));
+            Map<Long, String> names = PlayerNameDirectory.resolve(resource, ids);
 
             //Declares base fields.
             long position = 0;
@@ -143,17 +398,16 @@ public final class Leaderboard {
                 position++;
 
                 //Declares required fields.
-                Map<String, String> _data = players.get(tuple.getElement()).get();
-                if (_data == null || _data.isEmpty())
-                    continue;
-                String user_name = _data.get("name");
                 long user_id = Long.parseLong(tuple.getElement());
+                String user_name = names.get(user_id);
+                if (user_name == null)
+                    continue;
 
                 //Adds tuple user to the users list.
                 this.users.put(user_id, new LeaderboardEntry(user_id, user_name, tuple.getScore(), position));
             }
         } catch (Exception exception) {
-            BardenJavaLibrary.getLogger().error("Couldn't update leaderboard(" + this.type.name() + ")!", exception);
+            BardenJavaLibrary.getLogger().error("Couldn't update leaderboard(" + this.type.name() + ", " + this.window.name() + ")!", exception);
         }
     }
 }
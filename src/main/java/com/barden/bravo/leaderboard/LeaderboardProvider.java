@@ -1,21 +1,30 @@
 package com.barden.bravo.leaderboard;
 
+import com.barden.bravo.execution.Execution;
+import com.barden.bravo.instrumentation.Dependency;
+import com.barden.bravo.instrumentation.Instrumentation;
+import com.barden.bravo.leaderboard.script.LeaderboardScript;
+import com.barden.bravo.leaderboard.shard.LeaderboardShards;
+import com.barden.bravo.leaderboard.window.LeaderboardWindow;
 import com.barden.bravo.player.Player;
 import com.barden.bravo.player.PlayerProvider;
+import com.barden.bravo.player.directory.PlayerNameDirectory;
 import com.barden.bravo.player.statistics.PlayerStatistics;
 import com.barden.bravo.player.statistics.type.PlayerStatisticType;
 import com.barden.library.BardenJavaLibrary;
 import com.barden.library.database.DatabaseProvider;
 import com.barden.library.scheduler.SchedulerProvider;
-import com.google.common.collect.BiMap;
-import com.google.common.collect.HashBiMap;
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.Table;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.params.ScanParams;
+import redis.clients.jedis.resps.ScanResult;
+import redis.clients.jedis.resps.Tuple;
 
 import javax.annotation.Nonnull;
-import java.util.Arrays;
-import java.util.Objects;
-import java.util.Set;
+import java.time.Instant;
+import java.util.*;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -23,41 +32,173 @@ import java.util.concurrent.TimeUnit;
  */
 public final class LeaderboardProvider {
 
-    private static final BiMap<PlayerStatisticType, Leaderboard> content = HashBiMap.create();
+    private static final Table<PlayerStatisticType, LeaderboardWindow, Leaderboard> content = HashBasedTable.create();
 
     /**
      * Initializes leaderboard provider class.
      */
     public static void initialize() {
-        //Initializes leaderboards by statistic types.
-        for (PlayerStatisticType type : PlayerStatisticType.values())
-            content.put(type, new Leaderboard(type, 100));
+        //Preloads leaderboard script to the redis script cache.
+        try (var timing = Dependency.REDIS.time("leaderboard.script.load"); Jedis resource = DatabaseProvider.redis().getClient().getResource()) {
+            LeaderboardScript.load(resource);
+        }
+
+        //Moves leaderboards to the current shard layout if shard count is changed.
+        LeaderboardProvider.migrateShards();
+
+        //Initializes leaderboards by statistic types and windows.
+        for (PlayerStatisticType type : PlayerStatisticType.values()) {
+            for (LeaderboardWindow window : LeaderboardWindow.values())
+                content.put(type, window, new Leaderboard(type, window, 100));
+        }
 
         //Handles scheduler to update leaderboards.
-        SchedulerProvider.create().every(30, TimeUnit.SECONDS).schedule(task -> {
+        SchedulerProvider.create().every(30, TimeUnit.SECONDS).schedule(task -> Instrumentation.job("leaderboard.update", () -> {
             //Updates leaderboard scores.
             LeaderboardProvider.update(PlayerProvider.getContent());
 
-            //Updates leaderboard.
-            content.values().forEach(Leaderboard::update);
-        });
+            //Updates leaderboards. (CONCURRENTLY IN VIRTUAL EXECUTION)
+            Execution.all(content.values().stream().map(leaderboard -> (Runnable) leaderboard::update).toList());
+        }));
+
+        //Handles scheduler to rebuild leaderboard histograms. (RANK ESTIMATIONS)
+        SchedulerProvider.create().every(10, TimeUnit.MINUTES).schedule(task -> Instrumentation.job("leaderboard.histogram", () -> Execution.all(content.values().stream().map(leaderboard -> (Runnable) leaderboard::rebuildHistogram).toList())));
+    }
+
+    /**
+     * Moves leaderboards to the current shard layout. (SYNC)
+     * <p>
+     * Active shard count is stored in redis. When it differs from the configured
+     * count (single sorted set to shards, N to M shards or back to a single sorted
+     * set), members of all-time and current period leaderboards and name hashes are
+     * moved to their keys in the new layout. Stored count is updated after every
+     * move is done, so an interrupted move is repeated on next start.
+     * <p>
+     * All instances must use the same shard count, since an instance with
+     * the old count keeps writing the old layout.
+     */
+    private static void migrateShards() {
+        try (var timing = Dependency.REDIS.time("leaderboard.migrate"); Jedis resource = DatabaseProvider.redis().getClient().getResource()) {
+            //Declares required fields. (MISSING COUNT MEANS LEADERBOARDS ARE NOT SHARDED YET)
+            int count = LeaderboardShards.getCount();
+            String stored = resource.get(LeaderboardShards.COUNT_KEY);
+            int previous = stored == null ? 1 : Integer.parseInt(stored);
+
+            //If layout is not changed, no need to continue.
+            if (previous == count) {
+                if (stored == null)
+                    resource.set(LeaderboardShards.COUNT_KEY, String.valueOf(count));
+                return;
+            }
+
+            //Moves leaderboard members.
+            Instant now = Instant.now();
+            for (PlayerStatisticType type : PlayerStatisticType.values()) {
+                for (LeaderboardWindow window : LeaderboardWindow.values()) {
+                    String key = window.toKey(type, now);
+                    for (String source : LeaderboardShards.toKeys(key, previous))
+                        LeaderboardProvider.moveMembers(resource, source, key, window);
+                }
+            }
+
+            //Moves name hashes.
+            PlayerNameDirectory.migrateShards(resource);
+
+            //Stores new shard count.
+            resource.set(LeaderboardShards.COUNT_KEY, String.valueOf(count));
+
+            //Logging.
+            BardenJavaLibrary.getLogger().info("Leaderboards are moved from " + previous + " to " + count + " shards!");
+        } catch (Exception exception) {
+            BardenJavaLibrary.getLogger().error("Couldn't move leaderboards to " + LeaderboardShards.getCount() + " shards!", exception);
+        }
+    }
+
+    /**
+     * Moves members of declared source key to their shard keys in the current layout. (SYNC)
+     * Members which are already in their shard key are not touched.
+     *
+     * @param resource Jedis resource.
+     * @param source   Source sorted set key.
+     * @param key      Leaderboard key. (NOT SHARDED)
+     * @param window   Leaderboard window.
+     */
+    private static void moveMembers(@Nonnull Jedis resource, @Nonnull String source, @Nonnull String key, @Nonnull LeaderboardWindow window) {
+        //Declares required fields.
+        ScanParams params = new ScanParams().count(1000);
+        String cursor = ScanParams.SCAN_POINTER_START;
+        HashSet<String> targets = new HashSet<>();
+
+        do {
+            //Scans leaderboard members.
+            ScanResult<Tuple> result = resource.zscan(source, cursor, params);
+            cursor = result.getCursor();
+
+            //Writes members to their shards, then removes them from source. (SCANNED MEMBERS CAN BE REMOVED DURING SCAN)
+            Pipeline pipeline = resource.pipelined();
+            for (Tuple tuple : result.getResult()) {
+                String target = LeaderboardShards.toKey(key, LeaderboardShards.getShard(Long.parseLong(tuple.getElement())));
+                if (target.equals(source))
+                    continue;
+                pipeline.zadd(target, tuple.getScore(), tuple.getElement());
+                pipeline.zrem(source, tuple.getElement());
+                targets.add(target);
+            }
+            pipeline.sync();
+        } while (!cursor.equals(ScanParams.SCAN_POINTER_START));
+
+        //Period keys keep their expiry.
+        if (!window.isAllTime())
+            targets.forEach(target -> resource.expire(target, window.getExpiry()));
     }
 
     /**
-     * Gets leaderboard by its type.
+     * Finds leaderboard by its type and window. (SAFE)
+     *
+     * @param type   Statistic type.
+     * @param window Leaderboard window.
+     * @return Optional leaderboard.
+     */
+    @Nonnull
+    public static Optional<Leaderboard> find(@Nonnull PlayerStatisticType type, @Nonnull LeaderboardWindow window) {
+        return Optional.ofNullable(content.get(Objects.requireNonNull(type, "type cannot be null!"), Objects.requireNonNull(window, "window cannot be null!")));
+    }
+
+    /**
+     * Gets all-time leaderboard by its type.
      *
      * @param type Statistic type.
      * @return Leaderboard.
      */
     @Nonnull
     public static Leaderboard get(@Nonnull PlayerStatisticType type) {
+        return get(type, LeaderboardWindow.ALL_TIME);
+    }
+
+    /**
+     * Gets leaderboard by its type and window.
+     *
+     * @param type   Statistic type.
+     * @param window Leaderboard window.
+     * @return Leaderboard.
+     */
+    @Nonnull
+    public static Leaderboard get(@Nonnull PlayerStatisticType type, @Nonnull LeaderboardWindow window) {
         //Object null checks.
         Objects.requireNonNull(type, "type cannot be null!");
-        return Objects.requireNonNull(content.get(type), "leaderboard(" + type.name() + ") cannot be null!");
+        Objects.requireNonNull(window, "window cannot be null!");
+        return Objects.requireNonNull(content.get(type, window), "leaderboard(" + type.name() + ", " + window.name() + ") cannot be null!");
     }
 
     /**
-     * Updates player leaderboard scores. (REDIS) (SYNC)
+     * Updates player leaderboard scores and names. (REDIS) (SYNC)
+     * <p>
+     * All-time leaderboards get absolute scores. Windowed leaderboards
+     * only get statistic deltas since the last update, so period keys
+     * never need to be rebuilt from all players.
+     * <p>
+     * Players are written in chunks by {@link LeaderboardScript}, so
+     * leaderboards and name hash of a player are updated atomically.
      *
      * @param players Players.
      */
@@ -69,24 +210,56 @@ public final class LeaderboardProvider {
         if (players.isEmpty())
             return;
 
+        //Declares required fields.
+        Instant now = Instant.now();
+        PlayerStatisticType[] types = PlayerStatisticType.values();
+        HashMap<Player, Map<PlayerStatisticType, Double>> deltas = new HashMap<>();
+
+        //Groups players by their leaderboard shards.
+        HashMap<Integer, List<Player>> shards = new HashMap<>();
+        players.forEach(player -> shards.computeIfAbsent(LeaderboardShards.getShard(player.getId()), shard -> new ArrayList<>()).add(player));
+
         //Handles database update. (REDIS) [LEADERBOARD]
-        try (Jedis resource = DatabaseProvider.redis().getClient().getResource()) {
-            //Creates pipeline.
-            Pipeline pipeline = resource.pipelined();
+        try (var timing = Dependency.REDIS.time("leaderboard.update"); Jedis resource = DatabaseProvider.redis().getClient().getResource()) {
+            for (Map.Entry<Integer, List<Player>> entry : shards.entrySet()) {
+                //Declares required fields.
+                List<String> leaderboard_keys = LeaderboardScript.createKeys(now, entry.getKey());
+                List<Player> pending = entry.getValue();
 
-            //Updates leaderboard fields.
-            for (Player player : players) {
-                //Gets player statistics.
-                PlayerStatistics statistics = player.getStatistics();
+                //Loops through player chunks. Every chunk is written with a single script call.
+                for (int index = 0; index < pending.size(); index += LeaderboardScript.CHUNK_SIZE) {
+                    //Declares required fields.
+                    List<Player> chunk = pending.subList(index, Math.min(index + LeaderboardScript.CHUNK_SIZE, pending.size()));
+                    List<String> keys = new ArrayList<>(leaderboard_keys);
+                    List<String> arguments = LeaderboardScript.createArguments();
 
-                //Saves player statistics to leaderboard.
-                Arrays.stream(PlayerStatisticType.values()).forEach(type ->
-                        pipeline.zadd("leaderboard:" + type.name(), statistics.get(type), String.valueOf(player.getId())));
-            }
+                    //Packs players into script arguments.
+                    for (Player player : chunk) {
+                        //Gets player statistics.
+                        PlayerStatistics statistics = player.getStatistics();
+                        double[] scores = new double[types.length];
+                        for (PlayerStatisticType type : types)
+                            scores[type.ordinal()] = statistics.get(type);
 
-            //Executes pipeline.
-            pipeline.sync();
+                        //Drains player statistic deltas for windowed leaderboards.
+                        Map<PlayerStatisticType, Double> _deltas = statistics.drainDeltas();
+                        if (!_deltas.isEmpty())
+                            deltas.put(player, _deltas);
+
+                        LeaderboardScript.pack(keys, arguments, player.getId(), player.getName(), scores, _deltas);
+                    }
+
+                    //Executes script.
+                    LeaderboardScript.execute(resource, keys, arguments);
+
+                    //Written deltas no longer need to be restored.
+                    chunk.forEach(deltas::remove);
+                }
+            }
         } catch (Exception exception) {
+            //Restores deltas which couldn't be written to write them on next update.
+            deltas.forEach((player, _deltas) -> player.getStatistics().restoreDeltas(_deltas));
+
             BardenJavaLibrary.getLogger().error("Couldn't updater player leaderboard!", exception);
         }
     }
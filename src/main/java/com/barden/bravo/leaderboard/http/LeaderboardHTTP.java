@@ -1,12 +1,13 @@
 package com.barden.bravo.leaderboard.http;
 
+import com.barden.bravo.execution.Execution;
 import com.barden.bravo.http.HTTPResponse;
 import com.barden.bravo.leaderboard.Leaderboard;
 import com.barden.bravo.leaderboard.LeaderboardProvider;
+import com.barden.bravo.leaderboard.rank.LeaderboardRankMode;
+import com.barden.bravo.leaderboard.window.LeaderboardWindow;
 import com.barden.bravo.player.statistics.type.PlayerStatisticType;
 import com.barden.library.BardenJavaLibrary;
-import com.barden.library.database.DatabaseProvider;
-import com.barden.library.scheduler.SchedulerProvider;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import org.springframework.http.HttpStatus;
@@ -17,12 +18,11 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.context.request.async.DeferredResult;
-import redis.clients.jedis.Jedis;
-import redis.clients.jedis.Pipeline;
-import redis.clients.jedis.Response;
 
-import java.util.HashMap;
-import java.util.Objects;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Leaderboard HTTP class.
@@ -56,7 +56,7 @@ public class LeaderboardHTTP {
         }
 
         //Handles task.
-        SchedulerProvider.schedule(task -> {
+        Execution.run(() -> {
             JsonObject json = HTTPResponse.of(true, Result.INVALID_JSON_STRUCTURE);
             JsonObject ranks_json = new JsonObject();
 
@@ -64,39 +64,57 @@ public class LeaderboardHTTP {
             try {
                 //Declares required fields.
                 PlayerStatisticType type = PlayerStatisticType.valueOf(body.get("type").getAsString());
+                LeaderboardWindow window = body.has("window") ? LeaderboardWindow.valueOf(body.get("window").getAsString()) : LeaderboardWindow.ALL_TIME;
 
                 //Gets leaderboard.
-                Leaderboard leaderboard = LeaderboardProvider.get(type);
+                Leaderboard leaderboard = LeaderboardProvider.get(type, window);
 
                 //Handles player rank requests.
                 if (body.keySet().contains("players")) {
                     //Declares required fields.
                     JsonArray players_json = body.getAsJsonArray("players");
-                    HashMap<String, Response<Long>> rank_responses = new HashMap<>();
+                    LeaderboardRankMode rank_mode = body.has("rank") ? LeaderboardRankMode.valueOf(body.get("rank").getAsString().toUpperCase()) : LeaderboardRankMode.EXACT;
 
-                    //Handles redis exception.
-                    try (Jedis resource = DatabaseProvider.redis().getClient().getResource()) {
-                        //Creates pipeline.
-                        Pipeline pipeline = resource.pipelined();
-                        //Fetches player ranks from the leaderboard.
-                        players_json.forEach(player -> rank_responses.put(player.getAsString(), pipeline.zrevrank("leaderboard:" + type, player.getAsString())));
-                        //Executes pipeline.
-                        pipeline.sync();
-                    }
-
-                    //Writes player ranks to the rank json.
-                    rank_responses.forEach((key, value) -> {
+                    //Declares requested player ids.
+                    List<Long> ids = new ArrayList<>();
+                    players_json.forEach(player -> {
                         try {
-                            ranks_json.addProperty(key, Objects.requireNonNullElse(value.get(), 999L) + 1);
+                            ids.add(Long.parseLong(player.getAsString()));
                         } catch (Exception ignored) {
                         }
                     });
 
+                    //Handles player ranks by rank mode.
+                    if (rank_mode == LeaderboardRankMode.PERCENTILE) {
+                        //Declares required fields.
+                        JsonObject percentiles_json = new JsonObject();
+                        //Fetches player scores. (ZSCORE is O(1), histogram will handle rest)
+                        Map<Long, Double> scores = leaderboard.getPlayerScores(ids);
+
+                        //Writes estimated player ranks and percentiles.
+                        ids.forEach(id -> {
+                            double score = scores.getOrDefault(id, 0.0d);
+                            ranks_json.addProperty(String.valueOf(id), leaderboard.getEstimatedPlayerRank(id, score));
+                            percentiles_json.addProperty(String.valueOf(id), leaderboard.getHistogram().getPercentile(score));
+                        });
+
+                        //Adds percentiles to the base json.
+                        json.add("percentiles", percentiles_json);
+                    } else {
+                        //Fetches player ranks from the leaderboard.
+                        Map<Long, Long> ranks = leaderboard.getPlayerRanks(ids);
+
+                        //Writes player ranks to the rank json.
+                        ids.forEach(id -> ranks_json.addProperty(String.valueOf(id), ranks.getOrDefault(id, 1000L)));
+                    }
+
                     //Adds response to the base json.
                     json.add("responses", ranks_json);
                 }
 
                 //Creates json object.
+                json.addProperty("window", window.name());
+                json.addProperty("period", window.getPeriod(Instant.now()));
                 json.add("results", leaderboard.toJsonObject());
             } catch (Exception exception) {
                 //Responses request to avoid long waiting durations.
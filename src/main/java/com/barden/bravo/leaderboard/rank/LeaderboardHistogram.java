@@ -0,0 +1,192 @@
+package com.barden.bravo.leaderboard.rank;
+
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Leaderboard histogram class.
+ * <p>
+ * Counts leaderboard scores in logarithmic buckets, so approximate ranks and
+ * percentiles can be answered without touching redis. Bucket 0 holds zero
+ * scores and every next bucket is {@link #GROWTH} times wider than the previous
+ * one, which keeps relative error of a bucket around 10% for any score range.
+ */
+public final class LeaderboardHistogram {
+
+    /*
+    VARIABLES
+     */
+
+    public static final double GROWTH = 1.1d;
+    public static final int BUCKETS = 300;
+
+    private static final double LOG_GROWTH = Math.log(GROWTH);
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+
+    /*
+    BUCKETS
+     */
+
+    /**
+     * Gets bucket index of declared score.
+     *
+     * @param score Score.
+     * @return Bucket index.
+     */
+    public static int getBucket(double score) {
+        if (score <= 0)
+            return 0;
+        if (score < 1)
+            return 1;
+        return (int) Math.min(BUCKETS - 1, Math.floor(Math.log(score) / LOG_GROWTH) + 2);
+    }
+
+    /**
+     * Gets lower bound of declared bucket. (INCLUSIVE)
+     *
+     * @param bucket Bucket index.
+     * @return Lower bound.
+     */
+    public static double getLowerBound(int bucket) {
+        if (bucket <= 1)
+            return 0;
+        return Math.pow(GROWTH, bucket - 2);
+    }
+
+    /**
+     * Gets upper bound of declared bucket. (EXCLUSIVE)
+     *
+     * @param bucket Bucket index.
+     * @return Upper bound.
+     */
+    public static double getUpperBound(int bucket) {
+        if (bucket == 0)
+            return 0;
+        if (bucket >= BUCKETS - 1)
+            return Double.POSITIVE_INFINITY;
+        return Math.pow(GROWTH, bucket - 1);
+    }
+
+
+    /*
+    METHODS
+     */
+
+    /**
+     * Gets total score count.
+     *
+     * @return Total score count.
+     */
+    public long getTotal() {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++)
+            total += this.counts.get(i);
+        return total;
+    }
+
+    /**
+     * Moves a score from one bucket to another.
+     * It is used when a player score changes.
+     *
+     * @param previous Previous score.
+     * @param current  Current score.
+     */
+    public void move(double previous, double current) {
+        int from = getBucket(previous);
+        int to = getBucket(current);
+        if (from == to)
+            return;
+        this.counts.getAndUpdate(from, count -> Math.max(count - 1, 0));
+        this.counts.incrementAndGet(to);
+    }
+
+    /**
+     * Gets estimated rank of declared score.
+     * Scores in the same bucket are interpolated linearly.
+     *
+     * @param score Score.
+     * @return Estimated rank. (1 BASED)
+     */
+    public long getRank(double score) {
+        //Declares required fields.
+        int bucket = getBucket(score);
+        double above = 0;
+
+        //Counts scores in higher buckets.
+        for (int i = bucket + 1; i < BUCKETS; i++)
+            above += this.counts.get(i);
+
+        //Interpolates scores above declared score in the same bucket.
+        double lower = getLowerBound(bucket);
+        double upper = getUpperBound(bucket);
+        if (bucket != 0 && !Double.isInfinite(upper))
+            above += this.counts.get(bucket) * Math.max(0, Math.min(1, (upper - score) / (upper - lower)));
+
+        return (long) Math.floor(above) + 1;
+    }
+
+    /**
+     * Gets estimated top percentile of declared score.
+     * As an example, 3.2 means score is in the top 3.2%.
+     *
+     * @param score Score.
+     * @return Top percentile. (0-100)
+     */
+    public double getPercentile(double score) {
+        long total = this.getTotal();
+        if (total == 0)
+            return 100;
+        return Math.min(100, this.getRank(score) * 100.0d / total);
+    }
+
+
+    /*
+    DATABASE
+     */
+
+    /**
+     * Rebuilds histogram from redis sorted sets. (SYNC)
+     * Counts every bucket with ZCOUNT, so it never reads members.
+     *
+     * @param pipeline Pipeline.
+     * @param keys     Sorted set keys. (COUNTS ARE SUMMED)
+     * @return Rebuild action to run after pipeline sync.
+     */
+    @Nonnull
+    public Runnable rebuild(@Nonnull Pipeline pipeline, @Nonnull List<String> keys) {
+        //Objects null check.
+        Objects.requireNonNull(pipeline, "pipeline cannot be null!");
+        Objects.requireNonNull(keys, "keys cannot be null!");
+
+        //Declares required fields.
+        List<List<Response<Long>>> responses = new ArrayList<>(BUCKETS);
+
+        //Counts buckets.
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            String min = bucket == 0 ? "-inf" : bucket == 1 ? "(0" : String.valueOf(getLowerBound(bucket));
+            String max = bucket == 0 ? "0" : bucket == BUCKETS - 1 ? "+inf" : "(" + getUpperBound(bucket);
+
+            List<Response<Long>> _responses = new ArrayList<>(keys.size());
+            keys.forEach(key -> _responses.add(pipeline.zcount(key, min, max)));
+            responses.add(_responses);
+        }
+
+        //Applies counts after pipeline sync.
+        return () -> {
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                long count = 0;
+                for (Response<Long> response : responses.get(bucket))
+                    count += response.get();
+                this.counts.set(bucket, count);
+            }
+        };
+    }
+}
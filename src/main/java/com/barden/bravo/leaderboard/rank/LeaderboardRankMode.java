@@ -0,0 +1,15 @@
+package com.barden.bravo.leaderboard.rank;
+
+/**
+ * Leaderboard rank modes.
+ */
+public enum LeaderboardRankMode {
+    /**
+     * Exact rank from redis. (ZREVRANK)
+     */
+    EXACT,
+    /**
+     * Estimated rank and top percentile from local leaderboard histogram.
+     */
+    PERCENTILE
+}
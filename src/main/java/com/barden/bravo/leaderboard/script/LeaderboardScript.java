@@ -0,0 +1,189 @@
+package com.barden.bravo.leaderboard.script;
+
+import com.barden.bravo.leaderboard.shard.LeaderboardShards;
+import com.barden.bravo.leaderboard.window.LeaderboardWindow;
+import com.barden.bravo.player.directory.PlayerNameDirectory;
+import com.barden.bravo.player.statistics.type.PlayerStatisticType;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.exceptions.JedisNoScriptException;
+
+import javax.annotation.Nonnull;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Leaderboard script class.
+ * <p>
+ * Writes a chunk of players to leaderboards with one EVALSHA call. Every player
+ * gets all statistic scores, windowed deltas and the name hash in one atomic step.
+ * <p>
+ * KEYS: all-time keys (one per statistic type), windowed keys grouped by window,
+ * then name hash keys (one per player, in packing order).
+ * <p>
+ * ARGV: statistic type count, window count, window expiries, then for every player;
+ * id, name, scores (one per statistic type), delta count and (type index, delta) pairs.
+ * <p>
+ * Script only touches declared keys, so it is safe for a cluster. When leaderboards
+ * are sharded, all keys of a call (name hashes too) belong to the same shard.
+ */
+public final class LeaderboardScript {
+
+    /*
+    VARIABLES
+     */
+
+    private static final String SCRIPT = """
+            local t = tonumber(ARGV[1])
+            local w = tonumber(ARGV[2])
+            local i = 3 + w
+            local names = t + w * t
+            local touched = {}
+            local players = 0
+            while i <= #ARGV do
+                local id = ARGV[i]
+                redis.call('HSET', KEYS[names + players + 1], 'id', id, 'name', ARGV[i + 1])
+                i = i + 2
+                for k = 1, t do
+                    redis.call('ZADD', KEYS[k], ARGV[i], id)
+                    i = i + 1
+                end
+                local d = tonumber(ARGV[i])
+                i = i + 1
+                for k = 1, d do
+                    local type = tonumber(ARGV[i])
+                    local delta = ARGV[i + 1]
+                    i = i + 2
+                    for window = 1, w do
+                        local key = t + (window - 1) * t + type
+                        redis.call('ZINCRBY', KEYS[key], delta, id)
+                        touched[key] = window
+                    end
+                end
+                players = players + 1
+            end
+            for key, window in pairs(touched) do
+                redis.call('EXPIRE', KEYS[key], ARGV[2 + window])
+            end
+            return players
+            """;
+
+    /**
+     * Maximum player count per script call.
+     * Keeps a single call short since redis is blocked while script runs.
+     */
+    public static final int CHUNK_SIZE = 200;
+
+    private static volatile String sha;
+
+
+    /*
+    METHODS
+     */
+
+    /**
+     * Loads script to the redis script cache.
+     *
+     * @param resource Jedis resource.
+     */
+    public static void load(@Nonnull Jedis resource) {
+        sha = Objects.requireNonNull(resource, "resource cannot be null!").scriptLoad(SCRIPT);
+    }
+
+    /**
+     * Gets windows which get statistic deltas.
+     *
+     * @return Windows.
+     */
+    @Nonnull
+    private static List<LeaderboardWindow> getWindows() {
+        List<LeaderboardWindow> windows = new ArrayList<>();
+        for (LeaderboardWindow window : LeaderboardWindow.values())
+            if (!window.isAllTime())
+                windows.add(window);
+        return windows;
+    }
+
+    /**
+     * Creates script leaderboard keys for declared time and shard.
+     * Name hash keys are added by {@link #pack(List, List, long, String, double[], Map)}.
+     *
+     * @param instant Instant.
+     * @param shard   Leaderboard shard.
+     * @return Script leaderboard keys.
+     */
+    @Nonnull
+    public static List<String> createKeys(@Nonnull Instant instant, int shard) {
+        List<String> keys = new ArrayList<>();
+        for (PlayerStatisticType type : PlayerStatisticType.values())
+            keys.add(LeaderboardShards.toKey(LeaderboardWindow.ALL_TIME.toKey(type, instant), shard));
+        for (LeaderboardWindow window : getWindows())
+            for (PlayerStatisticType type : PlayerStatisticType.values())
+                keys.add(LeaderboardShards.toKey(window.toKey(type, instant), shard));
+        return keys;
+    }
+
+    /**
+     * Creates script argument header.
+     *
+     * @return Script argument header.
+     */
+    @Nonnull
+    public static List<String> createArguments() {
+        List<String> arguments = new ArrayList<>();
+        List<LeaderboardWindow> windows = getWindows();
+        arguments.add(String.valueOf(PlayerStatisticType.values().length));
+        arguments.add(String.valueOf(windows.size()));
+        windows.forEach(window -> arguments.add(String.valueOf(window.getExpiry())));
+        return arguments;
+    }
+
+    /**
+     * Packs a player into script keys and arguments.
+     *
+     * @param keys      Script keys.
+     * @param arguments Script arguments.
+     * @param id        Roblox user id.
+     * @param name      Roblox user name.
+     * @param scores    Statistic scores. (ORDERED BY STATISTIC TYPE)
+     * @param deltas    Statistic deltas.
+     */
+    public static void pack(@Nonnull List<String> keys, @Nonnull List<String> arguments, long id, @Nonnull String name, @Nonnull double[] scores, @Nonnull Map<PlayerStatisticType, Double> deltas) {
+        keys.add(PlayerNameDirectory.toKey(id));
+        arguments.add(String.valueOf(id));
+        arguments.add(Objects.requireNonNull(name, "name cannot be null!"));
+        for (double score : scores)
+            arguments.add(String.valueOf(score));
+        arguments.add(String.valueOf(deltas.size()));
+        deltas.forEach((type, delta) -> {
+            arguments.add(String.valueOf(type.ordinal() + 1));
+            arguments.add(String.valueOf(delta));
+        });
+    }
+
+    /**
+     * Executes script. (SYNC)
+     * If redis lost the script (restart, flush), it loads script again then retries once.
+     *
+     * @param resource  Jedis resource.
+     * @param keys      Script keys.
+     * @param arguments Script arguments.
+     */
+    public static void execute(@Nonnull Jedis resource, @Nonnull List<String> keys, @Nonnull List<String> arguments) {
+        //Objects null check.
+        Objects.requireNonNull(resource, "resource cannot be null!");
+
+        //Loads script if it is not loaded yet.
+        if (sha == null)
+            load(resource);
+
+        try {
+            resource.evalsha(sha, keys, arguments);
+        } catch (JedisNoScriptException exception) {
+            load(resource);
+            resource.evalsha(sha, keys, arguments);
+        }
+    }
+}
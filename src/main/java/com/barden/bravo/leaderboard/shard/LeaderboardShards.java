@@ -0,0 +1,119 @@
+package com.barden.bravo.leaderboard.shard;
+
+import com.barden.bravo.settings.Settings;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Leaderboard shards class.
+ * <p>
+ * When sharding is enabled, every leaderboard key is split into "key:{n}" sorted
+ * sets by roblox user id hash. Hash tag keeps all keys of a shard in the same
+ * redis cluster slot, so a shard can still be written by a single script call.
+ * <p>
+ * Active shard count is stored in redis, so a changed shard count is detected
+ * on startup and leaderboards are moved to the new layout.
+ */
+public final class LeaderboardShards {
+
+    /**
+     * Redis key of active shard count.
+     */
+    public static final String COUNT_KEY = "leaderboard:shards";
+
+    /**
+     * Gets shard count.
+     *
+     * @return Shard count.
+     */
+    public static int getCount() {
+        return Settings.getLeaderboardShards();
+    }
+
+    /**
+     * Gets if leaderboards are sharded or not.
+     *
+     * @return If leaderboards are sharded or not.
+     */
+    public static boolean isSharded() {
+        return getCount() > 1;
+    }
+
+    /**
+     * Gets shard of declared roblox user id.
+     *
+     * @param id Roblox user id.
+     * @return Shard.
+     */
+    public static int getShard(long id) {
+        return getShard(id, getCount());
+    }
+
+    /**
+     * Gets shard of declared roblox user id for declared shard count.
+     *
+     * @param id    Roblox user id.
+     * @param count Shard count.
+     * @return Shard.
+     */
+    public static int getShard(long id, int count) {
+        //Mixes id bits since roblox user ids are mostly sequential.
+        long hash = id * 0x9E3779B97F4A7C15L;
+        return Math.floorMod((int) (hash ^ (hash >>> 32)), count);
+    }
+
+    /**
+     * Gets shard key of declared leaderboard key.
+     *
+     * @param key   Leaderboard key.
+     * @param shard Shard.
+     * @return Shard key. (SAME KEY IF NOT SHARDED)
+     */
+    @Nonnull
+    public static String toKey(@Nonnull String key, int shard) {
+        return toKey(key, shard, getCount());
+    }
+
+    /**
+     * Gets shard key of declared leaderboard key for declared shard count.
+     *
+     * @param key   Leaderboard key.
+     * @param shard Shard.
+     * @param count Shard count.
+     * @return Shard key. (SAME KEY IF NOT SHARDED)
+     */
+    @Nonnull
+    public static String toKey(@Nonnull String key, int shard, int count) {
+        Objects.requireNonNull(key, "key cannot be null!");
+        return count > 1 ? key + ":{" + shard + "}" : key;
+    }
+
+    /**
+     * Gets all shard keys of declared leaderboard key.
+     *
+     * @param key Leaderboard key.
+     * @return Shard keys. (SINGLE KEY IF NOT SHARDED)
+     */
+    @Nonnull
+    public static List<String> toKeys(@Nonnull String key) {
+        return toKeys(key, getCount());
+    }
+
+    /**
+     * Gets all shard keys of declared leaderboard key for declared shard count.
+     *
+     * @param key   Leaderboard key.
+     * @param count Shard count.
+     * @return Shard keys. (SINGLE KEY IF NOT SHARDED)
+     */
+    @Nonnull
+    public static List<String> toKeys(@Nonnull String key, int count) {
+        List<String> keys = new ArrayList<>(count);
+        for (int shard = 0; shard < count; shard++)
+            keys.add(toKey(key, shard, count));
+        return keys;
+    }
+}
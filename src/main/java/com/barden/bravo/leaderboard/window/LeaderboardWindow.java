@@ -0,0 +1,108 @@
+package com.barden.bravo.leaderboard.window;
+
+import com.barden.bravo.player.statistics.type.PlayerStatisticType;
+
+import javax.annotation.Nonnull;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.IsoFields;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Leaderboard windows.
+ * <p>
+ * Every window except {@link #ALL_TIME} is stored as its own sorted set per period,
+ * such as "leaderboard:WIN:2026-W42". Periods are calculated in UTC, so a rollover
+ * only changes the key that leaderboard reads from and writes to.
+ */
+public enum LeaderboardWindow {
+    ALL_TIME(0),
+    DAILY(TimeUnit.DAYS.toSeconds(2)),
+    WEEKLY(TimeUnit.DAYS.toSeconds(14)),
+    SEASONAL(TimeUnit.DAYS.toSeconds(184));
+
+    private final long expiry;
+
+    /**
+     * Creates a leaderboard window.
+     *
+     * @param expiry Period key expiry. (SECONDS)
+     */
+    LeaderboardWindow(long expiry) {
+        this.expiry = expiry;
+    }
+
+    /**
+     * Gets period key expiry.
+     * Expiry is refreshed on every write, so a period key
+     * will be removed by redis after its period is over.
+     *
+     * @return Period key expiry. (SECONDS)
+     */
+    public long getExpiry() {
+        return this.expiry;
+    }
+
+    /**
+     * Gets if window is all-time or not.
+     *
+     * @return If window is all-time or not.
+     */
+    public boolean isAllTime() {
+        return this == ALL_TIME;
+    }
+
+    /**
+     * Gets period of declared time.
+     *
+     * @param instant Instant.
+     * @return Period. (EMPTY FOR ALL TIME)
+     */
+    @Nonnull
+    public String getPeriod(@Nonnull Instant instant) {
+        //Objects null check.
+        Objects.requireNonNull(instant, "instant cannot be null!");
+
+        //Declares required fields.
+        ZonedDateTime date = instant.atZone(ZoneOffset.UTC);
+
+        return switch (this) {
+            case ALL_TIME -> "";
+            case DAILY -> date.format(DateTimeFormatter.ISO_LOCAL_DATE);
+            case WEEKLY -> date.get(IsoFields.WEEK_BASED_YEAR) + "-W" + String.format("%02d", date.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR));
+            case SEASONAL -> date.getYear() + "-Q" + date.get(IsoFields.QUARTER_OF_YEAR);
+        };
+    }
+
+    /**
+     * Gets redis key of declared statistic type for declared time.
+     *
+     * @param type    Statistic type.
+     * @param instant Instant.
+     * @return Redis key.
+     */
+    @Nonnull
+    public String toKey(@Nonnull PlayerStatisticType type, @Nonnull Instant instant) {
+        //Objects null check.
+        Objects.requireNonNull(type, "type cannot be null!");
+
+        //All time leaderboards don't have any period.
+        if (this.isAllTime())
+            return "leaderboard:" + type.name();
+        return "leaderboard:" + type.name() + ":" + this.getPeriod(instant);
+    }
+
+    /**
+     * Gets current redis key of declared statistic type.
+     *
+     * @param type Statistic type.
+     * @return Redis key.
+     */
+    @Nonnull
+    public String toKey(@Nonnull PlayerStatisticType type) {
+        return this.toKey(type, Instant.now());
+    }
+}
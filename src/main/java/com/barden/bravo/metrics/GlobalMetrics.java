@@ -1,12 +1,16 @@
 package com.barden.bravo.metrics;
 
+import com.barden.bravo.instrumentation.Dependency;
+import com.barden.bravo.metrics.aggregate.MetricCell;
+import com.barden.bravo.metrics.copy.MetricCopyWriter;
+import com.barden.bravo.metrics.row.GlobalMetricRow;
 import com.barden.library.BardenJavaLibrary;
 import com.barden.library.database.DatabaseProvider;
-import com.google.gson.JsonObject;
 
 import javax.annotation.Nonnull;
+import java.sql.SQLException;
 import java.sql.Timestamp;
-import java.time.Instant;
+import java.util.Collection;
 
 /**
  * A class to handle global metric via timescaledb.
@@ -18,6 +22,14 @@ public final class GlobalMetrics {
      */
 
     private static final String INSERT = "INSERT INTO global_metrics (time, type, value) VALUES (?, ?, ?)";
+    private static final String UPSERT_ROLLUP = """
+            INSERT INTO global_metrics_rollup AS rollup (time, type, count, sum, min, max) VALUES (?, ?, ?, ?, ?, ?)
+            ON CONFLICT (type, time) DO UPDATE SET
+                count = rollup.count + EXCLUDED.count,
+                sum = rollup.sum + EXCLUDED.sum,
+                min = LEAST(rollup.min, EXCLUDED.min),
+                max = GREATEST(rollup.max, EXCLUDED.max)
+            """;
 
 
     /*
@@ -40,12 +52,48 @@ public final class GlobalMetrics {
             statement.execute("""
                     CREATE TABLE IF NOT EXISTS global_metrics (
                         time TIMESTAMPTZ NOT NULL,
-                        type TEXT NOT NULL,
+                        type SMALLINT NOT NULL,
                         value DOUBLE PRECISION NOT NULL
                     )
                     """);
             //Creates hypertable.
             statement.execute("SELECT create_hypertable('global_metrics', 'time', if_not_exists => TRUE)");
+            //Converts type names of old rows to codes.
+            MetricSchema.migrateType(statement, "global_metrics");
+
+            //Creates rollup table for global metric. (PER MINUTE CELLS)
+            statement.execute("""
+                    CREATE TABLE IF NOT EXISTS global_metrics_rollup (
+                        time TIMESTAMPTZ NOT NULL,
+                        type SMALLINT NOT NULL,
+                        count BIGINT NOT NULL,
+                        sum DOUBLE PRECISION NOT NULL,
+                        min DOUBLE PRECISION NOT NULL,
+                        max DOUBLE PRECISION NOT NULL
+                    )
+                    """);
+            //Creates rollup hypertable and its unique index for upserts.
+            statement.execute("SELECT create_hypertable('global_metrics_rollup', 'time', if_not_exists => TRUE)");
+            statement.execute("CREATE UNIQUE INDEX IF NOT EXISTS global_metrics_rollup_unique ON global_metrics_rollup (type, time)");
+            MetricSchema.migrateType(statement, "global_metrics_rollup");
+
+            //Enables compression.
+            MetricSchema.compress(statement, "global_metrics", "type", "7 days");
+            MetricSchema.compress(statement, "global_metrics_rollup", "type", "7 days");
+
+            //Creates continuous aggregates.
+            MetricSchema.createAggregate(statement, "global_metrics_1m", """
+                    SELECT time_bucket('1 minute', time) AS bucket, type, count(*) AS count, sum(value) AS sum, min(value) AS min, max(value) AS max
+                    FROM global_metrics GROUP BY bucket, type
+                    """, "2 hours", "1 minute", "1 minute");
+            MetricSchema.createAggregate(statement, "global_metrics_1h", """
+                    SELECT time_bucket('1 hour', time) AS bucket, type, count(*) AS count, sum(value) AS sum, min(value) AS min, max(value) AS max
+                    FROM global_metrics GROUP BY bucket, type
+                    """, "1 day", "1 hour", "30 minutes");
+            MetricSchema.createAggregate(statement, "global_metrics_rollup_1h", """
+                    SELECT time_bucket('1 hour', time) AS bucket, type, sum(count) AS count, sum(sum) AS sum, min(min) AS min, max(max) AS max
+                    FROM global_metrics_rollup GROUP BY bucket, type
+                    """, "1 day", "1 hour", "30 minutes");
         } catch (Exception exception) {
             BardenJavaLibrary.getLogger().error("Couldn't create global metrics table!", exception);
         }
@@ -57,27 +105,86 @@ public final class GlobalMetrics {
      */
 
     /**
-     * Writes global metrics to the timescaledb from json object.
+     * Writes global metric rows to the timescaledb.
+     * Rows are streamed with binary COPY. If copy itself is rejected, falls back to batched inserts.
      *
-     * @param json Json object.
+     * @param rows Global metric rows.
+     * @return If rows are written or not.
      */
-    public static void write(@Nonnull JsonObject json) {
-        try (var _insert = DatabaseProvider.timescale().prepare(INSERT)) {
-            json.entrySet().forEach((entry) -> {
-                try {
-                    _insert.setTimestamp(1, Timestamp.from(Instant.now()));
-                    _insert.setString(2, entry.getKey());
-                    _insert.setDouble(3, entry.getValue().getAsDouble());
-                    _insert.addBatch();
-                } catch (Exception exception) {
-                    BardenJavaLibrary.getLogger().error("Couldn't save global metrics to the database! [1]", exception);
-                }
-            });
+    public static boolean write(@Nonnull Collection<GlobalMetricRow> rows) {
+        try (var timing = Dependency.TIMESCALE.time("metrics.global.copy");
+             var statement = DatabaseProvider.timescale().session();
+             var writer = MetricCopyWriter.open(statement.getConnection(), "global_metrics", "time", "type", "value")) {
+            for (GlobalMetricRow row : rows)
+                writer.row().timestamp(row.getTime()).int2(row.getType().getCode()).float8(row.getValue());
+
+            //Ends stream.
+            writer.finish();
+            return true;
+        } catch (SQLException exception) {
+            //If database is not reachable, inserts would fail too. Rows are spilled by the caller.
+            if (!MetricCopyWriter.isRejected(exception)) {
+                BardenJavaLibrary.getLogger().error("Couldn't copy global metrics: " + exception.getMessage());
+                return false;
+            }
+            BardenJavaLibrary.getLogger().warn("Couldn't copy global metrics (" + exception.getSQLState() + "), falling back to batched inserts!");
+        } catch (Exception exception) {
+            BardenJavaLibrary.getLogger().error("Couldn't copy global metrics: " + exception.getMessage());
+            return false;
+        }
+
+        return insert(rows);
+    }
+
+    /**
+     * Inserts global metric rows to the timescaledb with a batched prepared statement.
+     *
+     * @param rows Global metric rows.
+     * @return If rows are inserted or not.
+     */
+    private static boolean insert(@Nonnull Collection<GlobalMetricRow> rows) {
+        try (var timing = Dependency.TIMESCALE.time("metrics.global.insert"); var _insert = DatabaseProvider.timescale().prepare(INSERT)) {
+            for (GlobalMetricRow row : rows) {
+                _insert.setTimestamp(1, new Timestamp(row.getTime()));
+                _insert.setShort(2, row.getType().getCode());
+                _insert.setDouble(3, row.getValue());
+                _insert.addBatch();
+            }
 
             //Executes batch.
             _insert.executeBatch();
+            return true;
+        } catch (Exception exception) {
+            BardenJavaLibrary.getLogger().error("Couldn't save global metrics to the database: " + exception.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Writes global metric cells to the rollup table.
+     * Cells of the same minute are merged with existing rows.
+     *
+     * @param cells Global metric cells.
+     * @return If cells are written or not.
+     */
+    public static boolean writeRollup(@Nonnull Collection<MetricCell> cells) {
+        try (var timing = Dependency.TIMESCALE.time("metrics.global.rollup"); var _upsert = DatabaseProvider.timescale().prepare(UPSERT_ROLLUP)) {
+            for (MetricCell cell : cells) {
+                _upsert.setTimestamp(1, new Timestamp(cell.getTime()));
+                _upsert.setShort(2, cell.getType().getCode());
+                _upsert.setLong(3, cell.getCount());
+                _upsert.setDouble(4, cell.getSum());
+                _upsert.setDouble(5, cell.getMin());
+                _upsert.setDouble(6, cell.getMax());
+                _upsert.addBatch();
+            }
+
+            //Executes batch.
+            _upsert.executeBatch();
+            return true;
         } catch (Exception exception) {
-            BardenJavaLibrary.getLogger().error("Couldn't save global metrics to the database! [2]", exception);
+            BardenJavaLibrary.getLogger().error("Couldn't save global metric cells to the database!", exception);
+            return false;
         }
     }
 }
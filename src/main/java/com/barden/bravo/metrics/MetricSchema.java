@@ -0,0 +1,151 @@
+package com.barden.bravo.metrics;
+
+import com.barden.bravo.metrics.type.MetricType;
+
+import javax.annotation.Nonnull;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Objects;
+
+/**
+ * A class to handle shared timescaledb schema of metrics.
+ * <p>
+ * Metric types are stored as SMALLINT codes. {@code metric_types} table maps
+ * codes to names so tables and aggregates can still be read with a join.
+ */
+public final class MetricSchema {
+
+    /*
+    VARIABLES
+     */
+
+    /**
+     * Code of rows whose type was not a declared metric type before types became codes.
+     */
+    public static final short UNKNOWN = 0;
+
+
+    /*
+    METHODS
+     */
+
+    /**
+     * Creates metric type dictionary and syncs it with {@link MetricType}.
+     *
+     * @param statement Timescale statement.
+     * @throws SQLException If a statement fails.
+     */
+    public static void createTypes(@Nonnull Statement statement) throws SQLException {
+        statement.execute("""
+                CREATE TABLE IF NOT EXISTS metric_types (
+                    code SMALLINT PRIMARY KEY,
+                    name TEXT NOT NULL UNIQUE
+                )
+                """);
+
+        //Syncs codes.
+        try (var upsert = statement.getConnection().prepareStatement("INSERT INTO metric_types (code, name) VALUES (?, ?) ON CONFLICT (code) DO UPDATE SET name = EXCLUDED.name")) {
+            upsert.setShort(1, UNKNOWN);
+            upsert.setString(2, "UNKNOWN");
+            upsert.addBatch();
+            for (MetricType type : MetricType.values()) {
+                upsert.setShort(1, type.getCode());
+                upsert.setString(2, type.name());
+                upsert.addBatch();
+            }
+            upsert.executeBatch();
+        }
+    }
+
+    /**
+     * Converts TEXT type column of declared table to SMALLINT codes.
+     * Names which are not declared metric types become {@link #UNKNOWN}.
+     * Does nothing if column is already converted.
+     *
+     * @param statement Timescale statement.
+     * @param table     Table name.
+     * @throws SQLException If a statement fails.
+     */
+    public static void migrateType(@Nonnull Statement statement, @Nonnull String table) throws SQLException {
+        //Objects null check.
+        Objects.requireNonNull(table, "table cannot be null!");
+
+        //If column is not text, no need to continue.
+        try (var query = statement.getConnection().prepareStatement("SELECT data_type FROM information_schema.columns WHERE table_name = ? AND column_name = 'type'")) {
+            query.setString(1, table);
+            try (var result = query.executeQuery()) {
+                if (!result.next() || !result.getString(1).equalsIgnoreCase("text"))
+                    return;
+            }
+        }
+
+        //Creates name to code conversion.
+        StringBuilder conversion = new StringBuilder("CASE type");
+        for (MetricType type : MetricType.values())
+            conversion.append(" WHEN '").append(type.name()).append("' THEN ").append(type.getCode());
+        conversion.append(" ELSE ").append(UNKNOWN).append(" END");
+
+        statement.execute("ALTER TABLE " + table + " ALTER COLUMN type TYPE SMALLINT USING (" + conversion + ")::SMALLINT");
+    }
+
+    /**
+     * Enables native compression of declared hypertable and adds a compression policy.
+     *
+     * @param statement Timescale statement.
+     * @param table     Hypertable name.
+     * @param segmentBy Segment by columns.
+     * @param after     Chunks older than this interval are compressed. (POSTGRES INTERVAL)
+     * @throws SQLException If a statement fails.
+     */
+    public static void compress(@Nonnull Statement statement, @Nonnull String table, @Nonnull String segmentBy, @Nonnull String after) throws SQLException {
+        //Checks if compression is already enabled. Compression settings can't be changed once chunks are compressed.
+        boolean enabled = false;
+        try (var query = statement.getConnection().prepareStatement("SELECT compression_enabled FROM timescaledb_information.hypertables WHERE hypertable_name = ?")) {
+            query.setString(1, table);
+            try (var result = query.executeQuery()) {
+                if (result.next())
+                    enabled = result.getBoolean(1);
+            }
+        }
+
+        if (!enabled)
+            statement.execute("ALTER TABLE " + table + " SET (timescaledb.compress, timescaledb.compress_segmentby = '" + segmentBy + "', timescaledb.compress_orderby = 'time DESC')");
+        statement.execute("SELECT add_compression_policy('" + table + "', INTERVAL '" + after + "', if_not_exists => TRUE)");
+    }
+
+    /**
+     * Creates a continuous aggregate and its refresh policy.
+     * <p>
+     * Aggregate is created without data, then existing rows are materialized once
+     * when it is created. Refresh policy only covers its start offset, so rows older
+     * than it would never be materialized otherwise. Aggregate is real-time, so rows
+     * which are not materialized yet are still read from the source table.
+     *
+     * @param statement Timescale statement.
+     * @param name      Continuous aggregate name.
+     * @param query     Aggregate query. (MUST GROUP BY A TIME BUCKET)
+     * @param start     Refresh window start offset. (POSTGRES INTERVAL)
+     * @param end       Refresh window end offset. (POSTGRES INTERVAL)
+     * @param schedule  Refresh schedule interval. (POSTGRES INTERVAL)
+     * @throws SQLException If a statement fails.
+     */
+    public static void createAggregate(@Nonnull Statement statement, @Nonnull String name, @Nonnull String query, @Nonnull String start, @Nonnull String end, @Nonnull String schedule) throws SQLException {
+        //Checks if aggregate already exists.
+        boolean exists;
+        try (var _query = statement.getConnection().prepareStatement("SELECT 1 FROM timescaledb_information.continuous_aggregates WHERE view_name = ?")) {
+            _query.setString(1, name);
+            try (var result = _query.executeQuery()) {
+                exists = result.next();
+            }
+        }
+
+        //Creates aggregate, then materializes whole history once. (CAN'T RUN IN A TRANSACTION)
+        if (!exists) {
+            statement.execute("CREATE MATERIALIZED VIEW IF NOT EXISTS " + name + " WITH (timescaledb.continuous) AS " + query + " WITH NO DATA");
+            statement.execute("CALL refresh_continuous_aggregate('" + name + "', NULL, NULL)");
+        }
+
+        statement.execute("ALTER MATERIALIZED VIEW " + name + " SET (timescaledb.materialized_only = false)");
+        statement.execute("SELECT add_continuous_aggregate_policy('" + name + "', start_offset => INTERVAL '" + start + "', end_offset => INTERVAL '" + end + "', schedule_interval => INTERVAL '" + schedule + "', if_not_exists => TRUE)");
+    }
+}
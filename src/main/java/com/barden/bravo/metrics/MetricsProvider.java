@@ -1,27 +1,70 @@
 package com.barden.bravo.metrics;
 
+import com.barden.bravo.metrics.ingest.MetricIngestPipeline;
+import com.barden.bravo.metrics.journal.MetricJournal;
+import com.barden.bravo.metrics.rolling.TransactionWindows;
+import com.barden.bravo.metrics.sink.EmbeddedMetricSink;
+import com.barden.bravo.metrics.sink.MetricSink;
+import com.barden.bravo.metrics.sink.TimescaleMetricSink;
+import com.barden.bravo.metrics.unique.UniquePlayers;
+import com.barden.bravo.settings.Settings;
+import com.barden.library.BardenJavaLibrary;
 import com.barden.library.database.DatabaseProvider;
 import com.mongodb.client.model.IndexOptions;
 import com.mongodb.client.model.Indexes;
 
+import javax.annotation.Nonnull;
+import java.nio.file.Path;
+
 /**
  * Metrics provider class.
  */
 @SuppressWarnings("MismatchedQueryAndUpdateOfCollection")
 public final class MetricsProvider {
 
+    private static MetricSink sink = new TimescaleMetricSink();
+
+    /**
+     * Gets active metric sink.
+     *
+     * @return Metric sink.
+     */
+    @Nonnull
+    public static MetricSink getSink() {
+        return sink;
+    }
+
     /**
      * Initializes metrics provider.
      */
     public static void initialize() {
         //Handles databases.
         handleMongo();
-        handleTimescale();
+
+        //Initializes metric sink.
+        sink = createSink();
+        sink.initialize();
 
         //Initializes metrics.
-        GlobalMetrics.initialize();
-        PlayerMetrics.initialize();
         TransactionMetrics.initialize();
+        TransactionWindows.initialize();
+
+        //Initializes metric journal and ingest pipeline.
+        MetricJournal.initialize();
+        MetricIngestPipeline.initialize();
+
+        //Initializes unique player sketches.
+        UniquePlayers.initialize();
+
+        //Logging.
+        BardenJavaLibrary.getLogger().info("Metrics are written to " + sink.getName() + " sink!");
+    }
+
+    /**
+     * Terminates metrics provider.
+     */
+    public static void terminate() {
+        sink.terminate();
     }
 
     /**
@@ -37,8 +80,22 @@ public final class MetricsProvider {
     }
 
     /**
-     * Handles mongo.
+     * Creates metric sink from settings.
+     *
+     * @return Metric sink.
      */
-    private static void handleTimescale() {
+    @Nonnull
+    private static MetricSink createSink() {
+        return switch (Settings.getMetricsSink()) {
+            case "timescale" -> new TimescaleMetricSink();
+            case "embedded" -> new EmbeddedMetricSink(
+                    Path.of(Settings.getMetricsDirectory()),
+                    Settings.getMetricsSegmentSize(),
+                    Settings.getMetricsRetention());
+            default -> {
+                BardenJavaLibrary.getLogger().error("Unknown metrics sink(" + Settings.getMetricsSink() + "), timescale is used instead!");
+                yield new TimescaleMetricSink();
+            }
+        };
     }
 }
@@ -1,12 +1,16 @@
 package com.barden.bravo.metrics;
 
+import com.barden.bravo.instrumentation.Dependency;
+import com.barden.bravo.metrics.aggregate.MetricCell;
+import com.barden.bravo.metrics.copy.MetricCopyWriter;
+import com.barden.bravo.metrics.row.PlayerMetricRow;
 import com.barden.library.BardenJavaLibrary;
 import com.barden.library.database.DatabaseProvider;
-import com.google.gson.JsonObject;
 
 import javax.annotation.Nonnull;
+import java.sql.SQLException;
 import java.sql.Timestamp;
-import java.time.Instant;
+import java.util.Collection;
 
 /**
  * A class to handle player metric via timescaledb.
@@ -18,6 +22,14 @@ public final class PlayerMetrics {
      */
 
     private static final String INSERT = "INSERT INTO player_metrics (time, player, type, value) VALUES (?, ?, ?, ?)";
+    private static final String UPSERT_ROLLUP = """
+            INSERT INTO player_metrics_rollup AS rollup (time, player, type, count, sum, min, max) VALUES (?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (player, type, time) DO UPDATE SET
+                count = rollup.count + EXCLUDED.count,
+                sum = rollup.sum + EXCLUDED.sum,
+                min = LEAST(rollup.min, EXCLUDED.min),
+                max = GREATEST(rollup.max, EXCLUDED.max)
+            """;
 
 
     /*
@@ -41,12 +53,49 @@ public final class PlayerMetrics {
                     CREATE TABLE IF NOT EXISTS player_metrics (
                         time TIMESTAMPTZ NOT NULL,
                         player BIGINT NOT NULL,
-                        type TEXT NOT NULL,
+                        type SMALLINT NOT NULL,
                         value DOUBLE PRECISION NOT NULL
                     )
                     """);
             //Creates hypertable.
             statement.execute("SELECT create_hypertable('player_metrics', 'time', if_not_exists => TRUE)");
+            //Converts type names of old rows to codes.
+            MetricSchema.migrateType(statement, "player_metrics");
+
+            //Creates rollup table for player metric. (PER MINUTE CELLS)
+            statement.execute("""
+                    CREATE TABLE IF NOT EXISTS player_metrics_rollup (
+                        time TIMESTAMPTZ NOT NULL,
+                        player BIGINT NOT NULL,
+                        type SMALLINT NOT NULL,
+                        count BIGINT NOT NULL,
+                        sum DOUBLE PRECISION NOT NULL,
+                        min DOUBLE PRECISION NOT NULL,
+                        max DOUBLE PRECISION NOT NULL
+                    )
+                    """);
+            //Creates rollup hypertable and its unique index for upserts.
+            statement.execute("SELECT create_hypertable('player_metrics_rollup', 'time', if_not_exists => TRUE)");
+            statement.execute("CREATE UNIQUE INDEX IF NOT EXISTS player_metrics_rollup_unique ON player_metrics_rollup (player, type, time)");
+            MetricSchema.migrateType(statement, "player_metrics_rollup");
+
+            //Enables compression.
+            MetricSchema.compress(statement, "player_metrics", "player", "7 days");
+            MetricSchema.compress(statement, "player_metrics_rollup", "player", "7 days");
+
+            //Creates continuous aggregates.
+            MetricSchema.createAggregate(statement, "player_metrics_1m", """
+                    SELECT time_bucket('1 minute', time) AS bucket, player, type, count(*) AS count, sum(value) AS sum, min(value) AS min, max(value) AS max
+                    FROM player_metrics GROUP BY bucket, player, type
+                    """, "2 hours", "1 minute", "1 minute");
+            MetricSchema.createAggregate(statement, "player_metrics_1h", """
+                    SELECT time_bucket('1 hour', time) AS bucket, player, type, count(*) AS count, sum(value) AS sum, min(value) AS min, max(value) AS max
+                    FROM player_metrics GROUP BY bucket, player, type
+                    """, "1 day", "1 hour", "30 minutes");
+            MetricSchema.createAggregate(statement, "player_metrics_rollup_1h", """
+                    SELECT time_bucket('1 hour', time) AS bucket, player, type, sum(count) AS count, sum(sum) AS sum, min(min) AS min, max(max) AS max
+                    FROM player_metrics_rollup GROUP BY bucket, player, type
+                    """, "1 day", "1 hour", "30 minutes");
         } catch (Exception exception) {
             BardenJavaLibrary.getLogger().error("Couldn't create player metrics table!", exception);
         }
@@ -58,35 +107,88 @@ public final class PlayerMetrics {
      */
 
     /**
-     * Writes player metrics to the timescaledb from json object.
+     * Writes player metric rows to the timescaledb.
+     * Rows are streamed with binary COPY. If copy itself is rejected, falls back to batched inserts.
+     *
+     * @param rows Player metric rows.
+     * @return If rows are written or not.
+     */
+    public static boolean write(@Nonnull Collection<PlayerMetricRow> rows) {
+        try (var timing = Dependency.TIMESCALE.time("metrics.player.copy");
+             var statement = DatabaseProvider.timescale().session();
+             var writer = MetricCopyWriter.open(statement.getConnection(), "player_metrics", "time", "player", "type", "value")) {
+            for (PlayerMetricRow row : rows)
+                writer.row().timestamp(row.getTime()).int8(row.getPlayer()).int2(row.getType().getCode()).float8(row.getValue());
+
+            //Ends stream.
+            writer.finish();
+            return true;
+        } catch (SQLException exception) {
+            //If database is not reachable, inserts would fail too. Rows are spilled by the caller.
+            if (!MetricCopyWriter.isRejected(exception)) {
+                BardenJavaLibrary.getLogger().error("Couldn't copy player metrics: " + exception.getMessage());
+                return false;
+            }
+            BardenJavaLibrary.getLogger().warn("Couldn't copy player metrics (" + exception.getSQLState() + "), falling back to batched inserts!");
+        } catch (Exception exception) {
+            BardenJavaLibrary.getLogger().error("Couldn't copy player metrics: " + exception.getMessage());
+            return false;
+        }
+
+        return insert(rows);
+    }
+
+    /**
+     * Inserts player metric rows to the timescaledb with a batched prepared statement.
      *
-     * @param json Json object.
+     * @param rows Player metric rows.
+     * @return If rows are inserted or not.
      */
-    public static void write(@Nonnull JsonObject json) {
-        try (var _insert = DatabaseProvider.timescale().prepare(INSERT)) {
-            //Loops through players.
-            json.entrySet().forEach((entry) -> {
-                //Declares required fields.
-                var metric_json = entry.getValue().getAsJsonObject();
-
-                //Handles player metrics.
-                metric_json.entrySet().forEach((metric_entry) -> {
-                    try {
-                        _insert.setTimestamp(1, Timestamp.from(Instant.now()));
-                        _insert.setLong(2, Long.parseLong(entry.getKey()));
-                        _insert.setString(3, metric_entry.getKey());
-                        _insert.setDouble(4, metric_entry.getValue().getAsDouble());
-                        _insert.addBatch();
-                    } catch (Exception exception) {
-                        BardenJavaLibrary.getLogger().error("Couldn't save players metrics to the database! [1]", exception);
-                    }
-                });
-            });
+    private static boolean insert(@Nonnull Collection<PlayerMetricRow> rows) {
+        try (var timing = Dependency.TIMESCALE.time("metrics.player.insert"); var _insert = DatabaseProvider.timescale().prepare(INSERT)) {
+            for (PlayerMetricRow row : rows) {
+                _insert.setTimestamp(1, new Timestamp(row.getTime()));
+                _insert.setLong(2, row.getPlayer());
+                _insert.setShort(3, row.getType().getCode());
+                _insert.setDouble(4, row.getValue());
+                _insert.addBatch();
+            }
 
             //Executes batch.
             _insert.executeBatch();
+            return true;
+        } catch (Exception exception) {
+            BardenJavaLibrary.getLogger().error("Couldn't save players metrics to the database: " + exception.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Writes player metric cells to the rollup table.
+     * Cells of the same minute are merged with existing rows.
+     *
+     * @param cells Player metric cells.
+     * @return If cells are written or not.
+     */
+    public static boolean writeRollup(@Nonnull Collection<MetricCell> cells) {
+        try (var timing = Dependency.TIMESCALE.time("metrics.player.rollup"); var _upsert = DatabaseProvider.timescale().prepare(UPSERT_ROLLUP)) {
+            for (MetricCell cell : cells) {
+                _upsert.setTimestamp(1, new Timestamp(cell.getTime()));
+                _upsert.setLong(2, cell.getPlayer());
+                _upsert.setShort(3, cell.getType().getCode());
+                _upsert.setLong(4, cell.getCount());
+                _upsert.setDouble(5, cell.getSum());
+                _upsert.setDouble(6, cell.getMin());
+                _upsert.setDouble(7, cell.getMax());
+                _upsert.addBatch();
+            }
+
+            //Executes batch.
+            _upsert.executeBatch();
+            return true;
         } catch (Exception exception) {
-            BardenJavaLibrary.getLogger().error("Couldn't save players metrics to the database! [2]", exception);
+            BardenJavaLibrary.getLogger().error("Couldn't save player metric cells to the database!", exception);
+            return false;
         }
     }
 }
@@ -1,15 +1,30 @@
 package com.barden.bravo.metrics;
 
+import com.barden.bravo.instrumentation.Dependency;
+import com.barden.bravo.instrumentation.Instrumentation;
+import com.barden.bravo.metrics.copy.MetricCopyWriter;
+import com.barden.bravo.metrics.journal.MetricJournal;
+import com.barden.bravo.metrics.rolling.TransactionWindows;
+import com.barden.bravo.metrics.row.TransactionMetricRow;
+import com.barden.bravo.metrics.sink.MetricSink;
 import com.barden.bravo.transaction.Transaction;
 import com.barden.library.BardenJavaLibrary;
 import com.barden.library.database.DatabaseProvider;
+import com.barden.library.scheduler.SchedulerProvider;
+import io.micrometer.core.instrument.Counter;
 
 import javax.annotation.Nonnull;
+import java.sql.SQLException;
 import java.sql.Timestamp;
-import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
 
 /**
- * A class to handle transaction metrics via timescaledb.
+ * A class to handle transaction metrics.
+ * Transactions are buffered then flushed to the active metric sink, timescale writes are handled here.
+ * Flushes go through the metric journal, so rows are spilled instead of dropped while sink is down.
+ * Rows are stamped with transaction date, not with the time they are written.
  */
 public final class TransactionMetrics {
 
@@ -18,6 +33,13 @@ public final class TransactionMetrics {
      */
 
     private static final String INSERT = "INSERT INTO transaction_metrics (time, product, price, buyer) VALUES (?, ?, ?, ?)";
+    private static final String GROUPS = "SELECT time_bucket('1 minute', time) AS time, product, buyer, count(*) AS count, sum(price) AS sum "
+            + "FROM transaction_metrics WHERE time >= ? GROUP BY 1, 2, 3";
+
+    public static final int MAXIMUM_BUFFER = 100_000;
+
+    private static final Queue<TransactionMetricRow> buffer = new ConcurrentLinkedQueue<>();
+    private static final Counter DROPPED = Instrumentation.counter("bravo.metrics.transaction.dropped");
 
 
     /*
@@ -28,13 +50,19 @@ public final class TransactionMetrics {
      * Initializes transaction metrics.
      */
     public static void initialize() {
-        createTables();
+        //Flushes buffered transaction metrics.
+        SchedulerProvider.create()
+                .every(1, TimeUnit.SECONDS)
+                .schedule(task -> Instrumentation.job("metrics.transaction.flush", TransactionMetrics::flush));
+
+        //Instrumentation.
+        Instrumentation.queue("metrics.transaction", buffer, Queue::size);
     }
 
     /**
      * Creates SQL tables.
      */
-    private static void createTables() {
+    public static void createTables() {
         try (var statement = DatabaseProvider.timescale().session()) {
             //Creates table for transaction metric.
             statement.execute("""
@@ -58,23 +86,182 @@ public final class TransactionMetrics {
      */
 
     /**
-     * Writes global metrics to the timescaledb.
+     * Writes transaction metric.
+     * Transaction is buffered then flushed with other transactions in a single write.
      *
      * @param transaction Transaction.
      */
     public static void write(@Nonnull Transaction transaction) {
-        try (var _insert = DatabaseProvider.timescale().prepare(INSERT)) {
-            try {
-                _insert.setTimestamp(1, Timestamp.from(Instant.now()));
-                _insert.setLong(2, transaction.getProduct());
-                _insert.setInt(3, transaction.getPrice());
-                _insert.setLong(4, transaction.getBuyer());
-                _insert.execute();
-            } catch (Exception exception) {
-                BardenJavaLibrary.getLogger().error("Couldn't save transaction metric to the database! [1]", exception);
+        //Objects null check.
+        Objects.requireNonNull(transaction, "transaction cannot be null!");
+
+        TransactionMetricRow row = toRow(transaction);
+        buffer.add(row);
+        TransactionWindows.add(row);
+    }
+
+    /**
+     * Writes transactions to the transaction metrics.
+     * Rows are buffered together, so they are flushed with a single write.
+     *
+     * @param transactions Transactions.
+     */
+    public static void writeAll(@Nonnull Collection<Transaction> transactions) {
+        //Objects null check.
+        Objects.requireNonNull(transactions, "transactions cannot be null!");
+
+        List<TransactionMetricRow> rows = toRows(transactions);
+        buffer.addAll(rows);
+        rows.forEach(TransactionWindows::add);
+    }
+
+    /**
+     * Writes transaction metric rows synchronously, without the buffer.
+     * When it returns true, rows are written to the active metric sink or spilled to
+     * the metric journal, so they survive a restart. (TRANSACTION LOG)
+     * Rows are not added to the rolling windows here, since a failed write is retried.
+     *
+     * @param rows Transaction metric rows.
+     * @return If rows are written or spilled.
+     */
+    public static boolean writeDurably(@Nonnull List<TransactionMetricRow> rows) {
+        //If there is no row, no need to continue.
+        if (Objects.requireNonNull(rows, "rows cannot be null!").isEmpty())
+            return true;
+        return MetricJournal.writeTransactions(rows);
+    }
+
+    /**
+     * Flushes buffered transaction metrics to the active metric sink.
+     * If rows can't be written nor spilled, they are buffered again up to {@link #MAXIMUM_BUFFER}.
+     */
+    public static void flush() {
+        //Drains buffer.
+        List<TransactionMetricRow> rows = new ArrayList<>();
+        TransactionMetricRow row;
+        while ((row = buffer.poll()) != null)
+            rows.add(row);
+
+        //If there is no row, no need to continue.
+        if (rows.isEmpty())
+            return;
+
+        //If rows are written or spilled, no need to continue.
+        if (MetricJournal.writeTransactions(rows))
+            return;
+
+        //Buffers rows again, so they are retried with the next flush.
+        int room = Math.max(0, MAXIMUM_BUFFER - buffer.size());
+        if (room < rows.size()) {
+            DROPPED.increment(rows.size() - room);
+            BardenJavaLibrary.getLogger().error("Dropped " + (rows.size() - room) + " transaction metric rows, buffer is full!");
+        }
+        buffer.addAll(rows.subList(0, Math.min(room, rows.size())));
+    }
+
+    /**
+     * Converts transactions to transaction metric rows.
+     *
+     * @param transactions Transactions.
+     * @return Transaction metric rows. (SAME ORDER AS TRANSACTIONS)
+     */
+    @Nonnull
+    public static List<TransactionMetricRow> toRows(@Nonnull Collection<Transaction> transactions) {
+        List<TransactionMetricRow> rows = new ArrayList<>(Objects.requireNonNull(transactions, "transactions cannot be null!").size());
+        for (Transaction transaction : transactions)
+            rows.add(toRow(transaction));
+        return rows;
+    }
+
+    /**
+     * Converts a transaction to a transaction metric row.
+     * Row is stamped with transaction date, so replayed transactions keep their time.
+     *
+     * @param transaction Transaction.
+     * @return Transaction metric row.
+     */
+    @Nonnull
+    private static TransactionMetricRow toRow(@Nonnull Transaction transaction) {
+        return new TransactionMetricRow(transaction.getDate().getTime(), transaction.getProduct(), transaction.getPrice(), transaction.getBuyer());
+    }
+
+    /**
+     * Writes transaction metric rows to the timescaledb.
+     * Rows are streamed with binary COPY. If copy itself is rejected, falls back to batched inserts.
+     *
+     * @param rows Transaction metric rows.
+     * @return If rows are written or not.
+     */
+    public static boolean write(@Nonnull Collection<TransactionMetricRow> rows) {
+        try (var timing = Dependency.TIMESCALE.time("metrics.transaction.copy");
+             var statement = DatabaseProvider.timescale().session();
+             var writer = MetricCopyWriter.open(statement.getConnection(), "transaction_metrics", "time", "product", "price", "buyer")) {
+            for (TransactionMetricRow row : rows)
+                writer.row().timestamp(row.getTime()).int8(row.getProduct()).int4(row.getPrice()).int8(row.getBuyer());
+
+            //Ends stream.
+            writer.finish();
+            return true;
+        } catch (SQLException exception) {
+            //If database is not reachable, inserts would fail too. Rows are spilled by the caller.
+            if (!MetricCopyWriter.isRejected(exception)) {
+                BardenJavaLibrary.getLogger().error("Couldn't copy transaction metrics: " + exception.getMessage());
+                return false;
+            }
+            BardenJavaLibrary.getLogger().warn("Couldn't copy transaction metrics (" + exception.getSQLState() + "), falling back to batched inserts!");
+        } catch (Exception exception) {
+            BardenJavaLibrary.getLogger().error("Couldn't copy transaction metrics: " + exception.getMessage());
+            return false;
+        }
+
+        return insert(rows);
+    }
+
+    /**
+     * Reads transaction metric rows from the timescaledb, grouped by (minute, product, buyer).
+     *
+     * @param from     Range start. (INCLUSIVE, EPOCH MILLISECONDS)
+     * @param consumer Transaction group consumer.
+     * @throws Exception If query fails.
+     */
+    public static void read(long from, @Nonnull MetricSink.TransactionConsumer consumer) throws Exception {
+        try (var timing = Dependency.TIMESCALE.time("metrics.transaction.query"); var query = DatabaseProvider.timescale().prepare(GROUPS)) {
+            query.setTimestamp(1, new Timestamp(from));
+            try (var result = query.executeQuery()) {
+                while (result.next()) {
+                    consumer.accept(
+                            result.getTimestamp("time").getTime(),
+                            result.getLong("product"),
+                            result.getLong("buyer"),
+                            result.getLong("count"),
+                            result.getLong("sum"));
+                }
+            }
+        }
+    }
+
+    /**
+     * Inserts transaction metric rows to the timescaledb with a batched prepared statement.
+     *
+     * @param rows Transaction metric rows.
+     * @return If rows are inserted or not.
+     */
+    private static boolean insert(@Nonnull Collection<TransactionMetricRow> rows) {
+        try (var timing = Dependency.TIMESCALE.time("metrics.transaction.insert"); var _insert = DatabaseProvider.timescale().prepare(INSERT)) {
+            for (TransactionMetricRow row : rows) {
+                _insert.setTimestamp(1, new Timestamp(row.getTime()));
+                _insert.setLong(2, row.getProduct());
+                _insert.setInt(3, row.getPrice());
+                _insert.setLong(4, row.getBuyer());
+                _insert.addBatch();
             }
+
+            //Executes batch.
+            _insert.executeBatch();
+            return true;
         } catch (Exception exception) {
-            BardenJavaLibrary.getLogger().error("Couldn't save transaction metric to the database! [2]", exception);
+            BardenJavaLibrary.getLogger().error("Couldn't save transaction metrics to the database: " + exception.getMessage());
+            return false;
         }
     }
 }
@@ -0,0 +1,178 @@
+package com.barden.bravo.metrics.aggregate;
+
+import com.barden.bravo.metrics.journal.MetricJournal;
+import com.barden.bravo.metrics.row.GlobalMetricRow;
+import com.barden.bravo.metrics.row.PlayerMetricRow;
+import com.barden.bravo.metrics.type.MetricType;
+import com.barden.library.BardenJavaLibrary;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Metric aggregator class.
+ * <p>
+ * Rolls global and player metric data points up to per (type, minute) cells.
+ * Only cells are persisted, so a minute of a metric type is a single row no
+ * matter how many data points are sent. Cells of a minute are flushed after
+ * the minute is closed for a grace period; rollup tables merge cells with an
+ * upsert, so a late data point only creates a second cell for the same minute.
+ * <p>
+ * A data point is added inside {@code compute} of its key, and a cell is drained
+ * only if it is still mapped to its key. A point is either in the drained cell or
+ * in a new one, never added to a cell after it is written.
+ */
+public final class MetricAggregator {
+
+    /*
+    VARIABLES
+     */
+
+    public static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+    public static final long GRACE = TimeUnit.SECONDS.toMillis(15);
+
+    private static final Map<Key, MetricCell> global = new ConcurrentHashMap<>();
+    private static final Map<Key, MetricCell> players = new ConcurrentHashMap<>();
+
+
+    /*
+    METHODS
+     */
+
+    /**
+     * Gets open cell count.
+     *
+     * @return Open cell count.
+     */
+    public static int size() {
+        return global.size() + players.size();
+    }
+
+    /**
+     * Adds a global metric row to its cell.
+     *
+     * @param row Global metric row.
+     */
+    public static void add(@Nonnull GlobalMetricRow row) {
+        //Objects null check.
+        Objects.requireNonNull(row, "global metric row cannot be null!");
+
+        Key key = new Key(truncate(row.getTime()), 0, row.getType());
+        global.compute(key, (_key, cell) -> {
+            MetricCell _cell = cell != null ? cell : new MetricCell(_key.time, 0, _key.type);
+            _cell.add(row.getValue());
+            return _cell;
+        });
+    }
+
+    /**
+     * Adds a player metric row to its cell.
+     *
+     * @param row Player metric row.
+     */
+    public static void add(@Nonnull PlayerMetricRow row) {
+        //Objects null check.
+        Objects.requireNonNull(row, "player metric row cannot be null!");
+
+        Key key = new Key(truncate(row.getTime()), row.getPlayer(), row.getType());
+        players.compute(key, (_key, cell) -> {
+            MetricCell _cell = cell != null ? cell : new MetricCell(_key.time, _key.player, _key.type);
+            _cell.add(row.getValue());
+            return _cell;
+        });
+    }
+
+    /**
+     * Flushes closed cells to the rollup tables.
+     *
+     * @param all Should open cells be flushed too or not. (SHUTDOWN)
+     */
+    public static void flush(boolean all) {
+        //Declares required fields.
+        long threshold = all ? Long.MAX_VALUE : truncate(System.currentTimeMillis() - GRACE);
+
+        try {
+            //Drains closed cells.
+            List<MetricCell> _global = drain(global, threshold);
+            List<MetricCell> _players = drain(players, threshold);
+
+            //Writes cells.
+            if (!_global.isEmpty())
+                MetricJournal.writeGlobalCells(_global);
+            if (!_players.isEmpty())
+                MetricJournal.writePlayerCells(_players);
+        } catch (Exception exception) {
+            BardenJavaLibrary.getLogger().error("Couldn't flush metric cells!", exception);
+        }
+    }
+
+    /**
+     * Removes cells older than declared threshold.
+     * A cell is removed only if it is still mapped, so adds which are in progress are not lost.
+     *
+     * @param cells     Cells.
+     * @param threshold Threshold. (EXCLUSIVE, EPOCH MILLISECONDS)
+     * @return Removed cells.
+     */
+    @Nonnull
+    private static List<MetricCell> drain(@Nonnull Map<Key, MetricCell> cells, long threshold) {
+        List<MetricCell> drained = new ArrayList<>();
+        for (Map.Entry<Key, MetricCell> entry : cells.entrySet()) {
+            if (entry.getKey().time >= threshold)
+                continue;
+            if (cells.remove(entry.getKey(), entry.getValue()))
+                drained.add(entry.getValue());
+        }
+        return drained;
+    }
+
+    /**
+     * Truncates time to its minute.
+     *
+     * @param time Time. (EPOCH MILLISECONDS)
+     * @return Minute start time. (EPOCH MILLISECONDS)
+     */
+    private static long truncate(long time) {
+        return time - Math.floorMod(time, MINUTE);
+    }
+
+
+    /*
+    KEY
+     */
+
+    /**
+     * Metric cell key.
+     */
+    private static final class Key {
+
+        private final long time;
+        private final long player;
+        private final MetricType type;
+
+        private Key(long time, long player, @Nonnull MetricType type) {
+            this.time = time;
+            this.player = player;
+            this.type = type;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (this == object)
+                return true;
+            if (!(object instanceof Key key))
+                return false;
+            return this.time == key.time && this.player == key.player && this.type == key.type;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.time, this.player, this.type);
+        }
+    }
+}
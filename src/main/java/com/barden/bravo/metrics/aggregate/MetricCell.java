@@ -0,0 +1,131 @@
+package com.barden.bravo.metrics.aggregate;
+
+import com.barden.bravo.metrics.type.MetricType;
+
+import javax.annotation.Nonnull;
+import java.util.Objects;
+import java.util.concurrent.atomic.DoubleAccumulator;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metric cell class.
+ * <p>
+ * Holds sum, count, min and max of a metric type in a minute. Accumulators are
+ * thread safe, so a drained cell can be read while other cells are written.
+ */
+public final class MetricCell {
+
+    private final long time;
+    private final long player;
+    private final MetricType type;
+
+    private final LongAdder count = new LongAdder();
+    private final DoubleAdder sum = new DoubleAdder();
+    private final DoubleAccumulator min = new DoubleAccumulator(Math::min, Double.POSITIVE_INFINITY);
+    private final DoubleAccumulator max = new DoubleAccumulator(Math::max, Double.NEGATIVE_INFINITY);
+
+    /**
+     * Creates a metric cell.
+     *
+     * @param time   Minute start time. (EPOCH MILLISECONDS)
+     * @param player Roblox user id. (0 FOR GLOBAL METRICS)
+     * @param type   Metric type.
+     */
+    public MetricCell(long time, long player, @Nonnull MetricType type) {
+        this.time = time;
+        this.player = player;
+        this.type = Objects.requireNonNull(type, "type cannot be null!");
+    }
+
+    /**
+     * Gets minute start time.
+     *
+     * @return Minute start time. (EPOCH MILLISECONDS)
+     */
+    public long getTime() {
+        return this.time;
+    }
+
+    /**
+     * Gets roblox user id.
+     *
+     * @return Roblox user id. (0 FOR GLOBAL METRICS)
+     */
+    public long getPlayer() {
+        return this.player;
+    }
+
+    /**
+     * Gets metric type.
+     *
+     * @return Metric type.
+     */
+    @Nonnull
+    public MetricType getType() {
+        return this.type;
+    }
+
+    /**
+     * Gets data point count.
+     *
+     * @return Data point count.
+     */
+    public long getCount() {
+        return this.count.sum();
+    }
+
+    /**
+     * Gets sum of data points.
+     *
+     * @return Sum of data points.
+     */
+    public double getSum() {
+        return this.sum.sum();
+    }
+
+    /**
+     * Gets minimum data point.
+     *
+     * @return Minimum data point.
+     */
+    public double getMin() {
+        return this.min.get();
+    }
+
+    /**
+     * Gets maximum data point.
+     *
+     * @return Maximum data point.
+     */
+    public double getMax() {
+        return this.max.get();
+    }
+
+    /**
+     * Adds a data point.
+     *
+     * @param value Data point value.
+     */
+    public void add(double value) {
+        this.sum.add(value);
+        this.min.accumulate(value);
+        this.max.accumulate(value);
+        this.count.increment();
+    }
+
+    /**
+     * Merges an aggregated value into the cell.
+     *
+     * @param count Data point count.
+     * @param sum   Sum of data points.
+     * @param min   Minimum data point.
+     * @param max   Maximum data point.
+     */
+    public void merge(long count, double sum, double min, double max) {
+        this.sum.add(sum);
+        this.min.accumulate(min);
+        this.max.accumulate(max);
+        this.count.add(count);
+    }
+}
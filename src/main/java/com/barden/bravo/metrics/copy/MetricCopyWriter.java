@@ -0,0 +1,276 @@
+package com.barden.bravo.metrics.copy;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+import javax.annotation.Nonnull;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Metric copy writer class.
+ * <p>
+ * Encodes rows in postgresql binary copy format and streams them with
+ * {@code COPY table (columns) FROM STDIN (FORMAT binary)}. Server parses
+ * the whole stream in one statement instead of executing an insert per row.
+ * <p>
+ * Rows are encoded into a fixed chunk which is sent to the server whenever it
+ * is full, so memory usage doesn't depend on row count. A writer which is closed
+ * before {@link #finish()} cancels its copy, and no row is written.
+ */
+public final class MetricCopyWriter implements AutoCloseable {
+
+    /*
+    VARIABLES
+     */
+
+    private static final byte[] SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0};
+
+    /**
+     * Postgresql epoch (2000-01-01T00:00:00Z) in epoch milliseconds.
+     */
+    private static final long POSTGRES_EPOCH = Instant.parse("2000-01-01T00:00:00Z").toEpochMilli();
+
+    /**
+     * Chunk size. (BYTES)
+     */
+    public static final int CHUNK = 64 * 1024;
+
+    /**
+     * SQL states which mean copy itself is rejected, so an insert might still work.
+     * (FEATURE NOT SUPPORTED, BAD COPY FILE FORMAT)
+     */
+    private static final Set<String> REJECTED = Set.of("0A000", "22P04");
+
+    private final CopyIn copy;
+    private final int fields;
+    private final ByteBuffer buffer = ByteBuffer.allocate(CHUNK);
+    private int rows = 0;
+    private int field;
+
+    /**
+     * Creates a metric copy writer.
+     *
+     * @param copy   Copy operation.
+     * @param fields Field count of a row.
+     */
+    private MetricCopyWriter(@Nonnull CopyIn copy, int fields) {
+        this.copy = copy;
+        this.fields = fields;
+        this.field = fields;
+
+        //Writes header. (SIGNATURE, FLAGS, HEADER EXTENSION LENGTH)
+        this.buffer.put(SIGNATURE).putInt(0).putInt(0);
+    }
+
+    /**
+     * Starts a COPY statement and creates its writer.
+     *
+     * @param connection Postgresql connection.
+     * @param table      Table name.
+     * @param columns    Column names. (ORDERED AS WRITTEN)
+     * @return Metric copy writer.
+     * @throws SQLException If connection is not a postgresql connection or copy can't be started.
+     */
+    @Nonnull
+    public static MetricCopyWriter open(@Nonnull Connection connection, @Nonnull String table, @Nonnull String... columns) throws SQLException {
+        //Objects null check.
+        Objects.requireNonNull(connection, "connection cannot be null!");
+        Objects.requireNonNull(table, "table cannot be null!");
+        Objects.requireNonNull(columns, "columns cannot be null!");
+
+        PGConnection _connection;
+        try {
+            _connection = connection.unwrap(PGConnection.class);
+        } catch (SQLException exception) {
+            throw new SQLException("connection is not a postgresql connection!", "0A000", exception);
+        }
+
+        String sql = "COPY " + table + " (" + String.join(", ", columns) + ") FROM STDIN (FORMAT binary)";
+        return new MetricCopyWriter(_connection.getCopyAPI().copyIn(sql), columns.length);
+    }
+
+    /**
+     * Gets if an exception means copy is rejected, so rows could be inserted instead.
+     * Connection failures are not, inserts would fail the same way.
+     *
+     * @param exception SQL exception.
+     * @return If copy is rejected or not.
+     */
+    public static boolean isRejected(@Nonnull SQLException exception) {
+        return exception.getSQLState() != null && REJECTED.contains(exception.getSQLState());
+    }
+
+    /**
+     * Gets written row count.
+     *
+     * @return Written row count.
+     */
+    public int getRows() {
+        return this.rows;
+    }
+
+    /**
+     * Starts a new row.
+     *
+     * @return Metric copy writer. (BUILDER)
+     * @throws SQLException If a full chunk can't be sent.
+     */
+    @Nonnull
+    public MetricCopyWriter row() throws SQLException {
+        if (this.field != this.fields)
+            throw new IllegalStateException("previous row has " + this.field + " fields, expected " + this.fields + "!");
+
+        this.reserve(Short.BYTES).putShort((short) this.fields);
+        this.field = 0;
+        this.rows++;
+        return this;
+    }
+
+    /**
+     * Writes a TIMESTAMPTZ field.
+     *
+     * @param time Time. (EPOCH MILLISECONDS)
+     * @return Metric copy writer. (BUILDER)
+     * @throws SQLException If a full chunk can't be sent.
+     */
+    @Nonnull
+    public MetricCopyWriter timestamp(long time) throws SQLException {
+        this.reserve(Integer.BYTES + Long.BYTES).putInt(8).putLong((time - POSTGRES_EPOCH) * 1000L);
+        this.field++;
+        return this;
+    }
+
+    /**
+     * Writes a SMALLINT field.
+     *
+     * @param value Value.
+     * @return Metric copy writer. (BUILDER)
+     * @throws SQLException If a full chunk can't be sent.
+     */
+    @Nonnull
+    public MetricCopyWriter int2(short value) throws SQLException {
+        this.reserve(Integer.BYTES + Short.BYTES).putInt(2).putShort(value);
+        this.field++;
+        return this;
+    }
+
+    /**
+     * Writes an INT field.
+     *
+     * @param value Value.
+     * @return Metric copy writer. (BUILDER)
+     * @throws SQLException If a full chunk can't be sent.
+     */
+    @Nonnull
+    public MetricCopyWriter int4(int value) throws SQLException {
+        this.reserve(Integer.BYTES * 2).putInt(4).putInt(value);
+        this.field++;
+        return this;
+    }
+
+    /**
+     * Writes a BIGINT field.
+     *
+     * @param value Value.
+     * @return Metric copy writer. (BUILDER)
+     * @throws SQLException If a full chunk can't be sent.
+     */
+    @Nonnull
+    public MetricCopyWriter int8(long value) throws SQLException {
+        this.reserve(Integer.BYTES + Long.BYTES).putInt(8).putLong(value);
+        this.field++;
+        return this;
+    }
+
+    /**
+     * Writes a DOUBLE PRECISION field.
+     *
+     * @param value Value.
+     * @return Metric copy writer. (BUILDER)
+     * @throws SQLException If a full chunk can't be sent.
+     */
+    @Nonnull
+    public MetricCopyWriter float8(double value) throws SQLException {
+        this.reserve(Integer.BYTES + Double.BYTES).putInt(8).putDouble(value);
+        this.field++;
+        return this;
+    }
+
+    /**
+     * Writes a TEXT field.
+     * A value larger than a chunk is sent directly.
+     *
+     * @param value Value.
+     * @return Metric copy writer. (BUILDER)
+     * @throws SQLException If a full chunk can't be sent.
+     */
+    @Nonnull
+    public MetricCopyWriter text(@Nonnull String value) throws SQLException {
+        byte[] encoded = Objects.requireNonNull(value, "value cannot be null!").getBytes(StandardCharsets.UTF_8);
+        this.reserve(Integer.BYTES).putInt(encoded.length);
+        if (encoded.length > this.buffer.remaining()) {
+            this.send();
+            this.copy.writeToCopy(encoded, 0, encoded.length);
+        } else {
+            this.buffer.put(encoded);
+        }
+        this.field++;
+        return this;
+    }
+
+    /**
+     * Sends remaining rows and ends COPY statement.
+     * Writer can't be used after this call.
+     *
+     * @return Copied row count.
+     * @throws SQLException If copy fails.
+     */
+    public long finish() throws SQLException {
+        this.reserve(Short.BYTES).putShort((short) -1);
+        this.send();
+        return this.copy.endCopy();
+    }
+
+    /**
+     * Cancels COPY statement if it is not finished.
+     *
+     * @throws SQLException If copy can't be cancelled.
+     */
+    @Override
+    public void close() throws SQLException {
+        if (this.copy.isActive())
+            this.copy.cancelCopy();
+    }
+
+    /**
+     * Makes room for declared byte count, sending chunk if it is full.
+     *
+     * @param length Byte count.
+     * @return Chunk buffer.
+     * @throws SQLException If chunk can't be sent.
+     */
+    @Nonnull
+    private ByteBuffer reserve(int length) throws SQLException {
+        if (this.buffer.remaining() < length)
+            this.send();
+        return this.buffer;
+    }
+
+    /**
+     * Sends chunk to the server.
+     *
+     * @throws SQLException If chunk can't be sent.
+     */
+    private void send() throws SQLException {
+        if (this.buffer.position() == 0)
+            return;
+        this.copy.writeToCopy(this.buffer.array(), 0, this.buffer.position());
+        this.buffer.clear();
+    }
+}
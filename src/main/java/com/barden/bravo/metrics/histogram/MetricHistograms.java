@@ -0,0 +1,369 @@
+package com.barden.bravo.metrics.histogram;
+
+import com.barden.bravo.instrumentation.Dependency;
+import com.barden.bravo.instrumentation.Instrumentation;
+import com.barden.bravo.metrics.MetricSchema;
+import com.barden.bravo.metrics.row.GlobalMetricRow;
+import com.barden.bravo.metrics.row.PlayerMetricRow;
+import com.barden.bravo.metrics.type.MetricType;
+import com.barden.library.BardenJavaLibrary;
+import com.barden.library.database.DatabaseProvider;
+import com.barden.library.scheduler.SchedulerProvider;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.gson.JsonObject;
+import org.HdrHistogram.DoubleHistogram;
+
+import javax.annotation.Nonnull;
+import java.nio.ByteBuffer;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+/**
+ * Metric histograms class.
+ * <p>
+ * Records values of duration metric types to HDR histograms per (type, 5 minutes).
+ * Global and player values are kept in separate histograms, but player values are
+ * not split by player. Closed histograms are written to timescale as compressed
+ * bytes, then merged at query time, so percentiles of a day are computed from a
+ * few hundred histograms instead of every raw value.
+ * <p>
+ * Histograms are only kept when timescale is the metric sink.
+ */
+public final class MetricHistograms {
+
+    /*
+    VARIABLES
+     */
+
+    public static final long INTERVAL = TimeUnit.MINUTES.toMillis(5);
+    public static final long GRACE = TimeUnit.SECONDS.toMillis(15);
+    public static final int SIGNIFICANT_DIGITS = 2;
+    public static final double[] PERCENTILES = {50, 90, 95, 99, 99.9};
+
+    private static final String INSERT = "INSERT INTO metric_histograms (time, type, player, count, histogram) VALUES (?, ?, ?, ?, ?)";
+    private static final String SELECT = "SELECT histogram FROM metric_histograms WHERE type = ? AND player = ? AND time >= ? AND time < ?";
+
+    private static final Map<Key, DoubleHistogram> histograms = new ConcurrentHashMap<>();
+    private static volatile boolean enabled = false;
+    private static final Cache<String, JsonObject> closed = CacheBuilder.newBuilder()
+            .maximumSize(1_000)
+            .expireAfterWrite(1, TimeUnit.HOURS)
+            .build();
+
+
+    /*
+    INITIALIZE
+     */
+
+    /**
+     * Initializes metric histograms.
+     */
+    public static void initialize() {
+        createTables();
+        enabled = true;
+
+        //Flushes closed histograms.
+        SchedulerProvider.create()
+                .every(15, TimeUnit.SECONDS)
+                .schedule(task -> Instrumentation.job("metrics.histogram.flush", () -> flush(false)));
+
+        //Instrumentation.
+        Instrumentation.gauge("bravo.metrics.histogram.open", histograms, Map::size);
+    }
+
+    /**
+     * Creates SQL tables.
+     */
+    private static void createTables() {
+        try (var statement = DatabaseProvider.timescale().session()) {
+            //Creates histogram table. (COMPRESSED HDR HISTOGRAM PER 5 MINUTES)
+            statement.execute("""
+                    CREATE TABLE IF NOT EXISTS metric_histograms (
+                        time TIMESTAMPTZ NOT NULL,
+                        type SMALLINT NOT NULL,
+                        player BOOLEAN NOT NULL,
+                        count BIGINT NOT NULL,
+                        histogram BYTEA NOT NULL
+                    )
+                    """);
+            //Creates hypertable.
+            statement.execute("SELECT create_hypertable('metric_histograms', 'time', if_not_exists => TRUE)");
+            statement.execute("CREATE INDEX IF NOT EXISTS metric_histograms_type ON metric_histograms (type, player, time DESC)");
+
+            //Enables compression.
+            MetricSchema.compress(statement, "metric_histograms", "type, player", "7 days");
+        } catch (Exception exception) {
+            BardenJavaLibrary.getLogger().error("Couldn't create metric histograms table!", exception);
+        }
+    }
+
+
+    /*
+    METHODS
+     */
+
+    /**
+     * Gets open histogram count.
+     *
+     * @return Open histogram count.
+     */
+    public static int size() {
+        return histograms.size();
+    }
+
+    /**
+     * Records a global metric row if its type has a histogram.
+     *
+     * @param row Global metric row.
+     */
+    public static void add(@Nonnull GlobalMetricRow row) {
+        //Objects null check.
+        Objects.requireNonNull(row, "global metric row cannot be null!");
+
+        if (enabled && row.getType().hasHistogram())
+            record(new Key(truncate(row.getTime()), row.getType(), false), row.getValue());
+    }
+
+    /**
+     * Records a player metric row if its type has a histogram.
+     *
+     * @param row Player metric row.
+     */
+    public static void add(@Nonnull PlayerMetricRow row) {
+        //Objects null check.
+        Objects.requireNonNull(row, "player metric row cannot be null!");
+
+        if (enabled && row.getType().hasHistogram())
+            record(new Key(truncate(row.getTime()), row.getType(), true), row.getValue());
+    }
+
+    /**
+     * Records a value to its histogram.
+     * Negative and non finite values can't be recorded, so they are ignored.
+     *
+     * @param key   Histogram key.
+     * @param value Value.
+     */
+    private static void record(@Nonnull Key key, double value) {
+        if (!Double.isFinite(value) || value < 0)
+            return;
+
+        //Records in compute, so a value can't be recorded to a histogram which is being flushed.
+        histograms.compute(key, (_key, histogram) -> {
+            if (histogram == null)
+                histogram = new DoubleHistogram(SIGNIFICANT_DIGITS);
+            histogram.recordValue(value);
+            return histogram;
+        });
+    }
+
+    /**
+     * Flushes closed histograms to the timescaledb.
+     * If histograms couldn't be written, they are merged back to be retried on next flush.
+     *
+     * @param all Should open histograms be flushed too or not. (SHUTDOWN)
+     */
+    public static void flush(boolean all) {
+        //Declares required fields.
+        long threshold = all ? Long.MAX_VALUE : truncate(System.currentTimeMillis() - GRACE);
+
+        //Drains closed histograms.
+        Map<Key, DoubleHistogram> drained = new HashMap<>();
+        for (Key key : List.copyOf(histograms.keySet())) {
+            if (key.time >= threshold)
+                continue;
+            DoubleHistogram histogram = histograms.remove(key);
+            if (histogram != null)
+                drained.put(key, histogram);
+        }
+
+        //Writes histograms. If there is nothing to write or histograms are written, no need to continue.
+        if (drained.isEmpty() || write(drained))
+            return;
+
+        //Merges histograms back.
+        drained.forEach((key, histogram) -> histograms.merge(key, histogram, (current, _histogram) -> {
+            current.add(_histogram);
+            return current;
+        }));
+    }
+
+    /**
+     * Writes histograms to the timescaledb.
+     *
+     * @param drained Histograms.
+     * @return If histograms are written or not.
+     */
+    private static boolean write(@Nonnull Map<Key, DoubleHistogram> drained) {
+        try (var timing = Dependency.TIMESCALE.time("metrics.histogram.insert"); var _insert = DatabaseProvider.timescale().prepare(INSERT)) {
+            for (Map.Entry<Key, DoubleHistogram> entry : drained.entrySet()) {
+                Key key = entry.getKey();
+                DoubleHistogram histogram = entry.getValue();
+                _insert.setTimestamp(1, new Timestamp(key.time));
+                _insert.setShort(2, key.type.getCode());
+                _insert.setBoolean(3, key.player);
+                _insert.setLong(4, histogram.getTotalCount());
+                _insert.setBytes(5, encode(histogram));
+                _insert.addBatch();
+            }
+
+            //Executes batch.
+            _insert.executeBatch();
+            return true;
+        } catch (Exception exception) {
+            BardenJavaLibrary.getLogger().error("Couldn't save metric histograms to the database!", exception);
+            return false;
+        }
+    }
+
+    /**
+     * Gets percentiles of a metric type in a range.
+     * Range is aligned to histogram intervals. Ranges which are completely in the past are cached.
+     *
+     * @param type   Metric type. (MUST HAVE A HISTOGRAM)
+     * @param player Should player values be used instead of global values or not.
+     * @param from   Range start. (INCLUSIVE, EPOCH MILLISECONDS)
+     * @param to     Range end. (EXCLUSIVE, EPOCH MILLISECONDS)
+     * @return Percentiles json object.
+     * @throws ExecutionException If query fails.
+     */
+    @Nonnull
+    public static JsonObject percentiles(@Nonnull MetricType type, boolean player, long from, long to) throws ExecutionException {
+        //Objects null check.
+        Objects.requireNonNull(type, "type cannot be null!");
+        if (!type.hasHistogram())
+            throw new IllegalArgumentException("metric type " + type.name() + " doesn't have a histogram!");
+        if (!enabled)
+            throw new IllegalStateException("metric histograms are not enabled!");
+
+        //Aligns range to intervals.
+        long _from = truncate(from);
+        long _to = truncate(to + INTERVAL - 1);
+
+        //Open ranges are always queried, since histograms are still being written.
+        if (_to > truncate(System.currentTimeMillis() - GRACE)) {
+            try {
+                return query(type, player, _from, _to);
+            } catch (Exception exception) {
+                throw new ExecutionException(exception);
+            }
+        }
+        return closed.get(type.name() + ":" + player + ":" + _from + ":" + _to, () -> query(type, player, _from, _to));
+    }
+
+    /**
+     * Merges histograms of a range then gets its percentiles.
+     *
+     * @param type   Metric type.
+     * @param player Should player values be used instead of global values or not.
+     * @param from   Aligned range start. (INCLUSIVE, EPOCH MILLISECONDS)
+     * @param to     Aligned range end. (EXCLUSIVE, EPOCH MILLISECONDS)
+     * @return Percentiles json object.
+     */
+    @Nonnull
+    private static JsonObject query(@Nonnull MetricType type, boolean player, long from, long to) throws Exception {
+        //Declares required fields.
+        DoubleHistogram merged = new DoubleHistogram(SIGNIFICANT_DIGITS);
+        int histograms = 0;
+
+        try (var timing = Dependency.TIMESCALE.time("metrics.histogram.query"); var query = DatabaseProvider.timescale().prepare(SELECT)) {
+            query.setShort(1, type.getCode());
+            query.setBoolean(2, player);
+            query.setTimestamp(3, new Timestamp(from));
+            query.setTimestamp(4, new Timestamp(to));
+
+            //Merges histograms.
+            try (var result = query.executeQuery()) {
+                while (result.next()) {
+                    merged.add(DoubleHistogram.decodeFromCompressedByteBuffer(ByteBuffer.wrap(result.getBytes(1)), 0));
+                    histograms++;
+                }
+            }
+        }
+
+        //Creates json object.
+        long count = merged.getTotalCount();
+        JsonObject json = new JsonObject();
+        json.addProperty("type", type.name());
+        json.addProperty("from", from);
+        json.addProperty("to", to);
+        json.addProperty("histograms", histograms);
+        json.addProperty("count", count);
+        json.addProperty("min", count == 0 ? 0 : merged.getMinValue());
+        json.addProperty("max", count == 0 ? 0 : merged.getMaxValue());
+        json.addProperty("mean", count == 0 ? 0 : merged.getMean());
+
+        JsonObject percentiles = new JsonObject();
+        for (double percentile : PERCENTILES)
+            percentiles.addProperty("p" + String.valueOf(percentile).replace(".0", "").replace(".", ""), count == 0 ? 0 : merged.getValueAtPercentile(percentile));
+        json.add("percentiles", percentiles);
+        return json;
+    }
+
+    /**
+     * Encodes a histogram to compressed bytes.
+     *
+     * @param histogram Histogram.
+     * @return Compressed histogram bytes.
+     */
+    @Nonnull
+    private static byte[] encode(@Nonnull DoubleHistogram histogram) {
+        ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+        int length = histogram.encodeIntoCompressedByteBuffer(buffer, Deflater.BEST_COMPRESSION);
+        return Arrays.copyOf(buffer.array(), length);
+    }
+
+    /**
+     * Truncates time to its interval.
+     *
+     * @param time Time. (EPOCH MILLISECONDS)
+     * @return Interval start time. (EPOCH MILLISECONDS)
+     */
+    private static long truncate(long time) {
+        return time - Math.floorMod(time, INTERVAL);
+    }
+
+
+    /*
+    KEY
+     */
+
+    /**
+     * Histogram key.
+     */
+    private static final class Key {
+
+        private final long time;
+        private final MetricType type;
+        private final boolean player;
+
+        private Key(long time, @Nonnull MetricType type, boolean player) {
+            this.time = time;
+            this.type = type;
+            this.player = player;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (this == object)
+                return true;
+            if (!(object instanceof Key key))
+                return false;
+            return this.time == key.time && this.player == key.player && this.type == key.type;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.time, this.type, this.player);
+        }
+    }
+}
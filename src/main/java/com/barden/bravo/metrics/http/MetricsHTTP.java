@@ -1,20 +1,28 @@
 package com.barden.bravo.metrics.http;
 
+import com.barden.bravo.execution.Execution;
 import com.barden.bravo.http.HTTPResponse;
-import com.barden.bravo.metrics.GlobalMetrics;
-import com.barden.bravo.metrics.PlayerMetrics;
+import com.barden.bravo.metrics.histogram.MetricHistograms;
+import com.barden.bravo.metrics.ingest.MetricBatch;
+import com.barden.bravo.metrics.ingest.MetricIngestPipeline;
+import com.barden.bravo.metrics.ingest.UnknownMetricTypeException;
+import com.barden.bravo.metrics.query.MetricQuery;
+import com.barden.bravo.metrics.rolling.RollingPeriod;
+import com.barden.bravo.metrics.rolling.TransactionWindows;
+import com.barden.bravo.metrics.type.MetricType;
+import com.barden.bravo.metrics.unique.UniquePlayers;
 import com.barden.library.BardenJavaLibrary;
-import com.barden.library.scheduler.SchedulerProvider;
+import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.annotation.PostMapping;
-import org.springframework.web.bind.annotation.RequestBody;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.bind.annotation.*;
 import org.springframework.web.context.request.async.DeferredResult;
 
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
 /**
  * Metric HTTP class.
  */
@@ -26,56 +34,287 @@ public class MetricsHTTP {
      * Results.
      */
     private enum Result {
-        INVALID_JSON_STRUCTURE
+        INVALID_JSON_STRUCTURE,
+        UNKNOWN_METRIC_TYPE,
+        BUFFER_FULL,
+        INVALID_BUCKET,
+        INVALID_RANGE,
+        NO_HISTOGRAM,
+        UNKNOWN_PERIOD,
+        QUERY_FAILED
     }
 
     /**
      * Writes sent metrics.
+     * Metrics are validated then queued to the ingest pipeline, so
+     * request is acknowledged without waiting for the database.
      *
      * @param json Metric json.
      * @return Update result.
      */
     @PostMapping(value = "/write", produces = MediaType.APPLICATION_JSON_VALUE)
-    public DeferredResult<ResponseEntity<JsonObject>> update(@RequestBody JsonObject json) {
+    public ResponseEntity<JsonObject> update(@RequestBody JsonObject json) {
+        //Safet check.
+        if (json == null || json.isJsonNull() || json.entrySet().isEmpty())
+            return new ResponseEntity<>(HTTPResponse.of(false, Result.INVALID_JSON_STRUCTURE), HttpStatus.OK);
+
+        //Validates metrics.
+        MetricBatch batch;
+        try {
+            batch = MetricBatch.of(json);
+        } catch (UnknownMetricTypeException exception) {
+            JsonObject response = HTTPResponse.of(false, Result.UNKNOWN_METRIC_TYPE);
+            response.addProperty("type", exception.getType());
+            return new ResponseEntity<>(response, HttpStatus.OK);
+        } catch (IllegalArgumentException exception) {
+            return new ResponseEntity<>(HTTPResponse.of(false, Result.INVALID_JSON_STRUCTURE), HttpStatus.OK);
+        }
+
+        //Queues metrics. If buffer is full, game server should retry later.
+        if (!MetricIngestPipeline.offer(batch))
+            return new ResponseEntity<>(HTTPResponse.of(false, Result.BUFFER_FULL), HttpStatus.OK);
+
+        //Returns response entity.
+        return new ResponseEntity<>(HTTPResponse.of(true), HttpStatus.OK);
+    }
+
+    /**
+     * Gets metric ingest pipeline status.
+     *
+     * @return Response entity. (JSON OBJECT)
+     */
+    @GetMapping(value = "/status", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<JsonObject> status() {
+        //Creates json object.
+        JsonObject json = HTTPResponse.of(true);
+        json.add("results", MetricIngestPipeline.toJsonObject());
+
+        //Returns response entity.
+        return new ResponseEntity<>(json, HttpStatus.OK);
+    }
+
+    /**
+     * Gets global metric series of a metric type.
+     *
+     * @param type   Metric type.
+     * @param from   Range start. (EPOCH MILLISECONDS, DEFAULT IS A DAY BEFORE RANGE END)
+     * @param to     Range end. (EPOCH MILLISECONDS, DEFAULT IS NOW)
+     * @param bucket Bucket size. (SECONDS, MULTIPLE OF 60)
+     * @return Response entity. (JSON OBJECT)
+     */
+    @GetMapping(value = "/global", produces = MediaType.APPLICATION_JSON_VALUE)
+    public DeferredResult<ResponseEntity<JsonObject>> global(@Nonnull @RequestParam String type,
+                                                             @Nullable @RequestParam(required = false) Long from,
+                                                             @Nullable @RequestParam(required = false) Long to,
+                                                             @RequestParam(required = false, defaultValue = "3600") long bucket) {
         //Creates deferred result.
         DeferredResult<ResponseEntity<JsonObject>> result = new DeferredResult<>();
 
-        //Safet check.
-        if (json == null || json.isJsonNull() || json.entrySet().isEmpty()) {
-            result.setResult(new ResponseEntity<>(HTTPResponse.of(false, Result.INVALID_JSON_STRUCTURE), HttpStatus.OK));
+        //Validates metric type.
+        MetricType _type = MetricType.find(type);
+        if (_type == null) {
+            result.setResult(new ResponseEntity<>(HTTPResponse.of(false, Result.UNKNOWN_METRIC_TYPE), HttpStatus.OK));
+            return result;
+        }
+
+        //Handles task.
+        Execution.run(() -> result.setResult(query(bucket, from, to, (_from, _to, _bucket) -> MetricQuery.global(_type, _from, _to, _bucket))));
+        //Returns response entity.
+        return result;
+    }
+
+    /**
+     * Gets metric series of a player.
+     *
+     * @param id     Roblox user id.
+     * @param type   Metric type. (OPTIONAL, ALL TYPES IF IT IS NOT DECLARED)
+     * @param from   Range start. (EPOCH MILLISECONDS, DEFAULT IS A DAY BEFORE RANGE END)
+     * @param to     Range end. (EPOCH MILLISECONDS, DEFAULT IS NOW)
+     * @param bucket Bucket size. (SECONDS, MULTIPLE OF 60)
+     * @return Response entity. (JSON OBJECT)
+     */
+    @GetMapping(value = "/player/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public DeferredResult<ResponseEntity<JsonObject>> player(@PathVariable long id,
+                                                             @Nullable @RequestParam(required = false) String type,
+                                                             @Nullable @RequestParam(required = false) Long from,
+                                                             @Nullable @RequestParam(required = false) Long to,
+                                                             @RequestParam(required = false, defaultValue = "3600") long bucket) {
+        //Creates deferred result.
+        DeferredResult<ResponseEntity<JsonObject>> result = new DeferredResult<>();
+
+        //Validates metric type.
+        MetricType _type = type == null ? null : MetricType.find(type);
+        if (type != null && _type == null) {
+            result.setResult(new ResponseEntity<>(HTTPResponse.of(false, Result.UNKNOWN_METRIC_TYPE), HttpStatus.OK));
+            return result;
+        }
+
+        //Handles task.
+        Execution.run(() -> result.setResult(query(bucket, from, to, (_from, _to, _bucket) -> MetricQuery.player(id, _type, _from, _to, _bucket))));
+        //Returns response entity.
+        return result;
+    }
+
+    /**
+     * Gets approximate unique player count of a range.
+     *
+     * @param from Range start. (EPOCH MILLISECONDS, DEFAULT IS A DAY BEFORE RANGE END)
+     * @param to   Range end. (EPOCH MILLISECONDS, DEFAULT IS NOW)
+     * @return Response entity. (JSON OBJECT)
+     */
+    @GetMapping(value = "/unique", produces = MediaType.APPLICATION_JSON_VALUE)
+    public DeferredResult<ResponseEntity<JsonObject>> unique(@Nullable @RequestParam(required = false) Long from,
+                                                             @Nullable @RequestParam(required = false) Long to) {
+        //Creates deferred result.
+        DeferredResult<ResponseEntity<JsonObject>> result = new DeferredResult<>();
+
+        //Declares range.
+        long _to = to == null ? System.currentTimeMillis() : to;
+        long _from = from == null ? _to - UniquePlayers.DAY : from;
+        if (_from >= _to || _to - _from > UniquePlayers.DAY * 400) {
+            result.setResult(new ResponseEntity<>(HTTPResponse.of(false, Result.INVALID_RANGE), HttpStatus.OK));
             return result;
         }
 
         //Handles task.
-        SchedulerProvider.schedule(task -> {
+        Execution.run(() -> {
+            JsonObject json;
             try {
-                //Handles player metrics.
-                if (json.has("players")) {
-                    var players_json = json.getAsJsonObject("players");
-                    if (players_json != null && !players_json.isJsonNull() && !players_json.entrySet().isEmpty())
-                        PlayerMetrics.write(players_json);
-                }
-
-                //Handles global metrics.
-                if (json.has("global")) {
-                    var global_json = json.getAsJsonObject("global");
-                    if (global_json != null && !global_json.isJsonNull() && !global_json.entrySet().isEmpty())
-                        GlobalMetrics.write(global_json);
-                }
+                long count = UniquePlayers.count(_from, _to);
+                json = HTTPResponse.of(true);
+                json.addProperty("from", _from);
+                json.addProperty("to", _to);
+                json.addProperty("results", count);
             } catch (Exception exception) {
-                //Responses request to avoid long waiting durations.
-                result.setResult(new ResponseEntity<>(HTTPResponse.of(false), HttpStatus.OK));
-
-                //Informs server about the exception. It might be important.
-                BardenJavaLibrary.getLogger().error("Couldn't wrote metrics!", exception);
-                return;
+                BardenJavaLibrary.getLogger().error("Couldn't count unique players!", exception);
+                json = HTTPResponse.of(false, Result.QUERY_FAILED);
             }
-
-            //Sets result.
-            result.setResult(new ResponseEntity<>(HTTPResponse.of(true), HttpStatus.OK));
+            result.setResult(new ResponseEntity<>(json, HttpStatus.OK));
         });
+        //Returns response entity.
+        return result;
+    }
+
+    /**
+     * Gets rolling transaction aggregates of a period.
+     * Aggregates are kept in memory, so it doesn't touch any database.
+     *
+     * @param period Rolling period. ("1m", "1h" OR "24h")
+     * @param limit  Maximum product count.
+     * @return Response entity. (JSON OBJECT)
+     */
+    @GetMapping(value = "/revenue", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<JsonObject> revenue(@RequestParam(required = false, defaultValue = "1h") String period,
+                                              @RequestParam(required = false, defaultValue = "10") int limit) {
+        //Validates period.
+        RollingPeriod _period = RollingPeriod.find(period);
+        if (_period == null)
+            return new ResponseEntity<>(HTTPResponse.of(false, Result.UNKNOWN_PERIOD), HttpStatus.OK);
+
+        JsonObject json = HTTPResponse.of(true);
+        json.add("results", TransactionWindows.toJsonObject(_period, Math.max(0, Math.min(limit, 100))));
+        return new ResponseEntity<>(json, HttpStatus.OK);
+    }
+
+    /**
+     * Gets percentiles of a duration metric type.
+     * Percentiles are computed by merging 5 minute histograms of the range.
+     *
+     * @param type    Metric type. (DURATION TYPES ONLY)
+     * @param players Should player values be used instead of global values or not.
+     * @param from    Range start. (EPOCH MILLISECONDS, DEFAULT IS A DAY BEFORE RANGE END)
+     * @param to      Range end. (EPOCH MILLISECONDS, DEFAULT IS NOW)
+     * @return Response entity. (JSON OBJECT)
+     */
+    @GetMapping(value = "/percentiles", produces = MediaType.APPLICATION_JSON_VALUE)
+    public DeferredResult<ResponseEntity<JsonObject>> percentiles(@Nonnull @RequestParam String type,
+                                                                  @RequestParam(required = false, defaultValue = "false") boolean players,
+                                                                  @Nullable @RequestParam(required = false) Long from,
+                                                                  @Nullable @RequestParam(required = false) Long to) {
+        //Creates deferred result.
+        DeferredResult<ResponseEntity<JsonObject>> result = new DeferredResult<>();
+
+        //Validates metric type.
+        MetricType _type = MetricType.find(type);
+        if (_type == null) {
+            result.setResult(new ResponseEntity<>(HTTPResponse.of(false, Result.UNKNOWN_METRIC_TYPE), HttpStatus.OK));
+            return result;
+        } else if (!_type.hasHistogram()) {
+            result.setResult(new ResponseEntity<>(HTTPResponse.of(false, Result.NO_HISTOGRAM), HttpStatus.OK));
+            return result;
+        }
 
+        //Declares range.
+        long _to = to == null ? System.currentTimeMillis() : to;
+        long _from = from == null ? _to - MetricQuery.HOUR * 24 : from;
+        if (_from >= _to || (_to - _from) / MetricHistograms.INTERVAL > MetricQuery.MAXIMUM_POINTS) {
+            result.setResult(new ResponseEntity<>(HTTPResponse.of(false, Result.INVALID_RANGE), HttpStatus.OK));
+            return result;
+        }
+
+        //Handles task.
+        Execution.run(() -> {
+            JsonObject json;
+            try {
+                json = HTTPResponse.of(true);
+                json.add("results", MetricHistograms.percentiles(_type, players, _from, _to));
+            } catch (Exception exception) {
+                BardenJavaLibrary.getLogger().error("Couldn't query metric percentiles!", exception);
+                json = HTTPResponse.of(false, Result.QUERY_FAILED);
+            }
+            result.setResult(new ResponseEntity<>(json, HttpStatus.OK));
+        });
         //Returns response entity.
         return result;
     }
+
+    /**
+     * Validates a series query then executes it.
+     *
+     * @param bucket Bucket size. (SECONDS)
+     * @param from   Range start. (EPOCH MILLISECONDS)
+     * @param to     Range end. (EPOCH MILLISECONDS)
+     * @param series Series query.
+     * @return Response entity. (JSON OBJECT)
+     */
+    @Nonnull
+    private static ResponseEntity<JsonObject> query(long bucket, @Nullable Long from, @Nullable Long to, @Nonnull Series series) {
+        //Declares required fields.
+        long _bucket = bucket * 1000L;
+        long _to = to == null ? System.currentTimeMillis() : to;
+        long _from = from == null ? _to - MetricQuery.HOUR * 24 : from;
+
+        //Validates query.
+        if (!MetricQuery.isValidBucket(_bucket))
+            return new ResponseEntity<>(HTTPResponse.of(false, Result.INVALID_BUCKET), HttpStatus.OK);
+        if (_from >= _to || (_to - _from) / _bucket > MetricQuery.MAXIMUM_POINTS)
+            return new ResponseEntity<>(HTTPResponse.of(false, Result.INVALID_RANGE), HttpStatus.OK);
+
+        //Executes query.
+        JsonArray points;
+        try {
+            points = series.get(_from, _to, _bucket);
+        } catch (Exception exception) {
+            BardenJavaLibrary.getLogger().error("Couldn't query metric series!", exception);
+            return new ResponseEntity<>(HTTPResponse.of(false, Result.QUERY_FAILED), HttpStatus.OK);
+        }
+
+        //Creates json object.
+        JsonObject json = HTTPResponse.of(true);
+        json.addProperty("bucket", bucket);
+        json.addProperty("source", MetricQuery.getSource(_bucket));
+        json.add("results", points);
+
+        //Returns response entity.
+        return new ResponseEntity<>(json, HttpStatus.OK);
+    }
+
+    /**
+     * Series query.
+     */
+    @FunctionalInterface
+    private interface Series {
+        @Nonnull
+        JsonArray get(long from, long to, long bucket) throws Exception;
+    }
 }
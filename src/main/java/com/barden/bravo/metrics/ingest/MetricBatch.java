@@ -0,0 +1,137 @@
+package com.barden.bravo.metrics.ingest;
+
+import com.barden.bravo.metrics.row.GlobalMetricRow;
+import com.barden.bravo.metrics.row.PlayerMetricRow;
+import com.barden.bravo.metrics.type.MetricType;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Metric batch class.
+ * A metric batch holds validated rows of a single metric write request.
+ */
+public final class MetricBatch {
+
+    private final List<GlobalMetricRow> global;
+    private final List<PlayerMetricRow> players;
+
+    /**
+     * Creates a metric batch.
+     *
+     * @param global  Global metric rows.
+     * @param players Player metric rows.
+     */
+    public MetricBatch(@Nonnull List<GlobalMetricRow> global, @Nonnull List<PlayerMetricRow> players) {
+        this.global = Objects.requireNonNull(global, "global metric rows cannot be null!");
+        this.players = Objects.requireNonNull(players, "player metric rows cannot be null!");
+    }
+
+    /**
+     * Gets global metric rows.
+     *
+     * @return Global metric rows.
+     */
+    @Nonnull
+    public List<GlobalMetricRow> getGlobal() {
+        return Collections.unmodifiableList(this.global);
+    }
+
+    /**
+     * Gets player metric rows.
+     *
+     * @return Player metric rows.
+     */
+    @Nonnull
+    public List<PlayerMetricRow> getPlayers() {
+        return Collections.unmodifiableList(this.players);
+    }
+
+    /**
+     * Gets row count.
+     *
+     * @return Row count.
+     */
+    public int size() {
+        return this.global.size() + this.players.size();
+    }
+
+    /**
+     * Gets if batch is empty or not.
+     *
+     * @return If batch is empty or not.
+     */
+    public boolean isEmpty() {
+        return this.size() == 0;
+    }
+
+
+    /*
+    STATIC CONVERTERS
+     */
+
+    /**
+     * Converts a metric write json to a metric batch.
+     * <p>
+     * Expected structure is {"players": {"id": {"TYPE": value}}, "global": {"TYPE": value}}.
+     *
+     * @param json Metric write json object.
+     * @return Metric batch.
+     * @throws IllegalArgumentException   If json structure is not valid.
+     * @throws UnknownMetricTypeException If json has a metric type which is not declared in {@link MetricType}.
+     */
+    @Nonnull
+    public static MetricBatch of(@Nonnull JsonObject json) {
+        //Objects null check.
+        Objects.requireNonNull(json, "metric json object cannot be null!");
+
+        //Declares required fields.
+        long time = System.currentTimeMillis();
+        List<GlobalMetricRow> global = new ArrayList<>();
+        List<PlayerMetricRow> players = new ArrayList<>();
+
+        try {
+            //Handles player metrics.
+            if (json.has("players") && json.get("players").isJsonObject()) {
+                for (Map.Entry<String, JsonElement> entry : json.getAsJsonObject("players").entrySet()) {
+                    long player = Long.parseLong(entry.getKey());
+                    for (Map.Entry<String, JsonElement> metric : entry.getValue().getAsJsonObject().entrySet())
+                        players.add(new PlayerMetricRow(time, player, toType(metric.getKey()), metric.getValue().getAsDouble()));
+                }
+            }
+
+            //Handles global metrics.
+            if (json.has("global") && json.get("global").isJsonObject()) {
+                for (Map.Entry<String, JsonElement> metric : json.getAsJsonObject("global").entrySet())
+                    global.add(new GlobalMetricRow(time, toType(metric.getKey()), metric.getValue().getAsDouble()));
+            }
+        } catch (UnknownMetricTypeException exception) {
+            throw exception;
+        } catch (RuntimeException exception) {
+            throw new IllegalArgumentException("invalid metric json structure!", exception);
+        }
+
+        return new MetricBatch(global, players);
+    }
+
+    /**
+     * Converts a metric key to its metric type.
+     *
+     * @param key Metric key.
+     * @return Metric type.
+     * @throws UnknownMetricTypeException If key is not a known metric type.
+     */
+    @Nonnull
+    private static MetricType toType(@Nonnull String key) {
+        MetricType type = MetricType.find(key);
+        if (type == null)
+            throw new UnknownMetricTypeException(key);
+        return type;
+    }
+}
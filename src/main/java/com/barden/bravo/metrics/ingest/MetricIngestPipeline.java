@@ -0,0 +1,345 @@
+package com.barden.bravo.metrics.ingest;
+
+import com.barden.bravo.execution.Execution;
+import com.barden.bravo.instrumentation.Instrumentation;
+import com.barden.bravo.metrics.aggregate.MetricAggregator;
+import com.barden.bravo.metrics.histogram.MetricHistograms;
+import com.barden.bravo.metrics.journal.MetricJournal;
+import com.barden.bravo.metrics.row.GlobalMetricRow;
+import com.barden.bravo.metrics.row.PlayerMetricRow;
+import com.barden.bravo.metrics.type.MetricResolution;
+import com.barden.library.BardenJavaLibrary;
+import com.barden.library.scheduler.SchedulerProvider;
+import com.google.gson.JsonObject;
+import io.micrometer.core.instrument.Timer;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Metric ingest pipeline class.
+ * <p>
+ * Metric write requests are validated then appended to a bounded ring buffer,
+ * so requests are acknowledged without waiting for timescale. Dedicated writer
+ * threads drain the buffer and flush rows in large batches when a batch is big
+ * enough or old enough. When the buffer is full, new batches are spilled to the
+ * {@link MetricJournal}, and rejected only if journal is not available.
+ * <p>
+ * Only metric types with raw resolution are written row by row. Other types are
+ * rolled up to per minute cells by {@link MetricAggregator}. Values of duration
+ * types are also recorded to {@link MetricHistograms}.
+ */
+public final class MetricIngestPipeline {
+
+    /*
+    VARIABLES
+     */
+
+    public static final int CAPACITY = 8192;
+    public static final int WRITERS = 2;
+    public static final int MAXIMUM_BATCH_ROWS = 10_000;
+    public static final long FLUSH_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+    private static final long IDLE_PARK = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private static final MetricRingBuffer<MetricBatch> buffer = new MetricRingBuffer<>(CAPACITY);
+    private static final List<Thread> writers = new ArrayList<>();
+    private static volatile boolean running = false;
+
+    //Statistics.
+    private static final AtomicLong pendingRows = new AtomicLong();
+    private static final LongAdder rejectedBatches = new LongAdder();
+    private static final LongAdder spilledBatches = new LongAdder();
+    private static final LongAdder flushes = new LongAdder();
+    private static final LongAdder flushedRows = new LongAdder();
+    private static final LongAdder flushTime = new LongAdder();
+    private static final AtomicLong lastFlushTime = new AtomicLong();
+    private static final AtomicLong maximumFlushTime = new AtomicLong();
+    private static final Timer FLUSH_TIMER = Instrumentation.timer("bravo.job.duration", "job", "metrics.flush");
+
+
+    /*
+    INITIALIZE
+     */
+
+    /**
+     * Initializes metric ingest pipeline.
+     */
+    public static void initialize() {
+        //If it is already running, no need to continue.
+        if (running)
+            return;
+        running = true;
+
+        //Starts writer threads.
+        for (int i = 0; i < WRITERS; i++) {
+            Thread writer = Execution.thread("bravo-metric-writer-" + i, MetricIngestPipeline::run);
+            writer.start();
+            writers.add(writer);
+        }
+
+        //Flushes closed metric cells.
+        SchedulerProvider.create()
+                .every(15, TimeUnit.SECONDS)
+                .schedule(task -> Instrumentation.job("metrics.rollup", () -> MetricAggregator.flush(false)));
+
+        //Instrumentation.
+        Instrumentation.queue("metrics.ingest", buffer, MetricRingBuffer::size);
+        Instrumentation.gauge("bravo.metrics.ingest.pending.rows", pendingRows, AtomicLong::get);
+        Instrumentation.gauge("bravo.metrics.rollup.open.cells", MetricAggregator.class, _class -> MetricAggregator.size());
+        Instrumentation.gauge("bravo.metrics.ingest.rejected", rejectedBatches, LongAdder::sum);
+
+        //Logging.
+        BardenJavaLibrary.getLogger().info("Metric ingest pipeline is initialized with " + WRITERS + " writers!");
+    }
+
+    /**
+     * Terminates metric ingest pipeline.
+     * Writers flush everything left in the buffer before they stop, then metric cells are flushed.
+     */
+    public static void terminate() {
+        running = false;
+        for (Thread writer : writers) {
+            try {
+                writer.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        writers.clear();
+
+        //Flushes every metric cell and histogram, including open ones.
+        MetricAggregator.flush(true);
+        MetricHistograms.flush(true);
+    }
+
+
+    /*
+    METHODS
+     */
+
+    /**
+     * Offers a metric batch to the pipeline.
+     *
+     * @param batch Metric batch.
+     * @return If batch is accepted or not. (FALSE WHEN BUFFER IS FULL AND BATCH COULDN'T BE SPILLED)
+     */
+    public static boolean offer(@Nonnull MetricBatch batch) {
+        //Objects null check.
+        Objects.requireNonNull(batch, "metric batch cannot be null!");
+
+        //If batch is empty, no need to continue.
+        if (batch.isEmpty())
+            return true;
+
+        //Increases pending rows before offering, so depth never goes below zero.
+        pendingRows.addAndGet(batch.size());
+        if (buffer.offer(batch))
+            return true;
+
+        //Buffer is full, spills batch to the journal.
+        pendingRows.addAndGet(-batch.size());
+        if (MetricJournal.spill(batch.getGlobal(), batch.getPlayers())) {
+            record(batch);
+            spilledBatches.increment();
+            return true;
+        }
+
+        //Journal is not available either. (BACKPRESSURE)
+        rejectedBatches.increment();
+        return false;
+    }
+
+    /**
+     * Runs writer loop.
+     */
+    private static void run() {
+        //Declares required fields.
+        List<GlobalMetricRow> global = new ArrayList<>();
+        List<PlayerMetricRow> players = new ArrayList<>();
+        long first = 0;
+
+        while (running || !buffer.isEmpty()) {
+            //Polls a batch from the buffer.
+            MetricBatch batch = buffer.poll();
+            if (batch != null) {
+                if (global.isEmpty() && players.isEmpty())
+                    first = System.nanoTime();
+
+                //Records duration values to histograms.
+                record(batch);
+
+                //Full resolution rows are written as they are, others are rolled up to minute cells.
+                for (GlobalMetricRow row : batch.getGlobal()) {
+                    if (row.getType().getResolution() == MetricResolution.RAW)
+                        global.add(row);
+                    else
+                        MetricAggregator.add(row);
+                }
+                for (PlayerMetricRow row : batch.getPlayers()) {
+                    if (row.getType().getResolution() == MetricResolution.RAW)
+                        players.add(row);
+                    else
+                        MetricAggregator.add(row);
+                }
+                pendingRows.addAndGet(-batch.size());
+            }
+
+            //Flushes when batch is big or old enough.
+            int rows = global.size() + players.size();
+            if (rows > 0 && (rows >= MAXIMUM_BATCH_ROWS || System.nanoTime() - first >= FLUSH_INTERVAL)) {
+                flush(global, players);
+                global = new ArrayList<>();
+                players = new ArrayList<>();
+            } else if (batch == null) {
+                //Buffer is empty, waits a bit to avoid busy spinning.
+                LockSupport.parkNanos(IDLE_PARK);
+            }
+        }
+
+        //Flushes left rows.
+        if (!global.isEmpty() || !players.isEmpty())
+            flush(global, players);
+    }
+
+    /**
+     * Records values of a batch to histograms.
+     *
+     * @param batch Metric batch.
+     */
+    private static void record(@Nonnull MetricBatch batch) {
+        for (GlobalMetricRow row : batch.getGlobal())
+            MetricHistograms.add(row);
+        for (PlayerMetricRow row : batch.getPlayers())
+            MetricHistograms.add(row);
+    }
+
+    /**
+     * Flushes rows to the database.
+     *
+     * @param global  Global metric rows.
+     * @param players Player metric rows.
+     */
+    private static void flush(@Nonnull List<GlobalMetricRow> global, @Nonnull List<PlayerMetricRow> players) {
+        long start = System.nanoTime();
+
+        try {
+            if (!global.isEmpty())
+                MetricJournal.writeGlobal(global);
+            if (!players.isEmpty())
+                MetricJournal.writePlayers(players);
+        } catch (Exception exception) {
+            BardenJavaLibrary.getLogger().error("Couldn't flush metric rows!", exception);
+        }
+
+        //Updates flush statistics.
+        long duration = System.nanoTime() - start;
+        FLUSH_TIMER.record(duration, TimeUnit.NANOSECONDS);
+        flushes.increment();
+        flushedRows.add(global.size() + players.size());
+        flushTime.add(duration);
+        lastFlushTime.set(duration);
+        maximumFlushTime.accumulateAndGet(duration, Math::max);
+    }
+
+
+    /*
+    STATISTICS
+     */
+
+    /**
+     * Gets buffered batch count.
+     *
+     * @return Buffered batch count.
+     */
+    public static int getDepth() {
+        return buffer.size();
+    }
+
+    /**
+     * Gets buffer capacity.
+     *
+     * @return Buffer capacity. (BATCHES)
+     */
+    public static int getCapacity() {
+        return buffer.getCapacity();
+    }
+
+    /**
+     * Gets buffered row count.
+     *
+     * @return Buffered row count.
+     */
+    public static long getPendingRows() {
+        return pendingRows.get();
+    }
+
+    /**
+     * Gets rejected batch count.
+     *
+     * @return Rejected batch count.
+     */
+    public static long getRejectedBatches() {
+        return rejectedBatches.sum();
+    }
+
+    /**
+     * Gets flush count.
+     *
+     * @return Flush count.
+     */
+    public static long getFlushes() {
+        return flushes.sum();
+    }
+
+    /**
+     * Gets flushed row count.
+     *
+     * @return Flushed row count.
+     */
+    public static long getFlushedRows() {
+        return flushedRows.sum();
+    }
+
+    /**
+     * Gets last flush latency.
+     *
+     * @return Last flush latency. (NANOSECONDS)
+     */
+    public static long getLastFlushTime() {
+        return lastFlushTime.get();
+    }
+
+    /**
+     * Gets pipeline statistics as a json object.
+     *
+     * @return Pipeline statistics json object.
+     */
+    @Nonnull
+    public static JsonObject toJsonObject() {
+        //Declares required fields.
+        long _flushes = flushes.sum();
+
+        //Creates json object.
+        JsonObject json = new JsonObject();
+        json.addProperty("depth", buffer.size());
+        json.addProperty("capacity", buffer.getCapacity());
+        json.addProperty("pending_rows", pendingRows.get());
+        json.addProperty("open_cells", MetricAggregator.size());
+        json.addProperty("open_histograms", MetricHistograms.size());
+        json.addProperty("rejected_batches", rejectedBatches.sum());
+        json.addProperty("spilled_batches", spilledBatches.sum());
+        json.addProperty("flushes", _flushes);
+        json.addProperty("flushed_rows", flushedRows.sum());
+        json.addProperty("last_flush_ms", lastFlushTime.get() / 1_000_000.0d);
+        json.addProperty("average_flush_ms", _flushes == 0 ? 0 : flushTime.sum() / (double) _flushes / 1_000_000.0d);
+        json.addProperty("maximum_flush_ms", maximumFlushTime.get() / 1_000_000.0d);
+        json.add("journal", MetricJournal.toJsonObject());
+        return json;
+    }
+}
@@ -0,0 +1,134 @@
+package com.barden.bravo.metrics.ingest;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Metric ring buffer class.
+ * <p>
+ * Bounded, lock-free, multi-producer multi-consumer queue. (Vyukov)
+ * Every slot has a sequence number which tells if the slot is ready
+ * to be written or read for current lap, so producers and consumers
+ * only race on a single CAS of their own position counter.
+ *
+ * @param <T> Element type.
+ */
+public final class MetricRingBuffer<T> {
+
+    private final int mask;
+    private final AtomicReferenceArray<T> elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * Creates a metric ring buffer.
+     *
+     * @param capacity Capacity. (POWER OF TWO)
+     */
+    public MetricRingBuffer(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1)
+            throw new IllegalArgumentException("ring buffer capacity must be a power of two!");
+
+        this.mask = capacity - 1;
+        this.elements = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++)
+            this.sequences.set(i, i);
+    }
+
+    /**
+     * Gets capacity.
+     *
+     * @return Capacity.
+     */
+    public int getCapacity() {
+        return this.mask + 1;
+    }
+
+    /**
+     * Gets approximate element count.
+     *
+     * @return Approximate element count.
+     */
+    public int size() {
+        return (int) Math.max(0, Math.min(this.tail.get() - this.head.get(), this.getCapacity()));
+    }
+
+    /**
+     * Gets if buffer is empty or not.
+     *
+     * @return If buffer is empty or not.
+     */
+    public boolean isEmpty() {
+        return this.size() == 0;
+    }
+
+    /**
+     * Offers an element.
+     *
+     * @param element Element.
+     * @return If element is added or not. (FALSE WHEN BUFFER IS FULL)
+     */
+    public boolean offer(@Nonnull T element) {
+        //Objects null check.
+        Objects.requireNonNull(element, "element cannot be null!");
+
+        long position = this.tail.get();
+        while (true) {
+            int index = (int) (position & this.mask);
+            long difference = this.sequences.get(index) - position;
+
+            if (difference == 0) {
+                //Slot is free for current lap, tries to claim it.
+                if (this.tail.compareAndSet(position, position + 1)) {
+                    this.elements.lazySet(index, element);
+                    this.sequences.set(index, position + 1);
+                    return true;
+                }
+                position = this.tail.get();
+            } else if (difference < 0) {
+                //Slot still holds an element of previous lap. (FULL)
+                return false;
+            } else {
+                //Another producer claimed the slot.
+                position = this.tail.get();
+            }
+        }
+    }
+
+    /**
+     * Polls an element.
+     *
+     * @return Element. (NULL WHEN BUFFER IS EMPTY)
+     */
+    @Nullable
+    public T poll() {
+        long position = this.head.get();
+        while (true) {
+            int index = (int) (position & this.mask);
+            long difference = this.sequences.get(index) - (position + 1);
+
+            if (difference == 0) {
+                //Slot is written for current lap, tries to claim it.
+                if (this.head.compareAndSet(position, position + 1)) {
+                    T element = this.elements.get(index);
+                    this.elements.lazySet(index, null);
+                    this.sequences.set(index, position + this.mask + 1);
+                    return element;
+                }
+                position = this.head.get();
+            } else if (difference < 0) {
+                //Slot is not written yet. (EMPTY)
+                return null;
+            } else {
+                //Another consumer claimed the slot.
+                position = this.head.get();
+            }
+        }
+    }
+}
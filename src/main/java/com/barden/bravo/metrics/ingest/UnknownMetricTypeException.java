@@ -0,0 +1,33 @@
+package com.barden.bravo.metrics.ingest;
+
+import javax.annotation.Nonnull;
+import java.util.Objects;
+
+/**
+ * Unknown metric type exception class.
+ * Thrown when a metric write request has a key which is not a declared metric type.
+ */
+public final class UnknownMetricTypeException extends IllegalArgumentException {
+
+    private final String type;
+
+    /**
+     * Creates an unknown metric type exception.
+     *
+     * @param type Unknown metric type key.
+     */
+    public UnknownMetricTypeException(@Nonnull String type) {
+        super("unknown metric type: " + type);
+        this.type = Objects.requireNonNull(type, "type cannot be null!");
+    }
+
+    /**
+     * Gets unknown metric type key.
+     *
+     * @return Unknown metric type key.
+     */
+    @Nonnull
+    public String getType() {
+        return this.type;
+    }
+}
@@ -0,0 +1,441 @@
+package com.barden.bravo.metrics.journal;
+
+import com.barden.bravo.instrumentation.Instrumentation;
+import com.barden.bravo.journal.Journal;
+import com.barden.bravo.journal.JournalRecord;
+import com.barden.bravo.metrics.MetricsProvider;
+import com.barden.bravo.metrics.aggregate.MetricAggregator;
+import com.barden.bravo.metrics.aggregate.MetricCell;
+import com.barden.bravo.metrics.row.GlobalMetricRow;
+import com.barden.bravo.metrics.row.PlayerMetricRow;
+import com.barden.bravo.metrics.row.TransactionMetricRow;
+import com.barden.bravo.metrics.type.MetricResolution;
+import com.barden.bravo.metrics.type.MetricType;
+import com.barden.bravo.settings.Settings;
+import com.barden.library.BardenJavaLibrary;
+import com.barden.library.scheduler.SchedulerProvider;
+import com.google.gson.JsonObject;
+
+import javax.annotation.Nonnull;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Metric journal class.
+ * <p>
+ * Every metric write to the active metric sink goes through this class. When sink
+ * is healthy and nothing is spilled, writes go to the sink directly. When a write
+ * fails, sink is marked unhealthy and rows are spilled to a local journal instead
+ * of blocking on more failing calls. Ingest buffer overflows are spilled too. A
+ * replayer drains the journal in order once sink recovers; while journal has
+ * records, new writes are spilled behind them to keep the order.
+ * <p>
+ * Every journal record holds a single kind of rows, so a replayed record is a
+ * single statement and is either written completely or retried.
+ */
+public final class MetricJournal {
+
+    /*
+    VARIABLES
+     */
+
+    private static final byte GLOBAL_ROWS = 1;
+    private static final byte PLAYER_ROWS = 2;
+    private static final byte GLOBAL_CELLS = 3;
+    private static final byte PLAYER_CELLS = 4;
+    private static final byte TRANSACTION_ROWS = 5;
+
+    private static final int HEADER = Byte.BYTES + Integer.BYTES;
+    private static final int REPLAY_RECORDS = 16;
+
+    private static final ReentrantLock LOCK = new ReentrantLock();
+    private static volatile Journal journal;
+    private static volatile boolean healthy = true;
+
+
+    /*
+    INITIALIZE
+     */
+
+    /**
+     * Initializes metric journal.
+     * If journal can't be opened, metrics are written without a spill.
+     */
+    public static void initialize() {
+        try {
+            journal = new Journal(Path.of(Settings.getJournalDirectory(), "metrics"), Settings.getJournalSegmentSize(), Settings.getJournalSegments());
+        } catch (Exception exception) {
+            BardenJavaLibrary.getLogger().error("Couldn't open metric journal, metrics won't be spilled!", exception);
+            return;
+        }
+
+        //Replays spilled metrics.
+        SchedulerProvider.create()
+                .every(5, TimeUnit.SECONDS)
+                .schedule(task -> Instrumentation.job("metrics.journal.replay", MetricJournal::replay));
+
+        //Instrumentation.
+        Instrumentation.gauge("bravo.metrics.journal.pending.rows", journal, Journal::getPendingRows);
+        Instrumentation.gauge("bravo.metrics.journal.dropped.rows", journal, Journal::getDroppedRows);
+        Instrumentation.gauge("bravo.metrics.journal.segments", journal, Journal::getSegmentCount);
+        Instrumentation.gauge("bravo.metrics.timescale.healthy", journal, _journal -> healthy ? 1 : 0);
+
+        //Logging.
+        BardenJavaLibrary.getLogger().info("Metric journal is initialized with " + journal.getPendingRows() + " pending rows!");
+    }
+
+    /**
+     * Terminates metric journal.
+     */
+    public static void terminate() {
+        LOCK.lock();
+        try {
+            if (journal == null)
+                return;
+
+            try {
+                journal.close();
+            } catch (IOException exception) {
+                BardenJavaLibrary.getLogger().error("Couldn't close metric journal!", exception);
+            }
+            journal = null;
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+
+    /*
+    WRITES
+     */
+
+    /**
+     * Gets if writes should be spilled instead of written to the sink.
+     *
+     * @return If writes should be spilled or not.
+     */
+    private static boolean shouldSpill() {
+        return journal != null && (!healthy || !journal.isEmpty());
+    }
+
+    /**
+     * Writes global metric rows, or spills them.
+     *
+     * @param rows Global metric rows.
+     */
+    public static void writeGlobal(@Nonnull List<GlobalMetricRow> rows) {
+        if (shouldSpill() || !MetricsProvider.getSink().writeGlobal(rows) && markUnhealthy())
+            spill(GLOBAL_ROWS, rows);
+    }
+
+    /**
+     * Writes player metric rows, or spills them.
+     *
+     * @param rows Player metric rows.
+     */
+    public static void writePlayers(@Nonnull List<PlayerMetricRow> rows) {
+        if (shouldSpill() || !MetricsProvider.getSink().writePlayers(rows) && markUnhealthy())
+            spill(PLAYER_ROWS, rows);
+    }
+
+    /**
+     * Writes global metric cells, or spills them.
+     *
+     * @param cells Global metric cells.
+     */
+    public static void writeGlobalCells(@Nonnull List<MetricCell> cells) {
+        if (shouldSpill() || !MetricsProvider.getSink().writeGlobalCells(cells) && markUnhealthy())
+            spill(GLOBAL_CELLS, cells);
+    }
+
+    /**
+     * Writes player metric cells, or spills them.
+     *
+     * @param cells Player metric cells.
+     */
+    public static void writePlayerCells(@Nonnull List<MetricCell> cells) {
+        if (shouldSpill() || !MetricsProvider.getSink().writePlayerCells(cells) && markUnhealthy())
+            spill(PLAYER_CELLS, cells);
+    }
+
+    /**
+     * Writes transaction metric rows, or spills them.
+     *
+     * @param rows Transaction metric rows.
+     * @return If rows are written or spilled. (FALSE IF SINK FAILED AND JOURNAL IS NOT AVAILABLE)
+     */
+    public static boolean writeTransactions(@Nonnull List<TransactionMetricRow> rows) {
+        if (shouldSpill() || !MetricsProvider.getSink().writeTransactions(rows) && markUnhealthy())
+            return spill(TRANSACTION_ROWS, rows);
+        return true;
+    }
+
+    /**
+     * Spills metric rows. (INGEST BUFFER OVERFLOW)
+     *
+     * @param global  Global metric rows.
+     * @param players Player metric rows.
+     * @return If rows are spilled or not. (FALSE IF JOURNAL IS NOT AVAILABLE)
+     */
+    public static boolean spill(@Nonnull List<GlobalMetricRow> global, @Nonnull List<PlayerMetricRow> players) {
+        if (journal == null)
+            return false;
+        return (global.isEmpty() || spill(GLOBAL_ROWS, global)) && (players.isEmpty() || spill(PLAYER_ROWS, players));
+    }
+
+    /**
+     * Marks metric sink as unhealthy.
+     *
+     * @return Always true, so it can be chained in conditions.
+     */
+    private static boolean markUnhealthy() {
+        if (healthy)
+            BardenJavaLibrary.getLogger().warn("Metric sink(" + MetricsProvider.getSink().getName() + ") is unhealthy, metrics will be spilled to the journal!");
+        healthy = false;
+        return true;
+    }
+
+    /**
+     * Spills elements to the journal in chunks.
+     * Elements have a fixed encoded size, so a chunk is as large as a journal payload can be.
+     *
+     * @param kind     Record kind.
+     * @param elements Rows or cells.
+     * @return If elements are spilled or not.
+     */
+    private static boolean spill(byte kind, @Nonnull List<?> elements) {
+        //If journal is not available, rows are lost.
+        Journal _journal = journal;
+        if (_journal == null) {
+            BardenJavaLibrary.getLogger().error("Couldn't spill " + elements.size() + " metric rows, journal is not available!");
+            return false;
+        }
+
+        try {
+            int rows = Math.max(1, (_journal.getMaximumPayload() - HEADER) / toSize(kind));
+            for (int i = 0; i < elements.size(); i += rows) {
+                List<?> chunk = elements.subList(i, Math.min(elements.size(), i + rows));
+                _journal.append(encode(kind, chunk), chunk.size());
+            }
+            return true;
+        } catch (Exception exception) {
+            BardenJavaLibrary.getLogger().error("Couldn't spill " + elements.size() + " metric rows to the journal!", exception);
+            return false;
+        }
+    }
+
+
+    /*
+    REPLAY
+     */
+
+    /**
+     * Replays spilled records in order until journal is empty or a write fails.
+     */
+    private static void replay() {
+        LOCK.lock();
+        try {
+            //If journal is closed, no need to continue.
+            if (journal == null)
+                return;
+
+            try {
+                while (true) {
+                    List<JournalRecord> records = journal.read(REPLAY_RECORDS);
+                    if (records.isEmpty()) {
+                        healthy = true;
+                        return;
+                    }
+
+                    for (JournalRecord record : records) {
+                        if (!replay(record)) {
+                            markUnhealthy();
+                            return;
+                        }
+
+                        //Commits record one by one, so a failure never writes a record twice.
+                        journal.commit(List.of(record));
+                    }
+                }
+            } catch (Exception exception) {
+                BardenJavaLibrary.getLogger().error("Couldn't replay metric journal!", exception);
+            }
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+    /**
+     * Replays a record.
+     * Rows which are rolled up go back to the aggregator, only raw rows are written.
+     * Rows of metric types which are not declared anymore are skipped.
+     *
+     * @param record Journal record.
+     * @return If record is replayed or not.
+     */
+    private static boolean replay(@Nonnull JournalRecord record) throws IOException {
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(record.getPayload()));
+        byte kind = input.readByte();
+        int size = input.readInt();
+
+        switch (kind) {
+            case GLOBAL_ROWS -> {
+                List<GlobalMetricRow> raw = new ArrayList<>();
+                List<GlobalMetricRow> aggregated = new ArrayList<>();
+                for (int i = 0; i < size; i++) {
+                    long time = input.readLong();
+                    MetricType type = MetricType.find(input.readShort());
+                    double value = input.readDouble();
+                    if (type != null)
+                        (type.getResolution() == MetricResolution.RAW ? raw : aggregated).add(new GlobalMetricRow(time, type, value));
+                }
+                if (!raw.isEmpty() && !MetricsProvider.getSink().writeGlobal(raw))
+                    return false;
+                aggregated.forEach(MetricAggregator::add);
+            }
+            case PLAYER_ROWS -> {
+                List<PlayerMetricRow> raw = new ArrayList<>();
+                List<PlayerMetricRow> aggregated = new ArrayList<>();
+                for (int i = 0; i < size; i++) {
+                    long time = input.readLong();
+                    long player = input.readLong();
+                    MetricType type = MetricType.find(input.readShort());
+                    double value = input.readDouble();
+                    if (type != null)
+                        (type.getResolution() == MetricResolution.RAW ? raw : aggregated).add(new PlayerMetricRow(time, player, type, value));
+                }
+                if (!raw.isEmpty() && !MetricsProvider.getSink().writePlayers(raw))
+                    return false;
+                aggregated.forEach(MetricAggregator::add);
+            }
+            case TRANSACTION_ROWS -> {
+                List<TransactionMetricRow> rows = new ArrayList<>(size);
+                for (int i = 0; i < size; i++)
+                    rows.add(new TransactionMetricRow(input.readLong(), input.readLong(), input.readInt(), input.readLong()));
+                return rows.isEmpty() || MetricsProvider.getSink().writeTransactions(rows);
+            }
+            case GLOBAL_CELLS, PLAYER_CELLS -> {
+                List<MetricCell> cells = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    long time = input.readLong();
+                    long player = input.readLong();
+                    MetricType type = MetricType.find(input.readShort());
+                    long count = input.readLong();
+                    double sum = input.readDouble();
+                    double min = input.readDouble();
+                    double max = input.readDouble();
+                    if (type == null)
+                        continue;
+
+                    MetricCell cell = new MetricCell(time, player, type);
+                    cell.merge(count, sum, min, max);
+                    cells.add(cell);
+                }
+                if (cells.isEmpty())
+                    return true;
+                return kind == GLOBAL_CELLS ? MetricsProvider.getSink().writeGlobalCells(cells) : MetricsProvider.getSink().writePlayerCells(cells);
+            }
+            default -> BardenJavaLibrary.getLogger().error("Skipped unknown metric journal record kind(" + kind + ")!");
+        }
+
+        return true;
+    }
+
+
+    /*
+    CODEC
+     */
+
+    /**
+     * Gets encoded size of an element.
+     *
+     * @param kind Record kind.
+     * @return Encoded element size. (BYTES)
+     */
+    private static int toSize(byte kind) {
+        return switch (kind) {
+            case GLOBAL_ROWS -> Long.BYTES + Short.BYTES + Double.BYTES;
+            case PLAYER_ROWS -> Long.BYTES * 2 + Short.BYTES + Double.BYTES;
+            case GLOBAL_CELLS, PLAYER_CELLS -> Long.BYTES * 3 + Short.BYTES + Double.BYTES * 3;
+            case TRANSACTION_ROWS -> Long.BYTES * 3 + Integer.BYTES;
+            default -> throw new IllegalArgumentException("unknown metric journal record kind(" + kind + ")!");
+        };
+    }
+
+    /**
+     * Encodes rows or cells.
+     *
+     * @param kind     Record kind.
+     * @param elements Rows or cells.
+     * @return Payload.
+     */
+    @Nonnull
+    private static byte[] encode(byte kind, @Nonnull List<?> elements) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeByte(kind);
+        output.writeInt(elements.size());
+
+        for (Object element : elements) {
+            if (element instanceof GlobalMetricRow row) {
+                output.writeLong(row.getTime());
+                output.writeShort(row.getType().getCode());
+                output.writeDouble(row.getValue());
+            } else if (element instanceof PlayerMetricRow row) {
+                output.writeLong(row.getTime());
+                output.writeLong(row.getPlayer());
+                output.writeShort(row.getType().getCode());
+                output.writeDouble(row.getValue());
+            } else if (element instanceof TransactionMetricRow row) {
+                output.writeLong(row.getTime());
+                output.writeLong(row.getProduct());
+                output.writeInt(row.getPrice());
+                output.writeLong(row.getBuyer());
+            } else if (element instanceof MetricCell cell) {
+                output.writeLong(cell.getTime());
+                output.writeLong(cell.getPlayer());
+                output.writeShort(cell.getType().getCode());
+                output.writeLong(cell.getCount());
+                output.writeDouble(cell.getSum());
+                output.writeDouble(cell.getMin());
+                output.writeDouble(cell.getMax());
+            } else {
+                throw new IllegalArgumentException("unsupported metric journal element: " + element);
+            }
+        }
+
+        output.flush();
+        return bytes.toByteArray();
+    }
+
+
+    /*
+    STATISTICS
+     */
+
+    /**
+     * Gets journal statistics as a json object.
+     *
+     * @return Journal statistics json object.
+     */
+    @Nonnull
+    public static JsonObject toJsonObject() {
+        JsonObject json = new JsonObject();
+        json.addProperty("enabled", journal != null);
+        json.addProperty("healthy", healthy);
+        if (journal != null) {
+            json.addProperty("pending_rows", journal.getPendingRows());
+            json.addProperty("dropped_rows", journal.getDroppedRows());
+            json.addProperty("segments", journal.getSegmentCount());
+        }
+        return json;
+    }
+}
@@ -0,0 +1,155 @@
+package com.barden.bravo.metrics.query;
+
+import com.barden.bravo.metrics.MetricsProvider;
+import com.barden.bravo.metrics.sink.MetricSink;
+import com.barden.bravo.metrics.type.MetricType;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Metric query class.
+ * <p>
+ * Reads downsampled metric series from the active {@link MetricSink}. Timescale
+ * reads continuous aggregates, embedded store aggregates its blocks.
+ * <p>
+ * Ranges are aligned to buckets and results are cached by (query, aligned range).
+ * Ranges which are completely in the past are cached for an hour, ranges which
+ * include the current bucket are cached for a short time since they still change.
+ */
+public final class MetricQuery {
+
+    /*
+    VARIABLES
+     */
+
+    public static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+    public static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    public static final int MAXIMUM_POINTS = 10_000;
+
+    private static final Cache<String, JsonArray> closed = CacheBuilder.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterWrite(1, TimeUnit.HOURS)
+            .build();
+    private static final Cache<String, JsonArray> open = CacheBuilder.newBuilder()
+            .maximumSize(1_000)
+            .expireAfterWrite(30, TimeUnit.SECONDS)
+            .build();
+
+
+    /*
+    METHODS
+     */
+
+    /**
+     * Gets if a bucket size can be served or not.
+     *
+     * @param bucket Bucket size. (MILLISECONDS)
+     * @return If bucket size is valid or not.
+     */
+    public static boolean isValidBucket(long bucket) {
+        return bucket >= MINUTE && bucket % MINUTE == 0;
+    }
+
+    /**
+     * Gets source of a bucket size on active metric sink.
+     *
+     * @param bucket Bucket size. (MILLISECONDS)
+     * @return Source name.
+     */
+    @Nonnull
+    public static String getSource(long bucket) {
+        return MetricsProvider.getSink().getSource(bucket);
+    }
+
+    /**
+     * Gets global metric series.
+     *
+     * @param type   Metric type.
+     * @param from   Range start. (INCLUSIVE, EPOCH MILLISECONDS)
+     * @param to     Range end. (EXCLUSIVE, EPOCH MILLISECONDS)
+     * @param bucket Bucket size. (MILLISECONDS)
+     * @return Series points.
+     * @throws ExecutionException If query fails.
+     */
+    @Nonnull
+    public static JsonArray global(@Nonnull MetricType type, long from, long to, long bucket) throws ExecutionException {
+        return query("global", 0, Objects.requireNonNull(type, "type cannot be null!"), from, to, bucket);
+    }
+
+    /**
+     * Gets player metric series.
+     *
+     * @param player Roblox user id.
+     * @param type   Metric type. (NULL FOR ALL TYPES)
+     * @param from   Range start. (INCLUSIVE, EPOCH MILLISECONDS)
+     * @param to     Range end. (EXCLUSIVE, EPOCH MILLISECONDS)
+     * @param bucket Bucket size. (MILLISECONDS)
+     * @return Series points.
+     * @throws ExecutionException If query fails.
+     */
+    @Nonnull
+    public static JsonArray player(long player, @Nullable MetricType type, long from, long to, long bucket) throws ExecutionException {
+        return query("player", player, type, from, to, bucket);
+    }
+
+    /**
+     * Gets a metric series from cache or database.
+     *
+     * @param table  Table prefix. ("global" OR "player")
+     * @param player Roblox user id. (IGNORED FOR GLOBAL)
+     * @param type   Metric type. (NULL FOR ALL TYPES)
+     * @param from   Range start. (INCLUSIVE, EPOCH MILLISECONDS)
+     * @param to     Range end. (EXCLUSIVE, EPOCH MILLISECONDS)
+     * @param bucket Bucket size. (MILLISECONDS)
+     * @return Series points.
+     * @throws ExecutionException If query fails.
+     */
+    @Nonnull
+    private static JsonArray query(@Nonnull String table, long player, @Nullable MetricType type, long from, long to, long bucket) throws ExecutionException {
+        if (!isValidBucket(bucket))
+            throw new IllegalArgumentException("bucket must be a multiple of a minute!");
+
+        //Aligns range to buckets.
+        long _from = Math.floorDiv(from, bucket) * bucket;
+        long _to = Math.floorDiv(to + bucket - 1, bucket) * bucket;
+        if (_to <= _from || (_to - _from) / bucket > MAXIMUM_POINTS)
+            throw new IllegalArgumentException("range must have between 1 and " + MAXIMUM_POINTS + " buckets!");
+
+        //Gets from cache or queries.
+        String key = table + ":" + player + ":" + (type == null ? "*" : type.name()) + ":" + _from + ":" + _to + ":" + bucket;
+        Cache<String, JsonArray> cache = _to > System.currentTimeMillis() - bucket ? open : closed;
+        return cache.get(key, () -> MetricsProvider.getSink().series(table, player, type, _from, _to, bucket));
+    }
+
+    /**
+     * Creates a series point.
+     *
+     * @param time  Bucket start time. (EPOCH MILLISECONDS)
+     * @param type  Metric type. (NULL IF IT IS NOT A KNOWN TYPE)
+     * @param count Data point count.
+     * @param sum   Sum of values.
+     * @param min   Minimum value.
+     * @param max   Maximum value.
+     * @return Series point json object.
+     */
+    @Nonnull
+    public static JsonObject toPoint(long time, @Nullable MetricType type, long count, double sum, double min, double max) {
+        JsonObject point = new JsonObject();
+        point.addProperty("time", time);
+        point.addProperty("type", type == null ? "UNKNOWN" : type.name());
+        point.addProperty("count", count);
+        point.addProperty("sum", sum);
+        point.addProperty("min", min);
+        point.addProperty("max", max);
+        point.addProperty("average", count == 0 ? 0 : sum / count);
+        return point;
+    }
+}
@@ -0,0 +1,54 @@
+package com.barden.bravo.metrics.rolling;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Rolling bucket class.
+ * A time slice of a rolling window. Buckets are never reset; an expired bucket is
+ * replaced with a new one, so writers never see a half cleared bucket.
+ */
+final class RollingBucket {
+
+    private final long index;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final RollingSketch buyers = new RollingSketch();
+
+    /**
+     * Creates a rolling bucket.
+     *
+     * @param index Bucket index. (TIME / BUCKET WIDTH)
+     */
+    RollingBucket(long index) {
+        this.index = index;
+    }
+
+    long getIndex() {
+        return this.index;
+    }
+
+    long getCount() {
+        return this.count.sum();
+    }
+
+    long getSum() {
+        return this.sum.sum();
+    }
+
+    RollingSketch getBuyers() {
+        return this.buyers;
+    }
+
+    /**
+     * Adds transactions of a buyer.
+     *
+     * @param count Transaction count.
+     * @param sum   Robux sum.
+     * @param buyer Roblox user id.
+     */
+    void add(long count, long sum, long buyer) {
+        this.count.add(count);
+        this.sum.add(sum);
+        this.buyers.add(buyer);
+    }
+}
@@ -0,0 +1,77 @@
+package com.barden.bravo.metrics.rolling;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rolling periods.
+ * A window slides by its bucket width, so bucket width is its resolution.
+ */
+public enum RollingPeriod {
+    MINUTE("1m", TimeUnit.SECONDS.toMillis(5), 12),
+    HOUR("1h", TimeUnit.MINUTES.toMillis(1), 60),
+    DAY("24h", TimeUnit.MINUTES.toMillis(15), 96);
+
+    private final String key;
+    private final long width;
+    private final int buckets;
+
+    RollingPeriod(@Nonnull String key, long width, int buckets) {
+        this.key = key;
+        this.width = width;
+        this.buckets = buckets;
+    }
+
+    /**
+     * Gets period key.
+     *
+     * @return Period key.
+     */
+    @Nonnull
+    public String getKey() {
+        return this.key;
+    }
+
+    /**
+     * Gets bucket width.
+     *
+     * @return Bucket width. (MILLISECONDS)
+     */
+    public long getWidth() {
+        return this.width;
+    }
+
+    /**
+     * Gets bucket count.
+     *
+     * @return Bucket count.
+     */
+    public int getBuckets() {
+        return this.buckets;
+    }
+
+    /**
+     * Gets period length.
+     *
+     * @return Period length. (MILLISECONDS)
+     */
+    public long getLength() {
+        return this.width * this.buckets;
+    }
+
+    /**
+     * Finds a period by its key.
+     *
+     * @param key Period key.
+     * @return Period. (NULL IF IT IS NOT FOUND)
+     */
+    @Nullable
+    public static RollingPeriod find(@Nonnull String key) {
+        for (RollingPeriod period : values()) {
+            if (period.key.equalsIgnoreCase(key))
+                return period;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,98 @@
+package com.barden.bravo.metrics.rolling;
+
+import javax.annotation.Nonnull;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Rolling sketch class.
+ * <p>
+ * A lock-free HyperLogLog of 1024 registers. Registers are bytes packed into longs
+ * and raised with compare-and-set, so concurrent writers never block each other.
+ * Sketches are merged by taking maximum of every register. (~3.25% STANDARD ERROR)
+ */
+public final class RollingSketch {
+
+    public static final int PRECISION = 10;
+    public static final int REGISTERS = 1 << PRECISION;
+    private static final int PER_LONG = Long.BYTES;
+
+    private final AtomicLongArray registers = new AtomicLongArray(REGISTERS / PER_LONG);
+
+    /**
+     * Adds a value.
+     *
+     * @param value Value.
+     */
+    public void add(long value) {
+        long hash = hash(value);
+        int register = (int) (hash >>> (Long.SIZE - PRECISION));
+        long rank = Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1;
+
+        //Raises register if rank is higher.
+        int index = register / PER_LONG;
+        int shift = (register % PER_LONG) * Byte.SIZE;
+        while (true) {
+            long packed = this.registers.get(index);
+            if (((packed >>> shift) & 0xFF) >= rank)
+                return;
+            if (this.registers.compareAndSet(index, packed, (packed & ~(0xFFL << shift)) | (rank << shift)))
+                return;
+        }
+    }
+
+    /**
+     * Merges registers into declared registers.
+     *
+     * @param target Registers. (LENGTH MUST BE REGISTERS)
+     */
+    public void mergeInto(@Nonnull byte[] target) {
+        for (int i = 0; i < this.registers.length(); i++) {
+            long packed = this.registers.get(i);
+            for (int j = 0; j < PER_LONG; j++) {
+                byte rank = (byte) ((packed >>> (j * Byte.SIZE)) & 0xFF);
+                int register = i * PER_LONG + j;
+                if (rank > target[register])
+                    target[register] = rank;
+            }
+        }
+    }
+
+    /**
+     * Estimates distinct value count of registers.
+     *
+     * @param registers Registers.
+     * @return Estimated distinct value count.
+     */
+    public static long estimate(@Nonnull byte[] registers) {
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0)
+                zeros++;
+        }
+
+        double m = registers.length;
+        double estimate = 0.7213 / (1 + 1.079 / m) * m * m / sum;
+
+        //Linear counting is more accurate for small cardinalities.
+        if (estimate <= 2.5 * m && zeros > 0)
+            estimate = m * Math.log(m / zeros);
+        return Math.round(estimate);
+    }
+
+    /**
+     * Hashes a value. (MURMUR3 FINALIZER)
+     *
+     * @param value Value.
+     * @return Hash.
+     */
+    private static long hash(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
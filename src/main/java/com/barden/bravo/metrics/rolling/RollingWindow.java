@@ -0,0 +1,166 @@
+package com.barden.bravo.metrics.rolling;
+
+import com.google.gson.JsonObject;
+
+import javax.annotation.Nonnull;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Rolling window class.
+ * <p>
+ * A ring of buckets which covers the last period. A bucket slot is reused when
+ * its bucket expires; the new bucket is swapped in with compare-and-set, so writes
+ * and reads are lock-free. Reads sum buckets which are still in the period.
+ */
+public final class RollingWindow {
+
+    private final RollingPeriod period;
+    private final AtomicReferenceArray<RollingBucket> buckets;
+
+    /**
+     * Creates a rolling window.
+     *
+     * @param period Rolling period.
+     */
+    public RollingWindow(@Nonnull RollingPeriod period) {
+        this.period = Objects.requireNonNull(period, "period cannot be null!");
+        this.buckets = new AtomicReferenceArray<>(period.getBuckets());
+    }
+
+    /**
+     * Gets rolling period.
+     *
+     * @return Rolling period.
+     */
+    @Nonnull
+    public RollingPeriod getPeriod() {
+        return this.period;
+    }
+
+    /**
+     * Adds transactions of a buyer.
+     * Transactions which are older than period are ignored.
+     *
+     * @param time  Time. (EPOCH MILLISECONDS)
+     * @param count Transaction count.
+     * @param sum   Robux sum.
+     * @param buyer Roblox user id.
+     */
+    public void add(long time, long count, long sum, long buyer) {
+        long index = Math.floorDiv(time, this.period.getWidth());
+        long newest = Math.floorDiv(System.currentTimeMillis(), this.period.getWidth());
+        if (index <= newest - this.period.getBuckets() || index > newest)
+            return;
+
+        int slot = (int) Math.floorMod(index, this.period.getBuckets());
+        while (true) {
+            RollingBucket bucket = this.buckets.get(slot);
+            if (bucket != null && bucket.getIndex() == index) {
+                bucket.add(count, sum, buyer);
+                return;
+            }
+
+            //Slot is already taken by a newer bucket.
+            if (bucket != null && bucket.getIndex() > index)
+                return;
+
+            //Replaces expired bucket. If another writer replaced it first, retries with its bucket.
+            this.buckets.compareAndSet(slot, bucket, new RollingBucket(index));
+        }
+    }
+
+    /**
+     * Gets a snapshot of the period.
+     *
+     * @return Rolling snapshot.
+     */
+    @Nonnull
+    public Snapshot snapshot() {
+        long newest = Math.floorDiv(System.currentTimeMillis(), this.period.getWidth());
+        long count = 0;
+        long sum = 0;
+        byte[] registers = new byte[RollingSketch.REGISTERS];
+
+        for (int i = 0; i < this.buckets.length(); i++) {
+            RollingBucket bucket = this.buckets.get(i);
+            if (bucket == null || bucket.getIndex() <= newest - this.period.getBuckets() || bucket.getIndex() > newest)
+                continue;
+
+            count += bucket.getCount();
+            sum += bucket.getSum();
+            bucket.getBuyers().mergeInto(registers);
+        }
+
+        return new Snapshot(count, sum, count == 0 ? 0 : RollingSketch.estimate(registers));
+    }
+
+
+    /*
+    SNAPSHOT
+     */
+
+    /**
+     * Rolling window snapshot.
+     */
+    public static final class Snapshot {
+
+        private final long count;
+        private final long robux;
+        private final long buyers;
+
+        /**
+         * Creates a rolling window snapshot.
+         *
+         * @param count  Transaction count.
+         * @param robux  Robux sum.
+         * @param buyers Approximate unique buyer count.
+         */
+        public Snapshot(long count, long robux, long buyers) {
+            this.count = count;
+            this.robux = robux;
+            this.buyers = buyers;
+        }
+
+        /**
+         * Gets transaction count.
+         *
+         * @return Transaction count.
+         */
+        public long getCount() {
+            return this.count;
+        }
+
+        /**
+         * Gets robux sum.
+         *
+         * @return Robux sum.
+         */
+        public long getRobux() {
+            return this.robux;
+        }
+
+        /**
+         * Gets approximate unique buyer count.
+         *
+         * @return Unique buyer count.
+         */
+        public long getBuyers() {
+            return this.buyers;
+        }
+
+        /**
+         * Converts snapshot to a json object.
+         *
+         * @return Snapshot json object.
+         */
+        @Nonnull
+        public JsonObject toJsonObject() {
+            JsonObject json = new JsonObject();
+            json.addProperty("count", this.count);
+            json.addProperty("robux", this.robux);
+            json.addProperty("buyers", this.buyers);
+            return json;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.barden.bravo.metrics.rolling;
+
+import com.barden.bravo.instrumentation.Instrumentation;
+import com.barden.bravo.metrics.MetricsProvider;
+import com.barden.bravo.metrics.row.TransactionMetricRow;
+import com.barden.library.BardenJavaLibrary;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Transaction windows class.
+ * <p>
+ * Keeps rolling transaction count, robux sum and unique buyers of the last minute,
+ * hour and day, globally and per product. Windows are updated on the transaction
+ * path and read without any database access. On startup, windows are rebuilt from
+ * the active metric sink with a single aggregate query of the last day.
+ */
+public final class TransactionWindows {
+
+    /*
+    VARIABLES
+     */
+
+    private static final RollingWindow[] global = create();
+    private static final Map<Long, RollingWindow[]> products = new ConcurrentHashMap<>();
+
+
+    /*
+    INITIALIZE
+     */
+
+    /**
+     * Initializes transaction windows.
+     * Transactions of the last day are loaded, so windows don't start empty after a restart.
+     */
+    public static void initialize() {
+        LongAdder groups = new LongAdder();
+        try {
+            MetricsProvider.getSink().readTransactions(System.currentTimeMillis() - RollingPeriod.DAY.getLength(), (time, product, buyer, count, sum) -> {
+                add(time, product, buyer, count, sum);
+                groups.increment();
+            });
+        } catch (Exception exception) {
+            BardenJavaLibrary.getLogger().error("Couldn't rebuild transaction windows!", exception);
+        }
+
+        //Instrumentation.
+        Instrumentation.gauge("bravo.metrics.transaction.windows.products", products, Map::size);
+
+        //Logging.
+        BardenJavaLibrary.getLogger().info("Transaction windows are rebuilt from " + groups.sum() + " transaction groups!");
+    }
+
+
+    /*
+    METHODS
+     */
+
+    /**
+     * Adds a transaction metric row.
+     *
+     * @param row Transaction metric row.
+     */
+    public static void add(@Nonnull TransactionMetricRow row) {
+        //Objects null check.
+        Objects.requireNonNull(row, "row cannot be null!");
+
+        add(row.getTime(), row.getProduct(), row.getBuyer(), 1, row.getPrice());
+    }
+
+    /**
+     * Adds transactions of a buyer.
+     *
+     * @param time    Time. (EPOCH MILLISECONDS)
+     * @param product Product id.
+     * @param buyer   Roblox user id.
+     * @param count   Transaction count.
+     * @param sum     Robux sum.
+     */
+    public static void add(long time, long product, long buyer, long count, long sum) {
+        for (RollingWindow window : global)
+            window.add(time, count, sum, buyer);
+        for (RollingWindow window : products.computeIfAbsent(product, _product -> create()))
+            window.add(time, count, sum, buyer);
+    }
+
+    /**
+     * Gets global snapshot of a period.
+     *
+     * @param period Rolling period.
+     * @return Rolling snapshot.
+     */
+    @Nonnull
+    public static RollingWindow.Snapshot global(@Nonnull RollingPeriod period) {
+        return global[Objects.requireNonNull(period, "period cannot be null!").ordinal()].snapshot();
+    }
+
+    /**
+     * Gets snapshot of a product in a period.
+     *
+     * @param product Product id.
+     * @param period  Rolling period.
+     * @return Rolling snapshot. (EMPTY IF PRODUCT HAS NO TRANSACTION)
+     */
+    @Nonnull
+    public static RollingWindow.Snapshot product(long product, @Nonnull RollingPeriod period) {
+        RollingWindow[] windows = products.get(product);
+        return windows == null ? new RollingWindow.Snapshot(0, 0, 0) : windows[Objects.requireNonNull(period, "period cannot be null!").ordinal()].snapshot();
+    }
+
+    /**
+     * Converts windows of a period to a json object.
+     * Products are sorted by robux sum, then by transaction count.
+     *
+     * @param period Rolling period.
+     * @param limit  Maximum product count.
+     * @return Transaction windows json object.
+     */
+    @Nonnull
+    public static JsonObject toJsonObject(@Nonnull RollingPeriod period, int limit) {
+        //Objects null check.
+        Objects.requireNonNull(period, "period cannot be null!");
+
+        //Declares product snapshots.
+        List<Map.Entry<Long, RollingWindow.Snapshot>> snapshots = new ArrayList<>();
+        products.forEach((product, windows) -> {
+            RollingWindow.Snapshot snapshot = windows[period.ordinal()].snapshot();
+            if (snapshot.getCount() > 0)
+                snapshots.add(Map.entry(product, snapshot));
+        });
+        snapshots.sort(Comparator.<Map.Entry<Long, RollingWindow.Snapshot>>comparingLong(entry -> entry.getValue().getRobux())
+                .thenComparingLong(entry -> entry.getValue().getCount())
+                .reversed());
+
+        //Creates json object.
+        JsonArray _products = new JsonArray();
+        for (Map.Entry<Long, RollingWindow.Snapshot> entry : snapshots.subList(0, Math.min(limit, snapshots.size()))) {
+            JsonObject _product = entry.getValue().toJsonObject();
+            _product.addProperty("product", entry.getKey());
+            _products.add(_product);
+        }
+
+        JsonObject json = new JsonObject();
+        json.addProperty("period", period.getKey());
+        json.addProperty("resolution", period.getWidth());
+        json.add("global", global(period).toJsonObject());
+        json.add("products", _products);
+        return json;
+    }
+
+    /**
+     * Creates windows of every period.
+     *
+     * @return Rolling windows. (INDEXED BY PERIOD ORDINAL)
+     */
+    @Nonnull
+    private static RollingWindow[] create() {
+        RollingWindow[] windows = new RollingWindow[RollingPeriod.values().length];
+        for (RollingPeriod period : RollingPeriod.values())
+            windows[period.ordinal()] = new RollingWindow(period);
+        return windows;
+    }
+}
@@ -0,0 +1,57 @@
+package com.barden.bravo.metrics.row;
+
+import com.barden.bravo.metrics.type.MetricType;
+
+import javax.annotation.Nonnull;
+import java.util.Objects;
+
+/**
+ * Global metric row class.
+ */
+public final class GlobalMetricRow {
+
+    private final long time;
+    private final MetricType type;
+    private final double value;
+
+    /**
+     * Creates a global metric row.
+     *
+     * @param time  Time. (EPOCH MILLISECONDS)
+     * @param type  Metric type.
+     * @param value Metric value.
+     */
+    public GlobalMetricRow(long time, @Nonnull MetricType type, double value) {
+        this.time = time;
+        this.type = Objects.requireNonNull(type, "type cannot be null!");
+        this.value = value;
+    }
+
+    /**
+     * Gets metric time.
+     *
+     * @return Metric time. (EPOCH MILLISECONDS)
+     */
+    public long getTime() {
+        return this.time;
+    }
+
+    /**
+     * Gets metric type.
+     *
+     * @return Metric type.
+     */
+    @Nonnull
+    public MetricType getType() {
+        return this.type;
+    }
+
+    /**
+     * Gets metric value.
+     *
+     * @return Metric value.
+     */
+    public double getValue() {
+        return this.value;
+    }
+}
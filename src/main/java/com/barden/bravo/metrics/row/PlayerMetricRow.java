@@ -0,0 +1,69 @@
+package com.barden.bravo.metrics.row;
+
+import com.barden.bravo.metrics.type.MetricType;
+
+import javax.annotation.Nonnull;
+import java.util.Objects;
+
+/**
+ * Player metric row class.
+ */
+public final class PlayerMetricRow {
+
+    private final long time;
+    private final long player;
+    private final MetricType type;
+    private final double value;
+
+    /**
+     * Creates a player metric row.
+     *
+     * @param time   Time. (EPOCH MILLISECONDS)
+     * @param player Roblox user id.
+     * @param type   Metric type.
+     * @param value  Metric value.
+     */
+    public PlayerMetricRow(long time, long player, @Nonnull MetricType type, double value) {
+        this.time = time;
+        this.player = player;
+        this.type = Objects.requireNonNull(type, "type cannot be null!");
+        this.value = value;
+    }
+
+    /**
+     * Gets metric time.
+     *
+     * @return Metric time. (EPOCH MILLISECONDS)
+     */
+    public long getTime() {
+        return this.time;
+    }
+
+    /**
+     * Gets roblox user id.
+     *
+     * @return Roblox user id.
+     */
+    public long getPlayer() {
+        return this.player;
+    }
+
+    /**
+     * Gets metric type.
+     *
+     * @return Metric type.
+     */
+    @Nonnull
+    public MetricType getType() {
+        return this.type;
+    }
+
+    /**
+     * Gets metric value.
+     *
+     * @return Metric value.
+     */
+    public double getValue() {
+        return this.value;
+    }
+}
@@ -0,0 +1,63 @@
+package com.barden.bravo.metrics.row;
+
+/**
+ * Transaction metric row class.
+ */
+public final class TransactionMetricRow {
+
+    private final long time;
+    private final long product;
+    private final int price;
+    private final long buyer;
+
+    /**
+     * Creates a transaction metric row.
+     *
+     * @param time    Time. (EPOCH MILLISECONDS)
+     * @param product Product id.
+     * @param price   Price.
+     * @param buyer   Roblox user id.
+     */
+    public TransactionMetricRow(long time, long product, int price, long buyer) {
+        this.time = time;
+        this.product = product;
+        this.price = price;
+        this.buyer = buyer;
+    }
+
+    /**
+     * Gets metric time.
+     *
+     * @return Metric time. (EPOCH MILLISECONDS)
+     */
+    public long getTime() {
+        return this.time;
+    }
+
+    /**
+     * Gets product id.
+     *
+     * @return Product id.
+     */
+    public long getProduct() {
+        return this.product;
+    }
+
+    /**
+     * Gets price.
+     *
+     * @return Price.
+     */
+    public int getPrice() {
+        return this.price;
+    }
+
+    /**
+     * Gets roblox user id.
+     *
+     * @return Roblox user id.
+     */
+    public long getBuyer() {
+        return this.buyer;
+    }
+}
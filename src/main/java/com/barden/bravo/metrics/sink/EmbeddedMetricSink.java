@@ -0,0 +1,422 @@
+package com.barden.bravo.metrics.sink;
+
+import com.barden.bravo.instrumentation.Instrumentation;
+import com.barden.bravo.metrics.aggregate.MetricCell;
+import com.barden.bravo.metrics.query.MetricQuery;
+import com.barden.bravo.metrics.row.GlobalMetricRow;
+import com.barden.bravo.metrics.row.PlayerMetricRow;
+import com.barden.bravo.metrics.row.TransactionMetricRow;
+import com.barden.bravo.metrics.type.MetricType;
+import com.barden.bravo.store.ColumnBlock;
+import com.barden.bravo.store.ColumnStore;
+import com.barden.library.BardenJavaLibrary;
+import com.barden.library.scheduler.SchedulerProvider;
+import com.google.gson.JsonArray;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Embedded metric sink class.
+ * <p>
+ * Writes metrics to a local {@link ColumnStore}, so timescale is not needed.
+ * (SMALL DEPLOYMENTS, LOAD TESTS) Every metric type has its own series:
+ * <ul>
+ *     <li>global/(TYPE): (time, value)</li>
+ *     <li>player/(TYPE): (time, player, value)</li>
+ *     <li>global_rollup/(TYPE): (time, count, sum, min, max)</li>
+ *     <li>player_rollup/(TYPE): (time, player, count, sum, min, max)</li>
+ *     <li>transaction: (time, product, price, buyer)</li>
+ * </ul>
+ * Cells are appended as they are, late cells of a minute are merged at query time.
+ * Partitions older than retention are deleted every hour.
+ */
+public final class EmbeddedMetricSink implements MetricSink {
+
+    private final Path directory;
+    private final int segmentSize;
+    private final long retention;
+    private volatile ColumnStore store;
+
+    /**
+     * Creates an embedded metric sink.
+     *
+     * @param directory   Store directory.
+     * @param segmentSize Segment size. (BYTES)
+     * @param retention   Retention. (MILLISECONDS)
+     */
+    public EmbeddedMetricSink(@Nonnull Path directory, int segmentSize, long retention) {
+        this.directory = Objects.requireNonNull(directory, "directory cannot be null!");
+        this.segmentSize = segmentSize;
+        this.retention = retention;
+    }
+
+    /**
+     * Gets sink name.
+     *
+     * @return Sink name.
+     */
+    @Nonnull
+    @Override
+    public String getName() {
+        return "embedded";
+    }
+
+    /**
+     * Opens column store and schedules retention.
+     */
+    @Override
+    public void initialize() {
+        try {
+            this.store = new ColumnStore(this.directory, this.segmentSize);
+        } catch (Exception exception) {
+            BardenJavaLibrary.getLogger().error("Couldn't open embedded metric store!", exception);
+            return;
+        }
+
+        //Deletes expired partitions.
+        SchedulerProvider.create()
+                .every(1, TimeUnit.HOURS)
+                .schedule(task -> Instrumentation.job("metrics.embedded.retention", this::retain));
+
+        //Logging.
+        BardenJavaLibrary.getLogger().info("Embedded metric store is opened with " + this.store.getSeries().size() + " series!");
+    }
+
+    /**
+     * Terminates sink.
+     * Every block is forced to the disk when it is appended, so there is nothing to flush.
+     */
+    @Override
+    public void terminate() {
+        this.store = null;
+    }
+
+    /**
+     * Deletes partitions which are older than retention.
+     */
+    private void retain() {
+        if (this.store == null)
+            return;
+
+        try {
+            int deleted = this.store.retain(System.currentTimeMillis() - this.retention);
+            if (deleted > 0)
+                BardenJavaLibrary.getLogger().info("Deleted " + deleted + " expired embedded metric segments!");
+        } catch (Exception exception) {
+            BardenJavaLibrary.getLogger().error("Couldn't delete expired embedded metric segments!", exception);
+        }
+    }
+
+
+    /*
+    WRITES
+     */
+
+    /**
+     * Writes global metric rows to their series.
+     *
+     * @param rows Global metric rows.
+     * @return If rows are written or not.
+     */
+    @Override
+    public boolean writeGlobal(@Nonnull Collection<GlobalMetricRow> rows) {
+        return this.write("global rows", rows, GlobalMetricRow::getType, (type, _rows) -> {
+            long[] times = new long[_rows.size()];
+            long[] values = new long[_rows.size()];
+            for (int i = 0; i < _rows.size(); i++) {
+                GlobalMetricRow row = _rows.get(i);
+                times[i] = row.getTime();
+                values[i] = Double.doubleToRawLongBits(row.getValue());
+            }
+            this.store.append("global/" + type.name(), times, values);
+        });
+    }
+
+    /**
+     * Writes player metric rows to their series.
+     *
+     * @param rows Player metric rows.
+     * @return If rows are written or not.
+     */
+    @Override
+    public boolean writePlayers(@Nonnull Collection<PlayerMetricRow> rows) {
+        return this.write("player rows", rows, PlayerMetricRow::getType, (type, _rows) -> {
+            long[] times = new long[_rows.size()];
+            long[] players = new long[_rows.size()];
+            long[] values = new long[_rows.size()];
+            for (int i = 0; i < _rows.size(); i++) {
+                PlayerMetricRow row = _rows.get(i);
+                times[i] = row.getTime();
+                players[i] = row.getPlayer();
+                values[i] = Double.doubleToRawLongBits(row.getValue());
+            }
+            this.store.append("player/" + type.name(), times, players, values);
+        });
+    }
+
+    /**
+     * Writes global metric cells to their series.
+     *
+     * @param cells Global metric cells.
+     * @return If cells are written or not.
+     */
+    @Override
+    public boolean writeGlobalCells(@Nonnull Collection<MetricCell> cells) {
+        return this.write("global cells", cells, MetricCell::getType, (type, _cells) -> {
+            long[][] columns = toColumns(_cells, false);
+            this.store.append("global_rollup/" + type.name(), columns[0], columns[1], columns[2], columns[3], columns[4]);
+        });
+    }
+
+    /**
+     * Writes player metric cells to their series.
+     *
+     * @param cells Player metric cells.
+     * @return If cells are written or not.
+     */
+    @Override
+    public boolean writePlayerCells(@Nonnull Collection<MetricCell> cells) {
+        return this.write("player cells", cells, MetricCell::getType, (type, _cells) -> {
+            long[][] columns = toColumns(_cells, true);
+            this.store.append("player_rollup/" + type.name(), columns[0], columns[1], columns[2], columns[3], columns[4], columns[5]);
+        });
+    }
+
+    /**
+     * Writes transaction metric rows to transaction series.
+     *
+     * @param rows Transaction metric rows.
+     * @return If rows are written or not.
+     */
+    @Override
+    public boolean writeTransactions(@Nonnull Collection<TransactionMetricRow> rows) {
+        //If store is not available, no need to continue.
+        if (this.store == null)
+            return false;
+
+        try {
+            List<TransactionMetricRow> _rows = List.copyOf(rows);
+            long[] times = new long[_rows.size()];
+            long[] products = new long[_rows.size()];
+            long[] prices = new long[_rows.size()];
+            long[] buyers = new long[_rows.size()];
+            for (int i = 0; i < _rows.size(); i++) {
+                TransactionMetricRow row = _rows.get(i);
+                times[i] = row.getTime();
+                products[i] = row.getProduct();
+                prices[i] = row.getPrice();
+                buyers[i] = row.getBuyer();
+            }
+            this.store.append("transaction", times, products, prices, buyers);
+            return true;
+        } catch (Exception exception) {
+            BardenJavaLibrary.getLogger().error("Couldn't save transaction metrics to the embedded store!", exception);
+            return false;
+        }
+    }
+
+    /**
+     * Reads transaction metric rows since declared time.
+     * Embedded store keeps every row, so every row is a group of one transaction.
+     *
+     * @param from     Range start. (INCLUSIVE, EPOCH MILLISECONDS)
+     * @param consumer Transaction group consumer.
+     */
+    @Override
+    public void readTransactions(long from, @Nonnull TransactionConsumer consumer) {
+        //If store is not available, no need to continue.
+        if (this.store == null)
+            return;
+
+        this.store.scan("transaction", from, Long.MAX_VALUE, null, block -> {
+            for (int i = 0; i < block.getCount(); i++) {
+                if (block.getTime(i) < from)
+                    continue;
+                consumer.accept(block.getTime(i), block.getLong(0, i), block.getLong(2, i), 1, block.getLong(1, i));
+            }
+        });
+    }
+
+    /**
+     * Groups elements by metric type then writes every group.
+     *
+     * @param name     Element name. (LOGGING)
+     * @param elements Rows or cells.
+     * @param type     Metric type getter.
+     * @param writer   Group writer.
+     * @param <T>      Element type.
+     * @return If every group is written or not.
+     */
+    private <T> boolean write(@Nonnull String name, @Nonnull Collection<T> elements, @Nonnull Function<T, MetricType> type, @Nonnull Writer<T> writer) {
+        //If store is not available, no need to continue.
+        if (this.store == null)
+            return false;
+
+        try {
+            Map<MetricType, List<T>> groups = elements.stream().collect(Collectors.groupingBy(type, () -> new EnumMap<>(MetricType.class), Collectors.toList()));
+            for (Map.Entry<MetricType, List<T>> entry : groups.entrySet())
+                writer.write(entry.getKey(), entry.getValue());
+            return true;
+        } catch (Exception exception) {
+            BardenJavaLibrary.getLogger().error("Couldn't save metric " + name + " to the embedded store!", exception);
+            return false;
+        }
+    }
+
+    /**
+     * Converts cells to columns.
+     *
+     * @param cells  Metric cells.
+     * @param player Should player column be included or not.
+     * @return Columns. (TIME, [PLAYER], COUNT, SUM, MIN, MAX)
+     */
+    @Nonnull
+    private static long[][] toColumns(@Nonnull List<MetricCell> cells, boolean player) {
+        int offset = player ? 1 : 0;
+        long[][] columns = new long[5 + offset][cells.size()];
+        for (int i = 0; i < cells.size(); i++) {
+            MetricCell cell = cells.get(i);
+            columns[0][i] = cell.getTime();
+            if (player)
+                columns[1][i] = cell.getPlayer();
+            columns[1 + offset][i] = cell.getCount();
+            columns[2 + offset][i] = Double.doubleToRawLongBits(cell.getSum());
+            columns[3 + offset][i] = Double.doubleToRawLongBits(cell.getMin());
+            columns[4 + offset][i] = Double.doubleToRawLongBits(cell.getMax());
+        }
+        return columns;
+    }
+
+
+    /*
+    QUERIES
+     */
+
+    /**
+     * Gets source of a series bucket size.
+     *
+     * @param bucket Bucket size. (MILLISECONDS)
+     * @return Source name. (ALWAYS "embedded")
+     */
+    @Nonnull
+    @Override
+    public String getSource(long bucket) {
+        return "embedded";
+    }
+
+    /**
+     * Gets a metric series by scanning raw and rollup series of the range.
+     * Player filter is applied per point, but blocks which can't have the player are skipped.
+     *
+     * @param table  Table prefix. ("global" OR "player")
+     * @param player Roblox user id. (IGNORED FOR GLOBAL)
+     * @param type   Metric type. (NULL FOR ALL TYPES)
+     * @param from   Aligned range start. (INCLUSIVE, EPOCH MILLISECONDS)
+     * @param to     Aligned range end. (EXCLUSIVE, EPOCH MILLISECONDS)
+     * @param bucket Bucket size. (MILLISECONDS)
+     * @return Series points.
+     */
+    @Nonnull
+    @Override
+    public JsonArray series(@Nonnull String table, long player, @Nullable MetricType type, long from, long to, long bucket) {
+        //If store is not available, no need to continue.
+        if (this.store == null)
+            throw new IllegalStateException("embedded metric store is not available!");
+
+        //Declares required fields.
+        boolean players = table.equals("player");
+        int offset = players ? 1 : 0;
+        Long key = players ? player : null;
+        NavigableMap<Long, Map<MetricType, MetricCell>> buckets = new TreeMap<>();
+
+        for (MetricType _type : type == null ? MetricType.values() : new MetricType[]{type}) {
+            //Raw rows.
+            this.store.scan(table + "/" + _type.name(), from, to, key, block -> {
+                for (int i = 0; i < block.getCount(); i++) {
+                    if (!this.matches(block, i, from, to, players, player))
+                        continue;
+                    toCell(buckets, block.getTime(i), bucket, _type).add(block.getDouble(offset, i));
+                }
+            });
+
+            //Rollup cells.
+            this.store.scan(table + "_rollup/" + _type.name(), from, to, key, block -> {
+                for (int i = 0; i < block.getCount(); i++) {
+                    if (!this.matches(block, i, from, to, players, player))
+                        continue;
+                    toCell(buckets, block.getTime(i), bucket, _type).merge(
+                            block.getLong(offset, i),
+                            block.getDouble(offset + 1, i),
+                            block.getDouble(offset + 2, i),
+                            block.getDouble(offset + 3, i));
+                }
+            });
+        }
+
+        //Converts cells to points.
+        JsonArray points = new JsonArray();
+        for (Map<MetricType, MetricCell> cells : buckets.values())
+            for (MetricCell cell : cells.values())
+                points.add(MetricQuery.toPoint(cell.getTime(), cell.getType(), cell.getCount(), cell.getSum(), cell.getMin(), cell.getMax()));
+        return points;
+    }
+
+    /**
+     * Gets if a point is in the range and belongs to the player or not.
+     *
+     * @param block   Column block.
+     * @param index   Point index.
+     * @param from    Range start. (INCLUSIVE, EPOCH MILLISECONDS)
+     * @param to      Range end. (EXCLUSIVE, EPOCH MILLISECONDS)
+     * @param players Is it a player series or not.
+     * @param player  Roblox user id.
+     * @return If point matches or not.
+     */
+    private boolean matches(@Nonnull ColumnBlock block, int index, long from, long to, boolean players, long player) {
+        long time = block.getTime(index);
+        return time >= from && time < to && (!players || block.getLong(0, index) == player);
+    }
+
+    /**
+     * Gets or creates cell of a bucket.
+     *
+     * @param buckets Buckets.
+     * @param time    Point time. (EPOCH MILLISECONDS)
+     * @param bucket  Bucket size. (MILLISECONDS)
+     * @param type    Metric type.
+     * @return Metric cell.
+     */
+    @Nonnull
+    private static MetricCell toCell(@Nonnull NavigableMap<Long, Map<MetricType, MetricCell>> buckets, long time, long bucket, @Nonnull MetricType type) {
+        long _time = Math.floorDiv(time, bucket) * bucket;
+        return buckets.computeIfAbsent(_time, __time -> new EnumMap<>(MetricType.class))
+                .computeIfAbsent(type, _type -> new MetricCell(_time, 0, _type));
+    }
+
+
+    /*
+    WRITER
+     */
+
+    /**
+     * Writer of a metric type group.
+     *
+     * @param <T> Element type.
+     */
+    @FunctionalInterface
+    private interface Writer<T> {
+        void write(@Nonnull MetricType type, @Nonnull List<T> elements) throws Exception;
+    }
+}
@@ -0,0 +1,135 @@
+package com.barden.bravo.metrics.sink;
+
+import com.barden.bravo.metrics.aggregate.MetricCell;
+import com.barden.bravo.metrics.row.GlobalMetricRow;
+import com.barden.bravo.metrics.row.PlayerMetricRow;
+import com.barden.bravo.metrics.row.TransactionMetricRow;
+import com.barden.bravo.metrics.type.MetricType;
+import com.google.gson.JsonArray;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Collection;
+
+/**
+ * Metric sink interface.
+ * <p>
+ * Storage backend of metrics. Ingest pipeline, aggregator, journal and queries
+ * only talk to the active sink, so every backend gets the same rows and cells.
+ * Writes return false instead of throwing, so callers can spill and retry.
+ */
+public interface MetricSink {
+
+    /**
+     * Gets sink name.
+     *
+     * @return Sink name.
+     */
+    @Nonnull
+    String getName();
+
+    /**
+     * Initializes sink. (TABLES, FILES, SCHEDULERS)
+     */
+    void initialize();
+
+    /**
+     * Terminates sink.
+     */
+    void terminate();
+
+    /**
+     * Writes global metric rows.
+     *
+     * @param rows Global metric rows.
+     * @return If rows are written or not.
+     */
+    boolean writeGlobal(@Nonnull Collection<GlobalMetricRow> rows);
+
+    /**
+     * Writes player metric rows.
+     *
+     * @param rows Player metric rows.
+     * @return If rows are written or not.
+     */
+    boolean writePlayers(@Nonnull Collection<PlayerMetricRow> rows);
+
+    /**
+     * Writes global metric cells.
+     * Cells of the same minute must be merged.
+     *
+     * @param cells Global metric cells.
+     * @return If cells are written or not.
+     */
+    boolean writeGlobalCells(@Nonnull Collection<MetricCell> cells);
+
+    /**
+     * Writes player metric cells.
+     * Cells of the same minute must be merged.
+     *
+     * @param cells Player metric cells.
+     * @return If cells are written or not.
+     */
+    boolean writePlayerCells(@Nonnull Collection<MetricCell> cells);
+
+    /**
+     * Writes transaction metric rows.
+     *
+     * @param rows Transaction metric rows.
+     * @return If rows are written or not.
+     */
+    boolean writeTransactions(@Nonnull Collection<TransactionMetricRow> rows);
+
+    /**
+     * Reads transaction metric rows since declared time, grouped by (minute, product, buyer).
+     *
+     * @param from     Range start. (INCLUSIVE, EPOCH MILLISECONDS)
+     * @param consumer Transaction group consumer.
+     * @throws Exception If read fails.
+     */
+    void readTransactions(long from, @Nonnull TransactionConsumer consumer) throws Exception;
+
+    /**
+     * Gets source of a series bucket size.
+     *
+     * @param bucket Bucket size. (MILLISECONDS)
+     * @return Source name.
+     */
+    @Nonnull
+    String getSource(long bucket);
+
+    /**
+     * Gets a metric series of raw rows and cells together.
+     * Points are ordered by (time, type) and created with {@link com.barden.bravo.metrics.query.MetricQuery#toPoint}.
+     *
+     * @param table  Table prefix. ("global" OR "player")
+     * @param player Roblox user id. (IGNORED FOR GLOBAL)
+     * @param type   Metric type. (NULL FOR ALL TYPES)
+     * @param from   Aligned range start. (INCLUSIVE, EPOCH MILLISECONDS)
+     * @param to     Aligned range end. (EXCLUSIVE, EPOCH MILLISECONDS)
+     * @param bucket Bucket size. (MILLISECONDS)
+     * @return Series points.
+     * @throws Exception If query fails.
+     */
+    @Nonnull
+    JsonArray series(@Nonnull String table, long player, @Nullable MetricType type, long from, long to, long bucket) throws Exception;
+
+
+    /**
+     * Transaction group consumer.
+     */
+    @FunctionalInterface
+    interface TransactionConsumer {
+
+        /**
+         * Accepts a transaction group.
+         *
+         * @param time    Group time. (EPOCH MILLISECONDS)
+         * @param product Product id.
+         * @param buyer   Roblox user id.
+         * @param count   Transaction count.
+         * @param sum     Robux sum.
+         */
+        void accept(long time, long product, long buyer, long count, long sum);
+    }
+}
@@ -0,0 +1,208 @@
+package com.barden.bravo.metrics.sink;
+
+import com.barden.bravo.instrumentation.Dependency;
+import com.barden.bravo.metrics.GlobalMetrics;
+import com.barden.bravo.metrics.MetricSchema;
+import com.barden.bravo.metrics.PlayerMetrics;
+import com.barden.bravo.metrics.TransactionMetrics;
+import com.barden.bravo.metrics.aggregate.MetricCell;
+import com.barden.bravo.metrics.histogram.MetricHistograms;
+import com.barden.bravo.metrics.query.MetricQuery;
+import com.barden.bravo.metrics.row.GlobalMetricRow;
+import com.barden.bravo.metrics.row.PlayerMetricRow;
+import com.barden.bravo.metrics.row.TransactionMetricRow;
+import com.barden.bravo.metrics.type.MetricType;
+import com.barden.library.BardenJavaLibrary;
+import com.barden.library.database.DatabaseProvider;
+import com.google.gson.JsonArray;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.sql.Timestamp;
+import java.util.Collection;
+
+/**
+ * Timescale metric sink class.
+ * <p>
+ * Writes metrics to timescaledb hypertables and reads series from their
+ * continuous aggregates. Duration histograms are only kept by this sink.
+ */
+public final class TimescaleMetricSink implements MetricSink {
+
+    /**
+     * Gets sink name.
+     *
+     * @return Sink name.
+     */
+    @Nonnull
+    @Override
+    public String getName() {
+        return "timescale";
+    }
+
+    /**
+     * Creates metric tables, aggregates and duration histograms.
+     */
+    @Override
+    public void initialize() {
+        try (var statement = DatabaseProvider.timescale().session()) {
+            //Creates metric type dictionary.
+            MetricSchema.createTypes(statement);
+        } catch (Exception exception) {
+            BardenJavaLibrary.getLogger().error("Couldn't create metric types table!", exception);
+        }
+
+        //Creates tables.
+        GlobalMetrics.initialize();
+        PlayerMetrics.initialize();
+        TransactionMetrics.createTables();
+
+        //Initializes duration histograms.
+        MetricHistograms.initialize();
+    }
+
+    /**
+     * Terminates sink.
+     */
+    @Override
+    public void terminate() {
+        //Connections are closed by barden java library.
+    }
+
+    /**
+     * Writes global metric rows to the timescaledb.
+     *
+     * @param rows Global metric rows.
+     * @return If rows are written or not.
+     */
+    @Override
+    public boolean writeGlobal(@Nonnull Collection<GlobalMetricRow> rows) {
+        return GlobalMetrics.write(rows);
+    }
+
+    /**
+     * Writes player metric rows to the timescaledb.
+     *
+     * @param rows Player metric rows.
+     * @return If rows are written or not.
+     */
+    @Override
+    public boolean writePlayers(@Nonnull Collection<PlayerMetricRow> rows) {
+        return PlayerMetrics.write(rows);
+    }
+
+    /**
+     * Upserts global metric cells to the rollup table.
+     *
+     * @param cells Global metric cells.
+     * @return If cells are written or not.
+     */
+    @Override
+    public boolean writeGlobalCells(@Nonnull Collection<MetricCell> cells) {
+        return GlobalMetrics.writeRollup(cells);
+    }
+
+    /**
+     * Upserts player metric cells to the rollup table.
+     *
+     * @param cells Player metric cells.
+     * @return If cells are written or not.
+     */
+    @Override
+    public boolean writePlayerCells(@Nonnull Collection<MetricCell> cells) {
+        return PlayerMetrics.writeRollup(cells);
+    }
+
+    /**
+     * Writes transaction metric rows to the timescaledb.
+     *
+     * @param rows Transaction metric rows.
+     * @return If rows are written or not.
+     */
+    @Override
+    public boolean writeTransactions(@Nonnull Collection<TransactionMetricRow> rows) {
+        return TransactionMetrics.write(rows);
+    }
+
+    /**
+     * Reads transaction metric rows since declared time with a single aggregate query.
+     *
+     * @param from     Range start. (INCLUSIVE, EPOCH MILLISECONDS)
+     * @param consumer Transaction group consumer.
+     * @throws Exception If query fails.
+     */
+    @Override
+    public void readTransactions(long from, @Nonnull TransactionConsumer consumer) throws Exception {
+        TransactionMetrics.read(from, consumer);
+    }
+
+    /**
+     * Gets source aggregate resolution of a bucket size.
+     * Hourly aggregates for buckets which are multiples of an hour, minute aggregates otherwise.
+     *
+     * @param bucket Bucket size. (MILLISECONDS)
+     * @return Source resolution. ("1h" OR "1m")
+     */
+    @Nonnull
+    @Override
+    public String getSource(long bucket) {
+        return bucket % MetricQuery.HOUR == 0 ? "1h" : "1m";
+    }
+
+    /**
+     * Gets a metric series from continuous aggregates.
+     * Raw aggregates and rollups are unioned, so a series covers both raw resolution
+     * types and rolled up types, including rows written before rollups existed.
+     *
+     * @param table  Table prefix. ("global" OR "player")
+     * @param player Roblox user id. (IGNORED FOR GLOBAL)
+     * @param type   Metric type. (NULL FOR ALL TYPES)
+     * @param from   Aligned range start. (INCLUSIVE, EPOCH MILLISECONDS)
+     * @param to     Aligned range end. (EXCLUSIVE, EPOCH MILLISECONDS)
+     * @param bucket Bucket size. (MILLISECONDS)
+     * @return Series points.
+     */
+    @Nonnull
+    @Override
+    public JsonArray series(@Nonnull String table, long player, @Nullable MetricType type, long from, long to, long bucket) throws Exception {
+        //Declares required fields.
+        String source = this.getSource(bucket);
+        boolean players = table.equals("player");
+        String filter = (players ? "player = ? AND " : "") + (type == null ? "" : "type = ? AND ") + "bucket >= ? AND bucket < ?";
+        String raw = table + "_metrics_" + source;
+        String rollup = source.equals("1h") ? table + "_metrics_rollup_1h" : "(SELECT time AS bucket, " + (players ? "player, " : "") + "type, count, sum, min, max FROM " + table + "_metrics_rollup) rollup";
+
+        String sql = "SELECT time_bucket(?::interval, bucket) AS time, type, sum(count) AS count, sum(sum) AS sum, min(min) AS min, max(max) AS max FROM ("
+                + "SELECT bucket, type, count, sum, min, max FROM " + raw + " WHERE " + filter
+                + " UNION ALL SELECT bucket, type, count, sum, min, max FROM " + rollup + " WHERE " + filter
+                + ") source GROUP BY 1, 2 ORDER BY 1, 2";
+
+        try (var timing = Dependency.TIMESCALE.time("metrics." + table + ".query"); var query = DatabaseProvider.timescale().prepare(sql)) {
+            int index = 1;
+            query.setString(index++, (bucket / 1000) + " seconds");
+            for (int i = 0; i < 2; i++) {
+                if (players)
+                    query.setLong(index++, player);
+                if (type != null)
+                    query.setShort(index++, type.getCode());
+                query.setTimestamp(index++, new Timestamp(from));
+                query.setTimestamp(index++, new Timestamp(to));
+            }
+
+            //Converts rows to points.
+            JsonArray points = new JsonArray();
+            try (var result = query.executeQuery()) {
+                while (result.next()) {
+                    points.add(MetricQuery.toPoint(
+                            result.getTimestamp("time").getTime(),
+                            MetricType.find(result.getShort("type")),
+                            result.getLong("count"),
+                            result.getDouble("sum"),
+                            result.getDouble("min"),
+                            result.getDouble("max")));
+                }
+            }
+            return points;
+        }
+    }
+}
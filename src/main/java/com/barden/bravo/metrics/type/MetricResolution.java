@@ -0,0 +1,15 @@
+package com.barden.bravo.metrics.type;
+
+/**
+ * Metric resolutions.
+ */
+public enum MetricResolution {
+    /**
+     * Every data point is persisted as its own row.
+     */
+    RAW,
+    /**
+     * Data points are rolled up to per minute sum/count/min/max cells.
+     */
+    MINUTE
+}
@@ -1,40 +1,128 @@
 package com.barden.bravo.metrics.type;
 
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
 /**
  * Statistics.
+ * Every type has a fixed SMALLINT code which is stored in timescale instead of the type name.
+ * Duration types are also recorded to histograms, so their percentiles can be queried.
  */
 public enum MetricType {
-    ROBLOX_SERVER_OPEN_DURATION,
+    ROBLOX_SERVER_OPEN_DURATION(1, MetricResolution.RAW, true),
+
+    FAILED_HEALTH_CHECK_REQUEST(2),
+    FAILED_STATISTICS_UPDATE_REQUEST(3),
+    FAILED_LEADERBOARD_REQUEST(4),
+    FAILED_PLAYER_UPDATES_REQUEST(5),
+    FAILED_PLAYER_UPDATE_REQUEST(6),
+    FAILED_PLAYER_JOIN_REQUEST(7),
+    FAILED_PLAYER_JOIN(8),
+
+    UNIQUE_PLAYER_JOINED(9),
+    PLAYER_JOINED(10),
+    PLAYER_LEFT(11),
+
+    PLAYTIME(12, MetricResolution.MINUTE, true),
+    GAME_PLAYTIME(13, MetricResolution.MINUTE, true),
+
+    GAME_START_TIME(14, MetricResolution.RAW, true),
+    GAME_COMPLETE_TIME(15, MetricResolution.RAW, true),
+
+    GAME_PLAYED(16),
+    ROUND_PLAYED(17),
+
+    ROBUX_SPENT(18),
+    DONATE(19),
+
+    GOLD_EARNED(20),
+
+    PREMIUM_CHEST_OPENED(21),
+    PREMIUM_EGG_OPENED(22),
+
+    BASIC_CHEST_OPENED(23),
+    BASIC_EGG_OPENED(24);
+
+    private static final Map<String, MetricType> names = new HashMap<>();
+    private static final Map<Short, MetricType> codes = new HashMap<>();
+
+    static {
+        for (MetricType type : values()) {
+            names.put(type.name(), type);
+            if (codes.put(type.code, type) != null)
+                throw new IllegalStateException("metric type code " + type.code + " is used more than once!");
+        }
+    }
 
-    FAILED_HEALTH_CHECK_REQUEST,
-    FAILED_STATISTICS_UPDATE_REQUEST,
-    FAILED_LEADERBOARD_REQUEST,
-    FAILED_PLAYER_UPDATES_REQUEST,
-    FAILED_PLAYER_UPDATE_REQUEST,
-    FAILED_PLAYER_JOIN_REQUEST,
-    FAILED_PLAYER_JOIN,
+    private final short code;
+    private final MetricResolution resolution;
+    private final boolean histogram;
 
-    UNIQUE_PLAYER_JOINED,
-    PLAYER_JOINED,
-    PLAYER_LEFT,
+    MetricType(int code) {
+        this(code, MetricResolution.MINUTE);
+    }
 
-    PLAYTIME,
-    GAME_PLAYTIME,
+    MetricType(int code, @Nonnull MetricResolution resolution) {
+        this(code, resolution, false);
+    }
 
-    GAME_START_TIME,
-    GAME_COMPLETE_TIME,
+    MetricType(int code, @Nonnull MetricResolution resolution, boolean histogram) {
+        this.code = (short) code;
+        this.resolution = Objects.requireNonNull(resolution, "resolution cannot be null!");
+        this.histogram = histogram;
+    }
 
-    GAME_PLAYED,
-    ROUND_PLAYED,
+    /**
+     * Gets database code.
+     * Codes are persisted, so an existing code must never be changed or reused.
+     *
+     * @return Metric type code.
+     */
+    public short getCode() {
+        return this.code;
+    }
 
-    ROBUX_SPENT,
-    DONATE,
+    /**
+     * Gets persistence resolution.
+     *
+     * @return Metric resolution.
+     */
+    @Nonnull
+    public MetricResolution getResolution() {
+        return this.resolution;
+    }
 
-    GOLD_EARNED,
+    /**
+     * Gets if values are recorded to histograms or not.
+     *
+     * @return If values are recorded to histograms or not. (DURATION TYPES)
+     */
+    public boolean hasHistogram() {
+        return this.histogram;
+    }
 
-    PREMIUM_CHEST_OPENED,
-    PREMIUM_EGG_OPENED,
+    /**
+     * Finds a metric type by its name.
+     *
+     * @param name Metric type name.
+     * @return Metric type. (NULL IF IT IS NOT A KNOWN TYPE)
+     */
+    @Nullable
+    public static MetricType find(@Nonnull String name) {
+        return names.get(Objects.requireNonNull(name, "name cannot be null!"));
+    }
 
-    BASIC_CHEST_OPENED,
-    BASIC_EGG_OPENED
+    /**
+     * Finds a metric type by its database code.
+     *
+     * @param code Metric type code.
+     * @return Metric type. (NULL IF IT IS NOT A KNOWN CODE)
+     */
+    @Nullable
+    public static MetricType find(short code) {
+        return codes.get(code);
+    }
 }
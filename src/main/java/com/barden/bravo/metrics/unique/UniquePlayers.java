@@ -0,0 +1,204 @@
+package com.barden.bravo.metrics.unique;
+
+import com.barden.bravo.instrumentation.Dependency;
+import com.barden.bravo.instrumentation.Instrumentation;
+import com.barden.library.BardenJavaLibrary;
+import com.barden.library.database.DatabaseProvider;
+import com.barden.library.scheduler.SchedulerProvider;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+
+import javax.annotation.Nonnull;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unique players class.
+ * <p>
+ * Keeps HyperLogLog sketches of unique roblox user ids per hour and per day in
+ * redis. (PFADD) Sketches are mergeable, so unique players of any range are
+ * counted with a single PFCOUNT over day keys in the middle of the range and
+ * hour keys at its edges. Counts are approximate. (~0.81% STANDARD ERROR)
+ */
+public final class UniquePlayers {
+
+    /*
+    VARIABLES
+     */
+
+    public static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    public static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    private static final long HOUR_EXPIRY = TimeUnit.DAYS.toSeconds(8);
+    private static final long DAY_EXPIRY = TimeUnit.DAYS.toSeconds(400);
+    private static final DateTimeFormatter HOUR_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH").withZone(ZoneOffset.UTC);
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd").withZone(ZoneOffset.UTC);
+
+    /**
+     * Pending user ids by hour start time. Flushed to redis in batches.
+     */
+    private static final Map<Long, Set<Long>> pending = new ConcurrentHashMap<>();
+
+
+    /*
+    INITIALIZE
+     */
+
+    /**
+     * Initializes unique players.
+     */
+    public static void initialize() {
+        //Flushes pending user ids.
+        SchedulerProvider.create()
+                .every(5, TimeUnit.SECONDS)
+                .schedule(task -> Instrumentation.job("metrics.unique.flush", UniquePlayers::flush));
+    }
+
+
+    /*
+    METHODS
+     */
+
+    /**
+     * Records a player as seen now.
+     *
+     * @param id Roblox user id.
+     */
+    public static void record(long id) {
+        long hour = Math.floorDiv(System.currentTimeMillis(), HOUR) * HOUR;
+        //Adds in compute, so an id can't be added to a set which is being flushed.
+        pending.compute(hour, (_hour, ids) -> {
+            if (ids == null)
+                ids = ConcurrentHashMap.newKeySet();
+            ids.add(id);
+            return ids;
+        });
+    }
+
+    /**
+     * Flushes pending user ids to hour and day sketches.
+     * If user ids couldn't be written, they are put back to be retried on next flush.
+     */
+    public static void flush() {
+        //Drains pending user ids.
+        Map<Long, Set<Long>> drained = new HashMap<>();
+        for (Long hour : List.copyOf(pending.keySet())) {
+            Set<Long> ids = pending.remove(hour);
+            if (ids != null && !ids.isEmpty())
+                drained.put(hour, ids);
+        }
+
+        //Writes user ids. If there is nothing to write or user ids are written, no need to continue.
+        if (drained.isEmpty() || write(drained))
+            return;
+
+        //Puts user ids back. (PFADD IS IDEMPOTENT, SO A PARTIALLY APPLIED PIPELINE CAN BE RETRIED)
+        drained.forEach((hour, ids) -> pending.compute(hour, (_hour, current) -> {
+            if (current == null)
+                return ids;
+            current.addAll(ids);
+            return current;
+        }));
+    }
+
+    /**
+     * Writes user ids to hour and day sketches.
+     *
+     * @param drained User ids by hour start time.
+     * @return If user ids are written or not.
+     */
+    private static boolean write(@Nonnull Map<Long, Set<Long>> drained) {
+        try (var timing = Dependency.REDIS.time("metrics.unique.add"); Jedis resource = DatabaseProvider.redis().getClient().getResource()) {
+            Pipeline pipeline = resource.pipelined();
+            for (Map.Entry<Long, Set<Long>> entry : drained.entrySet()) {
+                String[] members = entry.getValue().stream().map(String::valueOf).toArray(String[]::new);
+                String hour_key = toHourKey(entry.getKey());
+                String day_key = toDayKey(entry.getKey());
+                pipeline.pfadd(hour_key, members);
+                pipeline.expire(hour_key, HOUR_EXPIRY);
+                pipeline.pfadd(day_key, members);
+                pipeline.expire(day_key, DAY_EXPIRY);
+            }
+            pipeline.sync();
+            return true;
+        } catch (Exception exception) {
+            BardenJavaLibrary.getLogger().error("Couldn't flush unique players!", exception);
+            return false;
+        }
+    }
+
+    /**
+     * Counts unique players of a range.
+     * Range is aligned to hours. Hour sketches expire after 8 days, so edges
+     * of older ranges are only covered by whole days.
+     *
+     * @param from Range start. (INCLUSIVE, EPOCH MILLISECONDS)
+     * @param to   Range end. (EXCLUSIVE, EPOCH MILLISECONDS)
+     * @return Approximate unique player count.
+     */
+    public static long count(long from, long to) {
+        List<String> keys = toKeys(from, to);
+        if (keys.isEmpty())
+            return 0;
+
+        try (var timing = Dependency.REDIS.time("metrics.unique.count"); Jedis resource = DatabaseProvider.redis().getClient().getResource()) {
+            return resource.pfcount(keys.toArray(String[]::new));
+        }
+    }
+
+    /**
+     * Gets sketch keys which cover a range.
+     * Whole days use day sketches, rest of the range uses hour sketches.
+     *
+     * @param from Range start. (INCLUSIVE, EPOCH MILLISECONDS)
+     * @param to   Range end. (EXCLUSIVE, EPOCH MILLISECONDS)
+     * @return Sketch keys.
+     */
+    @Nonnull
+    public static List<String> toKeys(long from, long to) {
+        List<String> keys = new ArrayList<>();
+        long time = Math.floorDiv(from, HOUR) * HOUR;
+        long end = Math.floorDiv(to + HOUR - 1, HOUR) * HOUR;
+
+        while (time < end) {
+            if (time % DAY == 0 && time + DAY <= end) {
+                keys.add(toDayKey(time));
+                time += DAY;
+            } else {
+                keys.add(toHourKey(time));
+                time += HOUR;
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Gets hour sketch key.
+     *
+     * @param time Time. (EPOCH MILLISECONDS)
+     * @return Hour sketch key.
+     */
+    @Nonnull
+    private static String toHourKey(long time) {
+        return "unique:players:hour:" + HOUR_FORMAT.format(Instant.ofEpochMilli(time));
+    }
+
+    /**
+     * Gets day sketch key.
+     *
+     * @param time Time. (EPOCH MILLISECONDS)
+     * @return Day sketch key.
+     */
+    @Nonnull
+    private static String toDayKey(long time) {
+        return "unique:players:day:" + DAY_FORMAT.format(Instant.ofEpochMilli(time));
+    }
+}
@@ -4,7 +4,9 @@ import com.barden.bravo.database.DatabaseObject;
 import com.barden.bravo.player.currencies.PlayerCurrencies;
 import com.barden.bravo.player.database.PlayerBsonField;
 import com.barden.bravo.player.database.PlayerDatabase;
+import com.barden.bravo.player.directory.PlayerNameDirectory;
 import com.barden.bravo.player.inventory.PlayerInventory;
+import com.barden.bravo.player.inventory.product.PlayerProductInventory;
 import com.barden.bravo.player.settings.PlayerSettings;
 import com.barden.bravo.player.statistics.PlayerStatistics;
 import com.barden.bravo.player.stats.PlayerStats;
@@ -15,6 +17,7 @@ import org.bson.BsonDocument;
 import javax.annotation.Nonnull;
 import java.util.Objects;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Player class.
@@ -29,6 +32,7 @@ public final class Player extends MetadataCachedEntity implements DatabaseObject
     private final PlayerSettings settings;
     private final PlayerStatistics statistics;
     private final PlayerDatabase database;
+    private final ReentrantLock lock = new ReentrantLock();
     private boolean brand;
 
     /**
@@ -150,6 +154,17 @@ public final class Player extends MetadataCachedEntity implements DatabaseObject
         return this.database;
     }
 
+    /**
+     * Gets player lock.
+     * Game server updates and server side grants change the player under this lock.
+     *
+     * @return Player lock.
+     */
+    @Nonnull
+    public ReentrantLock getLock() {
+        return this.lock;
+    }
+
     /**
      * Gets if player is newly created or not.
      *
@@ -204,12 +219,25 @@ public final class Player extends MetadataCachedEntity implements DatabaseObject
         //Objects null check.
         Objects.requireNonNull(json_object, "player json object cannot be null!");
 
-        this.name = json_object.get("name").getAsString();
-        this.inventory.update(json_object.getAsJsonObject("inventory"));
-        this.currencies.update(json_object.getAsJsonObject("currencies"));
-        this.stats.update(json_object.getAsJsonObject("stats"));
-        this.settings.update(json_object.getAsJsonObject("settings"));
-        this.statistics.update(json_object.getAsJsonObject("statistics"));
+        //Validates products first, so a rejected update doesn't change the player.
+        PlayerProductInventory.parse(json_object.getAsJsonObject("inventory").getAsJsonObject("products"));
+
+        this.lock.lock();
+        try {
+            //Handles name change. Leaderboards resolve names from the directory.
+            String _name = json_object.get("name").getAsString();
+            if (!_name.equals(this.name))
+                PlayerNameDirectory.put(this.id, _name);
+            this.name = _name;
+
+            this.inventory.update(json_object.getAsJsonObject("inventory"));
+            this.currencies.update(json_object.getAsJsonObject("currencies"));
+            this.stats.update(json_object.getAsJsonObject("stats"));
+            this.settings.update(json_object.getAsJsonObject("settings"));
+            this.statistics.update(json_object.getAsJsonObject("statistics"));
+        } finally {
+            this.lock.unlock();
+        }
 
         //Resets cache time.
         this.resetCacheTime();
@@ -1,18 +1,21 @@
 package com.barden.bravo.player;
 
-import com.barden.bravo.metrics.PlayerMetrics;
+import com.barden.bravo.instrumentation.Dependency;
+import com.barden.bravo.instrumentation.Instrumentation;
+import com.barden.bravo.player.directory.PlayerNameDirectory;
 import com.barden.library.BardenJavaLibrary;
 import com.barden.library.scheduler.SchedulerProvider;
 import com.google.common.collect.BiMap;
 import com.google.common.collect.HashBiMap;
 import com.mongodb.client.MongoCollection;
-import com.mongodb.client.MongoCursor;
 import com.mongodb.client.model.IndexOptions;
 import com.mongodb.client.model.Indexes;
+import io.micrometer.core.instrument.Counter;
 import org.bson.BsonDocument;
 import org.bson.Document;
 
 import javax.annotation.Nonnull;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
@@ -44,14 +47,17 @@ public final class PlayerProvider {
     public static void initialize() {
         //Initializes mongo provider.
         PlayerProvider.getMongoProvider().addIndex(Indexes.ascending("id"), new IndexOptions().unique(true).background(true));
-        //Initializes timescale provider.
-        PlayerMetrics.initialize();
+        //Initializes player name directory.
+        PlayerNameDirectory.initialize();
 
         //Pushes players updated data to mongo.
         SchedulerProvider.create()
                 .after(5, TimeUnit.MINUTES)
                 .every(1, TimeUnit.MINUTES)
-                .schedule(task -> PlayerProvider.getMongoProvider().save(content.values()));
+                .schedule(task -> Instrumentation.job("player.save", () -> PlayerProvider.getMongoProvider().save(content.values())));
+
+        //Instrumentation.
+        Instrumentation.gauge("bravo.player.cache.size", content, Map::size);
 
         //Logging.
         BardenJavaLibrary.getLogger().info("Player provider is initialized successfully!");
@@ -63,6 +69,8 @@ public final class PlayerProvider {
      */
 
     private static final BiMap<Long, Player> content = HashBiMap.create();
+    private static final Counter CACHE_HITS = Instrumentation.counter("bravo.player.cache", "result", "hit");
+    private static final Counter CACHE_MISSES = Instrumentation.counter("bravo.player.cache", "result", "miss");
 
     /**
      * Gets players.
@@ -126,21 +134,27 @@ public final class PlayerProvider {
         //Gets player from the cache.
         Player player = PlayerProvider.find(id).orElse(null);
         //If it is already exist in cache, no need to continue.
-        if (player != null)
+        if (player != null) {
+            CACHE_HITS.increment();
             return player;
+        }
+        CACHE_MISSES.increment();
 
         //Gets mongo collection.
         MongoCollection<BsonDocument> collection = PlayerProvider.getMongoProvider().getCollection();
         //Declares required fields.
         Document id_bson = new Document("id", id);
-        MongoCursor<BsonDocument> player_document_cursor = collection.find(id_bson).limit(1).cursor(); // NOT ASYNC! -> IT WILL FREEZE MAIN THREAD.
+        BsonDocument player_document;
+        try (var timing = Dependency.MONGO.time("players.find")) {
+            player_document = collection.find(id_bson).limit(1).first(); // NOT ASYNC! -> IT WILL FREEZE MAIN THREAD.
+        }
         //If player is already exist in database, no need to continue.
-        if (player_document_cursor.hasNext()) {
+        if (player_document != null) {
             //Creates player object from document. (DOCUMENT -> MONGO BSON)
-            player = new Player(id, player_document_cursor.next());
-            player.getDatabase().saveRedis();
+            player = new Player(id, player_document);
             //Adds created player object to the cache.
             content.put(player.getId(), player);
+            PlayerNameDirectory.put(player.getId(), player.getName());
             //Returns created player object.
             return player;
         }
@@ -153,10 +167,10 @@ public final class PlayerProvider {
         player = new Player(id, name);
         //Saves to the database.
         player.getDatabase().save();
-        player.getDatabase().saveRedis();
 
         //Adds created player object to the cache.
         content.put(player.getId(), player);
+        PlayerNameDirectory.put(player.getId(), player.getName());
 
         //Returns created player object.
         return player;
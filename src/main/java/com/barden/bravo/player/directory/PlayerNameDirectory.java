@@ -0,0 +1,230 @@
+package com.barden.bravo.player.directory;
+
+import com.barden.bravo.instrumentation.Dependency;
+import com.barden.bravo.leaderboard.shard.LeaderboardShards;
+import com.barden.library.BardenJavaLibrary;
+import com.barden.library.database.DatabaseProvider;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.params.ScanParams;
+import redis.clients.jedis.resps.ScanResult;
+
+import javax.annotation.Nonnull;
+import java.util.*;
+
+/**
+ * Player name directory class.
+ * <p>
+ * Keeps roblox user id to name pairs in memory, so leaderboard
+ * refreshes only query redis for ids which are not known yet.
+ * Oldest pairs are evicted when directory exceeds its size.
+ */
+public final class PlayerNameDirectory {
+
+    /*
+    VARIABLES
+     */
+
+    public static final int MAXIMUM_SIZE = 100_000;
+
+    private static final Cache<Long, String> content = CacheBuilder.newBuilder()
+            .maximumSize(MAXIMUM_SIZE)
+            .build();
+
+
+    /*
+    INITIALIZE
+     */
+
+    /**
+     * Initializes player name directory.
+     * Seeds directory from "player:*" redis hashes until directory is full.
+     */
+    public static void initialize() {
+        //Handles redis exception.
+        try (var timing = Dependency.REDIS.time("player.directory.seed"); Jedis resource = DatabaseProvider.redis().getClient().getResource()) {
+            //Declares required fields.
+            ScanParams params = new ScanParams().match("player:*").count(1000);
+            String cursor = ScanParams.SCAN_POINTER_START;
+
+            do {
+                //Scans player hashes.
+                ScanResult<String> result = resource.scan(cursor, params);
+                cursor = result.getCursor();
+
+                //Fetches player names.
+                Pipeline pipeline = resource.pipelined();
+                HashMap<String, Response<String>> names = new HashMap<>();
+                result.getResult().forEach(key -> names.put(key, pipeline.hget(key, "name")));
+                pipeline.sync();
+
+                //Adds fetched names to the directory. Keys which are not name hashes are skipped one by one.
+                names.forEach((key, name) -> {
+                    try {
+                        if (name.get() != null)
+                            content.put(toId(key), name.get());
+                    } catch (Exception exception) {
+                        BardenJavaLibrary.getLogger().warn("Skipped redis key(" + key + ") while seeding player name directory!");
+                    }
+                });
+            } while (!cursor.equals(ScanParams.SCAN_POINTER_START) && content.size() < MAXIMUM_SIZE);
+        } catch (Exception exception) {
+            BardenJavaLibrary.getLogger().error("Couldn't seed player name directory!", exception);
+        }
+
+        //Logging.
+        BardenJavaLibrary.getLogger().info("Player name directory is initialized with " + content.size() + " names!");
+    }
+
+    /**
+     * Moves name hashes to their keys in the current leaderboard shard layout. (SYNC)
+     * Keys which are not name hashes are skipped.
+     *
+     * @param resource Jedis resource.
+     */
+    public static void migrateShards(@Nonnull Jedis resource) {
+        //Objects null check.
+        Objects.requireNonNull(resource, "resource cannot be null!");
+
+        //Declares required fields.
+        ScanParams params = new ScanParams().match("player:*").count(1000);
+        String cursor = ScanParams.SCAN_POINTER_START;
+
+        do {
+            //Scans player hashes.
+            ScanResult<String> result = resource.scan(cursor, params);
+            cursor = result.getCursor();
+
+            //Fetches hashes which are not in their current keys.
+            Pipeline pipeline = resource.pipelined();
+            HashMap<String, Response<Map<String, String>>> hashes = new HashMap<>();
+            for (String key : result.getResult()) {
+                try {
+                    if (!key.equals(toKey(toId(key))))
+                        hashes.put(key, pipeline.hgetAll(key));
+                } catch (NumberFormatException exception) {
+                    BardenJavaLibrary.getLogger().warn("Skipped redis key(" + key + ") while moving player name hashes!");
+                }
+            }
+            pipeline.sync();
+
+            //Writes hashes to their current keys, then removes old keys.
+            Pipeline moves = resource.pipelined();
+            hashes.forEach((key, hash) -> {
+                try {
+                    if (!hash.get().isEmpty())
+                        moves.hset(toKey(toId(key)), hash.get());
+                    moves.del(key);
+                } catch (Exception exception) {
+                    BardenJavaLibrary.getLogger().warn("Skipped redis key(" + key + ") while moving player name hashes!");
+                }
+            });
+            moves.sync();
+        } while (!cursor.equals(ScanParams.SCAN_POINTER_START));
+    }
+
+
+    /*
+    METHODS
+     */
+
+    /**
+     * Gets name hash key of declared roblox user id.
+     * When leaderboards are sharded, name hash is in the same slot with the leaderboard shard of player.
+     *
+     * @param id Roblox user id.
+     * @return Name hash key.
+     */
+    @Nonnull
+    public static String toKey(long id) {
+        return LeaderboardShards.toKey("player:" + id, LeaderboardShards.getShard(id));
+    }
+
+    /**
+     * Gets roblox user id of declared name hash key.
+     *
+     * @param key Name hash key. ("player:id" OR "player:id:{shard}")
+     * @return Roblox user id.
+     */
+    private static long toId(@Nonnull String key) {
+        int end = key.indexOf(':', "player:".length());
+        return Long.parseLong(key.substring("player:".length(), end == -1 ? key.length() : end));
+    }
+
+    /**
+     * Finds player name by its roblox user id. (SAFE)
+     *
+     * @param id Roblox user id.
+     * @return Optional player name.
+     */
+    @Nonnull
+    public static Optional<String> find(long id) {
+        return Optional.ofNullable(content.getIfPresent(id));
+    }
+
+    /**
+     * Puts player name to the directory.
+     *
+     * @param id   Roblox user id.
+     * @param name Roblox user name.
+     */
+    public static void put(long id, @Nonnull String name) {
+        //Empty names are placeholders, not real names.
+        if (Objects.requireNonNull(name, "name cannot be null!").isEmpty())
+            return;
+        content.put(id, name);
+    }
+
+    /**
+     * Resolves player names. (SYNC)
+     * Known names are served from the directory, unknown names are
+     * fetched from redis with a single pipeline then added to the directory.
+     *
+     * @param resource Jedis resource.
+     * @param ids      Roblox user ids.
+     * @return Player names. (MISSING ONES ARE NOT INCLUDED)
+     */
+    @Nonnull
+    public static Map<Long, String> resolve(@Nonnull Jedis resource, @Nonnull Collection<Long> ids) {
+        //Objects null check.
+        Objects.requireNonNull(resource, "resource cannot be null!");
+        Objects.requireNonNull(ids, "ids cannot be null!");
+
+        //Declares required fields.
+        HashMap<Long, String> names = new HashMap<>();
+        List<Long> unknown = new ArrayList<>();
+
+        //Finds known names.
+        for (long id : ids) {
+            String name = content.getIfPresent(id);
+            if (name != null)
+                names.put(id, name);
+            else
+                unknown.add(id);
+        }
+
+        //If all names are known, no need to continue.
+        if (unknown.isEmpty())
+            return names;
+
+        //Fetches unknown names from redis.
+        Pipeline pipeline = resource.pipelined();
+        HashMap<Long, Response<String>> responses = new HashMap<>();
+        unknown.forEach(id -> responses.put(id, pipeline.hget(toKey(id), "name")));
+        pipeline.sync();
+
+        //Adds fetched names to the directory.
+        responses.forEach((id, response) -> {
+            String name = response.get();
+            if (name == null)
+                return;
+            names.put(id, name);
+            content.put(id, name);
+        });
+
+        return names;
+    }
+}
@@ -1,6 +1,6 @@
 package com.barden.bravo.player.http;
 
-import com.barden.library.scheduler.SchedulerProvider;
+import com.barden.bravo.execution.Execution;
 import com.google.gson.JsonObject;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -31,7 +31,7 @@ public class PlayerHTTP {
         //Creates deferred result.
         DeferredResult<ResponseEntity<JsonObject>> result = new DeferredResult<>();
         //Handles task.
-        SchedulerProvider.schedule(task -> result.setResult(new ResponseEntity<>(PlayerHTTPFunctionality.getById(id), HttpStatus.OK)));
+        Execution.run(() -> result.setResult(new ResponseEntity<>(PlayerHTTPFunctionality.getById(id), HttpStatus.OK)));
         //Returns response entity.
         return result;
     }
@@ -47,7 +47,7 @@ public class PlayerHTTP {
         //Creates deferred result.
         DeferredResult<ResponseEntity<JsonObject>> result = new DeferredResult<>();
         //Handles task.
-        SchedulerProvider.schedule(task -> result.setResult(new ResponseEntity<>(PlayerHTTPFunctionality.updateById(json_object), HttpStatus.OK)));
+        Execution.run(() -> result.setResult(new ResponseEntity<>(PlayerHTTPFunctionality.updateById(json_object), HttpStatus.OK)));
         //Returns response entity.
         return result;
     }
@@ -63,7 +63,7 @@ public class PlayerHTTP {
         //Creates deferred result.
         DeferredResult<ResponseEntity<JsonObject>> result = new DeferredResult<>();
         //Handles task.
-        SchedulerProvider.schedule(task -> result.setResult(new ResponseEntity<>(PlayerHTTPFunctionality.update(json_object), HttpStatus.OK)));
+        Execution.run(() -> result.setResult(new ResponseEntity<>(PlayerHTTPFunctionality.update(json_object), HttpStatus.OK)));
         //Returns response entity.
         return result;
     }
@@ -82,14 +82,16 @@ public class PlayerHTTP {
      * @param id     Roblox user id.
      * @param name   Roblox name.
      * @param insert Should insert new player to the database if it is not exist.
+     * @param rank   Rank mode. (EXACT OR PERCENTILE)
      * @return Response entity. (JSON OBJECT)
      */
     @GetMapping(value = "/handle", produces = MediaType.APPLICATION_JSON_VALUE)
-    public DeferredResult<ResponseEntity<JsonObject>> handle(@Nonnull @RequestParam String id, @Nonnull @RequestParam String name, @RequestParam boolean insert) {
+    public DeferredResult<ResponseEntity<JsonObject>> handle(@Nonnull @RequestParam String id, @Nonnull @RequestParam String name, @RequestParam boolean insert,
+                                                             @Nonnull @RequestParam(required = false, defaultValue = "EXACT") String rank) {
         //Creates deferred result.
         DeferredResult<ResponseEntity<JsonObject>> result = new DeferredResult<>();
         //Handles task.
-        SchedulerProvider.schedule(task -> result.setResult(new ResponseEntity<>(PlayerHTTPFunctionality.handle(id, name, insert), HttpStatus.OK)));
+        Execution.run(() -> result.setResult(new ResponseEntity<>(PlayerHTTPFunctionality.handle(id, name, insert, rank), HttpStatus.OK)));
         //Returns response entity.
         return result;
     }
@@ -1,7 +1,10 @@
 package com.barden.bravo.player.http;
 
 import com.barden.bravo.http.HTTPResponse;
+import com.barden.bravo.leaderboard.Leaderboard;
 import com.barden.bravo.leaderboard.LeaderboardProvider;
+import com.barden.bravo.leaderboard.rank.LeaderboardRankMode;
+import com.barden.bravo.metrics.unique.UniquePlayers;
 import com.barden.bravo.player.Player;
 import com.barden.bravo.player.PlayerProvider;
 import com.barden.bravo.player.statistics.type.PlayerStatisticType;
@@ -24,7 +27,8 @@ public final class PlayerHTTPFunctionality {
         PLAYER_NOT_FOUND,
         PLAYER_NOT_FOUND_IN_CACHE,
         INVALID_USER_ID,
-        INVALID_JSON_OBJECT
+        INVALID_JSON_OBJECT,
+        INVALID_RANK_MODE
     }
 
     /**
@@ -178,12 +182,22 @@ public final class PlayerHTTPFunctionality {
      * @param id     Roblox user id.
      * @param name   Roblox name.
      * @param insert Should insert new player to the database if it is not exist.
+     * @param rank   Rank mode. (EXACT OR PERCENTILE)
      * @return Response json object.
      */
     @Nonnull
-    public static JsonObject handle(@Nonnull String id, @Nonnull String name, boolean insert) {
+    public static JsonObject handle(@Nonnull String id, @Nonnull String name, boolean insert, @Nonnull String rank) {
         //Objects null check.
         Objects.requireNonNull(id, "roblox user id cannot be null!");
+        Objects.requireNonNull(rank, "rank mode cannot be null!");
+
+        //Declares rank mode.
+        LeaderboardRankMode rank_mode;
+        try {
+            rank_mode = LeaderboardRankMode.valueOf(rank.toUpperCase());
+        } catch (Exception exception) {
+            return HTTPResponse.of(false, Result.INVALID_RANK_MODE);
+        }
 
         //Declares base fields.
         boolean success = true;
@@ -211,6 +225,7 @@ public final class PlayerHTTPFunctionality {
 
                 //Converts player as a json object.
                 Player player = PlayerProvider.handle(user_id, name, insert);
+                UniquePlayers.record(user_id);
                 JsonObject player_json = player.toJsonObject();
 
 
@@ -223,7 +238,15 @@ public final class PlayerHTTPFunctionality {
                     player.setNewState(false);
                 }
 
-                player_json.addProperty("rank", LeaderboardProvider.get(PlayerStatisticType.WIN).getPlayerRank(user_id));
+                //Handles player rank. Percentile mode is answered locally without redis.
+                Leaderboard leaderboard = LeaderboardProvider.get(PlayerStatisticType.WIN);
+                if (rank_mode == LeaderboardRankMode.PERCENTILE) {
+                    double score = player.getStatistics().get(PlayerStatisticType.WIN);
+                    player_json.addProperty("rank", leaderboard.getEstimatedPlayerRank(user_id, score));
+                    player_json.addProperty("percentile", leaderboard.getHistogram().getPercentile(score));
+                } else {
+                    player_json.addProperty("rank", leaderboard.getPlayerRank(user_id));
+                }
 
                 /*
                 EXTRAS (ENDS)
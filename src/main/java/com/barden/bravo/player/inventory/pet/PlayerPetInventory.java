@@ -4,6 +4,7 @@ import com.barden.bravo.cosmetics.pet.PetProvider;
 import com.barden.bravo.player.Player;
 import com.barden.bravo.player.cosmetics.pet.PlayerPet;
 import com.barden.bravo.player.inventory.PlayerInventory;
+import com.barden.bravo.uid.UidGenerator;
 import com.barden.library.metadata.MetadataEntity;
 import com.google.common.collect.BiMap;
 import com.google.common.collect.HashBiMap;
@@ -127,7 +128,7 @@ public final class PlayerPetInventory extends MetadataEntity {
         if (this.content.size() >= PlayerInventory.INVENTORY_SIZE)
             throw new IllegalStateException("player(" + this.player.getId() + ") inventory size must be equals or lower than " + PlayerInventory.INVENTORY_SIZE);
 
-        PlayerPet pet = new PlayerPet(this.player, UUID.randomUUID(), id, false);
+        PlayerPet pet = new PlayerPet(this.player, UidGenerator.next(), id, false);
         this.content.put(pet.getUID(), pet);
 
         return pet;
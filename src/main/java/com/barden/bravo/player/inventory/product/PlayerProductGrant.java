@@ -0,0 +1,227 @@
+package com.barden.bravo.player.inventory.product;
+
+import com.barden.bravo.instrumentation.Dependency;
+import com.barden.bravo.player.Player;
+import com.barden.bravo.player.PlayerProvider;
+import com.barden.bravo.product.Product;
+import com.barden.bravo.product.ProductProvider;
+import com.barden.library.BardenJavaLibrary;
+import com.google.gson.JsonObject;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.PushOptions;
+import com.mongodb.client.model.Updates;
+import org.bson.conversions.Bson;
+
+import javax.annotation.Nonnull;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Player product grant class.
+ * <p>
+ * Grants purchased products on the server side. Cached player is the copy which is
+ * saved, so a grant is applied to it: under the player lock, cap is checked against
+ * the cached amount, the new amount is written to "inventory.products.(ID)" of the
+ * player document, and only then the cached player is changed. Concurrent grants
+ * and game server updates of a player are serialized by the lock, and granted
+ * amounts are protected from stale game server inventories.
+ * <p>
+ * Grants are idempotent: grant key (RECEIPT OR TRANSACTION UID) is pushed to "grants"
+ * of the player document in the same update, and the update doesn't match if the key
+ * is already there. So a retried purchase can be granted again safely; it is either
+ * granted once or reported as granted.
+ */
+public final class PlayerProductGrant {
+
+    /**
+     * Results.
+     */
+    public enum Result {
+        GRANTED,
+        NOT_ITEM,
+        UNKNOWN_PRODUCT,
+        CAPPED,
+        NO_PLAYER,
+        FAILED;
+
+        /**
+         * Gets if grant should be retried or not.
+         * Purchase must not be acknowledged, so roblox retries it.
+         *
+         * @return If grant should be retried or not.
+         */
+        public boolean isRetryable() {
+            return this == NO_PLAYER || this == FAILED;
+        }
+    }
+
+    /**
+     * Maximum grant key count of a player document. Oldest keys are dropped; a purchase
+     * is retried only until it is acknowledged, so old keys are never needed.
+     */
+    public static final int GRANT_HISTORY = 500;
+
+    private final long product;
+    private final Result result;
+    private final int amount;
+
+    /**
+     * Creates a player product grant.
+     *
+     * @param product Product id.
+     * @param result  Grant result.
+     * @param amount  Player product amount after grant. (0 IF IT IS NOT GRANTED)
+     */
+    private PlayerProductGrant(long product, @Nonnull Result result, int amount) {
+        this.product = product;
+        this.result = Objects.requireNonNull(result, "result cannot be null!");
+        this.amount = amount;
+    }
+
+    /**
+     * Gets product id.
+     *
+     * @return Product id.
+     */
+    public long getProduct() {
+        return this.product;
+    }
+
+    /**
+     * Gets grant result.
+     *
+     * @return Grant result.
+     */
+    @Nonnull
+    public Result getResult() {
+        return this.result;
+    }
+
+    /**
+     * Gets player product amount after grant.
+     *
+     * @return Player product amount. (0 IF IT IS NOT GRANTED)
+     */
+    public int getAmount() {
+        return this.amount;
+    }
+
+    /**
+     * Gets if grant should be retried or not.
+     *
+     * @return If grant should be retried or not.
+     */
+    public boolean isRetryable() {
+        return this.result.isRetryable();
+    }
+
+    /**
+     * Converts player product grant to a json object.
+     *
+     * @return Player product grant json object.
+     */
+    @Nonnull
+    public JsonObject toJsonObject() {
+        JsonObject json = new JsonObject();
+        json.addProperty("product", this.product);
+        json.addProperty("result", this.result.name());
+        if (this.result == Result.GRANTED)
+            json.addProperty("amount", this.amount);
+        return json;
+    }
+
+
+    /*
+    STATICS
+     */
+
+    /**
+     * Grants a product to a player.
+     * Products which are not items are not added to inventories. Player is loaded to
+     * the cache if it is not there.
+     *
+     * @param player  Roblox user id.
+     * @param key     Grant key. (RECEIPT OR TRANSACTION UID)
+     * @param product Product id.
+     * @param amount  Amount to grant.
+     * @return Player product grant.
+     */
+    @Nonnull
+    public static PlayerProductGrant grant(long player, @Nonnull String key, long product, int amount) {
+        //Safety check.
+        Objects.requireNonNull(key, "key cannot be null!");
+        if (amount <= 0)
+            throw new IllegalArgumentException("player(" + player + ") product(" + product + ") grant amount must be higher than 0!");
+
+        //Declares product.
+        Product _product = ProductProvider.find(product).orElse(null);
+        if (_product == null)
+            return new PlayerProductGrant(product, Result.UNKNOWN_PRODUCT, 0);
+        else if (!_product.isItem())
+            return new PlayerProductGrant(product, Result.NOT_ITEM, 0);
+        else if (amount > _product.getCap())
+            return new PlayerProductGrant(product, Result.CAPPED, 0);
+
+        //Declares cached player.
+        Player _player;
+        try {
+            _player = PlayerProvider.handle(player, "", false);
+        } catch (IllegalStateException exception) {
+            return new PlayerProductGrant(product, Result.NO_PLAYER, 0);
+        } catch (Exception exception) {
+            BardenJavaLibrary.getLogger().error("Couldn't load player(" + player + ") to grant product(" + product + ")!", exception);
+            return new PlayerProductGrant(product, Result.FAILED, 0);
+        }
+
+        _player.getLock().lock();
+        try (var timing = Dependency.MONGO.time("players.grant_product")) {
+            PlayerProductInventory inventory = _player.getInventory().getProduct();
+            int current = inventory.find(product).map(PlayerProduct::getAmount).orElse(0);
+
+            //If cap is reached, key might still be granted before.
+            if (current + amount > _product.getCap())
+                return isGranted(player, key) ? new PlayerProductGrant(product, Result.GRANTED, current) : new PlayerProductGrant(product, Result.CAPPED, 0);
+
+            //Writes new amount only if key is not granted.
+            int _amount = current + amount;
+            Bson filter = Filters.and(Filters.eq("id", player), Filters.ne("grants", key));
+            Bson update = Updates.combine(
+                    Updates.set("inventory.products." + product, new PlayerProduct(_player, product, _amount).toBsonDocument()),
+                    Updates.pushEach("grants", List.of(key), new PushOptions().slice(-GRANT_HISTORY)));
+            if (PlayerProvider.getMongoProvider().getCollection().updateOne(filter, update).getMatchedCount() == 0)
+                return isGranted(player, key) ? new PlayerProductGrant(product, Result.GRANTED, current) : new PlayerProductGrant(product, Result.NO_PLAYER, 0);
+
+            //Database has the grant, so cached player can have it too. Cache time is reset, so it is saved before it is evicted.
+            inventory.grant(product, _amount);
+            _player.resetCacheTime();
+            return new PlayerProductGrant(product, Result.GRANTED, _amount);
+        } catch (Exception exception) {
+            BardenJavaLibrary.getLogger().error("Couldn't grant player(" + player + ") product(" + product + ")!", exception);
+            return new PlayerProductGrant(product, Result.FAILED, 0);
+        } finally {
+            _player.getLock().unlock();
+        }
+    }
+
+    /**
+     * Gets if a grant key is granted to a player before or not.
+     *
+     * @param player Roblox user id.
+     * @param key    Grant key.
+     * @return If grant key is granted before or not.
+     */
+    private static boolean isGranted(long player, @Nonnull String key) {
+        return PlayerProvider.getMongoProvider().getCollection().countDocuments(Filters.and(Filters.eq("id", player), Filters.eq("grants", key))) > 0;
+    }
+
+    /**
+     * Creates a failed player product grant.
+     *
+     * @param product Product id.
+     * @return Player product grant.
+     */
+    @Nonnull
+    public static PlayerProductGrant failed(long product) {
+        return new PlayerProductGrant(product, Result.FAILED, 0);
+    }
+}
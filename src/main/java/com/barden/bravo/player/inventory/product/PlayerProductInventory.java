@@ -12,17 +12,23 @@ import org.bson.BsonDocument;
 
 import javax.annotation.Nonnull;
 import java.util.HashMap;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 
 /**
  * Player product inventory class.
+ * <p>
+ * Products granted by the server are protected from stale game server updates: until
+ * the game server sends at least the granted amount of a product, lower amounts (OR A
+ * MISSING PRODUCT) are ignored for it.
  */
 public final class PlayerProductInventory extends MetadataEntity {
 
     private final Player player;
     private final BiMap<Long, PlayerProduct> content = HashBiMap.create();
+    private final HashMap<Long, Integer> granted = new HashMap<>();
 
     /**
      * Creates a player product inventory.
@@ -124,6 +130,29 @@ public final class PlayerProductInventory extends MetadataEntity {
         return product;
     }
 
+    /**
+     * Sets player product amount, creates player product if it does not exist.
+     *
+     * @param id     Product id.
+     * @param amount Product amount.
+     * @return Player product.
+     */
+    @Nonnull
+    public PlayerProduct set(long id, int amount) {
+        PlayerProduct product = this.find(id).orElse(null);
+        if (product != null) {
+            product.setAmount(amount);
+        } else {
+            Product _product = ProductProvider.find(id).orElseThrow(() -> new NullPointerException("product(" + id + ") does not exist!"));
+            if (amount > _product.getCap())
+                throw new IllegalStateException("Player product amount must be lower than or equals to " + _product.getCap());
+            product = new PlayerProduct(this.player, id, amount);
+            this.content.put(product.getId(), product);
+        }
+
+        return product;
+    }
+
     /**
      * Removes player product.
      *
@@ -133,6 +162,18 @@ public final class PlayerProductInventory extends MetadataEntity {
         this.content.remove(id);
     }
 
+    /**
+     * Applies a server side grant. Amount is protected until the game server sends it.
+     * (CALLER MUST HOLD PLAYER LOCK)
+     *
+     * @param id     Product id.
+     * @param amount Product amount after grant.
+     */
+    public void grant(long id, int amount) {
+        this.set(id, amount);
+        this.granted.put(id, amount);
+    }
+
 
     /*
     CONVERTERS
@@ -146,7 +187,12 @@ public final class PlayerProductInventory extends MetadataEntity {
     @Nonnull
     public JsonObject toJsonObject() {
         JsonObject object = new JsonObject();
-        this.content.forEach((key, value) -> object.add(key.toString(), value.toJsonObject()));
+        this.player.getLock().lock();
+        try {
+            this.content.forEach((key, value) -> object.add(key.toString(), value.toJsonObject()));
+        } finally {
+            this.player.getLock().unlock();
+        }
         return object;
     }
 
@@ -158,7 +204,12 @@ public final class PlayerProductInventory extends MetadataEntity {
     @Nonnull
     public BsonDocument toBsonDocument() {
         BsonDocument document = new BsonDocument();
-        this.content.forEach((key, value) -> document.put(key.toString(), value.toBsonDocument()));
+        this.player.getLock().lock();
+        try {
+            this.content.forEach((key, value) -> document.put(key.toString(), value.toBsonDocument()));
+        } finally {
+            this.player.getLock().unlock();
+        }
         return document;
     }
 
@@ -168,25 +219,61 @@ public final class PlayerProductInventory extends MetadataEntity {
      */
 
     /**
-     * Updates player product inventory.
+     * Parses and validates a player product inventory json object.
+     * Nothing is changed, so an invalid inventory is rejected as a whole.
      *
-     * @param json Player product json object.
+     * @param json Player product inventory json object.
+     * @return Product amounts by product id.
+     * @throws IllegalArgumentException If a product doesn't exist or its amount is not between 1 and product cap.
      */
-    public void update(@Nonnull JsonObject json) {
+    @Nonnull
+    public static Map<Long, Integer> parse(@Nonnull JsonObject json) {
         //Objects null check.
         Objects.requireNonNull(json, "player product inventory json object cannot be null!");
 
+        HashMap<Long, Integer> amounts = new HashMap<>();
+        json.entrySet().forEach(entry -> {
+            //Declares required fields.
+            long _id = Long.parseLong(entry.getKey());
+            int _amount = entry.getValue().getAsJsonObject().get("amount").getAsInt();
+            Product _product = ProductProvider.find(_id).orElseThrow(() -> new IllegalArgumentException("product(" + _id + ") does not exist!"));
+
+            //Amount must be between 1 and product cap.
+            if (_amount <= 0 || _amount > _product.getCap())
+                throw new IllegalArgumentException("product(" + _id + ") amount(" + _amount + ") must be between 1 and " + _product.getCap() + "!");
+            amounts.put(_id, _amount);
+        });
+        return amounts;
+    }
+
+    /**
+     * Updates player product inventory.
+     * Json object is validated as a whole before anything is changed.
+     * (CALLER MUST HOLD PLAYER LOCK)
+     *
+     * @param json Player product json object.
+     * @throws IllegalArgumentException If json object is not valid.
+     */
+    public void update(@Nonnull JsonObject json) {
         //Declares required fields.
-        HashMap<Long, JsonObject> _content = new HashMap<>();
-        json.entrySet().forEach(entry -> _content.put(Long.parseLong(entry.getKey()), entry.getValue().getAsJsonObject()));
+        Map<Long, Integer> amounts = parse(json);
 
         //Removing and updating existing ones.
         this.getContent().forEach(_item -> {
             var _id = _item.getId();
+            int _amount = amounts.getOrDefault(_id, 0);
+
+            //If game server hasn't seen a grant yet, lower amounts are stale.
+            Integer _granted = this.granted.get(_id);
+            if (_granted != null) {
+                if (_amount < _granted)
+                    return;
+                this.granted.remove(_id);
+            }
 
             //If item is existed, updates it.
-            if (_content.containsKey(_id)) {
-                _item.update(_content.get(_id));
+            if (_amount > 0) {
+                _item.setAmount(_amount);
                 return;
             }
 
@@ -195,18 +282,13 @@ public final class PlayerProductInventory extends MetadataEntity {
         });
 
         //Handles new player items.
-        json.entrySet().forEach(entry -> {
-            //Declares required fields.
-            var _id = Long.parseLong(entry.getKey());
-
+        amounts.forEach((_id, _amount) -> {
             //If item is existed, no need to continue.
             if (this.find(_id).isPresent())
                 return;
 
-            var _json = entry.getValue().getAsJsonObject();
-
             //Adds item to the player's inventory.
-            this.content.put(_id, new PlayerProduct(this.player, _id, _json.get("amount").getAsInt()));
+            this.content.put(_id, new PlayerProduct(this.player, _id, _amount));
         });
     }
 }
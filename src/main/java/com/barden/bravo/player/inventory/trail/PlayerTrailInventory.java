@@ -4,6 +4,7 @@ import com.barden.bravo.cosmetics.trail.TrailProvider;
 import com.barden.bravo.player.Player;
 import com.barden.bravo.player.cosmetics.trail.PlayerTrail;
 import com.barden.bravo.player.inventory.PlayerInventory;
+import com.barden.bravo.uid.UidGenerator;
 import com.barden.library.metadata.MetadataEntity;
 import com.google.common.collect.BiMap;
 import com.google.common.collect.HashBiMap;
@@ -127,7 +128,7 @@ public final class PlayerTrailInventory extends MetadataEntity {
         if (this.content.size() >= PlayerInventory.INVENTORY_SIZE)
             throw new IllegalStateException("player(" + this.player.getId() + ") inventory size must be equals or lower than " + PlayerInventory.INVENTORY_SIZE);
 
-        PlayerTrail trail = new PlayerTrail(this.player, UUID.randomUUID(), id, false);
+        PlayerTrail trail = new PlayerTrail(this.player, UidGenerator.next(), id, false);
         this.content.put(trail.getUID(), trail);
 
         return trail;
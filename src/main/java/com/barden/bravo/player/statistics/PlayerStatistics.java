@@ -1,5 +1,7 @@
 package com.barden.bravo.player.statistics;
 
+import com.barden.bravo.leaderboard.LeaderboardProvider;
+import com.barden.bravo.leaderboard.window.LeaderboardWindow;
 import com.barden.bravo.player.Player;
 import com.barden.bravo.player.statistics.type.PlayerStatisticType;
 import com.google.gson.JsonObject;
@@ -8,7 +10,9 @@ import org.bson.BsonDouble;
 
 import javax.annotation.Nonnull;
 import java.util.HashMap;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Player statistics class.
@@ -17,6 +21,7 @@ public final class PlayerStatistics {
 
     private final Player player;
     private final HashMap<PlayerStatisticType, Double> content = new HashMap<>();
+    private final ConcurrentHashMap<PlayerStatisticType, Double> deltas = new ConcurrentHashMap<>();
 
     /**
      * Creates a player statistics.
@@ -73,7 +78,8 @@ public final class PlayerStatistics {
      */
     public void set(@Nonnull PlayerStatisticType type, double value) {
         assert value >= 0 : "player statistic value must be positive!";
-        this.content.put(Objects.requireNonNull(type, "player statistic type cannot be null!"), value);
+        Double previous = this.content.put(Objects.requireNonNull(type, "player statistic type cannot be null!"), value);
+        this.onChange(type, Objects.requireNonNullElse(previous, 0.0d), value);
     }
 
     /**
@@ -86,7 +92,9 @@ public final class PlayerStatistics {
      */
     public void add(@Nonnull PlayerStatisticType type, double value) {
         assert value >= 0 : "player statistic value must be positive!";
-        this.content.put(Objects.requireNonNull(type, "player statistic type cannot be null!"), this.get(type) + value);
+        double previous = this.get(Objects.requireNonNull(type, "player statistic type cannot be null!"));
+        this.content.put(type, previous + value);
+        this.onChange(type, previous, previous + value);
     }
 
     /**
@@ -99,7 +107,69 @@ public final class PlayerStatistics {
      */
     public void remove(@Nonnull PlayerStatisticType type, double value) {
         assert value >= 0 : "player statistic value must be positive!";
-        this.content.put(Objects.requireNonNull(type, "player statistic type cannot be null!"), Math.max(this.get(type) - value, 0));
+        double previous = this.get(Objects.requireNonNull(type, "player statistic type cannot be null!"));
+        this.content.put(type, Math.max(previous - value, 0));
+        this.onChange(type, previous, Math.max(previous - value, 0));
+    }
+
+
+    /*
+    DELTAS
+     */
+
+    /**
+     * Handles statistic value change.
+     * Keeps windowed leaderboard deltas and all-time leaderboard histogram up to date.
+     *
+     * @param type     Player statistic type.
+     * @param previous Previous value.
+     * @param current  Current value.
+     */
+    private void onChange(@Nonnull PlayerStatisticType type, double previous, double current) {
+        //If value is same, no need to continue.
+        if (previous == current)
+            return;
+
+        this.addDelta(type, current - previous);
+        LeaderboardProvider.find(type, LeaderboardWindow.ALL_TIME).ifPresent(leaderboard -> leaderboard.getHistogram().move(previous, current));
+    }
+
+    /**
+     * Adds statistic delta to be pushed to windowed leaderboards.
+     * Negative deltas are ignored since windowed leaderboards only grow.
+     *
+     * @param type  Player statistic type.
+     * @param delta Delta.
+     */
+    private void addDelta(@Nonnull PlayerStatisticType type, double delta) {
+        if (delta > 0)
+            this.deltas.merge(type, delta, Double::sum);
+    }
+
+    /**
+     * Drains statistic deltas since last drain.
+     *
+     * @return Statistic deltas.
+     */
+    @Nonnull
+    public Map<PlayerStatisticType, Double> drainDeltas() {
+        HashMap<PlayerStatisticType, Double> _deltas = new HashMap<>();
+        for (PlayerStatisticType type : this.deltas.keySet()) {
+            Double delta = this.deltas.remove(type);
+            if (delta != null)
+                _deltas.put(type, delta);
+        }
+        return _deltas;
+    }
+
+    /**
+     * Restores drained statistic deltas.
+     * It is used when drained deltas couldn't be written.
+     *
+     * @param deltas Statistic deltas.
+     */
+    public void restoreDeltas(@Nonnull Map<PlayerStatisticType, Double> deltas) {
+        Objects.requireNonNull(deltas, "player statistic deltas cannot be null!").forEach(this::addDelta);
     }
 
 
@@ -138,6 +208,8 @@ public final class PlayerStatistics {
 
     /**
      * Updates player statistics.
+     * Statistics are replaced with the json object, statistics which
+     * are not in the json object are reset to 0.
      *
      * @param json Player statistics json object.
      */
@@ -145,9 +217,22 @@ public final class PlayerStatistics {
         //Objects null check.
         Objects.requireNonNull(json, "player statistics json object cannot be null!");
 
-        //Clears all player statistics to make sure it won't have existed player statistic.
-        this.content.clear();
-
-        json.entrySet().forEach((entry) -> this.content.put(PlayerStatisticType.valueOf(entry.getKey()), Math.max(entry.getValue().getAsDouble(), 0.0d)));
+        //Parses statistics first, so an invalid json object doesn't change statistics.
+        HashMap<PlayerStatisticType, Double> statistics = new HashMap<>();
+        json.entrySet().forEach((entry) -> statistics.put(PlayerStatisticType.valueOf(entry.getKey()), Math.max(entry.getValue().getAsDouble(), 0.0d)));
+
+        //Resets statistics which are not in the json object.
+        this.content.entrySet().removeIf(entry -> {
+            if (statistics.containsKey(entry.getKey()))
+                return false;
+            this.onChange(entry.getKey(), entry.getValue(), 0.0d);
+            return true;
+        });
+
+        //Replaces statistics and updates their deltas.
+        statistics.forEach((type, value) -> {
+            Double previous = this.content.put(type, value);
+            this.onChange(type, Objects.requireNonNullElse(previous, 0.0d), value);
+        });
     }
 }
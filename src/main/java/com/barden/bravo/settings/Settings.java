@@ -3,12 +3,28 @@ package com.barden.bravo.settings;
 import com.barden.library.file.TomlFileLoader;
 
 import javax.annotation.Nonnull;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Settings class.
  */
 public final class Settings {
+    /**
+     * Maximum journal segment size. (MEGABYTES, SEGMENTS ARE MAPPED WITH INT OFFSETS)
+     */
+    public static final int MAXIMUM_JOURNAL_SEGMENT_SIZE = 1024;
+
     private static String key = "";
+    private static int leaderboardShards = 1;
+    private static String journalDirectory = "journal";
+    private static int journalSegmentSize = 8 * 1024 * 1024;
+    private static int journalSegments = 64;
+    private static boolean transactionLog = true;
+    private static String transactionStorage = "document";
+    private static String metricsSink = "timescale";
+    private static String metricsDirectory = "metrics";
+    private static int metricsSegmentSize = 1024 * 1024;
+    private static long metricsRetention = TimeUnit.DAYS.toMillis(30);
 
     /**
      * Initializes settings object.
@@ -18,9 +34,35 @@ public final class Settings {
         TomlFileLoader.getConfig("settings", true).ifPresent(file -> {
             //Sets key.
             key = file.get("security.key");
+            //Sets leaderboard shard count.
+            leaderboardShards = Math.max(1, file.<Number>getOrElse("leaderboard.shards", 1).intValue());
+            //Sets journal settings.
+            journalDirectory = file.getOrElse("journal.directory", "journal");
+            journalSegmentSize = toBytes(file.<Number>getOrElse("journal.segment_size", 8).longValue(), MAXIMUM_JOURNAL_SEGMENT_SIZE);
+            journalSegments = Math.max(2, file.<Number>getOrElse("journal.segments", 64).intValue());
+            //Sets transaction settings.
+            transactionLog = file.getOrElse("transaction.log", true);
+            transactionStorage = file.<String>getOrElse("transaction.storage", "document").toLowerCase();
+            //Sets metrics settings.
+            metricsSink = file.<String>getOrElse("metrics.sink", "timescale").toLowerCase();
+            metricsDirectory = file.getOrElse("metrics.embedded.directory", "metrics");
+            metricsSegmentSize = toBytes(file.<Number>getOrElse("metrics.embedded.segment_size", 1).longValue(), MAXIMUM_JOURNAL_SEGMENT_SIZE);
+            metricsRetention = TimeUnit.DAYS.toMillis(Math.max(1, file.<Number>getOrElse("metrics.embedded.retention", 30).longValue()));
         });
     }
 
+    /**
+     * Converts a size in megabytes to bytes.
+     * Size is clamped to [1, maximum] before it is converted, so it can't overflow.
+     *
+     * @param megabytes Size. (MEGABYTES)
+     * @param maximum   Maximum size. (MEGABYTES)
+     * @return Size. (BYTES)
+     */
+    private static int toBytes(long megabytes, int maximum) {
+        return (int) (Math.max(1, Math.min(maximum, megabytes)) * 1024 * 1024);
+    }
+
     /**
      * Gets key.
      *
@@ -30,4 +72,100 @@ public final class Settings {
     public static String getKey() {
         return key;
     }
+
+    /**
+     * Gets leaderboard shard count.
+     * If it is 1, leaderboards are stored in a single sorted set.
+     *
+     * @return Leaderboard shard count.
+     */
+    public static int getLeaderboardShards() {
+        return leaderboardShards;
+    }
+
+    /**
+     * Gets journal directory.
+     *
+     * @return Journal directory.
+     */
+    @Nonnull
+    public static String getJournalDirectory() {
+        return journalDirectory;
+    }
+
+    /**
+     * Gets journal segment size.
+     *
+     * @return Journal segment size. (BYTES)
+     */
+    public static int getJournalSegmentSize() {
+        return journalSegmentSize;
+    }
+
+    /**
+     * Gets maximum journal segment count.
+     * When it is exceeded, oldest segment is dropped.
+     *
+     * @return Maximum journal segment count.
+     */
+    public static int getJournalSegments() {
+        return journalSegments;
+    }
+
+    /**
+     * Gets if transactions are acknowledged from the local transaction log or not.
+     *
+     * @return If transaction log is enabled or not.
+     */
+    public static boolean isTransactionLog() {
+        return transactionLog;
+    }
+
+    /**
+     * Gets transaction storage name.
+     *
+     * @return Transaction storage name. ("document" OR "bucket")
+     */
+    @Nonnull
+    public static String getTransactionStorage() {
+        return transactionStorage;
+    }
+
+    /**
+     * Gets metrics sink name.
+     *
+     * @return Metrics sink name. ("timescale" OR "embedded")
+     */
+    @Nonnull
+    public static String getMetricsSink() {
+        return metricsSink;
+    }
+
+    /**
+     * Gets embedded metric store directory.
+     *
+     * @return Embedded metric store directory.
+     */
+    @Nonnull
+    public static String getMetricsDirectory() {
+        return metricsDirectory;
+    }
+
+    /**
+     * Gets embedded metric store segment size.
+     *
+     * @return Embedded metric store segment size. (BYTES)
+     */
+    public static int getMetricsSegmentSize() {
+        return metricsSegmentSize;
+    }
+
+    /**
+     * Gets embedded metric store retention.
+     *
+     * @return Embedded metric store retention. (MILLISECONDS)
+     */
+    public static long getMetricsRetention() {
+        return metricsRetention;
+    }
 }
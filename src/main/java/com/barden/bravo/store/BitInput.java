@@ -0,0 +1,57 @@
+package com.barden.bravo.store;
+
+import javax.annotation.Nonnull;
+import java.util.Objects;
+
+/**
+ * Bit input class.
+ * <p>
+ * Reads values written by {@link BitOutput}.
+ */
+final class BitInput {
+
+    private final byte[] bytes;
+    private final int offset;
+    private long position;
+
+    /**
+     * Creates a bit input.
+     *
+     * @param bytes  Bytes.
+     * @param offset Start offset. (BYTES)
+     */
+    BitInput(@Nonnull byte[] bytes, int offset) {
+        this.bytes = Objects.requireNonNull(bytes, "bytes cannot be null!");
+        this.offset = offset;
+    }
+
+    /**
+     * Reads a bit.
+     *
+     * @return Bit.
+     */
+    boolean readBit() {
+        return this.read(1) == 1;
+    }
+
+    /**
+     * Reads a value.
+     *
+     * @param count Bit count. (0-64)
+     * @return Value.
+     */
+    long read(int count) {
+        long value = 0;
+        while (count > 0) {
+            int index = this.offset + (int) (this.position >>> 3);
+            int available = 8 - (int) (this.position & 7);
+            int take = Math.min(available, count);
+            int chunk = ((this.bytes[index] & 0xFF) >>> (available - take)) & ((1 << take) - 1);
+            value = (value << take) | chunk;
+
+            this.position += take;
+            count -= take;
+        }
+        return value;
+    }
+}
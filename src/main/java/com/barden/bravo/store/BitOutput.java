@@ -0,0 +1,64 @@
+package com.barden.bravo.store;
+
+import java.util.Arrays;
+
+/**
+ * Bit output class.
+ * <p>
+ * Growable buffer which writes values bit by bit, most significant bit first.
+ */
+final class BitOutput {
+
+    private byte[] bytes;
+    private long length;
+
+    /**
+     * Creates a bit output.
+     *
+     * @param capacity Initial capacity. (BYTES)
+     */
+    BitOutput(int capacity) {
+        this.bytes = new byte[Math.max(8, capacity)];
+    }
+
+    /**
+     * Writes a bit.
+     *
+     * @param bit Bit.
+     */
+    void writeBit(boolean bit) {
+        this.write(bit ? 1 : 0, 1);
+    }
+
+    /**
+     * Writes lowest bits of a value.
+     *
+     * @param value Value.
+     * @param count Bit count. (0-64)
+     */
+    void write(long value, int count) {
+        while (count > 0) {
+            int index = (int) (this.length >>> 3);
+            if (index == this.bytes.length)
+                this.bytes = Arrays.copyOf(this.bytes, this.bytes.length * 2);
+
+            //Fills free bits of current byte.
+            int free = 8 - (int) (this.length & 7);
+            int take = Math.min(free, count);
+            int chunk = (int) (value >>> (count - take)) & ((1 << take) - 1);
+            this.bytes[index] |= (byte) (chunk << (free - take));
+
+            this.length += take;
+            count -= take;
+        }
+    }
+
+    /**
+     * Gets written bytes.
+     *
+     * @return Written bytes. (LAST BYTE IS ZERO PADDED)
+     */
+    byte[] toByteArray() {
+        return Arrays.copyOf(this.bytes, (int) ((this.length + 7) >>> 3));
+    }
+}
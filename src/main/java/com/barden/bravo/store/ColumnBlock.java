@@ -0,0 +1,356 @@
+package com.barden.bravo.store;
+
+import javax.annotation.Nonnull;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * Column block class.
+ * <p>
+ * A compressed, immutable block of time ordered points. Every point has a timestamp
+ * and the same number of 64 bit columns. Timestamps are delta-of-delta encoded and
+ * every column is XOR encoded against its previous value, as Gorilla does. (DOUBLES
+ * ARE STORED AS THEIR RAW BITS) Columns are separate bit streams, so a column which
+ * rarely changes costs about a bit per point.
+ * <p>
+ * Layout: (count, columns, min time, max time, [column min, column max]..., time
+ * stream length, [column stream length]..., time stream, [column stream]...)
+ */
+public final class ColumnBlock {
+
+    private final long[] times;
+    private final long[][] columns;
+
+    /**
+     * Creates a column block.
+     *
+     * @param times   Timestamps.
+     * @param columns Columns.
+     */
+    private ColumnBlock(@Nonnull long[] times, @Nonnull long[][] columns) {
+        this.times = times;
+        this.columns = columns;
+    }
+
+    /**
+     * Gets point count.
+     *
+     * @return Point count.
+     */
+    public int getCount() {
+        return this.times.length;
+    }
+
+    /**
+     * Gets timestamp of a point.
+     *
+     * @param index Point index.
+     * @return Timestamp. (EPOCH MILLISECONDS)
+     */
+    public long getTime(int index) {
+        return this.times[index];
+    }
+
+    /**
+     * Gets long value of a point.
+     *
+     * @param column Column index.
+     * @param index  Point index.
+     * @return Long value.
+     */
+    public long getLong(int column, int index) {
+        return this.columns[column][index];
+    }
+
+    /**
+     * Gets double value of a point.
+     *
+     * @param column Column index.
+     * @param index  Point index.
+     * @return Double value.
+     */
+    public double getDouble(int column, int index) {
+        return Double.longBitsToDouble(this.columns[column][index]);
+    }
+
+
+    /*
+    CODEC
+     */
+
+    /**
+     * Encodes points to a block.
+     *
+     * @param times   Timestamps. (SORTED)
+     * @param columns Columns.
+     * @param from    Start index. (INCLUSIVE)
+     * @param to      End index. (EXCLUSIVE)
+     * @return Encoded block.
+     */
+    @Nonnull
+    static byte[] encode(@Nonnull long[] times, @Nonnull long[][] columns, int from, int to) {
+        //Objects null check.
+        Objects.requireNonNull(times, "times cannot be null!");
+        Objects.requireNonNull(columns, "columns cannot be null!");
+        if (to <= from)
+            throw new IllegalArgumentException("block must have at least a point!");
+
+        //Encodes streams.
+        byte[] _times = encodeTimes(times, from, to);
+        byte[][] _columns = new byte[columns.length][];
+        int length = Integer.BYTES + 1 + Long.BYTES * 2 + Integer.BYTES + _times.length;
+        for (int i = 0; i < columns.length; i++) {
+            _columns[i] = encodeColumn(columns[i], from, to);
+            length += Long.BYTES * 2 + Integer.BYTES + _columns[i].length;
+        }
+
+        //Writes header.
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        buffer.putInt(to - from);
+        buffer.put((byte) columns.length);
+        buffer.putLong(times[from]);
+        buffer.putLong(times[to - 1]);
+        for (long[] column : columns) {
+            long min = Long.MAX_VALUE;
+            long max = Long.MIN_VALUE;
+            for (int i = from; i < to; i++) {
+                min = Math.min(min, column[i]);
+                max = Math.max(max, column[i]);
+            }
+            buffer.putLong(min);
+            buffer.putLong(max);
+        }
+        buffer.putInt(_times.length);
+        for (byte[] column : _columns)
+            buffer.putInt(column.length);
+
+        //Writes streams.
+        buffer.put(_times);
+        for (byte[] column : _columns)
+            buffer.put(column);
+        return buffer.array();
+    }
+
+    /**
+     * Decodes a block.
+     *
+     * @param payload Encoded block.
+     * @return Column block.
+     */
+    @Nonnull
+    static ColumnBlock decode(@Nonnull byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.wrap(Objects.requireNonNull(payload, "payload cannot be null!"));
+        int count = buffer.getInt();
+        int columns = buffer.get();
+        buffer.position(buffer.position() + Long.BYTES * 2 + Long.BYTES * 2 * columns);
+
+        //Reads stream lengths.
+        int[] lengths = new int[columns + 1];
+        for (int i = 0; i < lengths.length; i++)
+            lengths[i] = buffer.getInt();
+
+        //Decodes streams.
+        int offset = buffer.position();
+        long[] times = decodeTimes(payload, offset, count);
+        offset += lengths[0];
+        long[][] _columns = new long[columns][];
+        for (int i = 0; i < columns; i++) {
+            _columns[i] = decodeColumn(payload, offset, count);
+            offset += lengths[i + 1];
+        }
+        return new ColumnBlock(times, _columns);
+    }
+
+    /**
+     * Reads summary of an encoded block without decoding its streams.
+     *
+     * @param payload Encoded block.
+     * @return Summary. (MIN TIME, MAX TIME, FIRST COLUMN MIN, FIRST COLUMN MAX)
+     */
+    @Nonnull
+    static long[] summary(@Nonnull byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.wrap(Objects.requireNonNull(payload, "payload cannot be null!"));
+        buffer.getInt();
+        int columns = buffer.get();
+        long minTime = buffer.getLong();
+        long maxTime = buffer.getLong();
+        if (columns == 0)
+            return new long[]{minTime, maxTime, Long.MIN_VALUE, Long.MAX_VALUE};
+        return new long[]{minTime, maxTime, buffer.getLong(), buffer.getLong()};
+    }
+
+    /**
+     * Encodes timestamps with delta-of-delta.
+     * Deltas of a point are written with a prefix of its bucket. (0, 10 + 7 BITS, 110 + 12 BITS, 1110 + 20 BITS, 1111 + 64 BITS)
+     * Buckets are wider than Gorilla's, since timestamps are milliseconds.
+     *
+     * @param times Timestamps. (SORTED)
+     * @param from  Start index. (INCLUSIVE)
+     * @param to    End index. (EXCLUSIVE)
+     * @return Time stream.
+     */
+    @Nonnull
+    private static byte[] encodeTimes(@Nonnull long[] times, int from, int to) {
+        BitOutput output = new BitOutput((to - from) / 2);
+        output.write(times[from], 64);
+
+        long previous = times[from];
+        long delta = 0;
+        for (int i = from + 1; i < to; i++) {
+            long _delta = times[i] - previous;
+            long dod = _delta - delta;
+            if (dod == 0) {
+                output.writeBit(false);
+            } else if (fits(dod, 7)) {
+                output.write(0b10, 2);
+                output.write(dod, 7);
+            } else if (fits(dod, 12)) {
+                output.write(0b110, 3);
+                output.write(dod, 12);
+            } else if (fits(dod, 20)) {
+                output.write(0b1110, 4);
+                output.write(dod, 20);
+            } else {
+                output.write(0b1111, 4);
+                output.write(dod, 64);
+            }
+            previous = times[i];
+            delta = _delta;
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * Decodes timestamps.
+     *
+     * @param payload Encoded block.
+     * @param offset  Time stream offset.
+     * @param count   Point count.
+     * @return Timestamps.
+     */
+    @Nonnull
+    private static long[] decodeTimes(@Nonnull byte[] payload, int offset, int count) {
+        BitInput input = new BitInput(payload, offset);
+        long[] times = new long[count];
+        times[0] = input.read(64);
+
+        long delta = 0;
+        for (int i = 1; i < count; i++) {
+            long dod;
+            if (!input.readBit())
+                dod = 0;
+            else if (!input.readBit())
+                dod = extend(input.read(7), 7);
+            else if (!input.readBit())
+                dod = extend(input.read(12), 12);
+            else if (!input.readBit())
+                dod = extend(input.read(20), 20);
+            else
+                dod = input.read(64);
+
+            delta += dod;
+            times[i] = times[i - 1] + delta;
+        }
+        return times;
+    }
+
+    /**
+     * Encodes a column with XOR against previous value.
+     * Same value is a single zero bit. Otherwise meaningful bits are written either in
+     * previous leading/trailing zero window, or with a new window. (5 BITS LEADING ZEROS, 6 BITS LENGTH)
+     *
+     * @param column Column.
+     * @param from   Start index. (INCLUSIVE)
+     * @param to     End index. (EXCLUSIVE)
+     * @return Column stream.
+     */
+    @Nonnull
+    private static byte[] encodeColumn(@Nonnull long[] column, int from, int to) {
+        BitOutput output = new BitOutput(to - from);
+        output.write(column[from], 64);
+
+        long previous = column[from];
+        int leading = -1;
+        int trailing = 0;
+        for (int i = from + 1; i < to; i++) {
+            long xor = column[i] ^ previous;
+            previous = column[i];
+            if (xor == 0) {
+                output.writeBit(false);
+                continue;
+            }
+            output.writeBit(true);
+
+            int _leading = Math.min(31, Long.numberOfLeadingZeros(xor));
+            int _trailing = Long.numberOfTrailingZeros(xor);
+            if (leading != -1 && _leading >= leading && _trailing >= trailing) {
+                //Fits previous window.
+                output.writeBit(false);
+                output.write(xor >>> trailing, 64 - leading - trailing);
+            } else {
+                //Writes a new window.
+                int meaningful = 64 - _leading - _trailing;
+                output.writeBit(true);
+                output.write(_leading, 5);
+                output.write(meaningful - 1, 6);
+                output.write(xor >>> _trailing, meaningful);
+                leading = _leading;
+                trailing = _trailing;
+            }
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * Decodes a column.
+     *
+     * @param payload Encoded block.
+     * @param offset  Column stream offset.
+     * @param count   Point count.
+     * @return Column.
+     */
+    @Nonnull
+    private static long[] decodeColumn(@Nonnull byte[] payload, int offset, int count) {
+        BitInput input = new BitInput(payload, offset);
+        long[] column = new long[count];
+        column[0] = input.read(64);
+
+        int leading = 0;
+        int trailing = 0;
+        for (int i = 1; i < count; i++) {
+            if (!input.readBit()) {
+                column[i] = column[i - 1];
+                continue;
+            }
+
+            if (input.readBit()) {
+                leading = (int) input.read(5);
+                trailing = 64 - leading - ((int) input.read(6) + 1);
+            }
+            column[i] = column[i - 1] ^ (input.read(64 - leading - trailing) << trailing);
+        }
+        return column;
+    }
+
+    /**
+     * Gets if a signed value fits declared bit count or not.
+     *
+     * @param value Value.
+     * @param bits  Bit count.
+     * @return If value fits or not.
+     */
+    private static boolean fits(long value, int bits) {
+        return value >= -(1L << (bits - 1)) && value < (1L << (bits - 1));
+    }
+
+    /**
+     * Sign extends lowest bits of a value.
+     *
+     * @param value Value.
+     * @param bits  Bit count.
+     * @return Sign extended value.
+     */
+    private static long extend(long value, int bits) {
+        return (value << (64 - bits)) >> (64 - bits);
+    }
+}
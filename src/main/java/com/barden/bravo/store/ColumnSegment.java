@@ -0,0 +1,166 @@
+package com.barden.bravo.store;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Column segment class.
+ * <p>
+ * A fixed size memory mapped file of column blocks. Blocks are appended one after
+ * another as (length, crc32, block). Files are zero filled, so a zero length marks
+ * the end of written blocks; a torn block fails its checksum and is treated as the
+ * end as well. Summaries of blocks are kept in memory, so scans only decode blocks
+ * which overlap the scanned range.
+ */
+final class ColumnSegment {
+
+    static final int HEADER = Integer.BYTES * 2;
+
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private final List<Entry> entries = new ArrayList<>();
+    private int position;
+
+    /**
+     * Creates or opens a column segment.
+     *
+     * @param path Segment file path.
+     * @param size Segment size. (BYTES, IGNORED IF FILE EXISTS)
+     * @throws IOException If file can't be mapped.
+     */
+    ColumnSegment(@Nonnull Path path, int size) throws IOException {
+        this.path = path;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            //Mapping stays valid after channel is closed.
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size() > 0 ? channel.size() : size);
+        }
+
+        //Finds end of written blocks.
+        byte[] payload;
+        while ((payload = this.read(this.position)) != null) {
+            this.entries.add(new Entry(this.position + HEADER, payload.length, ColumnBlock.summary(payload)));
+            this.position += HEADER + payload.length;
+        }
+    }
+
+    /**
+     * Gets if segment has space for a block.
+     *
+     * @param length Block length.
+     * @return If segment has space or not.
+     */
+    boolean hasSpace(int length) {
+        return this.buffer.capacity() - this.position >= HEADER + length;
+    }
+
+    /**
+     * Appends a block and forces it to the disk.
+     *
+     * @param payload Encoded block.
+     */
+    void append(@Nonnull byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        //Block is written before length, so a crash in between leaves a zero length.
+        this.buffer.put(this.position + HEADER, payload);
+        this.buffer.putInt(this.position + Integer.BYTES, (int) crc.getValue());
+        this.buffer.putInt(this.position, payload.length);
+        this.buffer.force();
+
+        this.entries.add(new Entry(this.position + HEADER, payload.length, ColumnBlock.summary(payload)));
+        this.position += HEADER + payload.length;
+    }
+
+    /**
+     * Scans blocks which overlap declared range.
+     *
+     * @param from     Range start. (INCLUSIVE, EPOCH MILLISECONDS)
+     * @param to       Range end. (EXCLUSIVE, EPOCH MILLISECONDS)
+     * @param key      First column value which blocks must cover. (NULL FOR ANY)
+     * @param consumer Block consumer.
+     */
+    void scan(long from, long to, @Nullable Long key, @Nonnull Consumer<ColumnBlock> consumer) {
+        for (Entry entry : this.entries) {
+            //Skips blocks which can't have a matching point.
+            if (entry.maxTime < from || entry.minTime >= to)
+                continue;
+            if (key != null && (key < entry.minKey || key > entry.maxKey))
+                continue;
+
+            byte[] payload = new byte[entry.length];
+            this.buffer.get(entry.position, payload);
+            consumer.accept(ColumnBlock.decode(payload));
+        }
+    }
+
+    /**
+     * Reads a block.
+     *
+     * @param position Block position.
+     * @return Encoded block. (NULL IF THERE IS NO VALID BLOCK AT POSITION)
+     */
+    @Nullable
+    private byte[] read(int position) {
+        //If there is no space for a header, no need to continue.
+        if (this.buffer.capacity() - position < HEADER)
+            return null;
+
+        int length = this.buffer.getInt(position);
+        if (length <= 0 || length > this.buffer.capacity() - position - HEADER)
+            return null;
+
+        int checksum = this.buffer.getInt(position + Integer.BYTES);
+        byte[] payload = new byte[length];
+        this.buffer.get(position + HEADER, payload);
+
+        //Validates checksum.
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue() == checksum ? payload : null;
+    }
+
+    /**
+     * Deletes segment file.
+     */
+    void delete() throws IOException {
+        Files.deleteIfExists(this.path);
+    }
+
+
+    /*
+    ENTRY
+     */
+
+    /**
+     * Block entry.
+     */
+    private static final class Entry {
+
+        private final int position;
+        private final int length;
+        private final long minTime;
+        private final long maxTime;
+        private final long minKey;
+        private final long maxKey;
+
+        private Entry(int position, int length, @Nonnull long[] summary) {
+            this.position = position;
+            this.length = length;
+            this.minTime = summary[0];
+            this.maxTime = summary[1];
+            this.minKey = summary[2];
+            this.maxKey = summary[3];
+        }
+    }
+}
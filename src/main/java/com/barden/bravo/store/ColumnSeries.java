@@ -0,0 +1,143 @@
+package com.barden.bravo.store;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Column series class.
+ * <p>
+ * Segments of a series, grouped by time partition. Segment files are named
+ * "(partition)_(index).seg" and only the last segment of a partition is written.
+ * Segment access is guarded by a lock, so disk work never holds a monitor.
+ */
+final class ColumnSeries {
+
+    static final String EXTENSION = ".seg";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final NavigableMap<Long, List<ColumnSegment>> partitions = new TreeMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Creates or opens a column series.
+     *
+     * @param directory   Series directory.
+     * @param segmentSize Segment size. (BYTES)
+     * @throws IOException If segments can't be opened.
+     */
+    ColumnSeries(@Nonnull Path directory, int segmentSize) throws IOException {
+        this.directory = Objects.requireNonNull(directory, "directory cannot be null!");
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+
+        //Opens segments in order.
+        List<long[]> ids = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(EXTENSION))
+                    .forEach(name -> {
+                        String[] parts = name.substring(0, name.length() - EXTENSION.length()).split("_");
+                        ids.add(new long[]{Long.parseLong(parts[0]), Long.parseLong(parts[1])});
+                    });
+        }
+        ids.sort((first, second) -> first[0] != second[0] ? Long.compare(first[0], second[0]) : Long.compare(first[1], second[1]));
+        for (long[] id : ids)
+            this.partitions.computeIfAbsent(id[0], partition -> new ArrayList<>()).add(new ColumnSegment(this.toPath(id[0], id[1]), segmentSize));
+    }
+
+    /**
+     * Appends a block to a partition.
+     *
+     * @param partition Partition.
+     * @param payload   Encoded block.
+     * @throws IOException If a new segment can't be created.
+     */
+    void append(long partition, @Nonnull byte[] payload) throws IOException {
+        this.lock.lock();
+        try {
+            List<ColumnSegment> segments = this.partitions.computeIfAbsent(partition, _partition -> new ArrayList<>());
+            ColumnSegment segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+
+            //Creates a new segment when last one is full. A block which is bigger than segment size gets its own segment.
+            if (segment == null || !segment.hasSpace(payload.length)) {
+                segment = new ColumnSegment(this.toPath(partition, segments.size()), Math.max(this.segmentSize, ColumnSegment.HEADER + payload.length));
+                segments.add(segment);
+            }
+            segment.append(payload);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Scans blocks of partitions between declared partitions.
+     *
+     * @param first    First partition. (INCLUSIVE)
+     * @param last     Last partition. (INCLUSIVE)
+     * @param from     Range start. (INCLUSIVE, EPOCH MILLISECONDS)
+     * @param to       Range end. (EXCLUSIVE, EPOCH MILLISECONDS)
+     * @param key      First column value which blocks must cover. (NULL FOR ANY)
+     * @param consumer Block consumer.
+     */
+    void scan(long first, long last, long from, long to, @Nullable Long key, @Nonnull Consumer<ColumnBlock> consumer) {
+        this.lock.lock();
+        try {
+            for (List<ColumnSegment> segments : this.partitions.subMap(first, true, last, true).values())
+                for (ColumnSegment segment : segments)
+                    segment.scan(from, to, key, consumer);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Deletes partitions before declared partition.
+     *
+     * @param partition Partition. (EXCLUSIVE)
+     * @return Deleted segment count.
+     * @throws IOException If a segment can't be deleted.
+     */
+    int retain(long partition) throws IOException {
+        this.lock.lock();
+        try {
+            int deleted = 0;
+            Iterator<Map.Entry<Long, List<ColumnSegment>>> iterator = this.partitions.headMap(partition, false).entrySet().iterator();
+            while (iterator.hasNext()) {
+                for (ColumnSegment segment : iterator.next().getValue()) {
+                    segment.delete();
+                    deleted++;
+                }
+                iterator.remove();
+            }
+            return deleted;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Gets segment file path.
+     *
+     * @param partition Partition.
+     * @param index     Segment index in partition.
+     * @return Segment file path.
+     */
+    @Nonnull
+    private Path toPath(long partition, long index) {
+        return this.directory.resolve(partition + "_" + index + EXTENSION);
+    }
+}
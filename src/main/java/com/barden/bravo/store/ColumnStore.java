@@ -0,0 +1,217 @@
+package com.barden.bravo.store;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Column store class.
+ * <p>
+ * Embedded, append-only time series store. Every series is a directory of memory
+ * mapped segments, partitioned by UTC day, and every append is written as a single
+ * compressed {@link ColumnBlock} per partition. Retention drops whole partitions,
+ * so old data is deleted without rewriting anything.
+ */
+public final class ColumnStore {
+
+    public static final long PARTITION = TimeUnit.DAYS.toMillis(1);
+
+    private final Path directory;
+    private final int segmentSize;
+    private final Map<String, ColumnSeries> series = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Creates or opens a column store.
+     *
+     * @param directory   Store directory.
+     * @param segmentSize Segment size. (BYTES)
+     * @throws IOException If store files can't be opened.
+     */
+    public ColumnStore(@Nonnull Path directory, int segmentSize) throws IOException {
+        if (segmentSize <= ColumnSegment.HEADER)
+            throw new IllegalArgumentException("column segment size is too small!");
+
+        this.directory = Objects.requireNonNull(directory, "directory cannot be null!");
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+
+        //Opens existing series. (EVERY DIRECTORY WITH SEGMENTS)
+        List<Path> directories;
+        try (Stream<Path> files = Files.walk(directory)) {
+            directories = files.filter(path -> path.getFileName().toString().endsWith(ColumnSeries.EXTENSION))
+                    .map(Path::getParent)
+                    .distinct()
+                    .collect(Collectors.toList());
+        }
+        for (Path _directory : directories) {
+            String name = directory.relativize(_directory).toString().replace('\\', '/');
+            this.series.put(name, new ColumnSeries(_directory, segmentSize));
+        }
+    }
+
+    /**
+     * Gets series names.
+     *
+     * @return Series names.
+     */
+    @Nonnull
+    public List<String> getSeries() {
+        return List.copyOf(this.series.keySet());
+    }
+
+    /**
+     * Appends points to a series.
+     * Points are sorted by time, then written as a block per partition.
+     *
+     * @param name    Series name. (CAN HAVE "/" TO NEST DIRECTORIES)
+     * @param times   Timestamps. (EPOCH MILLISECONDS)
+     * @param columns Columns. (SAME LENGTH AS TIMESTAMPS)
+     * @throws IOException If a block can't be written.
+     */
+    public void append(@Nonnull String name, @Nonnull long[] times, @Nonnull long[]... columns) throws IOException {
+        //Objects null check.
+        Objects.requireNonNull(name, "name cannot be null!");
+        Objects.requireNonNull(times, "times cannot be null!");
+        Objects.requireNonNull(columns, "columns cannot be null!");
+        for (long[] column : columns) {
+            if (column.length != times.length)
+                throw new IllegalArgumentException("columns must have same length with times!");
+        }
+
+        //If there is no point, no need to continue.
+        if (times.length == 0)
+            return;
+
+        //Sorts points by time.
+        if (!isSorted(times)) {
+            Integer[] order = new Integer[times.length];
+            for (int i = 0; i < order.length; i++)
+                order[i] = i;
+            Arrays.sort(order, (first, second) -> Long.compare(times[first], times[second]));
+
+            long[] _times = new long[times.length];
+            long[][] _columns = new long[columns.length][times.length];
+            for (int i = 0; i < order.length; i++) {
+                _times[i] = times[order[i]];
+                for (int j = 0; j < columns.length; j++)
+                    _columns[j][i] = columns[j][order[i]];
+            }
+            this.write(name, _times, _columns);
+            return;
+        }
+
+        this.write(name, times, columns);
+    }
+
+    /**
+     * Writes sorted points as a block per partition.
+     *
+     * @param name    Series name.
+     * @param times   Timestamps. (SORTED)
+     * @param columns Columns.
+     * @throws IOException If a block can't be written.
+     */
+    private void write(@Nonnull String name, @Nonnull long[] times, @Nonnull long[][] columns) throws IOException {
+        ColumnSeries _series = this.getOrCreate(name);
+
+        int from = 0;
+        while (from < times.length) {
+            long partition = Math.floorDiv(times[from], PARTITION);
+            int to = from + 1;
+            while (to < times.length && Math.floorDiv(times[to], PARTITION) == partition)
+                to++;
+
+            _series.append(partition, ColumnBlock.encode(times, columns, from, to));
+            from = to;
+        }
+    }
+
+    /**
+     * Scans blocks of a series which overlap declared range.
+     * Blocks can have points outside of the range, so consumers must filter points.
+     *
+     * @param name     Series name.
+     * @param from     Range start. (INCLUSIVE, EPOCH MILLISECONDS)
+     * @param to       Range end. (EXCLUSIVE, EPOCH MILLISECONDS)
+     * @param key      First column value which blocks must cover. (NULL FOR ANY)
+     * @param consumer Block consumer.
+     */
+    public void scan(@Nonnull String name, long from, long to, @Nullable Long key, @Nonnull Consumer<ColumnBlock> consumer) {
+        //Objects null check.
+        Objects.requireNonNull(name, "name cannot be null!");
+        Objects.requireNonNull(consumer, "consumer cannot be null!");
+
+        ColumnSeries _series = this.series.get(name);
+        if (_series == null || to <= from)
+            return;
+        _series.scan(Math.floorDiv(from, PARTITION), Math.floorDiv(to - 1, PARTITION), from, to, key, consumer);
+    }
+
+    /**
+     * Deletes partitions which are completely before declared time.
+     *
+     * @param time Time. (EPOCH MILLISECONDS)
+     * @return Deleted segment count.
+     * @throws IOException If a segment can't be deleted.
+     */
+    public int retain(long time) throws IOException {
+        int deleted = 0;
+        for (ColumnSeries _series : this.series.values())
+            deleted += _series.retain(Math.floorDiv(time, PARTITION));
+        return deleted;
+    }
+
+    /**
+     * Gets or creates a series.
+     *
+     * @param name Series name.
+     * @return Column series.
+     * @throws IOException If series directory can't be created.
+     */
+    @Nonnull
+    private ColumnSeries getOrCreate(@Nonnull String name) throws IOException {
+        ColumnSeries _series = this.series.get(name);
+        if (_series != null)
+            return _series;
+
+        //Series is opened from the disk, so it is not created under a monitor.
+        this.lock.lock();
+        try {
+            _series = this.series.get(name);
+            if (_series == null) {
+                _series = new ColumnSeries(this.directory.resolve(name), this.segmentSize);
+                this.series.put(name, _series);
+            }
+            return _series;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Gets if timestamps are sorted or not.
+     *
+     * @param times Timestamps.
+     * @return If timestamps are sorted or not.
+     */
+    private static boolean isSorted(@Nonnull long[] times) {
+        for (int i = 1; i < times.length; i++) {
+            if (times[i] < times[i - 1])
+                return false;
+        }
+        return true;
+    }
+}
@@ -1,10 +1,15 @@
 package com.barden.bravo.transaction;
 
-import com.barden.library.database.DatabaseProvider;
+import com.barden.bravo.transaction.provider.TransactionProvider;
+import com.barden.bravo.uid.UidGenerator;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 import java.util.Objects;
 import java.util.UUID;
 
@@ -14,7 +19,10 @@ import java.util.UUID;
 @SuppressWarnings({"unused", "null"})
 public final class Transaction {
 
+    public static final int MAXIMUM_RECEIPT_LENGTH = 128;
+
     private final UUID uid;
+    private final String receipt;
     private final Date date;
     private final long product;
     private final long buyer;
@@ -25,13 +33,15 @@ public final class Transaction {
      * Creates a transaction.
      *
      * @param uid     Unique id.
+     * @param receipt Receipt. (ROBLOX PURCHASE ID, NULL IF IT IS NOT DECLARED)
      * @param date    Date.
      * @param product Product. (ROBLOX GAME PASS/PRODUCT ID)
      * @param buyer   Buyer. (ROBLOX USER ID)
      * @param price   Price. (ROBUX)
      */
-    public Transaction(UUID uid, Date date, long product, long buyer, int price) {
+    public Transaction(UUID uid, @Nullable String receipt, Date date, long product, long buyer, int price) {
         this.uid = Objects.requireNonNull(uid);
+        this.receipt = receipt;
         this.date = Objects.requireNonNull(date);
         this.product = product;
         this.buyer = buyer;
@@ -41,12 +51,13 @@ public final class Transaction {
     /**
      * Creates a transaction.
      *
+     * @param receipt Receipt. (ROBLOX PURCHASE ID, NULL IF IT IS NOT DECLARED)
      * @param product Product. (ROBLOX GAME PASS/PRODUCT ID)
      * @param buyer   Buyer. (ROBLOX USER ID)
      * @param price   Price. (ROBUX)
      */
-    public Transaction(long product, long buyer, int price) {
-        this(UUID.randomUUID(), new Date(), product, buyer, price);
+    public Transaction(@Nullable String receipt, long product, long buyer, int price) {
+        this(UidGenerator.next(), receipt, new Date(), product, buyer, price);
     }
 
     /**
@@ -59,6 +70,17 @@ public final class Transaction {
         return this.uid;
     }
 
+    /**
+     * Gets transaction receipt.
+     * Roblox retries a purchase with the same receipt, so it is the idempotency key of transactions.
+     *
+     * @return Transaction receipt. (ROBLOX PURCHASE ID, NULL IF IT IS NOT DECLARED)
+     */
+    @Nullable
+    public String getReceipt() {
+        return this.receipt;
+    }
+
     /**
      * Gets transaction date.
      *
@@ -120,18 +142,60 @@ public final class Transaction {
      */
 
     /**
-     * Saves transaction.
+     * Saves transaction to the active transaction storage.
+     * Receipts are unique in the database, so a retried purchase is not saved twice.
+     *
+     * @return If transaction is saved or not. (FALSE IF A TRANSACTION WITH SAME RECEIPT OR UNIQUE ID IS ALREADY SAVED)
      */
-    public void save() {
-        if (this.saved)
-            throw new IllegalStateException("tried to save already saved transaction(" + this.uid + ")!");
-
-        //Bson document saving.
-        Objects.requireNonNull(DatabaseProvider.mongo().getCollection("bravo", "transactions", Transaction.class)).insertOne(this);
+    public boolean save() {
+        SaveResult result = saveAll(List.of(this)).get(0);
+        if (result == SaveResult.FAILED)
+            throw new IllegalStateException("couldn't save transaction(" + this.uid + ")!");
+        return result == SaveResult.SAVED;
+    }
 
-        this.saved = true;
+    /**
+     * Saves transactions to the active transaction storage.
+     * A failed transaction doesn't stop others, so every transaction has its own result.
+     *
+     * @param transactions Transactions.
+     * @return Save results. (SAME ORDER AS TRANSACTIONS)
+     */
+    @Nonnull
+    public static List<SaveResult> saveAll(@Nonnull List<Transaction> transactions) {
+        //Objects null check.
+        Objects.requireNonNull(transactions, "transactions cannot be null!");
+
+        //If there is no transaction, no need to continue.
+        if (transactions.isEmpty())
+            return Collections.emptyList();
+        for (Transaction transaction : transactions) {
+            if (transaction.saved)
+                throw new IllegalStateException("tried to save already saved transaction(" + transaction.uid + ")!");
+        }
+
+        //Saves transactions.
+        List<SaveResult> results = TransactionProvider.getStorage().save(transactions);
+
+        //Marks saved transactions.
+        for (int i = 0; i < results.size(); i++) {
+            if (results.get(i) == SaveResult.SAVED)
+                transactions.get(i).saved = true;
+        }
+        return results;
     }
 
+    /**
+     * Save results.
+     */
+    public enum SaveResult {
+        SAVED,
+        /**
+         * A transaction with same receipt or unique id is already saved.
+         */
+        DUPLICATE,
+        FAILED
+    }
 
     /*
     CONVERTERS
@@ -146,6 +210,8 @@ public final class Transaction {
     public JsonObject toJson() {
         JsonObject json = new JsonObject();
         json.addProperty("uid", this.uid.toString());
+        if (this.receipt != null)
+            json.addProperty("receipt", this.receipt);
         json.addProperty("date", this.date.getTime());
         json.addProperty("product", this.product);
         json.addProperty("buyer", this.buyer);
@@ -166,7 +232,14 @@ public final class Transaction {
      */
     @Nonnull
     public static Transaction of(@Nonnull JsonObject json) {
+        //Validates receipt.
+        JsonElement receipt = json.get("receipt");
+        String _receipt = receipt == null || receipt.isJsonNull() ? null : receipt.getAsString();
+        if (_receipt != null && (_receipt.isBlank() || _receipt.length() > MAXIMUM_RECEIPT_LENGTH))
+            throw new IllegalArgumentException("transaction receipt must be between 1 and " + MAXIMUM_RECEIPT_LENGTH + " characters!");
+
         return new Transaction(
+                _receipt,
                 json.get("product").getAsLong(),
                 json.get("buyer").getAsLong(),
                 json.get("price").getAsInt());
@@ -0,0 +1,144 @@
+package com.barden.bravo.transaction.codec;
+
+import com.barden.bravo.transaction.Transaction;
+import org.bson.BsonBinary;
+import org.bson.BsonBinarySubType;
+import org.bson.BsonInvalidOperationException;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.UuidRepresentation;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+
+import javax.annotation.Nonnull;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Transaction codec class.
+ * <p>
+ * Encodes transactions without reflective pojo codec discovery. Unique id is
+ * stored as binary subtype 4 (STANDARD UUID) and date as a bson date. Documents
+ * are decoded straight into transactions; unique ids which are written in legacy
+ * java representation (SUBTYPE 3) or as strings are read too.
+ */
+public final class TransactionCodec implements Codec<Transaction> {
+
+    public static final TransactionCodec INSTANCE = new TransactionCodec();
+
+    /**
+     * Creates a transaction codec.
+     */
+    private TransactionCodec() {
+    }
+
+    /**
+     * Encodes a transaction.
+     *
+     * @param writer  Bson writer.
+     * @param value   Transaction.
+     * @param context Encoder context.
+     */
+    @Override
+    public void encode(@Nonnull BsonWriter writer, @Nonnull Transaction value, @Nonnull EncoderContext context) {
+        writer.writeStartDocument();
+        writer.writeBinaryData("uid", new BsonBinary(value.getUid(), UuidRepresentation.STANDARD));
+        if (value.getReceipt() != null)
+            writer.writeString("receipt", value.getReceipt());
+        writer.writeDateTime("date", value.getDate().getTime());
+        writer.writeInt64("product", value.getProduct());
+        writer.writeInt64("buyer", value.getBuyer());
+        writer.writeInt32("price", value.getPrice());
+        writer.writeEndDocument();
+    }
+
+    /**
+     * Decodes a transaction.
+     * Unknown fields, including "_id", are skipped.
+     *
+     * @param reader  Bson reader.
+     * @param context Decoder context.
+     * @return Transaction.
+     */
+    @Nonnull
+    @Override
+    public Transaction decode(@Nonnull BsonReader reader, @Nonnull DecoderContext context) {
+        //Declares required fields.
+        UUID uid = null;
+        String receipt = null;
+        Date date = null;
+        long product = 0;
+        long buyer = 0;
+        int price = 0;
+
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            String name = reader.readName();
+            if (reader.getCurrentBsonType() == BsonType.NULL) {
+                reader.readNull();
+                continue;
+            }
+
+            switch (name) {
+                case "uid" -> uid = readUid(reader);
+                case "receipt" -> receipt = reader.readString();
+                case "date" -> date = new Date(reader.readDateTime());
+                case "product" -> product = readLong(reader);
+                case "buyer" -> buyer = readLong(reader);
+                case "price" -> price = (int) readLong(reader);
+                default -> reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+
+        //Safety check.
+        if (uid == null || date == null)
+            throw new BsonInvalidOperationException("transaction document must have uid and date!");
+        return new Transaction(uid, receipt, date, product, buyer, price);
+    }
+
+    /**
+     * Gets encoder class.
+     *
+     * @return Transaction class.
+     */
+    @Nonnull
+    @Override
+    public Class<Transaction> getEncoderClass() {
+        return Transaction.class;
+    }
+
+    /**
+     * Reads a unique id.
+     *
+     * @param reader Bson reader.
+     * @return Unique id.
+     */
+    @Nonnull
+    private static UUID readUid(@Nonnull BsonReader reader) {
+        if (reader.getCurrentBsonType() == BsonType.STRING)
+            return UUID.fromString(reader.readString());
+
+        BsonBinary binary = reader.readBinaryData();
+        if (binary.getType() == BsonBinarySubType.UUID_STANDARD.getValue())
+            return binary.asUuid();
+        return binary.asUuid(UuidRepresentation.JAVA_LEGACY);
+    }
+
+    /**
+     * Reads a number as long.
+     *
+     * @param reader Bson reader.
+     * @return Number.
+     */
+    private static long readLong(@Nonnull BsonReader reader) {
+        return switch (reader.getCurrentBsonType()) {
+            case INT32 -> reader.readInt32();
+            case INT64 -> reader.readInt64();
+            case DOUBLE -> (long) reader.readDouble();
+            default -> throw new BsonInvalidOperationException("transaction number has invalid type(" + reader.getCurrentBsonType() + ")!");
+        };
+    }
+}
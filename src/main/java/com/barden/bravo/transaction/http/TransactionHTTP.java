@@ -1,20 +1,43 @@
 package com.barden.bravo.transaction.http;
 
+import com.barden.bravo.execution.Execution;
 import com.barden.bravo.http.HTTPResponse;
 import com.barden.bravo.metrics.TransactionMetrics;
+import com.barden.bravo.player.inventory.product.PlayerProductGrant;
 import com.barden.bravo.transaction.Transaction;
+import com.barden.bravo.transaction.log.TransactionLog;
+import com.barden.bravo.transaction.provider.TransactionProvider;
+import com.barden.bravo.transaction.provider.TransactionReceipts;
+import com.barden.bravo.transaction.query.TransactionCursor;
+import com.barden.bravo.transaction.query.TransactionQuery;
 import com.barden.library.BardenJavaLibrary;
-import com.barden.library.scheduler.SchedulerProvider;
+import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.context.request.async.DeferredResult;
 
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
 /**
  * Transaction HTTP class.
  */
@@ -22,8 +45,54 @@ import org.springframework.web.context.request.async.DeferredResult;
 @RequestMapping("/api/v1/transaction")
 public class TransactionHTTP {
 
+    /**
+     * Results.
+     */
+    private enum Result {
+        INVALID_JSON_STRUCTURE,
+        TOO_MANY_TRANSACTIONS,
+        PROCESSING,
+        FAILED,
+        INVALID_RANGE,
+        INVALID_LIMIT,
+        INVALID_CURSOR,
+        QUERY_FAILED,
+        GRANT_FAILED,
+        TOO_MANY_EXPORTS
+    }
+
+    /**
+     * Maximum transaction count of a batch.
+     */
+    public static final int MAXIMUM_BATCH = 500;
+    /**
+     * Maximum transaction count of a history page.
+     */
+    public static final int MAXIMUM_PAGE = 1000;
+    private static final int DEFAULT_PAGE = 100;
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final long DEFAULT_HISTORY = TimeUnit.DAYS.toMillis(30);
+    private static final long MAXIMUM_HISTORY = TimeUnit.DAYS.toMillis(400);
+    /**
+     * Maximum concurrent export count.
+     */
+    public static final int MAXIMUM_EXPORTS = 2;
+    private static final Semaphore exports = new Semaphore(MAXIMUM_EXPORTS);
+
     /**
      * Process transaction.
+     * If transaction has a receipt, it is processed only once; repeats are answered
+     * as successful with "duplicate" flag, and concurrent repeats are answered as
+     * {@link Result#PROCESSING} so they are retried later.
+     * <p>
+     * When transaction log is enabled, transaction is answered once it is durable in
+     * the log and it is saved by the log later. Otherwise, or when log can't take it,
+     * transaction is saved before it is answered.
+     * <p>
+     * Product is granted to the buyer before transaction is answered, and the grant is
+     * in "grant" of the response. Grants are idempotent, so repeats are granted too in
+     * case their first grant failed. If grant fails, transaction is answered as failed
+     * and its receipt is not confirmed, so roblox retries it.
      *
      * @param json Transactions data bucket.
      * @return Response entity. (JSON OBJECT)
@@ -39,14 +108,11 @@ public class TransactionHTTP {
         }
 
         //Process request in a thread to avoid freezing main thread.
-        SchedulerProvider.schedule(task -> {
+        Execution.run(() -> {
+            //Creates a transaction from json.
+            Transaction transaction;
             try {
-                //Creates a transaction from json and saves to the database.
-                Transaction transaction = Transaction.of(json);
-                transaction.save();
-
-                //Statistics.
-                TransactionMetrics.write(transaction);
+                transaction = Transaction.of(json);
             } catch (Exception exception) {
                 //Responses request to avoid long waiting durations.
                 result.setResult(new ResponseEntity<>(HTTPResponse.of(false), HttpStatus.OK));
@@ -56,11 +122,510 @@ public class TransactionHTTP {
                 return;
             }
 
+            //Handles receipt. Confirmed repeats are not saved again, only their grant is ensured.
+            String receipt = transaction.getReceipt();
+            if (receipt != null) {
+                TransactionReceipts.State state = TransactionReceipts.begin(receipt);
+                if (state == TransactionReceipts.State.PROCESSING) {
+                    result.setResult(new ResponseEntity<>(HTTPResponse.of(false, Result.PROCESSING), HttpStatus.OK));
+                    return;
+                } else if (state == TransactionReceipts.State.DUPLICATE) {
+                    result.setResult(new ResponseEntity<>(respond(grant(transaction), true), HttpStatus.OK));
+                    return;
+                }
+            }
+
+            //If transaction log is not enabled, saves synchronously.
+            if (!TransactionLog.isEnabled()) {
+                result.setResult(new ResponseEntity<>(save(transaction), HttpStatus.OK));
+                return;
+            }
+
+            //Answers once transaction is durable in the log. Log thread is not blocked by the rest.
+            TransactionLog.append(transaction).whenComplete((logged, throwable) -> Execution.fork(() -> {
+                //Log couldn't take it, saves synchronously.
+                if (throwable != null || !logged) {
+                    result.setResult(new ResponseEntity<>(save(transaction), HttpStatus.OK));
+                    return;
+                }
+
+                //Logged transaction will be saved, so its receipt is confirmed once product is granted.
+                JsonObject response;
+                try {
+                    PlayerProductGrant grant = grant(transaction);
+                    if (receipt != null && !grant.isRetryable())
+                        TransactionReceipts.confirm(receipt);
+                    response = respond(grant, false);
+                } catch (Exception exception) {
+                    BardenJavaLibrary.getLogger().error("Couldn't process transaction!", exception);
+                    response = HTTPResponse.of(false);
+                } finally {
+                    if (receipt != null)
+                        TransactionReceipts.end(receipt);
+                }
+                result.setResult(new ResponseEntity<>(response, HttpStatus.OK));
+            }));
+        });
+
+        //Returns response entity.
+        return result;
+    }
+
+    /**
+     * Saves a transaction synchronously then releases its receipt.
+     *
+     * @param transaction Transaction.
+     * @return Response. (JSON OBJECT)
+     */
+    @Nonnull
+    private static JsonObject save(@Nonnull Transaction transaction) {
+        String receipt = transaction.getReceipt();
+        try {
+            //Saves to the database. If receipt is already saved, it is a repeat.
+            boolean saved = transaction.save();
+
+            //Statistics.
+            if (saved)
+                TransactionMetrics.write(transaction);
+
+            //Grants product. Receipt is confirmed only if grant is done.
+            PlayerProductGrant grant = grant(transaction);
+            if (receipt != null && !grant.isRetryable())
+                TransactionReceipts.confirm(receipt);
+            return respond(grant, !saved);
+        } catch (Exception exception) {
+            //Informs server about the exception. It might be important.
+            BardenJavaLibrary.getLogger().error("Couldn't process transaction!", exception);
+            return HTTPResponse.of(false);
+        } finally {
+            //Releases receipt.
+            if (receipt != null)
+                TransactionReceipts.end(receipt);
+        }
+    }
+
+    /**
+     * Process transactions in a batch.
+     * Transactions are saved with a single unordered insert and their metrics are
+     * written together. Every transaction has its own result in "results" with the
+     * same order, so a failed transaction doesn't fail the batch.
+     *
+     * @param json Transactions. (JSON ARRAY)
+     * @return Response entity. (JSON OBJECT)
+     */
+    @PostMapping(value = "/process-batch", produces = MediaType.APPLICATION_JSON_VALUE)
+    public DeferredResult<ResponseEntity<JsonObject>> processBatch(@RequestBody JsonArray json) {
+        DeferredResult<ResponseEntity<JsonObject>> result = new DeferredResult<>();
+
+        //Safety check.
+        if (json == null || json.isJsonNull() || json.size() == 0) {
+            result.setResult(new ResponseEntity<>(HTTPResponse.of(false, Result.INVALID_JSON_STRUCTURE), HttpStatus.OK));
+            return result;
+        } else if (json.size() > MAXIMUM_BATCH) {
+            result.setResult(new ResponseEntity<>(HTTPResponse.of(false, Result.TOO_MANY_TRANSACTIONS), HttpStatus.OK));
+            return result;
+        }
+
+        //Process request in a thread to avoid freezing main thread.
+        Execution.run(() -> {
+            //Declares required fields.
+            JsonObject[] results = new JsonObject[json.size()];
+            List<Transaction> transactions = new ArrayList<>();
+            List<Integer> indexes = new ArrayList<>();
+            Map<String, Integer> receipts = new HashMap<>();
+            Map<Integer, Integer> repeats = new HashMap<>();
+            Map<Integer, Transaction> duplicates = new HashMap<>();
+
+            try {
+                //Creates transactions and handles their receipts.
+                for (int i = 0; i < json.size(); i++) {
+                    Transaction transaction;
+                    try {
+                        transaction = Transaction.of(json.get(i).getAsJsonObject());
+                    } catch (Exception exception) {
+                        results[i] = HTTPResponse.of(false, Result.INVALID_JSON_STRUCTURE);
+                        continue;
+                    }
+
+                    String receipt = transaction.getReceipt();
+                    if (receipt != null) {
+                        //Same receipt in the batch gets result of its first transaction.
+                        Integer first = receipts.get(receipt);
+                        if (first != null) {
+                            repeats.put(i, first);
+                            continue;
+                        }
+
+                        TransactionReceipts.State state = TransactionReceipts.begin(receipt);
+                        if (state == TransactionReceipts.State.PROCESSING) {
+                            results[i] = HTTPResponse.of(false, Result.PROCESSING);
+                            continue;
+                        } else if (state == TransactionReceipts.State.DUPLICATE) {
+                            duplicates.put(i, transaction);
+                            continue;
+                        }
+                        receipts.put(receipt, i);
+                    }
+
+                    transactions.add(transaction);
+                    indexes.add(i);
+                }
+
+                //Saves transactions.
+                List<Transaction.SaveResult> saves;
+                try {
+                    saves = Transaction.saveAll(transactions);
+                } catch (Exception exception) {
+                    BardenJavaLibrary.getLogger().error("Couldn't save transaction batch!", exception);
+                    saves = Collections.nCopies(transactions.size(), Transaction.SaveResult.FAILED);
+                }
+
+                List<Transaction> saved = new ArrayList<>();
+                for (int i = 0; i < transactions.size(); i++) {
+                    Transaction transaction = transactions.get(i);
+                    Transaction.SaveResult save = saves.get(i);
+                    if (save == Transaction.SaveResult.FAILED) {
+                        results[indexes.get(i)] = HTTPResponse.of(false, Result.FAILED);
+                        continue;
+                    } else if (save == Transaction.SaveResult.SAVED) {
+                        saved.add(transaction);
+                    }
+
+                    //Grants product. Receipt is confirmed only if grant is done.
+                    PlayerProductGrant grant = grant(transaction);
+                    if (transaction.getReceipt() != null && !grant.isRetryable())
+                        TransactionReceipts.confirm(transaction.getReceipt());
+                    results[indexes.get(i)] = respond(grant, save == Transaction.SaveResult.DUPLICATE);
+                }
+
+                //Confirmed repeats are granted too, in case their first grant failed.
+                duplicates.forEach((index, transaction) -> results[index] = respond(grant(transaction), true));
+
+                //Repeats in the batch are duplicates of their first transaction, unless it failed.
+                repeats.forEach((index, first) -> {
+                    JsonObject _result = results[first].deepCopy();
+                    if (_result.get("success").getAsBoolean())
+                        _result.addProperty("duplicate", true);
+                    results[index] = _result;
+                });
+
+                //Statistics.
+                TransactionMetrics.writeAll(saved);
+            } finally {
+                //Releases receipts.
+                receipts.keySet().forEach(TransactionReceipts::end);
+            }
+
+            //Creates json object.
+            JsonArray _results = new JsonArray();
+            for (JsonObject _result : results)
+                _results.add(_result);
+            JsonObject response = HTTPResponse.of(true);
+            response.add("results", _results);
+
             //Sets result.
-            result.setResult(new ResponseEntity<>(HTTPResponse.of(true), HttpStatus.OK));
+            result.setResult(new ResponseEntity<>(response, HttpStatus.OK));
+        });
+
+        //Returns response entity.
+        return result;
+    }
+
+    /**
+     * Gets revenue of every product in a range.
+     * Range is aligned to hours, so bucketed storage answers from bucket summaries.
+     *
+     * @param from Range start. (EPOCH MILLISECONDS, DEFAULT IS A DAY BEFORE RANGE END)
+     * @param to   Range end. (EPOCH MILLISECONDS, DEFAULT IS NOW)
+     * @return Response entity. (JSON OBJECT)
+     */
+    @GetMapping(value = "/revenue", produces = MediaType.APPLICATION_JSON_VALUE)
+    public DeferredResult<ResponseEntity<JsonObject>> revenue(@Nullable @RequestParam(required = false) Long from,
+                                                              @Nullable @RequestParam(required = false) Long to) {
+        DeferredResult<ResponseEntity<JsonObject>> result = new DeferredResult<>();
+
+        //Declares aligned range. End is rounded up, so current hour is included.
+        long _to = Math.floorDiv((to == null ? System.currentTimeMillis() : to) + HOUR - 1, HOUR) * HOUR;
+        long _from = Math.floorDiv(from == null ? _to - TimeUnit.DAYS.toMillis(1) : from, HOUR) * HOUR;
+        if (_from >= _to || _to - _from > TimeUnit.DAYS.toMillis(400)) {
+            result.setResult(new ResponseEntity<>(HTTPResponse.of(false, Result.INVALID_RANGE), HttpStatus.OK));
+            return result;
+        }
+
+        //Process request in a thread to avoid freezing main thread.
+        Execution.run(() -> {
+            JsonObject json;
+            try {
+                JsonArray revenues = TransactionProvider.getStorage().revenue(_from, _to);
+                json = HTTPResponse.of(true);
+                json.addProperty("from", _from);
+                json.addProperty("to", _to);
+                json.add("results", revenues);
+            } catch (Exception exception) {
+                BardenJavaLibrary.getLogger().error("Couldn't query transaction revenue!", exception);
+                json = HTTPResponse.of(false, Result.QUERY_FAILED);
+            }
+            result.setResult(new ResponseEntity<>(json, HttpStatus.OK));
         });
 
         //Returns response entity.
         return result;
     }
+
+    /**
+     * Gets transaction history of a range.
+     *
+     * @param from   Range start. (EPOCH MILLISECONDS, DEFAULT IS 30 DAYS BEFORE RANGE END)
+     * @param to     Range end. (EPOCH MILLISECONDS, DEFAULT IS NOW)
+     * @param cursor Cursor token of previous page. (NULL FOR FIRST PAGE)
+     * @param limit  Maximum transaction count. (DEFAULT IS 100)
+     * @return Response entity. (JSON OBJECT)
+     */
+    @GetMapping(value = "/history", produces = MediaType.APPLICATION_JSON_VALUE)
+    public DeferredResult<ResponseEntity<JsonObject>> history(@Nullable @RequestParam(required = false) Long from,
+                                                              @Nullable @RequestParam(required = false) Long to,
+                                                              @Nullable @RequestParam(required = false) String cursor,
+                                                              @Nullable @RequestParam(required = false) Integer limit) {
+        return history(null, null, from, to, cursor, limit);
+    }
+
+    /**
+     * Gets transaction history of a buyer.
+     *
+     * @param buyer  Roblox user id.
+     * @param from   Range start. (EPOCH MILLISECONDS, DEFAULT IS 30 DAYS BEFORE RANGE END)
+     * @param to     Range end. (EPOCH MILLISECONDS, DEFAULT IS NOW)
+     * @param cursor Cursor token of previous page. (NULL FOR FIRST PAGE)
+     * @param limit  Maximum transaction count. (DEFAULT IS 100)
+     * @return Response entity. (JSON OBJECT)
+     */
+    @GetMapping(value = "/history/buyer/{buyer}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public DeferredResult<ResponseEntity<JsonObject>> historyOfBuyer(@PathVariable long buyer,
+                                                                     @Nullable @RequestParam(required = false) Long from,
+                                                                     @Nullable @RequestParam(required = false) Long to,
+                                                                     @Nullable @RequestParam(required = false) String cursor,
+                                                                     @Nullable @RequestParam(required = false) Integer limit) {
+        return history(buyer, null, from, to, cursor, limit);
+    }
+
+    /**
+     * Gets transaction history of a product.
+     *
+     * @param product Product id.
+     * @param from    Range start. (EPOCH MILLISECONDS, DEFAULT IS 30 DAYS BEFORE RANGE END)
+     * @param to      Range end. (EPOCH MILLISECONDS, DEFAULT IS NOW)
+     * @param cursor  Cursor token of previous page. (NULL FOR FIRST PAGE)
+     * @param limit   Maximum transaction count. (DEFAULT IS 100)
+     * @return Response entity. (JSON OBJECT)
+     */
+    @GetMapping(value = "/history/product/{product}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public DeferredResult<ResponseEntity<JsonObject>> historyOfProduct(@PathVariable long product,
+                                                                       @Nullable @RequestParam(required = false) Long from,
+                                                                       @Nullable @RequestParam(required = false) Long to,
+                                                                       @Nullable @RequestParam(required = false) String cursor,
+                                                                       @Nullable @RequestParam(required = false) Integer limit) {
+        return history(null, product, from, to, cursor, limit);
+    }
+
+    /**
+     * Gets a transaction history page.
+     * Pages are keyset paginated: "cursor" of the response is the position of its last
+     * transaction, and next page starts right after it. It is null on the last page.
+     *
+     * @param buyer   Roblox user id. (NULL FOR EVERY BUYER)
+     * @param product Product id. (NULL FOR EVERY PRODUCT)
+     * @param from    Range start. (EPOCH MILLISECONDS, DEFAULT IS 30 DAYS BEFORE RANGE END)
+     * @param to      Range end. (EPOCH MILLISECONDS, DEFAULT IS NOW)
+     * @param cursor  Cursor token of previous page. (NULL FOR FIRST PAGE)
+     * @param limit   Maximum transaction count. (DEFAULT IS 100)
+     * @return Response entity. (JSON OBJECT)
+     */
+    @Nonnull
+    private static DeferredResult<ResponseEntity<JsonObject>> history(@Nullable Long buyer,
+                                                                      @Nullable Long product,
+                                                                      @Nullable Long from,
+                                                                      @Nullable Long to,
+                                                                      @Nullable String cursor,
+                                                                      @Nullable Integer limit) {
+        DeferredResult<ResponseEntity<JsonObject>> result = new DeferredResult<>();
+
+        //Validates query.
+        TransactionQuery query = toQuery(buyer, product, from, to);
+        if (query == null) {
+            result.setResult(new ResponseEntity<>(HTTPResponse.of(false, Result.INVALID_RANGE), HttpStatus.OK));
+            return result;
+        }
+        int _limit = limit == null ? DEFAULT_PAGE : limit;
+        if (_limit <= 0 || _limit > MAXIMUM_PAGE) {
+            result.setResult(new ResponseEntity<>(HTTPResponse.of(false, Result.INVALID_LIMIT), HttpStatus.OK));
+            return result;
+        }
+        TransactionCursor _cursor;
+        try {
+            _cursor = cursor == null || cursor.isEmpty() ? null : TransactionCursor.parse(cursor);
+        } catch (IllegalArgumentException exception) {
+            result.setResult(new ResponseEntity<>(HTTPResponse.of(false, Result.INVALID_CURSOR), HttpStatus.OK));
+            return result;
+        }
+
+        //Process request in a thread to avoid freezing main thread.
+        Execution.run(() -> {
+            JsonObject json;
+            try {
+                //Reads one more transaction to know if there is a next page.
+                List<Transaction> transactions = new ArrayList<>(_limit + 1);
+                TransactionProvider.getStorage().history(query, _cursor, _limit + 1, transactions::add);
+
+                JsonArray results = new JsonArray();
+                for (int i = 0; i < Math.min(_limit, transactions.size()); i++)
+                    results.add(transactions.get(i).toJson());
+
+                json = HTTPResponse.of(true);
+                json.add("results", results);
+                json.addProperty("cursor", transactions.size() > _limit ? TransactionCursor.of(transactions.get(_limit - 1)).toToken() : null);
+            } catch (Exception exception) {
+                BardenJavaLibrary.getLogger().error("Couldn't query transaction history!", exception);
+                json = HTTPResponse.of(false, Result.QUERY_FAILED);
+            }
+            result.setResult(new ResponseEntity<>(json, HttpStatus.OK));
+        });
+
+        //Returns response entity.
+        return result;
+    }
+
+    /**
+     * Exports transaction history as newline delimited json.
+     * Transactions are read in keyset pages and every page is written to the response
+     * after its query is done, so a slow client never holds a database permit and memory
+     * usage doesn't depend on the result size. Exports have their own bound, so they
+     * can't take every database permit. Export runs on the request thread, async request
+     * timeout would cut long exports.
+     *
+     * @param buyer    Roblox user id. (NULL FOR EVERY BUYER)
+     * @param product  Product id. (NULL FOR EVERY PRODUCT)
+     * @param from     Range start. (EPOCH MILLISECONDS, DEFAULT IS 30 DAYS BEFORE RANGE END)
+     * @param to       Range end. (EPOCH MILLISECONDS, DEFAULT IS NOW)
+     * @param response Servlet response.
+     * @throws IOException Throws IO Exception.
+     */
+    @GetMapping(value = "/history/export")
+    public void export(@Nullable @RequestParam(required = false) Long buyer,
+                       @Nullable @RequestParam(required = false) Long product,
+                       @Nullable @RequestParam(required = false) Long from,
+                       @Nullable @RequestParam(required = false) Long to,
+                       @Nonnull HttpServletResponse response) throws IOException {
+        //Validates query.
+        TransactionQuery query = toQuery(buyer, product, from, to);
+        if (query == null) {
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.setCharacterEncoding("UTF-8");
+            response.getWriter().write(HTTPResponse.of(false, Result.INVALID_RANGE).toString());
+            return;
+        }
+
+        //If there are too many exports, no need to continue.
+        if (!exports.tryAcquire()) {
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.setCharacterEncoding("UTF-8");
+            response.getWriter().write(HTTPResponse.of(false, Result.TOO_MANY_EXPORTS).toString());
+            return;
+        }
+
+        //Configures response.
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+
+        Writer writer = response.getWriter();
+        List<Transaction> page = new ArrayList<>(MAXIMUM_PAGE);
+        TransactionCursor cursor = null;
+        try {
+            do {
+                //Reads a page, database permit is released before it is written.
+                page.clear();
+                TransactionProvider.getStorage().history(query, cursor, MAXIMUM_PAGE, page::add);
+                for (Transaction transaction : page) {
+                    writer.write(transaction.toJson().toString());
+                    writer.write('\n');
+                }
+                writer.flush();
+
+                if (!page.isEmpty())
+                    cursor = TransactionCursor.of(page.get(page.size() - 1));
+            } while (page.size() == MAXIMUM_PAGE);
+        } catch (IOException exception) {
+            //Client is gone, nothing to answer.
+            throw exception;
+        } catch (Exception exception) {
+            //Status is already sent, so export is cut short and client sees a truncated body.
+            BardenJavaLibrary.getLogger().error("Couldn't export transaction history!", exception);
+            throw exception;
+        } finally {
+            exports.release();
+        }
+    }
+
+    /**
+     * Creates a transaction query of a request.
+     *
+     * @param buyer   Roblox user id. (NULL FOR EVERY BUYER)
+     * @param product Product id. (NULL FOR EVERY PRODUCT)
+     * @param from    Range start. (EPOCH MILLISECONDS, DEFAULT IS 30 DAYS BEFORE RANGE END)
+     * @param to      Range end. (EPOCH MILLISECONDS, DEFAULT IS NOW)
+     * @return Transaction query. (NULL IF RANGE IS NOT VALID)
+     */
+    @Nullable
+    private static TransactionQuery toQuery(@Nullable Long buyer, @Nullable Long product, @Nullable Long from, @Nullable Long to) {
+        long _to = to == null ? System.currentTimeMillis() : to;
+        long _from = from == null ? _to - DEFAULT_HISTORY : from;
+        if (_from >= _to || _to - _from > MAXIMUM_HISTORY)
+            return null;
+        return new TransactionQuery(buyer, product, _from, _to);
+    }
+
+    /**
+     * Grants product of a transaction.
+     * Grant key is the receipt, so retries of a purchase with new uids are granted once.
+     *
+     * @param transaction Transaction.
+     * @return Player product grant.
+     */
+    @Nonnull
+    private static PlayerProductGrant grant(@Nonnull Transaction transaction) {
+        String key = transaction.getReceipt() != null ? transaction.getReceipt() : transaction.getUid().toString();
+        try {
+            return PlayerProductGrant.grant(transaction.getBuyer(), key, transaction.getProduct(), 1);
+        } catch (Exception exception) {
+            BardenJavaLibrary.getLogger().error("Couldn't grant product of transaction(" + transaction.getUid() + ")!", exception);
+            return PlayerProductGrant.failed(transaction.getProduct());
+        }
+    }
+
+    /**
+     * Creates response of a granted transaction.
+     * If grant should be retried, transaction is answered as failed, so roblox retries it.
+     *
+     * @param grant     Player product grant.
+     * @param duplicate Is transaction a duplicate or not.
+     * @return Response. (JSON OBJECT)
+     */
+    @Nonnull
+    private static JsonObject respond(@Nonnull PlayerProductGrant grant, boolean duplicate) {
+        JsonObject json = grant.isRetryable() ? HTTPResponse.of(false, Result.GRANT_FAILED) : duplicate ? duplicate() : HTTPResponse.of(true);
+        json.add("grant", grant.toJsonObject());
+        return json;
+    }
+
+    /**
+     * Creates a duplicate transaction response.
+     *
+     * @return Response. (JSON OBJECT)
+     */
+    @Nonnull
+    private static JsonObject duplicate() {
+        JsonObject json = HTTPResponse.of(true);
+        json.addProperty("duplicate", true);
+        return json;
+    }
 }
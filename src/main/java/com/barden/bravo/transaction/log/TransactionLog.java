@@ -0,0 +1,441 @@
+package com.barden.bravo.transaction.log;
+
+import com.barden.bravo.execution.Execution;
+import com.barden.bravo.instrumentation.Instrumentation;
+import com.barden.bravo.journal.Journal;
+import com.barden.bravo.journal.JournalRecord;
+import com.barden.bravo.metrics.TransactionMetrics;
+import com.barden.bravo.metrics.rolling.TransactionWindows;
+import com.barden.bravo.metrics.row.TransactionMetricRow;
+import com.barden.bravo.settings.Settings;
+import com.barden.bravo.transaction.Transaction;
+import com.barden.bravo.transaction.provider.TransactionReceipts;
+import com.barden.library.BardenJavaLibrary;
+import com.barden.library.scheduler.SchedulerProvider;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+
+import javax.annotation.Nonnull;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Transaction log class.
+ * <p>
+ * Local write-ahead log of transactions. A transaction is acknowledged once it is
+ * durable in the log, without waiting for mongo and metric writes. Appends of
+ * concurrent requests are grouped by a single writer thread and forced to the disk
+ * together, so a group costs a single fsync. (GROUP COMMIT)
+ * <p>
+ * An applier saves logged transactions to mongo with unordered inserts and writes
+ * their metrics, then commits applied records so their segments are deleted. After
+ * a crash, records which are not committed are applied again; a transaction which
+ * is already saved fails with a duplicate unique id and its metrics are not written
+ * twice.
+ * <p>
+ * Records are committed only after metrics of their saved transactions are written
+ * or spilled to the metric journal. Until then, metric rows are kept and retried
+ * before anything else is applied, since their transactions are duplicates now.
+ * <p>
+ * A record which can't be decoded, or whose transaction keeps failing to be saved
+ * while storage is reachable, is moved to the quarantine directory and counted, so
+ * it doesn't stop the log. Quarantined payloads are kept for inspection.
+ */
+public final class TransactionLog {
+
+    /*
+    VARIABLES
+     */
+
+    public static final int CAPACITY = 8192;
+    public static final int MAXIMUM_GROUP = 512;
+    public static final int APPLY_RECORDS = 256;
+    public static final int MAXIMUM_ATTEMPTS = 30;
+    private static final byte VERSION = 1;
+
+    private static final BlockingQueue<Entry> queue = new LinkedBlockingQueue<>(CAPACITY);
+    private static final ReentrantLock LOCK = new ReentrantLock();
+    private static Journal journal;
+    private static Path quarantine;
+    private static Thread writer;
+    private static volatile boolean running = false;
+
+    //Statistics.
+    private static final LongAdder groups = new LongAdder();
+    private static final LongAdder rejected = new LongAdder();
+    private static final Timer SYNC_TIMER = Instrumentation.timer("bravo.transaction.log.sync");
+    private static final Counter QUARANTINED = Instrumentation.counter("bravo.transaction.log.quarantined");
+
+    //Applier state.
+    private static final List<TransactionMetricRow> unwritten = new ArrayList<>();
+    private static final Map<UUID, Integer> attempts = new HashMap<>();
+
+
+    /*
+    INITIALIZE
+     */
+
+    /**
+     * Initializes transaction log.
+     * If log is disabled or can't be opened, transactions are processed synchronously.
+     */
+    public static void initialize() {
+        //If it is disabled or already running, no need to continue.
+        if (!Settings.isTransactionLog() || running)
+            return;
+
+        try {
+            journal = new Journal(Path.of(Settings.getJournalDirectory(), "transactions"), Settings.getJournalSegmentSize(), Settings.getJournalSegments());
+            quarantine = Path.of(Settings.getJournalDirectory(), "transactions-quarantine");
+        } catch (Exception exception) {
+            BardenJavaLibrary.getLogger().error("Couldn't open transaction log, transactions will be processed synchronously!", exception);
+            return;
+        }
+        running = true;
+
+        //Starts writer thread.
+        writer = Execution.thread("bravo-transaction-log", TransactionLog::run);
+        writer.start();
+
+        //Applies logged transactions. It replays unapplied transactions of previous run as well.
+        SchedulerProvider.create()
+                .every(1, TimeUnit.SECONDS)
+                .schedule(task -> Instrumentation.job("transactions.log.apply", TransactionLog::apply));
+
+        //Instrumentation.
+        Instrumentation.queue("transactions.log", queue, BlockingQueue::size);
+        Instrumentation.gauge("bravo.transaction.log.pending", journal, Journal::getPendingRows);
+        Instrumentation.gauge("bravo.transaction.log.segments", journal, Journal::getSegmentCount);
+        Instrumentation.gauge("bravo.transaction.log.groups", groups, LongAdder::sum);
+        Instrumentation.gauge("bravo.transaction.log.rejected", rejected, LongAdder::sum);
+
+        //Logging.
+        BardenJavaLibrary.getLogger().info("Transaction log is initialized with " + journal.getPendingRows() + " pending transactions!");
+    }
+
+    /**
+     * Terminates transaction log.
+     * Queued transactions are logged, then logged transactions are applied before log is closed.
+     */
+    public static void terminate() {
+        //If it is not running, no need to continue.
+        if (!running)
+            return;
+        running = false;
+
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+
+        //Transactions which are offered after writer stopped are not logged.
+        List<Entry> left = new ArrayList<>();
+        queue.drainTo(left);
+        left.forEach(entry -> entry.future.complete(false));
+
+        //Applies what is left. Anything which is not applied is replayed on the next start.
+        LOCK.lock();
+        try {
+            apply();
+            try {
+                journal.close();
+            } catch (IOException exception) {
+                BardenJavaLibrary.getLogger().error("Couldn't close transaction log!", exception);
+            }
+            journal = null;
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+
+    /*
+    METHODS
+     */
+
+    /**
+     * Gets if transaction log is enabled or not.
+     *
+     * @return If transaction log is enabled or not.
+     */
+    public static boolean isEnabled() {
+        return running;
+    }
+
+    /**
+     * Appends a transaction to the log.
+     * Returned future completes with true once transaction is durable in the log. It
+     * completes with false when log couldn't take the transaction, so it should be
+     * processed synchronously instead.
+     *
+     * @param transaction Transaction.
+     * @return Future of whether transaction is logged or not.
+     */
+    @Nonnull
+    public static CompletableFuture<Boolean> append(@Nonnull Transaction transaction) {
+        //Objects null check.
+        Objects.requireNonNull(transaction, "transaction cannot be null!");
+
+        //If log is not running or queue is full, no need to continue.
+        Entry entry = new Entry(transaction);
+        if (!running || !queue.offer(entry)) {
+            rejected.increment();
+            return CompletableFuture.completedFuture(false);
+        }
+        return entry.future;
+    }
+
+    /**
+     * Runs writer loop.
+     */
+    private static void run() {
+        List<Entry> group = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            //Waits for the first entry, then takes everything queued behind it.
+            Entry first;
+            try {
+                first = queue.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (first == null)
+                continue;
+
+            group.add(first);
+            queue.drainTo(group, MAXIMUM_GROUP - 1);
+            write(group);
+            group.clear();
+        }
+    }
+
+    /**
+     * Writes a group of entries with a single force.
+     *
+     * @param group Entries.
+     */
+    private static void write(@Nonnull List<Entry> group) {
+        boolean[] logged = new boolean[group.size()];
+        try {
+            for (int i = 0; i < group.size(); i++)
+                logged[i] = journal.offer(encode(group.get(i).transaction), 1);
+
+            //Forces the whole group.
+            long start = System.nanoTime();
+            journal.sync();
+            SYNC_TIMER.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            groups.increment();
+        } catch (Exception exception) {
+            //Nothing is durable. If some of them are replayed later, they are saved only once.
+            BardenJavaLibrary.getLogger().error("Couldn't write " + group.size() + " transactions to the transaction log!", exception);
+            logged = new boolean[group.size()];
+        }
+
+        for (int i = 0; i < group.size(); i++) {
+            if (!logged[i])
+                rejected.increment();
+            group.get(i).future.complete(logged[i]);
+        }
+    }
+
+
+    /*
+    APPLY
+     */
+
+    /**
+     * Applies logged transactions in order until log is empty or a save fails.
+     */
+    private static void apply() {
+        LOCK.lock();
+        try {
+            //If log is closed, no need to continue.
+            if (journal == null)
+                return;
+
+            try {
+                while (true) {
+                    //Metrics of already saved transactions must be written before records are committed.
+                    if (!unwritten.isEmpty()) {
+                        if (!TransactionMetrics.writeDurably(unwritten))
+                            return;
+                        unwritten.clear();
+                    }
+
+                    List<JournalRecord> records = journal.read(APPLY_RECORDS);
+                    if (records.isEmpty())
+                        return;
+
+                    //Declares transactions. Records which can't be decoded are quarantined.
+                    List<JournalRecord> decoded = new ArrayList<>(records.size());
+                    List<Transaction> transactions = new ArrayList<>(records.size());
+                    for (JournalRecord record : records) {
+                        try {
+                            transactions.add(decode(record.getPayload()));
+                            decoded.add(record);
+                        } catch (Exception exception) {
+                            quarantine(record, "couldn't be decoded: " + exception.getMessage());
+                        }
+                    }
+
+                    //Saves transactions. Duplicates are already saved, so only new ones have metrics.
+                    List<Transaction.SaveResult> results = Transaction.saveAll(transactions);
+                    List<Transaction> saved = new ArrayList<>();
+                    boolean failed = false;
+                    for (int i = 0; i < transactions.size(); i++) {
+                        Transaction transaction = transactions.get(i);
+                        Transaction.SaveResult result = results.get(i);
+                        if (result == Transaction.SaveResult.FAILED) {
+                            //If it keeps failing, it is quarantined instead of blocking the log.
+                            int attempt = attempts.merge(transaction.getUid(), 1, Integer::sum);
+                            if (attempt < MAXIMUM_ATTEMPTS) {
+                                failed = true;
+                                continue;
+                            }
+                            quarantine(decoded.get(i), "couldn't be saved in " + attempt + " attempts");
+                            attempts.remove(transaction.getUid());
+                            continue;
+                        }
+
+                        attempts.remove(transaction.getUid());
+                        if (transaction.getReceipt() != null)
+                            TransactionReceipts.confirm(transaction.getReceipt());
+                        if (result == Transaction.SaveResult.SAVED)
+                            saved.add(transaction);
+                    }
+
+                    //Saved transactions are counted once, even if their metric write is retried.
+                    List<TransactionMetricRow> rows = TransactionMetrics.toRows(saved);
+                    rows.forEach(TransactionWindows::add);
+                    unwritten.addAll(rows);
+
+                    //If a save failed, records are retried later. Saved ones will be duplicates.
+                    if (failed) {
+                        BardenJavaLibrary.getLogger().warn("Couldn't apply logged transactions, they will be retried!");
+                        return;
+                    }
+
+                    //If metrics couldn't be written nor spilled, records are committed later.
+                    if (!TransactionMetrics.writeDurably(unwritten)) {
+                        BardenJavaLibrary.getLogger().warn("Couldn't write metrics of logged transactions, they will be retried!");
+                        return;
+                    }
+                    unwritten.clear();
+                    journal.commit(records);
+                }
+            } catch (Exception exception) {
+                BardenJavaLibrary.getLogger().error("Couldn't apply transaction log!", exception);
+            }
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+    /**
+     * Moves a record to the quarantine directory.
+     * Record stays in the log until it is committed with its batch.
+     *
+     * @param record Journal record.
+     * @param reason Quarantine reason.
+     * @throws IOException If record couldn't be written to the quarantine directory.
+     */
+    private static void quarantine(@Nonnull JournalRecord record, @Nonnull String reason) throws IOException {
+        Files.createDirectories(quarantine);
+        Files.write(quarantine.resolve(record.getSegment() + "-" + record.getNext() + ".record"), record.getPayload());
+        QUARANTINED.increment();
+        BardenJavaLibrary.getLogger().error("Quarantined transaction log record(" + record.getSegment() + "-" + record.getNext() + "), it " + reason + "!");
+    }
+
+
+    /*
+    CODEC
+     */
+
+    /**
+     * Encodes a transaction.
+     *
+     * @param transaction Transaction.
+     * @return Payload.
+     */
+    @Nonnull
+    private static byte[] encode(@Nonnull Transaction transaction) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeByte(VERSION);
+        output.writeLong(transaction.getUid().getMostSignificantBits());
+        output.writeLong(transaction.getUid().getLeastSignificantBits());
+        output.writeLong(transaction.getDate().getTime());
+        output.writeLong(transaction.getProduct());
+        output.writeLong(transaction.getBuyer());
+        output.writeInt(transaction.getPrice());
+        output.writeBoolean(transaction.getReceipt() != null);
+        if (transaction.getReceipt() != null)
+            output.writeUTF(transaction.getReceipt());
+        output.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes a transaction.
+     *
+     * @param payload Payload.
+     * @return Transaction.
+     */
+    @Nonnull
+    private static Transaction decode(@Nonnull byte[] payload) throws IOException {
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(payload));
+        byte version = input.readByte();
+        if (version != VERSION)
+            throw new IOException("unknown transaction log record version(" + version + ")!");
+
+        UUID uid = new UUID(input.readLong(), input.readLong());
+        Date date = new Date(input.readLong());
+        long product = input.readLong();
+        long buyer = input.readLong();
+        int price = input.readInt();
+        String receipt = input.readBoolean() ? input.readUTF() : null;
+        return new Transaction(uid, receipt, date, product, buyer, price);
+    }
+
+
+    /*
+    ENTRY
+     */
+
+    /**
+     * Log entry. A transaction waiting for its group to be forced.
+     */
+    private static final class Entry {
+
+        private final Transaction transaction;
+        private final CompletableFuture<Boolean> future = new CompletableFuture<>();
+
+        /**
+         * Creates a log entry.
+         *
+         * @param transaction Transaction.
+         */
+        private Entry(@Nonnull Transaction transaction) {
+            this.transaction = transaction;
+        }
+    }
+}
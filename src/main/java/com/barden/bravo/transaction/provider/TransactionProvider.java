@@ -1,36 +1,73 @@
 package com.barden.bravo.transaction.provider;
 
+import com.barden.bravo.settings.Settings;
+import com.barden.bravo.transaction.Transaction;
+import com.barden.bravo.transaction.codec.TransactionCodec;
+import com.barden.bravo.transaction.log.TransactionLog;
+import com.barden.bravo.transaction.storage.BucketTransactionStorage;
+import com.barden.bravo.transaction.storage.DocumentTransactionStorage;
+import com.barden.bravo.transaction.storage.TransactionStorage;
+import com.barden.library.BardenJavaLibrary;
 import com.barden.library.database.DatabaseProvider;
-import com.mongodb.client.model.IndexOptions;
-import com.mongodb.client.model.Indexes;
+import com.mongodb.client.MongoCollection;
+import org.bson.codecs.configuration.CodecRegistries;
+
+import javax.annotation.Nonnull;
+import java.util.Objects;
 
 /**
  * Transaction provider.
  */
 public final class TransactionProvider {
 
+    private static TransactionStorage storage = new DocumentTransactionStorage();
+
     /**
-     * Handles mongo.
+     * Gets active transaction storage.
+     *
+     * @return Transaction storage.
      */
-    private static void handleMongo() {
-        //Unique indexes.
-        DatabaseProvider.mongo().createIndex(
-                "bravo",
-                "transactions",
-                Indexes.ascending("uid"),
-                new IndexOptions().unique(true).background(true));
-        //Not unique indexes.
-        DatabaseProvider.mongo().createIndex(
-                "bravo",
-                "transactions",
-                Indexes.ascending("date", "buyer", "product"),
-                new IndexOptions().background(true));
+    @Nonnull
+    public static TransactionStorage getStorage() {
+        return storage;
+    }
+
+    /**
+     * Gets transactions collection.
+     * Transactions are encoded and decoded with {@link TransactionCodec}.
+     *
+     * @return Transactions collection.
+     */
+    @Nonnull
+    public static MongoCollection<Transaction> getCollection() {
+        MongoCollection<Transaction> collection = Objects.requireNonNull(DatabaseProvider.mongo().getCollection("bravo", "transactions", Transaction.class), "transactions collection cannot be null!");
+        return collection.withCodecRegistry(CodecRegistries.fromRegistries(
+                CodecRegistries.fromCodecs(TransactionCodec.INSTANCE),
+                collection.getCodecRegistry()));
     }
 
     /**
      * Initializes transaction provider.
      */
     public static void initialize() {
-        handleMongo();
+        //Initializes transaction storage.
+        storage = switch (Settings.getTransactionStorage()) {
+            case "document" -> new DocumentTransactionStorage();
+            case "bucket" -> new BucketTransactionStorage();
+            default -> {
+                BardenJavaLibrary.getLogger().error("Unknown transaction storage(" + Settings.getTransactionStorage() + "), document is used instead!");
+                yield new DocumentTransactionStorage();
+            }
+        };
+        storage.initialize();
+
+        //Loads recent receipts.
+        TransactionReceipts.initialize();
+
+        //Opens transaction log and replays unapplied transactions.
+        TransactionLog.initialize();
+
+        //Logging.
+        BardenJavaLibrary.getLogger().info("Transactions are saved to " + storage.getName() + " storage!");
     }
 }
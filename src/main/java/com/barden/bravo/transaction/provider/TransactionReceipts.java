@@ -0,0 +1,186 @@
+package com.barden.bravo.transaction.provider;
+
+import com.barden.bravo.instrumentation.Instrumentation;
+import com.barden.library.BardenJavaLibrary;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+
+import javax.annotation.Nonnull;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Transaction receipts class.
+ * <p>
+ * Remembers receipts of saved transactions, so retried purchases are answered
+ * without reaching mongo or timescale. A bloom filter rejects unknown receipts
+ * without a lookup, and a bounded LRU of confirmed receipts answers repeats.
+ * A receipt which is in the bloom filter but not in the LRU is not trusted; its
+ * transaction is inserted and unique receipt index of mongo decides.
+ * <p>
+ * Bloom filter has two generations. When current generation is full, it becomes
+ * previous generation and oldest one is dropped, so false positive rate stays low.
+ */
+public final class TransactionReceipts {
+
+    /*
+    VARIABLES
+     */
+
+    public static final int GENERATION_SIZE = 1_000_000;
+    public static final double FALSE_POSITIVE_RATE = 0.001;
+    public static final int CONFIRMED_SIZE = 100_000;
+    public static final long WARM_UP = TimeUnit.DAYS.toMillis(1);
+
+    private static final Cache<String, Boolean> confirmed = CacheBuilder.newBuilder()
+            .maximumSize(CONFIRMED_SIZE)
+            .build();
+    private static final Set<String> processing = ConcurrentHashMap.newKeySet();
+    private static volatile BloomFilter<CharSequence> current = create();
+    private static volatile BloomFilter<CharSequence> previous = create();
+
+
+    /*
+    INITIALIZE
+     */
+
+    /**
+     * Initializes transaction receipts.
+     * Receipts of recent transactions are loaded, so retries after a restart are answered from memory too.
+     */
+    public static void initialize() {
+        AtomicInteger loaded = new AtomicInteger();
+        try {
+            TransactionProvider.getStorage().receipts(System.currentTimeMillis() - WARM_UP, CONFIRMED_SIZE, receipt -> {
+                confirm(receipt);
+                loaded.incrementAndGet();
+            });
+        } catch (Exception exception) {
+            BardenJavaLibrary.getLogger().error("Couldn't load recent transaction receipts!", exception);
+        }
+
+        //Instrumentation.
+        Instrumentation.gauge("bravo.transaction.receipts.confirmed", confirmed, Cache::size);
+        Instrumentation.gauge("bravo.transaction.receipts.processing", processing, Set::size);
+
+        //Logging.
+        BardenJavaLibrary.getLogger().info("Loaded " + loaded.get() + " recent transaction receipts!");
+    }
+
+
+    /*
+    METHODS
+     */
+
+    /**
+     * Begins processing a receipt.
+     * If result is {@link State#NEW}, {@link #end(String)} must be called when processing is done.
+     *
+     * @param receipt Receipt.
+     * @return Receipt state.
+     */
+    @Nonnull
+    public static State begin(@Nonnull String receipt) {
+        //Objects null check.
+        Objects.requireNonNull(receipt, "receipt cannot be null!");
+
+        State state;
+        if (isConfirmed(receipt))
+            state = State.DUPLICATE;
+        else if (!processing.add(receipt))
+            state = State.PROCESSING;
+        else if (isConfirmed(receipt)) {
+            //Receipt is confirmed by another request after first check.
+            processing.remove(receipt);
+            state = State.DUPLICATE;
+        } else
+            state = State.NEW;
+
+        Instrumentation.counter("bravo.transaction.receipts", "state", state.name()).increment();
+        return state;
+    }
+
+    /**
+     * Ends processing a receipt.
+     *
+     * @param receipt Receipt.
+     */
+    public static void end(@Nonnull String receipt) {
+        processing.remove(Objects.requireNonNull(receipt, "receipt cannot be null!"));
+    }
+
+    /**
+     * Confirms a receipt as saved.
+     *
+     * @param receipt Receipt.
+     */
+    public static void confirm(@Nonnull String receipt) {
+        //Objects null check.
+        Objects.requireNonNull(receipt, "receipt cannot be null!");
+
+        confirmed.put(receipt, Boolean.TRUE);
+        current.put(receipt);
+
+        //Rotates generations when current one is full.
+        if (current.approximateElementCount() >= GENERATION_SIZE) {
+            synchronized (TransactionReceipts.class) {
+                if (current.approximateElementCount() >= GENERATION_SIZE) {
+                    previous = current;
+                    current = create();
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets if a receipt is confirmed or not.
+     *
+     * @param receipt Receipt.
+     * @return If receipt is confirmed or not.
+     */
+    private static boolean isConfirmed(@Nonnull String receipt) {
+        //Bloom filter has no false negatives, so unknown receipts skip the lookup.
+        if (!current.mightContain(receipt) && !previous.mightContain(receipt))
+            return false;
+        return confirmed.getIfPresent(receipt) != null;
+    }
+
+    /**
+     * Creates a bloom filter generation.
+     *
+     * @return Bloom filter.
+     */
+    @Nonnull
+    private static BloomFilter<CharSequence> create() {
+        return BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8), GENERATION_SIZE, FALSE_POSITIVE_RATE);
+    }
+
+
+    /*
+    STATE
+     */
+
+    /**
+     * Receipt states.
+     */
+    public enum State {
+        /**
+         * Receipt is not confirmed, transaction should be saved.
+         */
+        NEW,
+        /**
+         * Receipt is already confirmed, transaction must not be saved again.
+         */
+        DUPLICATE,
+        /**
+         * Receipt is being processed by another request.
+         */
+        PROCESSING
+    }
+}
@@ -0,0 +1,144 @@
+package com.barden.bravo.transaction.query;
+
+import com.barden.bravo.transaction.Transaction;
+import com.mongodb.client.model.Filters;
+import org.bson.BsonBinary;
+import org.bson.UuidRepresentation;
+import org.bson.conversions.Bson;
+
+import javax.annotation.Nonnull;
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Transaction cursor class.
+ * <p>
+ * Keyset position of a transaction in {@link TransactionQuery#SORT} order. Next page
+ * starts right after the cursor, so a page costs the same no matter how deep it is,
+ * and transactions which are saved between pages don't shift it. Cursors are sent to
+ * clients as opaque url-safe tokens.
+ */
+public final class TransactionCursor {
+
+    private static final int LENGTH = Long.BYTES * 5;
+
+    private final long date;
+    private final long buyer;
+    private final long product;
+    private final UUID uid;
+
+    /**
+     * Creates a transaction cursor.
+     *
+     * @param date    Transaction date. (EPOCH MILLISECONDS)
+     * @param buyer   Roblox user id.
+     * @param product Product id.
+     * @param uid     Transaction unique id.
+     */
+    public TransactionCursor(long date, long buyer, long product, @Nonnull UUID uid) {
+        this.date = date;
+        this.buyer = buyer;
+        this.product = product;
+        this.uid = Objects.requireNonNull(uid, "uid cannot be null!");
+    }
+
+    /**
+     * Gets transaction date.
+     *
+     * @return Transaction date. (EPOCH MILLISECONDS)
+     */
+    public long getDate() {
+        return this.date;
+    }
+
+    /**
+     * Gets buyer.
+     *
+     * @return Roblox user id.
+     */
+    public long getBuyer() {
+        return this.buyer;
+    }
+
+    /**
+     * Gets product.
+     *
+     * @return Product id.
+     */
+    public long getProduct() {
+        return this.product;
+    }
+
+    /**
+     * Gets transaction unique id.
+     *
+     * @return Transaction unique id.
+     */
+    @Nonnull
+    public UUID getUid() {
+        return this.uid;
+    }
+
+    /**
+     * Creates filter of transactions after the cursor.
+     *
+     * @return Filter.
+     */
+    @Nonnull
+    public Bson toFilter() {
+        Date _date = new Date(this.date);
+        return Filters.or(
+                Filters.lt("date", _date),
+                Filters.and(Filters.eq("date", _date), Filters.lt("buyer", this.buyer)),
+                Filters.and(Filters.eq("date", _date), Filters.eq("buyer", this.buyer), Filters.lt("product", this.product)),
+                Filters.and(Filters.eq("date", _date), Filters.eq("buyer", this.buyer), Filters.eq("product", this.product),
+                        Filters.lt("uid", new BsonBinary(this.uid, UuidRepresentation.STANDARD))));
+    }
+
+    /**
+     * Converts cursor to a token.
+     *
+     * @return Cursor token.
+     */
+    @Nonnull
+    public String toToken() {
+        ByteBuffer buffer = ByteBuffer.allocate(LENGTH)
+                .putLong(this.date)
+                .putLong(this.buyer)
+                .putLong(this.product)
+                .putLong(this.uid.getMostSignificantBits())
+                .putLong(this.uid.getLeastSignificantBits());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    /**
+     * Creates cursor of a transaction.
+     *
+     * @param transaction Transaction.
+     * @return Transaction cursor.
+     */
+    @Nonnull
+    public static TransactionCursor of(@Nonnull Transaction transaction) {
+        return new TransactionCursor(transaction.getDate().getTime(), transaction.getBuyer(), transaction.getProduct(), transaction.getUid());
+    }
+
+    /**
+     * Parses a cursor token.
+     *
+     * @param token Cursor token.
+     * @return Transaction cursor.
+     * @throws IllegalArgumentException If token is not valid.
+     */
+    @Nonnull
+    public static TransactionCursor parse(@Nonnull String token) {
+        byte[] bytes = Base64.getUrlDecoder().decode(Objects.requireNonNull(token, "token cannot be null!"));
+        if (bytes.length != LENGTH)
+            throw new IllegalArgumentException("transaction cursor token is not valid!");
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new TransactionCursor(buffer.getLong(), buffer.getLong(), buffer.getLong(), new UUID(buffer.getLong(), buffer.getLong()));
+    }
+}
@@ -0,0 +1,126 @@
+package com.barden.bravo.transaction.query;
+
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Sorts;
+import org.bson.conversions.Bson;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Transaction query class.
+ * Transactions of a time range, optionally of a buyer and/or a product.
+ */
+public final class TransactionQuery {
+
+    /**
+     * Order of transaction queries. Uid makes the order total, so a cursor is never
+     * ambiguous.
+     */
+    public static final Bson SORT = Sorts.descending("date", "buyer", "product", "uid");
+
+    /**
+     * Order of (date, buyer, product) index. Transactions with the same index key are
+     * ordered with {@link #TIE_SORT}.
+     */
+    public static final Bson INDEX_SORT = Sorts.descending("date", "buyer", "product");
+
+    /**
+     * Order of transactions with the same (date, buyer, product).
+     */
+    public static final Bson TIE_SORT = Sorts.descending("uid");
+
+    /**
+     * Order of uids as mongodb compares them. (STANDARD BINARY, UNSIGNED BYTES)
+     */
+    public static final Comparator<UUID> UID_ORDER = (first, second) -> {
+        int most = Long.compareUnsigned(first.getMostSignificantBits(), second.getMostSignificantBits());
+        return most != 0 ? most : Long.compareUnsigned(first.getLeastSignificantBits(), second.getLeastSignificantBits());
+    };
+
+    private final Long buyer;
+    private final Long product;
+    private final long from;
+    private final long to;
+
+    /**
+     * Creates a transaction query.
+     *
+     * @param buyer   Roblox user id. (NULL FOR EVERY BUYER)
+     * @param product Product id. (NULL FOR EVERY PRODUCT)
+     * @param from    Range start. (INCLUSIVE, EPOCH MILLISECONDS)
+     * @param to      Range end. (EXCLUSIVE, EPOCH MILLISECONDS)
+     */
+    public TransactionQuery(@Nullable Long buyer, @Nullable Long product, long from, long to) {
+        if (from >= to)
+            throw new IllegalArgumentException("transaction query range start must be before its end!");
+
+        this.buyer = buyer;
+        this.product = product;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Gets buyer.
+     *
+     * @return Roblox user id. (NULL FOR EVERY BUYER)
+     */
+    @Nullable
+    public Long getBuyer() {
+        return this.buyer;
+    }
+
+    /**
+     * Gets product.
+     *
+     * @return Product id. (NULL FOR EVERY PRODUCT)
+     */
+    @Nullable
+    public Long getProduct() {
+        return this.product;
+    }
+
+    /**
+     * Gets range start.
+     *
+     * @return Range start. (INCLUSIVE, EPOCH MILLISECONDS)
+     */
+    public long getFrom() {
+        return this.from;
+    }
+
+    /**
+     * Gets range end.
+     *
+     * @return Range end. (EXCLUSIVE, EPOCH MILLISECONDS)
+     */
+    public long getTo() {
+        return this.to;
+    }
+
+    /**
+     * Creates filter of transaction documents.
+     *
+     * @param cursor Cursor of the last read transaction. (NULL FOR FIRST PAGE)
+     * @return Filter.
+     */
+    @Nonnull
+    public Bson toFilter(@Nullable TransactionCursor cursor) {
+        List<Bson> filters = new ArrayList<>();
+        filters.add(Filters.gte("date", new Date(this.from)));
+        filters.add(Filters.lt("date", new Date(this.to)));
+        if (this.buyer != null)
+            filters.add(Filters.eq("buyer", this.buyer));
+        if (this.product != null)
+            filters.add(Filters.eq("product", this.product));
+        if (cursor != null)
+            filters.add(cursor.toFilter());
+        return Filters.and(filters);
+    }
+}
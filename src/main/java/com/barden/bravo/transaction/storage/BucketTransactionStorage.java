@@ -0,0 +1,554 @@
+package com.barden.bravo.transaction.storage;
+
+import com.barden.bravo.instrumentation.Dependency;
+import com.barden.bravo.transaction.Transaction;
+import com.barden.bravo.transaction.codec.TransactionCodec;
+import com.barden.bravo.transaction.query.TransactionCursor;
+import com.barden.bravo.transaction.query.TransactionQuery;
+import com.barden.library.BardenJavaLibrary;
+import com.barden.library.database.DatabaseProvider;
+import com.google.gson.JsonArray;
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import org.bson.BsonBinary;
+import org.bson.BsonDateTime;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonDocumentWriter;
+import org.bson.BsonInt32;
+import org.bson.BsonInt64;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.UuidRepresentation;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.conversions.Bson;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Bucket transaction storage class.
+ * <p>
+ * Transactions of a product are grouped into hourly bucket documents of
+ * "transaction_buckets". A bucket keeps its entries with a pre-computed summary
+ * (count, robux, first, last) and a set of its buyers, so revenue of a range is
+ * summed from bucket summaries and per-buyer lookups use a multikey buyer index
+ * instead of a document and an index entry per transaction.
+ * <p>
+ * Bucket id is (product, hour, seq) and a bucket holds at most {@link #BUCKET_ENTRIES}
+ * entries. An entry is pushed to the latest known bucket of its hour only if it
+ * has room; when it is full, the upsert collides with its id and the entry moves
+ * on to the next seq. (OVERFLOW BUCKETS)
+ * <p>
+ * Receipts are claimed in "transaction_receipts" with the uid which owns them; a
+ * receipt claimed by another uid is a duplicate. Claims of failed bucket writes are
+ * released. Uids are claimed in "transaction_uids", so a replayed transaction is
+ * found by its claim instead of a scan of bucket entries. Only a replayed uid is
+ * looked up in the buckets of its hour, since its previous attempt may have been
+ * stopped before its entry is pushed. Uid claims are never released for the same
+ * reason.
+ */
+public final class BucketTransactionStorage implements TransactionStorage {
+
+    public static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    public static final long RECEIPT_EXPIRY = TimeUnit.DAYS.toSeconds(30);
+    public static final int BUCKET_ENTRIES = 1000;
+    private static final int ATTEMPTS = 8;
+    private static final int BATCH_SIZE = 1000;
+    private static final int MAXIMUM_SEQUENCES = 10_000;
+
+    //Latest known bucket seq of (product, hour), so full buckets are not tried again.
+    private final Map<BsonDocument, Integer> sequences = new ConcurrentHashMap<>();
+
+    /**
+     * Gets storage name.
+     *
+     * @return Storage name.
+     */
+    @Nonnull
+    @Override
+    public String getName() {
+        return "bucket";
+    }
+
+    /**
+     * Initializes storage. (INDEXES)
+     */
+    @Override
+    public void initialize() {
+        //Time range queries.
+        DatabaseProvider.mongo().createIndex(
+                "bravo",
+                "transaction_buckets",
+                Indexes.ascending("hour", "product"),
+                new IndexOptions().background(true));
+        //Per-buyer lookups. (MULTIKEY)
+        DatabaseProvider.mongo().createIndex(
+                "bravo",
+                "transaction_buckets",
+                Indexes.compoundIndex(Indexes.ascending("buyers"), Indexes.descending("hour")),
+                new IndexOptions().background(true));
+        //Receipt and uid claims expire, retries never come that late.
+        DatabaseProvider.mongo().createIndex(
+                "bravo",
+                "transaction_receipts",
+                Indexes.ascending("date"),
+                new IndexOptions().expireAfter(RECEIPT_EXPIRY, TimeUnit.SECONDS).background(true));
+        DatabaseProvider.mongo().createIndex(
+                "bravo",
+                "transaction_uids",
+                Indexes.ascending("date"),
+                new IndexOptions().expireAfter(RECEIPT_EXPIRY, TimeUnit.SECONDS).background(true));
+    }
+
+    /**
+     * Saves transactions to their buckets.
+     * Receipts and uids are claimed first, then entries are pushed with unordered bulk writes.
+     *
+     * @param transactions Transactions.
+     * @return Save results. (SAME ORDER AS TRANSACTIONS)
+     */
+    @Nonnull
+    @Override
+    public List<Transaction.SaveResult> save(@Nonnull List<Transaction> transactions) {
+        //Declares results. Transactions are saved unless a write reports an error for them.
+        Transaction.SaveResult[] results = new Transaction.SaveResult[transactions.size()];
+        Arrays.fill(results, Transaction.SaveResult.SAVED);
+
+        //Claims receipts and uids.
+        this.claim(transactions, results);
+        this.claimUids(transactions, results);
+
+        //Pushes entries. Duplicate key of an upsert means the bucket is full, or created concurrently.
+        List<Integer> pending = new ArrayList<>();
+        int[] seqs = new int[transactions.size()];
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] != Transaction.SaveResult.SAVED)
+                continue;
+            Transaction transaction = transactions.get(i);
+            seqs[i] = this.sequences.getOrDefault(toHourKey(transaction.getProduct(), transaction.getDate().getTime()), 0);
+            pending.add(i);
+        }
+        try {
+            for (int attempt = 1; attempt <= ATTEMPTS && !pending.isEmpty(); attempt++)
+                pending = this.push(transactions, results, pending, seqs, attempt == ATTEMPTS);
+        } catch (RuntimeException exception) {
+            this.release(transactions, results, true);
+            throw exception;
+        }
+
+        //Releases receipts of failed transactions.
+        this.release(transactions, results, false);
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Claims receipts of transactions.
+     * Transactions whose receipt is owned by another uid are marked as duplicates.
+     *
+     * @param transactions Transactions.
+     * @param results      Save results.
+     */
+    private void claim(@Nonnull List<Transaction> transactions, @Nonnull Transaction.SaveResult[] results) {
+        //Declares claims.
+        List<Integer> indexes = new ArrayList<>();
+        List<BsonDocument> claims = new ArrayList<>();
+        for (int i = 0; i < transactions.size(); i++) {
+            Transaction transaction = transactions.get(i);
+            if (transaction.getReceipt() == null)
+                continue;
+
+            indexes.add(i);
+            claims.add(new BsonDocument("_id", new BsonString(transaction.getReceipt()))
+                    .append("uid", toBinary(transaction))
+                    .append("date", new BsonDateTime(transaction.getDate().getTime())));
+        }
+
+        //If there is no receipt, no need to continue.
+        if (claims.isEmpty())
+            return;
+
+        Map<String, Integer> claimed = new HashMap<>();
+        try (var timing = Dependency.MONGO.time("transactions.receipts.claim")) {
+            this.getReceipts().insertMany(claims, new InsertManyOptions().ordered(false));
+        } catch (MongoBulkWriteException exception) {
+            for (BulkWriteError error : exception.getWriteErrors()) {
+                int index = indexes.get(error.getIndex());
+                if (error.getCategory() == ErrorCategory.DUPLICATE_KEY)
+                    claimed.put(transactions.get(index).getReceipt(), index);
+                else
+                    results[index] = Transaction.SaveResult.FAILED;
+            }
+
+            //Write concern error makes every result unknown.
+            if (exception.getWriteConcernError() != null)
+                Arrays.fill(results, Transaction.SaveResult.FAILED);
+        }
+
+        //If there is no claimed receipt, no need to continue.
+        if (claimed.isEmpty())
+            return;
+
+        //Receipt is a duplicate unless it is claimed by the same transaction before. (REPLAY)
+        try (var timing = Dependency.MONGO.time("transactions.receipts.find")) {
+            for (BsonDocument claim : this.getReceipts().find(Filters.in("_id", claimed.keySet()))) {
+                int index = claimed.get(claim.getString("_id").getValue());
+                if (!claim.get("uid").equals(toBinary(transactions.get(index))))
+                    results[index] = Transaction.SaveResult.DUPLICATE;
+            }
+        }
+    }
+
+    /**
+     * Claims uids of transactions which are not duplicates.
+     * A uid which is claimed already belongs to a replay; it is a duplicate only if
+     * its entry is in a bucket of its hour.
+     *
+     * @param transactions Transactions.
+     * @param results      Save results.
+     */
+    private void claimUids(@Nonnull List<Transaction> transactions, @Nonnull Transaction.SaveResult[] results) {
+        //Declares claims.
+        List<Integer> indexes = new ArrayList<>();
+        List<BsonDocument> claims = new ArrayList<>();
+        for (int i = 0; i < transactions.size(); i++) {
+            if (results[i] != Transaction.SaveResult.SAVED)
+                continue;
+
+            Transaction transaction = transactions.get(i);
+            indexes.add(i);
+            claims.add(new BsonDocument("_id", toBinary(transaction))
+                    .append("date", new BsonDateTime(transaction.getDate().getTime())));
+        }
+
+        //If there is no claim, no need to continue.
+        if (claims.isEmpty())
+            return;
+
+        List<Integer> replayed = new ArrayList<>();
+        try (var timing = Dependency.MONGO.time("transactions.uids.claim")) {
+            this.getUids().insertMany(claims, new InsertManyOptions().ordered(false));
+        } catch (MongoBulkWriteException exception) {
+            for (BulkWriteError error : exception.getWriteErrors()) {
+                int index = indexes.get(error.getIndex());
+                if (error.getCategory() == ErrorCategory.DUPLICATE_KEY)
+                    replayed.add(index);
+                else
+                    results[index] = Transaction.SaveResult.FAILED;
+            }
+
+            //Write concern error makes every result unknown.
+            if (exception.getWriteConcernError() != null) {
+                Arrays.fill(results, Transaction.SaveResult.FAILED);
+                return;
+            }
+        }
+
+        //Looks replayed uids up in the buckets of their hour.
+        try (var timing = Dependency.MONGO.time("transactions.uids.find")) {
+            for (int index : replayed) {
+                Transaction transaction = transactions.get(index);
+                BsonDocument hour = toHourKey(transaction.getProduct(), transaction.getDate().getTime());
+                Bson filter = Filters.and(
+                        Filters.eq("product", transaction.getProduct()),
+                        Filters.eq("hour", hour.get("hour")),
+                        Filters.eq("entries.uid", toBinary(transaction)));
+                if (this.getBuckets().find(filter).projection(Projections.include("_id")).first() != null)
+                    results[index] = Transaction.SaveResult.DUPLICATE;
+            }
+        }
+    }
+
+    /**
+     * Pushes entries of pending transactions to their buckets.
+     *
+     * @param transactions Transactions.
+     * @param results      Save results.
+     * @param pending      Indexes of pending transactions.
+     * @param seqs         Bucket seq of every transaction.
+     * @param last         Is it the last attempt or not.
+     * @return Indexes of transactions to retry.
+     */
+    @Nonnull
+    private List<Integer> push(@Nonnull List<Transaction> transactions, @Nonnull Transaction.SaveResult[] results, @Nonnull List<Integer> pending, @Nonnull int[] seqs, boolean last) {
+        //Declares writes.
+        List<WriteModel<BsonDocument>> writes = new ArrayList<>(pending.size());
+        for (int index : pending) {
+            Transaction transaction = transactions.get(index);
+            BsonDocument id = toBucketId(transaction.getProduct(), transaction.getDate().getTime(), seqs[index]);
+            Bson filter = Filters.and(Filters.eq("_id", id), Filters.lt("count", BUCKET_ENTRIES));
+            Bson update = Updates.combine(
+                    Updates.setOnInsert("product", transaction.getProduct()),
+                    Updates.setOnInsert("hour", id.get("hour")),
+                    Updates.inc("count", 1),
+                    Updates.inc("robux", transaction.getPrice()),
+                    Updates.min("first", transaction.getDate()),
+                    Updates.max("last", transaction.getDate()),
+                    Updates.addToSet("buyers", transaction.getBuyer()),
+                    Updates.push("entries", toEntry(transaction)));
+            writes.add(new UpdateOneModel<>(filter, update, new UpdateOptions().upsert(true)));
+        }
+
+        List<Integer> retries = new ArrayList<>();
+        try (var timing = Dependency.MONGO.time("transactions.bucket_write")) {
+            this.getBuckets().bulkWrite(writes, new BulkWriteOptions().ordered(false));
+        } catch (MongoBulkWriteException exception) {
+            for (BulkWriteError error : exception.getWriteErrors()) {
+                int index = pending.get(error.getIndex());
+                if (error.getCategory() == ErrorCategory.DUPLICATE_KEY) {
+                    //Bucket is full or created concurrently, entry moves on to the next bucket.
+                    if (last) {
+                        results[index] = Transaction.SaveResult.FAILED;
+                        BardenJavaLibrary.getLogger().error("Couldn't find a bucket with room for transaction(" + transactions.get(index).getUid() + ")!");
+                        continue;
+                    }
+                    Transaction transaction = transactions.get(index);
+                    seqs[index]++;
+                    this.advance(toHourKey(transaction.getProduct(), transaction.getDate().getTime()), seqs[index]);
+                    retries.add(index);
+                } else {
+                    results[index] = Transaction.SaveResult.FAILED;
+                    BardenJavaLibrary.getLogger().error("Couldn't save transaction(" + transactions.get(index).getUid() + "): " + error.getMessage());
+                }
+            }
+
+            //Write concern error makes every result unknown.
+            if (exception.getWriteConcernError() != null) {
+                Arrays.fill(results, Transaction.SaveResult.FAILED);
+                return new ArrayList<>();
+            }
+        }
+        return retries;
+    }
+
+    /**
+     * Moves latest known bucket seq of an hour forward.
+     *
+     * @param hour Hour key.
+     * @param seq  Bucket seq.
+     */
+    private void advance(@Nonnull BsonDocument hour, int seq) {
+        //Keeps cache bounded, a missing hour starts from its first bucket again.
+        if (this.sequences.size() >= MAXIMUM_SEQUENCES)
+            this.sequences.clear();
+        this.sequences.merge(hour, seq, Math::max);
+    }
+
+    /**
+     * Releases receipt claims of transactions which are not saved.
+     *
+     * @param transactions Transactions.
+     * @param results      Save results.
+     * @param all          Should every claim be released or only failed ones.
+     */
+    private void release(@Nonnull List<Transaction> transactions, @Nonnull Transaction.SaveResult[] results, boolean all) {
+        List<Bson> claims = new ArrayList<>();
+        for (int i = 0; i < transactions.size(); i++) {
+            Transaction transaction = transactions.get(i);
+            if (transaction.getReceipt() == null || results[i] == Transaction.SaveResult.DUPLICATE)
+                continue;
+            if (all || results[i] == Transaction.SaveResult.FAILED)
+                claims.add(Filters.and(Filters.eq("_id", transaction.getReceipt()), Filters.eq("uid", toBinary(transaction))));
+        }
+
+        //If there is no claim, no need to continue.
+        if (claims.isEmpty())
+            return;
+
+        try (var timing = Dependency.MONGO.time("transactions.receipts.release")) {
+            this.getReceipts().deleteMany(Filters.or(claims));
+        } catch (Exception exception) {
+            BardenJavaLibrary.getLogger().error("Couldn't release " + claims.size() + " transaction receipts!", exception);
+        }
+    }
+
+    /**
+     * Reads receipts of transactions which are saved since declared time.
+     *
+     * @param from     Range start. (INCLUSIVE, EPOCH MILLISECONDS)
+     * @param limit    Maximum receipt count.
+     * @param consumer Receipt consumer.
+     */
+    @Override
+    public void receipts(long from, int limit, @Nonnull Consumer<String> consumer) {
+        try (var timing = Dependency.MONGO.time("transactions.receipts")) {
+            var documents = this.getReceipts()
+                    .find(Filters.gte("date", new Date(from)))
+                    .projection(Projections.include("_id"))
+                    .limit(limit);
+            for (BsonDocument document : documents) {
+                BsonValue receipt = document.get("_id");
+                if (receipt != null && receipt.isString())
+                    consumer.accept(receipt.asString().getValue());
+            }
+        }
+    }
+
+    /**
+     * Reads transactions of a query in {@link TransactionQuery#SORT} order, starting
+     * right after the cursor. Buckets are found with hour and buyer indexes, then only
+     * matching entries are unwound and sorted. Sort may spill to disk for long ranges.
+     *
+     * @param query    Transaction query.
+     * @param cursor   Cursor of the last read transaction. (NULL FOR FIRST PAGE)
+     * @param limit    Maximum transaction count. (0 FOR NO LIMIT)
+     * @param consumer Transaction consumer.
+     */
+    @Override
+    public void history(@Nonnull TransactionQuery query, @Nullable TransactionCursor cursor, int limit, @Nonnull Consumer<Transaction> consumer) {
+        //Declares bucket filter. Buckets after the cursor hour can't have entries after the cursor.
+        List<Bson> buckets = new ArrayList<>();
+        buckets.add(Filters.gte("hour", new Date(Math.floorDiv(query.getFrom(), HOUR) * HOUR)));
+        buckets.add(Filters.lt("hour", new Date(cursor == null ? query.getTo() : Math.min(query.getTo(), Math.floorDiv(cursor.getDate(), HOUR) * HOUR + HOUR))));
+        if (query.getBuyer() != null)
+            buckets.add(Filters.eq("buyers", query.getBuyer()));
+        if (query.getProduct() != null)
+            buckets.add(Filters.eq("product", query.getProduct()));
+
+        //Declares pipeline.
+        List<Bson> pipeline = new ArrayList<>();
+        pipeline.add(Aggregates.match(Filters.and(buckets)));
+        pipeline.add(Aggregates.unwind("$entries"));
+        pipeline.add(Aggregates.replaceRoot("$entries"));
+        pipeline.add(Aggregates.match(query.toFilter(cursor)));
+        pipeline.add(Aggregates.sort(TransactionQuery.SORT));
+        if (limit > 0)
+            pipeline.add(Aggregates.limit(limit));
+
+        try (var timing = Dependency.MONGO.time("transactions.history")) {
+            this.getBuckets()
+                    .aggregate(pipeline)
+                    .allowDiskUse(true)
+                    .batchSize(limit == 0 ? BATCH_SIZE : Math.min(limit, BATCH_SIZE))
+                    .forEach(entry -> consumer.accept(TransactionCodec.INSTANCE.decode(new BsonDocumentReader(entry), DecoderContext.builder().build())));
+        }
+    }
+
+    /**
+     * Gets revenue of every product in an hour aligned range.
+     * Revenue is summed from bucket summaries, entries are not read.
+     *
+     * @param from Aligned range start. (INCLUSIVE, EPOCH MILLISECONDS)
+     * @param to   Aligned range end. (EXCLUSIVE, EPOCH MILLISECONDS)
+     * @return Product revenues.
+     */
+    @Nonnull
+    @Override
+    public JsonArray revenue(long from, long to) {
+        JsonArray revenues = new JsonArray();
+        try (var timing = Dependency.MONGO.time("transactions.revenue")) {
+            var documents = this.getBuckets().aggregate(List.of(
+                    Aggregates.match(Filters.and(Filters.gte("hour", new Date(from)), Filters.lt("hour", new Date(to)))),
+                    Aggregates.project(Projections.include("product", "count", "robux")),
+                    Aggregates.group("$product", Accumulators.sum("count", "$count"), Accumulators.sum("robux", "$robux"))));
+            for (BsonDocument document : documents)
+                revenues.add(DocumentTransactionStorage.toRevenue(document));
+        }
+        return revenues;
+    }
+
+    /**
+     * Gets buckets collection.
+     *
+     * @return Buckets collection.
+     */
+    @Nonnull
+    private MongoCollection<BsonDocument> getBuckets() {
+        return Objects.requireNonNull(DatabaseProvider.mongo().getCollection("bravo", "transaction_buckets", BsonDocument.class), "transaction buckets collection cannot be null!");
+    }
+
+    /**
+     * Gets uid claims collection.
+     *
+     * @return Uid claims collection.
+     */
+    @Nonnull
+    private MongoCollection<BsonDocument> getUids() {
+        return Objects.requireNonNull(DatabaseProvider.mongo().getCollection("bravo", "transaction_uids", BsonDocument.class), "transaction uids collection cannot be null!");
+    }
+
+    /**
+     * Gets receipt claims collection.
+     *
+     * @return Receipt claims collection.
+     */
+    @Nonnull
+    private MongoCollection<BsonDocument> getReceipts() {
+        return Objects.requireNonNull(DatabaseProvider.mongo().getCollection("bravo", "transaction_receipts", BsonDocument.class), "transaction receipts collection cannot be null!");
+    }
+
+    /**
+     * Creates an hour key of a product.
+     *
+     * @param product Product id.
+     * @param time    Transaction time. (EPOCH MILLISECONDS)
+     * @return Hour key.
+     */
+    @Nonnull
+    private static BsonDocument toHourKey(long product, long time) {
+        return new BsonDocument("product", new BsonInt64(product))
+                .append("hour", new BsonDateTime(Math.floorDiv(time, HOUR) * HOUR));
+    }
+
+    /**
+     * Creates a bucket id.
+     *
+     * @param product Product id.
+     * @param time    Transaction time. (EPOCH MILLISECONDS)
+     * @param seq     Bucket seq of the hour.
+     * @return Bucket id.
+     */
+    @Nonnull
+    private static BsonDocument toBucketId(long product, long time, int seq) {
+        return toHourKey(product, time).append("seq", new BsonInt32(seq));
+    }
+
+    /**
+     * Creates a bucket entry of a transaction with transaction codec.
+     *
+     * @param transaction Transaction.
+     * @return Bucket entry.
+     */
+    @Nonnull
+    private static BsonDocument toEntry(@Nonnull Transaction transaction) {
+        BsonDocument entry = new BsonDocument();
+        TransactionCodec.INSTANCE.encode(new BsonDocumentWriter(entry), transaction, EncoderContext.builder().build());
+        return entry;
+    }
+
+    /**
+     * Gets unique id of a transaction as binary. (SUBTYPE 4)
+     *
+     * @param transaction Transaction.
+     * @return Unique id binary.
+     */
+    @Nonnull
+    private static BsonBinary toBinary(@Nonnull Transaction transaction) {
+        return new BsonBinary(transaction.getUid(), UuidRepresentation.STANDARD);
+    }
+}
@@ -0,0 +1,265 @@
+package com.barden.bravo.transaction.storage;
+
+import com.barden.bravo.instrumentation.Dependency;
+import com.barden.bravo.transaction.Transaction;
+import com.barden.bravo.transaction.provider.TransactionProvider;
+import com.barden.bravo.transaction.query.TransactionCursor;
+import com.barden.bravo.transaction.query.TransactionQuery;
+import com.barden.library.BardenJavaLibrary;
+import com.barden.library.database.DatabaseProvider;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.Projections;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Document transaction storage class.
+ * <p>
+ * Every transaction is a document of "transactions" collection. Unique indexes of
+ * uid and receipt reject duplicates.
+ */
+public final class DocumentTransactionStorage implements TransactionStorage {
+
+    private static final int BATCH_SIZE = 1000;
+
+    /**
+     * Gets storage name.
+     *
+     * @return Storage name.
+     */
+    @Nonnull
+    @Override
+    public String getName() {
+        return "document";
+    }
+
+    /**
+     * Initializes storage. (INDEXES)
+     */
+    @Override
+    public void initialize() {
+        //Unique indexes.
+        DatabaseProvider.mongo().createIndex(
+                "bravo",
+                "transactions",
+                Indexes.ascending("uid"),
+                new IndexOptions().unique(true).background(true));
+        //Receipts are unique, transactions without a receipt are not indexed.
+        DatabaseProvider.mongo().createIndex(
+                "bravo",
+                "transactions",
+                Indexes.ascending("receipt"),
+                new IndexOptions().unique(true).sparse(true).background(true));
+        //Not unique indexes.
+        DatabaseProvider.mongo().createIndex(
+                "bravo",
+                "transactions",
+                Indexes.ascending("date", "buyer", "product"),
+                new IndexOptions().background(true));
+    }
+
+    /**
+     * Saves transactions with a single unordered insert.
+     *
+     * @param transactions Transactions.
+     * @return Save results. (SAME ORDER AS TRANSACTIONS)
+     */
+    @Nonnull
+    @Override
+    public List<Transaction.SaveResult> save(@Nonnull List<Transaction> transactions) {
+        //Declares results. Transactions are saved unless insert reports an error for them.
+        Transaction.SaveResult[] results = new Transaction.SaveResult[transactions.size()];
+        Arrays.fill(results, Transaction.SaveResult.SAVED);
+
+        //Bson documents saving.
+        try (var timing = Dependency.MONGO.time("transactions.insert_many")) {
+            TransactionProvider.getCollection().insertMany(transactions, new InsertManyOptions().ordered(false));
+        } catch (MongoBulkWriteException exception) {
+            for (BulkWriteError error : exception.getWriteErrors()) {
+                if (error.getCategory() == ErrorCategory.DUPLICATE_KEY) {
+                    results[error.getIndex()] = Transaction.SaveResult.DUPLICATE;
+                } else {
+                    results[error.getIndex()] = Transaction.SaveResult.FAILED;
+                    BardenJavaLibrary.getLogger().error("Couldn't save transaction(" + transactions.get(error.getIndex()).getUid() + "): " + error.getMessage());
+                }
+            }
+
+            //Write concern error makes every result unknown.
+            if (exception.getWriteConcernError() != null)
+                Arrays.fill(results, Transaction.SaveResult.FAILED);
+        }
+
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Reads receipts of transactions which are saved since declared time.
+     *
+     * @param from     Range start. (INCLUSIVE, EPOCH MILLISECONDS)
+     * @param limit    Maximum receipt count.
+     * @param consumer Receipt consumer.
+     */
+    @Override
+    public void receipts(long from, int limit, @Nonnull Consumer<String> consumer) {
+        try (var timing = Dependency.MONGO.time("transactions.receipts")) {
+            var documents = this.getDocuments()
+                    .find(Filters.and(Filters.gte("date", new Date(from)), Filters.exists("receipt")))
+                    .projection(Projections.include("receipt"))
+                    .limit(limit);
+            for (BsonDocument document : documents) {
+                BsonValue receipt = document.get("receipt");
+                if (receipt != null && receipt.isString())
+                    consumer.accept(receipt.asString().getValue());
+            }
+        }
+    }
+
+    /**
+     * Reads transactions of a query in {@link TransactionQuery#SORT} order, starting
+     * right after the cursor. Transactions are read in (date, buyer, product) index
+     * order, so a page is an index range scan no matter how deep it is. Uid is not in
+     * the index, so transactions with the same (date, buyer, product) are a tie group
+     * which is ordered by uid in memory. If a page is full, its last tie group might be
+     * cut, so it is read again in uid order with an index point lookup.
+     *
+     * @param query    Transaction query.
+     * @param cursor   Cursor of the last read transaction. (NULL FOR FIRST PAGE)
+     * @param limit    Maximum transaction count. (0 FOR NO LIMIT)
+     * @param consumer Transaction consumer.
+     */
+    @Override
+    public void history(@Nonnull TransactionQuery query, @Nullable TransactionCursor cursor, int limit, @Nonnull Consumer<Transaction> consumer) {
+        try (var timing = Dependency.MONGO.time("transactions.history")) {
+            List<Transaction> group = new ArrayList<>();
+            int read = 0;
+            int written = 0;
+            for (Transaction transaction : TransactionProvider.getCollection()
+                    .find(query.toFilter(cursor))
+                    .sort(TransactionQuery.INDEX_SORT)
+                    .limit(limit)
+                    .batchSize(limit == 0 ? BATCH_SIZE : Math.min(limit, BATCH_SIZE))) {
+                read++;
+
+                //Writes previous tie group when a new one starts.
+                if (!group.isEmpty() && !isTied(group.get(0), transaction)) {
+                    written += write(group, consumer);
+                    group.clear();
+                }
+                group.add(transaction);
+            }
+
+            //If there is no transaction, no need to continue.
+            if (group.isEmpty())
+                return;
+
+            //If page isn't full, last tie group is complete.
+            if (limit == 0 || read < limit) {
+                write(group, consumer);
+                return;
+            }
+
+            //Reads last tie group again in uid order. Cursor filter skips its already read part.
+            Transaction first = group.get(0);
+            TransactionProvider.getCollection()
+                    .find(Filters.and(
+                            query.toFilter(cursor),
+                            Filters.eq("date", first.getDate()),
+                            Filters.eq("buyer", first.getBuyer()),
+                            Filters.eq("product", first.getProduct())))
+                    .sort(TransactionQuery.TIE_SORT)
+                    .limit(limit - written)
+                    .forEach(consumer);
+        }
+    }
+
+    /**
+     * Gets revenue of every product in an hour aligned range.
+     *
+     * @param from Aligned range start. (INCLUSIVE, EPOCH MILLISECONDS)
+     * @param to   Aligned range end. (EXCLUSIVE, EPOCH MILLISECONDS)
+     * @return Product revenues.
+     */
+    @Nonnull
+    @Override
+    public JsonArray revenue(long from, long to) {
+        JsonArray revenues = new JsonArray();
+        try (var timing = Dependency.MONGO.time("transactions.revenue")) {
+            var documents = this.getDocuments().aggregate(List.of(
+                    Aggregates.match(Filters.and(Filters.gte("date", new Date(from)), Filters.lt("date", new Date(to)))),
+                    Aggregates.group("$product", Accumulators.sum("count", 1), Accumulators.sum("robux", "$price"))));
+            for (BsonDocument document : documents)
+                revenues.add(toRevenue(document));
+        }
+        return revenues;
+    }
+
+    /**
+     * Gets transactions collection as bson documents.
+     *
+     * @return Transactions collection.
+     */
+    @Nonnull
+    private MongoCollection<BsonDocument> getDocuments() {
+        return Objects.requireNonNull(DatabaseProvider.mongo().getCollection("bravo", "transactions", BsonDocument.class), "transactions collection cannot be null!");
+    }
+
+    /**
+     * Converts a revenue group document to a json object.
+     *
+     * @param document Group document. (_id IS PRODUCT)
+     * @return Revenue json object.
+     */
+    @Nonnull
+    static JsonObject toRevenue(@Nonnull BsonDocument document) {
+        JsonObject json = new JsonObject();
+        json.addProperty("product", document.get("_id").asNumber().longValue());
+        json.addProperty("count", document.get("count").asNumber().longValue());
+        json.addProperty("robux", document.get("robux").asNumber().longValue());
+        return json;
+    }
+
+    /**
+     * Gets if two transactions are in the same tie group or not.
+     *
+     * @param first  First transaction.
+     * @param second Second transaction.
+     * @return If transactions have the same (date, buyer, product) or not.
+     */
+    private static boolean isTied(@Nonnull Transaction first, @Nonnull Transaction second) {
+        return first.getDate().equals(second.getDate()) && first.getBuyer() == second.getBuyer() && first.getProduct() == second.getProduct();
+    }
+
+    /**
+     * Writes a tie group in uid order.
+     *
+     * @param group    Tie group.
+     * @param consumer Transaction consumer.
+     * @return Written transaction count.
+     */
+    private static int write(@Nonnull List<Transaction> group, @Nonnull Consumer<Transaction> consumer) {
+        group.sort(Comparator.comparing(Transaction::getUid, TransactionQuery.UID_ORDER).reversed());
+        group.forEach(consumer);
+        return group.size();
+    }
+}
@@ -0,0 +1,76 @@
+package com.barden.bravo.transaction.storage;
+
+import com.barden.bravo.transaction.Transaction;
+import com.barden.bravo.transaction.query.TransactionCursor;
+import com.barden.bravo.transaction.query.TransactionQuery;
+import com.google.gson.JsonArray;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Transaction storage interface.
+ * <p>
+ * Storage layout of transactions in mongo. Transactions are saved, deduplicated
+ * and queried only through the active storage, so layouts can be switched without
+ * touching the transaction path. Receipts must stay unique in every layout.
+ */
+public interface TransactionStorage {
+
+    /**
+     * Gets storage name.
+     *
+     * @return Storage name.
+     */
+    @Nonnull
+    String getName();
+
+    /**
+     * Initializes storage. (COLLECTIONS, INDEXES)
+     */
+    void initialize();
+
+    /**
+     * Saves transactions.
+     * A failed transaction doesn't stop others, so every transaction has its own result.
+     *
+     * @param transactions Transactions.
+     * @return Save results. (SAME ORDER AS TRANSACTIONS)
+     */
+    @Nonnull
+    List<Transaction.SaveResult> save(@Nonnull List<Transaction> transactions);
+
+    /**
+     * Reads receipts of transactions which are saved since declared time.
+     *
+     * @param from     Range start. (INCLUSIVE, EPOCH MILLISECONDS)
+     * @param limit    Maximum receipt count.
+     * @param consumer Receipt consumer.
+     */
+    void receipts(long from, int limit, @Nonnull Consumer<String> consumer);
+
+    /**
+     * Reads transactions of a query in {@link TransactionQuery#SORT} order, starting
+     * right after the cursor. Transactions are passed to the consumer as they are read,
+     * at most a page is collected in memory.
+     *
+     * @param query    Transaction query.
+     * @param cursor   Cursor of the last read transaction. (NULL FOR FIRST PAGE)
+     * @param limit    Maximum transaction count. (0 FOR NO LIMIT)
+     * @param consumer Transaction consumer.
+     */
+    void history(@Nonnull TransactionQuery query, @Nullable TransactionCursor cursor, int limit, @Nonnull Consumer<Transaction> consumer);
+
+    /**
+     * Gets revenue of every product in an hour aligned range.
+     * Every element is a json object of (product, count, robux).
+     *
+     * @param from Aligned range start. (INCLUSIVE, EPOCH MILLISECONDS)
+     * @param to   Aligned range end. (EXCLUSIVE, EPOCH MILLISECONDS)
+     * @return Product revenues.
+     */
+    @Nonnull
+    JsonArray revenue(long from, long to);
+}
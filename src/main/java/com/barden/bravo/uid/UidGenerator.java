@@ -0,0 +1,75 @@
+package com.barden.bravo.uid;
+
+import javax.annotation.Nonnull;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Unique id generator class.
+ * <p>
+ * Generates time-ordered version 7 UUIDs. (RFC 9562) First 48 bits are unix epoch
+ * milliseconds, so new ids are appended to the right side of uid indexes instead of
+ * being spread over the whole B-tree.
+ * <p>
+ * Every thread has its own state and random source, so generation never contends on
+ * the shared {@link java.security.SecureRandom} of {@link UUID#randomUUID()}. Ids of a
+ * thread are monotonic: 12 bit "rand_a" field is a counter which starts randomly in
+ * every millisecond and is increased for ids in the same millisecond. If it
+ * overflows, timestamp is moved to the next millisecond. Remaining 62 bits are random.
+ * (NOT CRYPTOGRAPHICALLY SECURE, IDS MUST NOT BE USED AS SECRETS)
+ */
+public final class UidGenerator {
+
+    private static final int COUNTER_BITS = 12;
+    private static final int COUNTER_MAX = (1 << COUNTER_BITS) - 1;
+    private static final long VERSION = 0x7000L;
+    private static final long VARIANT = 0x8000000000000000L;
+
+    private static final ThreadLocal<State> states = ThreadLocal.withInitial(State::new);
+
+    /**
+     * Generates a time-ordered unique id.
+     *
+     * @return Version 7 UUID.
+     */
+    @Nonnull
+    public static UUID next() {
+        State state = states.get();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        //Moves to the current millisecond, or increases counter if clock didn't move.
+        long now = System.currentTimeMillis();
+        if (now > state.time) {
+            state.time = now;
+            //Highest counter bit is cleared, so a millisecond has room for at least 2048 ids.
+            state.counter = random.nextInt(COUNTER_MAX >> 1);
+        } else if (++state.counter > COUNTER_MAX) {
+            state.time++;
+            state.counter = 0;
+        }
+
+        long most = (state.time << 16) | VERSION | state.counter;
+        long least = VARIANT | (random.nextLong() >>> 2);
+        return new UUID(most, least);
+    }
+
+    /**
+     * Gets timestamp of a version 7 UUID.
+     *
+     * @param uid Version 7 UUID.
+     * @return Timestamp. (EPOCH MILLISECONDS)
+     */
+    public static long getTime(@Nonnull UUID uid) {
+        if (uid.version() != 7)
+            throw new IllegalArgumentException("uid(" + uid + ") is not a version 7 uuid!");
+        return uid.getMostSignificantBits() >>> 16;
+    }
+
+    /**
+     * Generator state of a thread.
+     */
+    private static final class State {
+        private long time;
+        private int counter;
+    }
+}
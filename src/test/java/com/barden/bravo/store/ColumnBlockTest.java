@@ -0,0 +1,180 @@
+package com.barden.bravo.store;
+
+import org.junit.Test;
+import org.springframework.lang.NonNull;
+
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Column block codec test class. [TEST]
+ * <p>
+ * Lives in the store package, since bit streams and block codec are package-private.
+ */
+public final class ColumnBlockTest {
+
+    private static final long START = 1_650_000_000_000L;
+
+    @Test
+    public void bitStreamsRoundTripEveryWidth() {
+        //Every width from 0 to 64 is written after an odd bit, so values cross byte boundaries.
+        long[] values = {0L, 1L, -1L, Long.MIN_VALUE, Long.MAX_VALUE, 0x5555555555555555L, 0xAAAAAAAAAAAAAAAAL};
+        BitOutput output = new BitOutput(1);
+        for (int width = 0; width <= 64; width++) {
+            for (long value : values) {
+                output.writeBit(true);
+                output.write(value, width);
+            }
+        }
+
+        BitInput input = new BitInput(output.toByteArray(), 0);
+        for (int width = 0; width <= 64; width++) {
+            for (long value : values) {
+                assertTrue(input.readBit());
+                assertEquals("width " + width, lowest(value, width), input.read(width));
+            }
+        }
+    }
+
+    @Test
+    public void bitInputReadsFromOffset() {
+        BitOutput output = new BitOutput(8);
+        output.write(0xDEADBEEFL, 32);
+        output.write(Long.MIN_VALUE, 64);
+        byte[] bytes = output.toByteArray();
+
+        byte[] shifted = new byte[bytes.length + 3];
+        System.arraycopy(bytes, 0, shifted, 3, bytes.length);
+        BitInput input = new BitInput(shifted, 3);
+        assertEquals(0xDEADBEEFL, input.read(32));
+        assertEquals(Long.MIN_VALUE, input.read(64));
+    }
+
+    @Test
+    public void singlePointRoundTrips() {
+        long[] times = {START};
+        long[][] columns = {{Long.MIN_VALUE}, {Double.doubleToRawLongBits(Double.NaN)}};
+        assertRoundTrip(times, columns);
+    }
+
+    @Test
+    public void equalValuesRoundTrip() {
+        long[] times = new long[1000];
+        long[][] columns = new long[2][times.length];
+        for (int i = 0; i < times.length; i++) {
+            times[i] = START + i * 1000L;
+            columns[0][i] = 42;
+            columns[1][i] = Double.doubleToRawLongBits(0.5d);
+        }
+        byte[] payload = assertRoundTrip(times, columns);
+
+        //Equal values and regular intervals cost a bit per point, so streams are tiny.
+        assertTrue(payload.length < 100 + 3 * times.length / 8 + 3 * Long.BYTES);
+    }
+
+    @Test
+    public void deltaOfDeltaBucketBoundariesRoundTrip() {
+        //Delta of deltas around every bucket edge. (7, 12, 20, 64 BITS)
+        long[] dods = {0, 1, -1, 63, -64, 64, -65, 2047, -2048, 2048, -2049, 524287, -524288, 524288, -524289};
+        long[] times = new long[dods.length * 2 + 1];
+        times[0] = START;
+        long delta = 1_000_000L;
+        for (int i = 0; i < dods.length; i++) {
+            //Applies the dod, then repeats the delta, so every other dod is zero.
+            delta += dods[i];
+            times[i * 2 + 1] = times[i * 2] + delta;
+            times[i * 2 + 2] = times[i * 2 + 1] + delta;
+        }
+        assertRoundTrip(times, new long[0][]);
+    }
+
+    @Test
+    public void largeTimestampGapsRoundTrip() {
+        long[] times = {0L, 1L, 1L, Long.MAX_VALUE / 4, Long.MAX_VALUE / 2, Long.MAX_VALUE / 2 + 1, Long.MAX_VALUE};
+        long[][] columns = {{1, 2, 3, 4, 5, 6, 7}};
+        assertRoundTrip(times, columns);
+    }
+
+    @Test
+    public void doublesRoundTripBitExactly() {
+        double[] values = {
+                0.0d, -0.0d, Double.NaN, Double.longBitsToDouble(0x7FF8000000000001L), Double.POSITIVE_INFINITY,
+                Double.NEGATIVE_INFINITY, Double.MIN_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE, 1.0d, 1.0d,
+                Double.NaN, Double.NaN, 3.141592653589793d, -2.5d, Math.ulp(1.0d)
+        };
+        long[] times = new long[values.length];
+        long[][] columns = new long[1][values.length];
+        for (int i = 0; i < values.length; i++) {
+            times[i] = START + i;
+            columns[0][i] = Double.doubleToRawLongBits(values[i]);
+        }
+
+        ColumnBlock block = ColumnBlock.decode(ColumnBlock.encode(times, columns, 0, times.length));
+        for (int i = 0; i < values.length; i++)
+            assertEquals(Double.doubleToRawLongBits(values[i]), Double.doubleToRawLongBits(block.getDouble(0, i)));
+    }
+
+    @Test
+    public void longColumnsRoundTripFullWidthXors() {
+        //Alternating extremes have 64 meaningful bits, zero leading and trailing zeros.
+        long[] values = {Long.MIN_VALUE, Long.MAX_VALUE, 0L, -1L, 1L, Long.MIN_VALUE, 1L << 32, (1L << 32) + 1, 0L};
+        long[] times = new long[values.length];
+        for (int i = 0; i < values.length; i++)
+            times[i] = START + i * 10L;
+        assertRoundTrip(times, new long[][]{values});
+    }
+
+    @Test
+    public void randomColumnsRoundTrip() {
+        SplittableRandom random = new SplittableRandom(7);
+        long[] times = new long[5000];
+        long[][] columns = new long[3][times.length];
+        long time = START;
+        for (int i = 0; i < times.length; i++) {
+            time += random.nextInt(4) == 0 ? random.nextLong(0, 1L << 40) : random.nextInt(0, 2000);
+            times[i] = time;
+            columns[0][i] = random.nextLong();
+            columns[1][i] = random.nextInt(3) == 0 ? columns[1][Math.max(0, i - 1)] : random.nextLong(0, 1000);
+            columns[2][i] = Double.doubleToRawLongBits(random.nextDouble() * 1000);
+        }
+        assertRoundTrip(times, columns);
+    }
+
+    @Test
+    public void encodesRangeOfPoints() {
+        long[] times = {START, START + 1, START + 5, START + 9, START + 20};
+        long[][] columns = {{10, 20, 30, 40, 50}};
+        byte[] payload = ColumnBlock.encode(times, columns, 1, 4);
+        ColumnBlock block = ColumnBlock.decode(payload);
+        assertEquals(3, block.getCount());
+        assertEquals(START + 1, block.getTime(0));
+        assertEquals(START + 9, block.getTime(2));
+        assertEquals(40, block.getLong(0, 2));
+        assertArrayEquals(new long[]{START + 1, START + 9, 20, 40}, ColumnBlock.summary(payload));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyRange() {
+        ColumnBlock.encode(new long[]{START}, new long[0][], 0, 0);
+    }
+
+    @NonNull
+    private static byte[] assertRoundTrip(@NonNull long[] times, @NonNull long[][] columns) {
+        byte[] payload = ColumnBlock.encode(times, columns, 0, times.length);
+        ColumnBlock block = ColumnBlock.decode(payload);
+        assertEquals(times.length, block.getCount());
+        for (int i = 0; i < times.length; i++) {
+            assertEquals("time " + i, times[i], block.getTime(i));
+            for (int column = 0; column < columns.length; column++)
+                assertEquals("column " + column + " point " + i, columns[column][i], block.getLong(column, i));
+        }
+        return payload;
+    }
+
+    private static long lowest(long value, int width) {
+        return width == 64 ? value : value & ((1L << width) - 1);
+    }
+}
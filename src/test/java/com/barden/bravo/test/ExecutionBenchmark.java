@@ -0,0 +1,177 @@
+package com.barden.bravo.test;
+
+import com.barden.bravo.execution.Execution;
+import com.barden.bravo.instrumentation.Dependency;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.lang.NonNull;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Execution benchmark class. [TEST]
+ * <p>
+ * Open loop load test of blocking request handling. Requests arrive at a fixed rate
+ * and latency is measured from their planned arrival, so a saturated path can't hide
+ * its queueing delay. It runs in two ways:
+ * <p>
+ * Without an url, requests go through the same execution path as controllers: work is
+ * handed to {@link Execution#run(Runnable)} and the dependency call is timed with
+ * {@link Dependency#time(String)}, so it takes a real dependency permit. Only the
+ * database call itself is a sleep of dependency latency. In scheduler mode requests
+ * arrive on the load thread and are forked to the scheduler pool; in virtual mode
+ * every request arrives on a virtual thread, as Tomcat does, and runs inline.
+ * Virtual mode needs a Java 21 runtime.
+ * <p>
+ * With an url, requests are sent to a running server. Run it once per execution mode.
+ * (bravo.execution.mode) Arguments:
+ * {@code [rate/sec] [seconds] [latency ms] [permits] [url] [api key]}
+ */
+public final class ExecutionBenchmark {
+
+    private static final LongAdder rejected = new LongAdder();
+
+    /**
+     * Runs benchmark.
+     *
+     * @param arguments Arguments.
+     */
+    public static void main(@NonNull String[] arguments) throws Exception {
+        int rate = arguments.length > 0 ? Integer.parseInt(arguments[0]) : 5_000;
+        int seconds = arguments.length > 1 ? Integer.parseInt(arguments[1]) : 10;
+        int latency = arguments.length > 2 ? Integer.parseInt(arguments[2]) : 20;
+        int permits = arguments.length > 3 ? Integer.parseInt(arguments[3]) : 512;
+        String url = arguments.length > 4 ? arguments[4] : null;
+        String key = arguments.length > 5 ? arguments[5] : "";
+
+        //Remote server.
+        if (url != null) {
+            HttpClient client = HttpClient.newBuilder().executor(Executors.newFixedThreadPool(4)).build();
+            HttpRequest request = HttpRequest.newBuilder(URI.create(url)).header("BARDEN-API-KEY", key).GET().build();
+            report("HTTP " + url, run(rate, seconds, (planned, done) -> client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, throwable) -> done.accept(planned))));
+            System.exit(0);
+        }
+
+        //Scheduler path: request thread forks work to the scheduler pool.
+        Execution.initialize("scheduler");
+        Dependency.MONGO.limit(permits);
+        report("SCHEDULER permits=" + permits, run(rate, seconds, (planned, done) -> Execution.run(() -> call(latency, planned, done))));
+
+        //Virtual path: every request has its own virtual thread, dependency is bounded by permits.
+        if (Runtime.version().feature() < 21) {
+            System.out.println("VIRTUAL: virtual threads need a Java 21 runtime, skipped.");
+            System.exit(0);
+        }
+        Execution.initialize("virtual");
+        Executor virtual = Objects.requireNonNull(Execution.getExecutor(), "virtual executor cannot be null!");
+        report("VIRTUAL permits=" + permits, run(rate, seconds, (planned, done) -> virtual.execute(() -> Execution.run(() -> call(latency, planned, done)))));
+        System.exit(0);
+    }
+
+    /**
+     * Handles a request like a controller: a single timed dependency call.
+     *
+     * @param latency Dependency latency. (MILLISECONDS)
+     * @param planned Planned arrival. (NANOSECONDS)
+     * @param done    Completion.
+     */
+    private static void call(int latency, long planned, @NonNull Completion done) {
+        try (var timing = Dependency.MONGO.time("benchmark")) {
+            block(latency);
+        } catch (IllegalStateException exception) {
+            //Permit timeout, request fails like it would in a controller.
+            rejected.increment();
+        }
+        done.accept(planned);
+    }
+
+    /**
+     * Request dispatcher.
+     */
+    @FunctionalInterface
+    private interface Dispatcher {
+        void dispatch(long planned, @NonNull Completion done);
+    }
+
+    /**
+     * Request completion.
+     */
+    @FunctionalInterface
+    private interface Completion {
+        void accept(long planned);
+    }
+
+    private static Result run(int rate, int seconds, @NonNull Dispatcher dispatcher) throws InterruptedException {
+        long requests = (long) rate * seconds;
+        long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        Histogram histogram = new ConcurrentHistogram(TimeUnit.MINUTES.toNanos(5), 3);
+        CountDownLatch latch = new CountDownLatch((int) requests);
+        AtomicLong last = new AtomicLong();
+
+        long start = System.nanoTime();
+        for (long i = 0; i < requests; i++) {
+            long planned = start + i * interval;
+            long wait = planned - System.nanoTime();
+            if (wait > 0)
+                LockSupport.parkNanos(wait);
+
+            dispatcher.dispatch(planned, _planned -> {
+                long now = System.nanoTime();
+                histogram.recordValue(now - _planned);
+                last.accumulateAndGet(now, Math::max);
+                latch.countDown();
+            });
+        }
+
+        //Waits for remaining requests.
+        if (!latch.await(5, TimeUnit.MINUTES))
+            System.out.println("Some requests didn't complete in 5 minutes!");
+        return new Result(requests - latch.getCount(), last.get() - start, histogram);
+    }
+
+    private static void block(int latency) {
+        try {
+            Thread.sleep(latency);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void report(@NonNull String name, @NonNull Result result) {
+        double seconds = result.nanoseconds / 1_000_000_000.0d;
+        System.out.printf("%s: %,d requests (%,d rejected) in %.3f s (%,.0f req/sec) p50=%.1f ms p99=%.1f ms max=%.1f ms%n",
+                name,
+                result.requests,
+                rejected.sumThenReset(),
+                seconds,
+                result.requests / seconds,
+                result.histogram.getValueAtPercentile(50) / 1_000_000.0d,
+                result.histogram.getValueAtPercentile(99) / 1_000_000.0d,
+                result.histogram.getMaxValue() / 1_000_000.0d);
+    }
+
+    private static final class Result {
+
+        private final long requests;
+        private final long nanoseconds;
+        private final Histogram histogram;
+
+        private Result(long requests, long nanoseconds, @NonNull Histogram histogram) {
+            this.requests = requests;
+            this.nanoseconds = nanoseconds;
+            this.histogram = histogram;
+        }
+    }
+}
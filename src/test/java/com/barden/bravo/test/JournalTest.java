@@ -0,0 +1,165 @@
+package com.barden.bravo.test;
+
+import com.barden.bravo.journal.Journal;
+import com.barden.bravo.journal.JournalRecord;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.lang.NonNull;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Journal crash recovery test class. [TEST]
+ * <p>
+ * A crash is simulated by opening the journal directory again without closing the
+ * previous journal, so nothing is written on the way out.
+ */
+public final class JournalTest {
+
+    //Every record is (12 bytes header + 20 bytes payload), so a 64 bytes segment holds 2 records.
+    private static final int RECORD = 32;
+    private static final int SMALL_SEGMENT = RECORD * 2;
+    private static final int LARGE_SEGMENT = 4096;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void replaysUncommittedRecordsAfterCrash() throws IOException {
+        Path directory = this.folder.newFolder().toPath();
+        Journal journal = new Journal(directory, LARGE_SEGMENT, 4);
+        for (int i = 0; i < 5; i++)
+            journal.append(payload(i), 1);
+        journal.commit(journal.read(2));
+
+        Journal recovered = new Journal(directory, LARGE_SEGMENT, 4);
+        assertRecords(recovered.read(10), 2, 3, 4);
+        assertEquals(3, recovered.getPendingRows());
+    }
+
+    @Test
+    public void readDoesNotMoveCursor() throws IOException {
+        Path directory = this.folder.newFolder().toPath();
+        Journal journal = new Journal(directory, LARGE_SEGMENT, 4);
+        for (int i = 0; i < 3; i++)
+            journal.append(payload(i), 1);
+        journal.read(2);
+
+        Journal recovered = new Journal(directory, LARGE_SEGMENT, 4);
+        assertRecords(recovered.read(10), 0, 1, 2);
+    }
+
+    @Test
+    public void tornRecordEndsSegment() throws IOException {
+        Path directory = this.folder.newFolder().toPath();
+        Journal journal = new Journal(directory, LARGE_SEGMENT, 4);
+        for (int i = 0; i < 3; i++)
+            journal.append(payload(i), 1);
+        journal.close();
+
+        //Corrupts payload of the third record, so its checksum fails.
+        try (RandomAccessFile file = new RandomAccessFile(segment(directory, 0).toFile(), "rw")) {
+            file.seek(RECORD * 2 + 12);
+            file.write('X');
+        }
+
+        Journal recovered = new Journal(directory, LARGE_SEGMENT, 4);
+        assertRecords(recovered.read(10), 0, 1);
+        assertEquals(2, recovered.getPendingRows());
+
+        //Torn record is overwritten by the next append.
+        recovered.append(payload(7), 1);
+        assertRecords(recovered.read(10), 0, 1, 7);
+    }
+
+    @Test
+    public void replaysAcrossSegmentsInOrder() throws IOException {
+        Path directory = this.folder.newFolder().toPath();
+        Journal journal = new Journal(directory, SMALL_SEGMENT, 8);
+        for (int i = 0; i < 6; i++)
+            journal.append(payload(i), 1);
+        assertEquals(3, journal.getSegmentCount());
+
+        //Cursor moves into the second segment, so the first one is consumed.
+        journal.commit(journal.read(3));
+        assertFalse(Files.exists(segment(directory, 0)));
+
+        Journal recovered = new Journal(directory, SMALL_SEGMENT, 8);
+        assertEquals(2, recovered.getSegmentCount());
+        assertRecords(recovered.read(10), 3, 4, 5);
+        assertEquals(3, recovered.getPendingRows());
+    }
+
+    @Test
+    public void committedSegmentsAreNotReplayed() throws IOException {
+        Path directory = this.folder.newFolder().toPath();
+        Journal journal = new Journal(directory, SMALL_SEGMENT, 8);
+        for (int i = 0; i < 4; i++)
+            journal.append(payload(i), 1);
+        journal.commit(journal.read(10));
+        assertTrue(journal.isEmpty());
+
+        Journal recovered = new Journal(directory, SMALL_SEGMENT, 8);
+        assertTrue(recovered.isEmpty());
+        assertTrue(recovered.read(10).isEmpty());
+        assertEquals(0, recovered.getPendingRows());
+    }
+
+    @Test
+    public void dropsOldestSegmentWhenFull() throws IOException {
+        Path directory = this.folder.newFolder().toPath();
+        Journal journal = new Journal(directory, SMALL_SEGMENT, 2);
+        for (int i = 0; i < 5; i++)
+            journal.append(payload(i), 1);
+        assertEquals(2, journal.getDroppedRows());
+        assertRecords(journal.read(10), 2, 3, 4);
+
+        //Cursor is moved to the oldest segment which is left.
+        Journal recovered = new Journal(directory, SMALL_SEGMENT, 2);
+        assertRecords(recovered.read(10), 2, 3, 4);
+    }
+
+    @Test
+    public void offerRejectsWhenFull() throws IOException {
+        Path directory = this.folder.newFolder().toPath();
+        Journal journal = new Journal(directory, SMALL_SEGMENT, 2);
+        for (int i = 0; i < 4; i++)
+            assertTrue(journal.offer(payload(i), 1));
+        assertFalse(journal.offer(payload(4), 1));
+        assertEquals(0, journal.getDroppedRows());
+        assertRecords(journal.read(10), 0, 1, 2, 3);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsPayloadLargerThanSegment() throws IOException {
+        Journal journal = new Journal(this.folder.newFolder().toPath(), SMALL_SEGMENT, 2);
+        journal.append(new byte[journal.getMaximumPayload() + 1], 1);
+    }
+
+    @NonNull
+    private static byte[] payload(int index) {
+        return String.format("record-%013d", index).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @NonNull
+    private static Path segment(@NonNull Path directory, long id) {
+        return directory.resolve(String.format("%020d", id) + ".seg");
+    }
+
+    private static void assertRecords(@NonNull List<JournalRecord> records, int... indexes) {
+        assertEquals(indexes.length, records.size());
+        for (int i = 0; i < indexes.length; i++)
+            assertArrayEquals(payload(indexes[i]), records.get(i).getPayload());
+    }
+}
@@ -0,0 +1,92 @@
+package com.barden.bravo.test;
+
+import com.barden.bravo.metrics.copy.MetricCopyWriter;
+import org.springframework.lang.NonNull;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Metric copy benchmark class. [TEST]
+ * <p>
+ * Compares batched inserts with binary copy on a player_metrics shaped table.
+ * Needs a local postgresql/timescaledb. Connection is read from arguments:
+ * {@code <jdbc url> <user> <password> [rows]}
+ */
+public final class MetricCopyBenchmark {
+
+    private static final String TABLE = "player_metrics_benchmark";
+    private static final String[] TYPES = {"WIN", "LOSE", "ROBLOX_SPENT", "GAME_START_TIME", "PLAYED_TIME"};
+
+    /**
+     * Runs benchmark.
+     *
+     * @param arguments Arguments.
+     */
+    public static void main(@NonNull String[] arguments) throws Exception {
+        String url = arguments.length > 0 ? arguments[0] : "jdbc:postgresql://localhost:5432/postgres";
+        String user = arguments.length > 1 ? arguments[1] : "postgres";
+        String password = arguments.length > 2 ? arguments[2] : "postgres";
+        int rows = arguments.length > 3 ? Integer.parseInt(arguments[3]) : 100_000;
+
+        try (Connection connection = DriverManager.getConnection(url, user, password)) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("DROP TABLE IF EXISTS " + TABLE);
+                statement.execute("CREATE TABLE " + TABLE + " (time TIMESTAMPTZ NOT NULL, player BIGINT NOT NULL, type TEXT NOT NULL, value DOUBLE PRECISION NOT NULL)");
+            }
+
+            //Warm up.
+            insert(connection, 10_000);
+            copy(connection, 10_000);
+
+            for (int i = 0; i < 3; i++) {
+                long start = System.nanoTime();
+                insert(connection, rows);
+                report("INSERT batch", rows, System.nanoTime() - start);
+
+                start = System.nanoTime();
+                copy(connection, rows);
+                report("COPY binary ", rows, System.nanoTime() - start);
+            }
+
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("DROP TABLE IF EXISTS " + TABLE);
+            }
+        }
+    }
+
+    private static void insert(@NonNull Connection connection, int rows) throws Exception {
+        long time = System.currentTimeMillis();
+        try (var insert = connection.prepareStatement("INSERT INTO " + TABLE + " (time, player, type, value) VALUES (?, ?, ?, ?)")) {
+            for (int i = 0; i < rows; i++) {
+                insert.setTimestamp(1, new Timestamp(time));
+                insert.setLong(2, ThreadLocalRandom.current().nextLong(1, 5_000_000_000L));
+                insert.setString(3, TYPES[i % TYPES.length]);
+                insert.setDouble(4, ThreadLocalRandom.current().nextDouble(0, 999999));
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+    }
+
+    private static void copy(@NonNull Connection connection, int rows) throws Exception {
+        long time = System.currentTimeMillis();
+        try (MetricCopyWriter writer = MetricCopyWriter.open(connection, TABLE, "time", "player", "type", "value")) {
+            for (int i = 0; i < rows; i++)
+                writer.row()
+                        .timestamp(time)
+                        .int8(ThreadLocalRandom.current().nextLong(1, 5_000_000_000L))
+                        .text(TYPES[i % TYPES.length])
+                        .float8(ThreadLocalRandom.current().nextDouble(0, 999999));
+            writer.finish();
+        }
+    }
+
+    private static void report(@NonNull String name, int rows, long nanoseconds) {
+        double seconds = nanoseconds / 1_000_000_000.0d;
+        System.out.printf("%s: %,d rows in %.3f s (%,.0f rows/sec)%n", name, rows, seconds, rows / seconds);
+    }
+}
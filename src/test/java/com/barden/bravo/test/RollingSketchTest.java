@@ -0,0 +1,110 @@
+package com.barden.bravo.test;
+
+import com.barden.bravo.metrics.rolling.RollingSketch;
+import org.junit.Test;
+import org.springframework.lang.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Rolling sketch test class. [TEST]
+ */
+public final class RollingSketchTest {
+
+    @Test
+    public void emptySketchEstimatesZero() {
+        assertEquals(0, estimate(new RollingSketch()));
+    }
+
+    @Test
+    public void smallCardinalitiesAreNearlyExact() {
+        RollingSketch sketch = new RollingSketch();
+        for (long i = 1; i <= 100; i++)
+            sketch.add(i);
+        assertWithin(100, estimate(sketch), 0.05d);
+    }
+
+    @Test
+    public void largeCardinalitiesAreWithinError() {
+        //Standard error is ~3.25%, 4 standard errors are allowed.
+        for (long cardinality : new long[]{10_000, 100_000, 1_000_000}) {
+            RollingSketch sketch = new RollingSketch();
+            for (long i = 0; i < cardinality; i++)
+                sketch.add(i * 7919 + 1);
+            assertWithin(cardinality, estimate(sketch), 0.13d);
+        }
+    }
+
+    @Test
+    public void duplicatesDontChangeEstimate() {
+        RollingSketch sketch = new RollingSketch();
+        for (long i = 0; i < 5_000; i++)
+            sketch.add(i);
+        byte[] before = registers(sketch);
+        for (int round = 0; round < 3; round++)
+            for (long i = 0; i < 5_000; i++)
+                sketch.add(i);
+        assertArrayEquals(before, registers(sketch));
+    }
+
+    @Test
+    public void mergeEstimatesUnion() {
+        RollingSketch first = new RollingSketch();
+        RollingSketch second = new RollingSketch();
+        RollingSketch union = new RollingSketch();
+        for (long i = 0; i < 60_000; i++) {
+            (i < 40_000 ? first : second).add(i);
+            if (i >= 20_000 && i < 40_000)
+                second.add(i);
+            union.add(i);
+        }
+
+        byte[] merged = new byte[RollingSketch.REGISTERS];
+        first.mergeInto(merged);
+        second.mergeInto(merged);
+        assertArrayEquals(registers(union), merged);
+        assertWithin(60_000, RollingSketch.estimate(merged), 0.13d);
+    }
+
+    @Test
+    public void concurrentAddsMatchSequentialAdds() throws InterruptedException {
+        RollingSketch concurrent = new RollingSketch();
+        RollingSketch sequential = new RollingSketch();
+        List<Thread> threads = new ArrayList<>();
+        for (int thread = 0; thread < 8; thread++) {
+            long offset = thread * 50_000L;
+            threads.add(new Thread(() -> {
+                for (long i = 0; i < 50_000; i++)
+                    concurrent.add(offset + i);
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads)
+            thread.join();
+        for (long i = 0; i < 8 * 50_000L; i++)
+            sequential.add(i);
+
+        //Registers only go up, so no raise may be lost to a concurrent writer.
+        assertArrayEquals(registers(sequential), registers(concurrent));
+    }
+
+    @NonNull
+    private static byte[] registers(@NonNull RollingSketch sketch) {
+        byte[] registers = new byte[RollingSketch.REGISTERS];
+        sketch.mergeInto(registers);
+        return registers;
+    }
+
+    private static long estimate(@NonNull RollingSketch sketch) {
+        return RollingSketch.estimate(registers(sketch));
+    }
+
+    private static void assertWithin(long expected, long actual, double error) {
+        assertTrue("estimate " + actual + " is not within " + error + " of " + expected, Math.abs(actual - expected) <= expected * error);
+    }
+}
@@ -0,0 +1,145 @@
+package com.barden.bravo.test;
+
+import com.barden.bravo.transaction.Transaction;
+import com.barden.bravo.transaction.codec.TransactionCodec;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.BsonDocument;
+import org.bson.UuidRepresentation;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.UuidCodecProvider;
+import org.bson.codecs.ValueCodecProvider;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.codecs.pojo.PojoCodecProvider;
+import org.bson.io.BasicOutputBuffer;
+import org.springframework.lang.NonNull;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transaction codec benchmark class. [TEST]
+ * <p>
+ * Compares reflective pojo encoding and bson document decoding with the explicit
+ * transaction codec. It doesn't need a database. Transaction count is read from
+ * arguments: {@code [transactions]}
+ */
+public final class TransactionCodecBenchmark {
+
+    private static final CodecRegistry POJO = CodecRegistries.fromProviders(
+            new UuidCodecProvider(UuidRepresentation.STANDARD),
+            new ValueCodecProvider(),
+            PojoCodecProvider.builder().automatic(true).build());
+    private static final BsonDocumentCodec DOCUMENT = new BsonDocumentCodec();
+
+    /**
+     * Runs benchmark.
+     *
+     * @param arguments Arguments.
+     */
+    public static void main(@NonNull String[] arguments) {
+        int count = arguments.length > 0 ? Integer.parseInt(arguments[0]) : 1_000_000;
+
+        //Seeded, so every run encodes the same transactions. Half of them have a receipt, like real traffic.
+        SplittableRandom random = new SplittableRandom(42);
+        List<Transaction> transactions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            transactions.add(new Transaction(
+                    new UUID(random.nextLong(), random.nextLong()),
+                    i % 2 == 0 ? String.valueOf(random.nextLong(1, Long.MAX_VALUE)) : null,
+                    new Date(1_600_000_000_000L + random.nextLong(0, TimeUnit.DAYS.toMillis(365))),
+                    random.nextLong(1, 50_000_000L),
+                    random.nextLong(1, 5_000_000_000L),
+                    random.nextInt(1, 10_000)));
+        Codec<Transaction> pojo = POJO.get(Transaction.class);
+        byte[][] documents = new byte[count][];
+        for (int i = 0; i < count; i++)
+            documents[i] = encode(TransactionCodec.INSTANCE, transactions.get(i));
+
+        //Warm up.
+        for (int i = 0; i < 3; i++) {
+            encodeAll(pojo, transactions);
+            encodeAll(TransactionCodec.INSTANCE, transactions);
+            decodeDocuments(documents);
+            decodeAll(documents);
+        }
+
+        for (int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            encodeAll(pojo, transactions);
+            report("ENCODE pojo    ", count, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            encodeAll(TransactionCodec.INSTANCE, transactions);
+            report("ENCODE codec   ", count, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            decodeDocuments(documents);
+            report("DECODE document", count, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            decodeAll(documents);
+            report("DECODE codec   ", count, System.nanoTime() - start);
+        }
+    }
+
+    private static void encodeAll(@NonNull Codec<Transaction> codec, @NonNull List<Transaction> transactions) {
+        long bytes = 0;
+        for (Transaction transaction : transactions)
+            bytes += encode(codec, transaction).length;
+        if (bytes == 0)
+            throw new IllegalStateException();
+    }
+
+    private static byte[] encode(@NonNull Codec<Transaction> codec, @NonNull Transaction transaction) {
+        BasicOutputBuffer buffer = new BasicOutputBuffer(128);
+        try (BsonBinaryWriter writer = new BsonBinaryWriter(buffer)) {
+            codec.encode(writer, transaction, EncoderContext.builder().build());
+        }
+        return buffer.toByteArray();
+    }
+
+    private static void decodeDocuments(@NonNull byte[][] documents) {
+        long sum = 0;
+        for (byte[] document : documents) {
+            try (BsonBinaryReader reader = new BsonBinaryReader(ByteBuffer.wrap(document))) {
+                BsonDocument _document = DOCUMENT.decode(reader, DecoderContext.builder().build());
+                Transaction transaction = new Transaction(
+                        _document.getBinary("uid").asUuid(),
+                        _document.containsKey("receipt") ? _document.getString("receipt").getValue() : null,
+                        new Date(_document.getDateTime("date").getValue()),
+                        _document.getInt64("product").getValue(),
+                        _document.getInt64("buyer").getValue(),
+                        _document.getInt32("price").getValue());
+                sum += transaction.getPrice();
+            }
+        }
+        if (sum == 0)
+            throw new IllegalStateException();
+    }
+
+    private static void decodeAll(@NonNull byte[][] documents) {
+        long sum = 0;
+        for (byte[] document : documents) {
+            try (BsonBinaryReader reader = new BsonBinaryReader(ByteBuffer.wrap(document))) {
+                sum += TransactionCodec.INSTANCE.decode(reader, DecoderContext.builder().build()).getPrice();
+            }
+        }
+        if (sum == 0)
+            throw new IllegalStateException();
+    }
+
+    private static void report(@NonNull String name, int count, long nanoseconds) {
+        double seconds = nanoseconds / 1_000_000_000.0d;
+        System.out.printf("%s: %,d transactions in %.3f s (%,.0f ops/sec)%n", name, count, seconds, count / seconds);
+    }
+}
@@ -0,0 +1,88 @@
+package com.barden.bravo.test;
+
+import com.barden.bravo.transaction.query.TransactionCursor;
+import com.barden.bravo.transaction.query.TransactionQuery;
+import org.junit.Test;
+import org.springframework.lang.NonNull;
+
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Transaction cursor token test class. [TEST]
+ */
+public final class TransactionCursorTest {
+
+    @Test
+    public void tokenRoundTrips() {
+        TransactionCursor cursor = new TransactionCursor(1_650_000_000_000L, 123_456_789L, 987_654_321L, UUID.randomUUID());
+        assertCursor(cursor, TransactionCursor.parse(cursor.toToken()));
+    }
+
+    @Test
+    public void tokenRoundTripsExtremes() {
+        TransactionCursor cursor = new TransactionCursor(Long.MIN_VALUE, -1L, Long.MAX_VALUE, new UUID(-1L, Long.MIN_VALUE));
+        assertCursor(cursor, TransactionCursor.parse(cursor.toToken()));
+    }
+
+    @Test
+    public void tokenIsUrlSafe() {
+        //Every byte 0xFF encodes to '_' in url-safe alphabet, or '/' in the standard one.
+        String token = new TransactionCursor(-1L, -1L, -1L, new UUID(-1L, -1L)).toToken();
+        assertEquals(54, token.length());
+        assertTrue(token, token.chars().allMatch(character -> Character.isLetterOrDigit(character) || character == '-' || character == '_'));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsShortToken() {
+        TransactionCursor.parse(Base64.getUrlEncoder().withoutPadding().encodeToString(new byte[39]));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsLongToken() {
+        TransactionCursor.parse(Base64.getUrlEncoder().withoutPadding().encodeToString(new byte[41]));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyToken() {
+        TransactionCursor.parse("");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsStandardAlphabet() {
+        byte[] bytes = new byte[40];
+        Arrays.fill(bytes, (byte) -1);
+        TransactionCursor.parse(Base64.getEncoder().withoutPadding().encodeToString(bytes));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsGarbage() {
+        TransactionCursor.parse("not a cursor!");
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void rejectsNullToken() {
+        TransactionCursor.parse(null);
+    }
+
+    @Test
+    public void uidOrderComparesUnsignedBytes() {
+        //Mongodb compares binaries as unsigned bytes, while UUID#compareTo compares signed longs.
+        UUID high = new UUID(0x8000000000000000L, 0L);
+        UUID low = new UUID(0x7FFFFFFFFFFFFFFFL, -1L);
+        assertTrue(TransactionQuery.UID_ORDER.compare(high, low) > 0);
+        assertTrue(TransactionQuery.UID_ORDER.compare(new UUID(1L, -1L), new UUID(1L, 1L)) > 0);
+        assertEquals(0, TransactionQuery.UID_ORDER.compare(new UUID(5L, 6L), new UUID(5L, 6L)));
+    }
+
+    private static void assertCursor(@NonNull TransactionCursor expected, @NonNull TransactionCursor actual) {
+        assertEquals(expected.getDate(), actual.getDate());
+        assertEquals(expected.getBuyer(), actual.getBuyer());
+        assertEquals(expected.getProduct(), actual.getProduct());
+        assertEquals(expected.getUid(), actual.getUid());
+    }
+}
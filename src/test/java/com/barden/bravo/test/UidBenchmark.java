@@ -0,0 +1,114 @@
+package com.barden.bravo.test;
+
+import com.barden.bravo.uid.UidGenerator;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import org.bson.BsonBinary;
+import org.bson.BsonDocument;
+import org.bson.UuidRepresentation;
+import org.springframework.lang.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Supplier;
+
+/**
+ * Unique id benchmark class. [TEST]
+ * <p>
+ * Compares {@link UUID#randomUUID()} with {@link UidGenerator} in two parts:
+ * generation throughput with contending threads, and insert rate to a collection
+ * with a unique uid index. Index part needs a local mongo and runs only if its
+ * connection string is given: {@code [threads] [mongo uri] [documents]}
+ */
+public final class UidBenchmark {
+
+    private static final int GENERATIONS = 2_000_000;
+    private static final int BATCH = 1_000;
+
+    /**
+     * Runs benchmark.
+     *
+     * @param arguments Arguments.
+     */
+    public static void main(@NonNull String[] arguments) throws Exception {
+        int threads = arguments.length > 0 ? Integer.parseInt(arguments[0]) : Runtime.getRuntime().availableProcessors();
+        String uri = arguments.length > 1 ? arguments[1] : null;
+        int documents = arguments.length > 2 ? Integer.parseInt(arguments[2]) : 1_000_000;
+
+        //Warm up.
+        generate(UUID::randomUUID, threads);
+        generate(UidGenerator::next, threads);
+
+        for (int i = 0; i < 3; i++) {
+            report("GENERATE random", (long) GENERATIONS * threads, generate(UUID::randomUUID, threads));
+            report("GENERATE v7    ", (long) GENERATIONS * threads, generate(UidGenerator::next, threads));
+        }
+
+        //If there is no mongo, no need to continue.
+        if (uri == null)
+            return;
+
+        try (MongoClient client = MongoClients.create(uri)) {
+            MongoCollection<BsonDocument> collection = client.getDatabase("bravo_benchmark").getCollection("uids", BsonDocument.class);
+            for (int i = 0; i < 2; i++) {
+                report("INSERT random  ", documents, insert(collection, UUID::randomUUID, documents));
+                report("INSERT v7      ", documents, insert(collection, UidGenerator::next, documents));
+            }
+            collection.drop();
+        }
+    }
+
+    private static long generate(@NonNull Supplier<UUID> generator, int threads) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+
+                long sum = 0;
+                for (int j = 0; j < GENERATIONS; j++)
+                    sum += generator.get().getLeastSignificantBits();
+                if (sum == 42)
+                    System.out.println();
+                done.countDown();
+            });
+            thread.start();
+        }
+
+        long time = System.nanoTime();
+        start.countDown();
+        done.await();
+        return System.nanoTime() - time;
+    }
+
+    private static long insert(@NonNull MongoCollection<BsonDocument> collection, @NonNull Supplier<UUID> generator, int documents) {
+        collection.drop();
+        collection.createIndex(Indexes.ascending("uid"), new IndexOptions().unique(true));
+
+        long time = System.nanoTime();
+        List<BsonDocument> batch = new ArrayList<>(BATCH);
+        for (int i = 0; i < documents; i++) {
+            batch.add(new BsonDocument("uid", new BsonBinary(generator.get(), UuidRepresentation.STANDARD)));
+            if (batch.size() == BATCH || i == documents - 1) {
+                collection.insertMany(batch);
+                batch.clear();
+            }
+        }
+        return System.nanoTime() - time;
+    }
+
+    private static void report(@NonNull String name, long count, long nanoseconds) {
+        double seconds = nanoseconds / 1_000_000_000.0d;
+        System.out.printf("%s: %,d ids in %.3f s (%,.0f ids/sec)%n", name, count, seconds, count / seconds);
+    }
+}
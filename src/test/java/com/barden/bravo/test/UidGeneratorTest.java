@@ -0,0 +1,92 @@
+package com.barden.bravo.test;
+
+import com.barden.bravo.uid.UidGenerator;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unique id generator test class. [TEST]
+ */
+public final class UidGeneratorTest {
+
+    //Counter starts below 2048 and holds 4096, so a millisecond always has room for 2048 ids.
+    private static final int PER_MILLISECOND = 2048;
+
+    @Test
+    public void idsOfThreadAreStrictlyIncreasing() {
+        //Generated in a tight loop, so counter overflows into next milliseconds too.
+        int count = 200_000;
+        UUID previous = UidGenerator.next();
+        for (int i = 0; i < count; i++) {
+            UUID uid = UidGenerator.next();
+            assertTrue(previous + " >= " + uid, Long.compareUnsigned(previous.getMostSignificantBits(), uid.getMostSignificantBits()) < 0);
+            assertTrue(previous.compareTo(uid) < 0);
+            previous = uid;
+        }
+    }
+
+    @Test
+    public void idsAreVersion7WithVariant2() {
+        for (int i = 0; i < 1000; i++) {
+            UUID uid = UidGenerator.next();
+            assertEquals(7, uid.version());
+            assertEquals(2, uid.variant());
+        }
+    }
+
+    @Test
+    public void timestampIsGenerationTime() {
+        long before = System.currentTimeMillis();
+        int count = 10_000;
+        long first = UidGenerator.getTime(UidGenerator.next());
+        long last = first;
+        for (int i = 0; i < count; i++)
+            last = UidGenerator.getTime(UidGenerator.next());
+        long after = System.currentTimeMillis();
+
+        //Counter overflow may move timestamp ahead of the clock, at most a millisecond per 2048 ids.
+        assertTrue(first >= before);
+        assertTrue(last >= first);
+        assertTrue(last <= after + count / PER_MILLISECOND + 1);
+    }
+
+    @Test
+    public void idsAreUniqueAcrossThreads() throws InterruptedException {
+        int threads = 8;
+        int count = 50_000;
+        Set<UUID> uids = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int thread = 0; thread < threads; thread++) {
+            new Thread(() -> {
+                try {
+                    start.await();
+                    Set<UUID> local = new HashSet<>();
+                    for (int i = 0; i < count; i++)
+                        local.add(UidGenerator.next());
+                    uids.addAll(local);
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        start.countDown();
+        done.await();
+        assertEquals(threads * count, uids.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void getTimeRejectsOtherVersions() {
+        UidGenerator.getTime(UUID.randomUUID());
+    }
+}